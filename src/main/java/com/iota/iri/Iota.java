@@ -5,10 +5,14 @@ import com.iota.iri.conf.TipSelConfig;
 import com.iota.iri.controllers.TipsViewModel;
 import com.iota.iri.controllers.TransactionViewModel;
 import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.network.BatchedUDPReceiver;
 import com.iota.iri.network.Node;
 import com.iota.iri.network.TransactionRequester;
 import com.iota.iri.network.UDPReceiver;
+import com.iota.iri.network.replicator.CatchUpSyncClient;
+import com.iota.iri.network.replicator.CatchUpSyncServer;
 import com.iota.iri.network.replicator.Replicator;
+import com.iota.iri.network.replicator.SelectorReplicator;
 import com.iota.iri.service.TipsSolidifier;
 import com.iota.iri.service.tipselection.EntryPointSelector;
 import com.iota.iri.service.tipselection.RatingCalculator;
@@ -84,6 +88,8 @@ public class Iota {
     public final Node node;
     public final UDPReceiver udpReceiver;
     public final Replicator replicator;
+    public final CatchUpSyncServer catchUpSyncServer;
+    public final CatchUpSyncClient catchUpSyncClient;
     public final IotaConfig configuration;
     public final TipsViewModel tipsViewModel;
     public final MessageQ messageQ;
@@ -108,8 +114,19 @@ public class Iota {
         milestoneTracker = new MilestoneTracker(tangle, transactionValidator, messageQ, initialSnapshot, configuration);
         node = new Node(tangle, transactionValidator, transactionRequester, tipsViewModel, milestoneTracker, messageQ,
                 configuration);
-        replicator = new Replicator(node, configuration);
-        udpReceiver = new UDPReceiver(node, configuration);
+        replicator = configuration.isTcpSelectorReplicatorEnabled()
+                ? new SelectorReplicator(node, configuration)
+                : new Replicator(node, configuration);
+        if (configuration.isCatchUpSyncEnabled()) {
+            catchUpSyncServer = new CatchUpSyncServer(node, tangle, configuration);
+            catchUpSyncClient = new CatchUpSyncClient(node, configuration, node::storeSyncedTransaction);
+        } else {
+            catchUpSyncServer = null;
+            catchUpSyncClient = null;
+        }
+        udpReceiver = configuration.isUdpBatchedReceiverEnabled()
+                ? new BatchedUDPReceiver(node, configuration)
+                : new UDPReceiver(node, configuration);
         ledgerValidator = new LedgerValidator(tangle, milestoneTracker, transactionRequester, messageQ);
         tipsSolidifier = new TipsSolidifier(tangle, transactionValidator, tipsViewModel);
         tipsSelector = createTipSelector(configuration);
@@ -139,10 +156,14 @@ public class Iota {
         milestoneTracker.init(SpongeFactory.Mode.CURLP27, 1, ledgerValidator);
         transactionValidator.init(configuration.isTestnet(), configuration.getMwm());
         tipsSolidifier.init();
-        transactionRequester.init(configuration.getpRemoveRequest());
+        transactionRequester.init(configuration.getpRemoveRequest(), configuration.getRequestRetryInterval());
         udpReceiver.init();
         replicator.init();
         node.init();
+        if (catchUpSyncServer != null) {
+            catchUpSyncServer.init();
+            catchUpSyncClient.init();
+        }
     }
 
     private void rescanDb() throws Exception {
@@ -181,6 +202,10 @@ public class Iota {
         node.shutdown();
         udpReceiver.shutdown();
         replicator.shutdown();
+        if (catchUpSyncServer != null) {
+            catchUpSyncClient.shutdown();
+            catchUpSyncServer.shutdown();
+        }
         transactionValidator.shutdown();
         tangle.shutdown();
         messageQ.shutdown();
@@ -208,7 +233,9 @@ public class Iota {
         tangle.addPersistenceProvider(new RocksDBPersistenceProvider(
                 configuration.getDbPath(),
                 configuration.getDbLogPath(),
-                configuration.getDbCacheSize()));
+                configuration.getDbCacheSize(),
+                configuration.isDbExistsFilterEnabled(),
+                configuration.isDbCompositeIndexEnabled()));
     }
 
     private TipSelector createTipSelector(TipSelConfig config) {
@@ -55,11 +55,17 @@ public class LedgerValidator {
         visitedNonMilestoneSubtangleHashes.add(Hash.NULL_HASH);
 
         final Queue<Hash> nonAnalyzedTransactions = new LinkedList<>(Collections.singleton(tip));
+        final List<Hash> batch = new ArrayList<>();
         Hash transactionPointer;
-        while ((transactionPointer = nonAnalyzedTransactions.poll()) != null) {
-            if (visitedNonMilestoneSubtangleHashes.add(transactionPointer)) {
-
-                final TransactionViewModel transactionViewModel = TransactionViewModel.fromHash(tangle, transactionPointer);
+        while (!nonAnalyzedTransactions.isEmpty()) {
+            // load the queued transactions with a single read, they are analyzed in the same order as one by one
+            batch.clear();
+            while ((transactionPointer = nonAnalyzedTransactions.poll()) != null) {
+                if (visitedNonMilestoneSubtangleHashes.add(transactionPointer)) {
+                    batch.add(transactionPointer);
+                }
+            }
+            for (final TransactionViewModel transactionViewModel : TransactionViewModel.fromHashes(tangle, batch)) {
                 if (transactionViewModel.snapshotIndex() == 0 || transactionViewModel.snapshotIndex() > latestSnapshotIndex) {
                     numberOfAnalyzedTransactions++;
                     if (typeControl(milestone, state, countedTx, nonAnalyzedTransactions, transactionViewModel)) {
@@ -67,6 +67,13 @@ public class MilestoneTracker {
         return latestMilestone;
     }
 
+    /**
+     * @return the address of the coordinator
+     */
+    public Hash getCoordinator() {
+        return coordinator;
+    }
+
     public void setLatestMilestone(Hash latestMilestone) {
         this.latestMilestone = latestMilestone;
     }
@@ -86,6 +93,14 @@ public class MilestoneTracker {
     protected static int latestSolidSubtangleMilestoneIndex;
     public final int milestoneStartIndex;
 
+    public static int getLatestMilestoneIndex() {
+        return latestMilestoneIndex;
+    }
+
+    public static int getLatestSolidSubtangleMilestoneIndex() {
+        return latestSolidSubtangleMilestoneIndex;
+    }
+
     public static void setLatestMilestoneIndex(int latestMilestoneIndex) {
         MilestoneTracker.latestMilestoneIndex = latestMilestoneIndex;
     }
@@ -53,6 +53,38 @@ public abstract class BaseIotaConfig extends IotaConfig {
     protected boolean dnsRefresherEnabled = Defaults.DNS_REFRESHER_ENABLED;
     protected boolean dnsResolutionEnabled = Defaults.DNS_RESOLUTION_ENABLED;
     protected List<String> neighbors = new ArrayList<>();
+    protected boolean udpBatchedReceiverEnabled = Defaults.UDP_BATCHED_RECEIVER_ENABLED;
+    protected int udpReceiveLoops = Defaults.UDP_RECEIVE_LOOPS;
+    protected int udpReceiveSockets = Defaults.UDP_RECEIVE_SOCKETS;
+    protected boolean tcpSelectorReplicatorEnabled = Defaults.TCP_SELECTOR_REPLICATOR_ENABLED;
+    protected int tcpIoThreads = Defaults.TCP_IO_THREADS;
+    protected boolean tcpBinaryFramingEnabled = Defaults.TCP_BINARY_FRAMING_ENABLED;
+    protected boolean catchUpSyncEnabled = Defaults.CATCH_UP_SYNC_ENABLED;
+    protected int catchUpSyncPort = Defaults.CATCH_UP_SYNC_PORT;
+    protected boolean adaptiveRequestsEnabled = Defaults.ADAPTIVE_REQUESTS_ENABLED;
+    protected double requestExploration = Defaults.REQUEST_EXPLORATION;
+    protected boolean receiveLanesEnabled = Defaults.RECEIVE_LANES_ENABLED;
+    protected boolean admissionControlEnabled = Defaults.ADMISSION_CONTROL_ENABLED;
+    protected boolean groupCommitEnabled = Defaults.GROUP_COMMIT_ENABLED;
+    protected int groupCommitWindow = Defaults.GROUP_COMMIT_WINDOW;
+    protected boolean compressedGossipEnabled = Defaults.COMPRESSED_GOSSIP_ENABLED;
+    protected boolean batchHashingEnabled = Defaults.BATCH_HASHING_ENABLED;
+    protected int hashingThreads = Defaults.HASHING_THREADS;
+    protected int hashBatchLatency = Defaults.HASH_BATCH_LATENCY;
+    protected int udpBufferPoolSize = Defaults.UDP_BUFFER_POOL_SIZE;
+    protected int receiveWorkers = Defaults.RECEIVE_WORKERS;
+    protected int replyWorkers = Defaults.REPLY_WORKERS;
+    protected int broadcastWorkers = Defaults.BROADCAST_WORKERS;
+    protected int workerBatchSize = Defaults.WORKER_BATCH_SIZE;
+    protected int udpSenderThreads = Defaults.UDP_SENDER_THREADS;
+    protected int udpSendQueueSize = Defaults.UDP_SEND_QUEUE_SIZE;
+    protected int sendBurst = Defaults.SEND_BURST;
+    protected double sendMilestoneReserve = Defaults.SEND_MILESTONE_RESERVE;
+    protected double sendReplyReserve = Defaults.SEND_REPLY_RESERVE;
+    protected List<String> sendNeighborWeights = new ArrayList<>();
+    protected int replyCacheSizeBytes = Defaults.REPLY_CACHE_SIZE_BYTES;
+    protected int seenSetSize = Defaults.SEEN_SET_SIZE;
+    protected int requestRetryInterval = Defaults.REQUEST_RETRY_INTERVAL;
 
     //IXI
     protected String ixiDir = Defaults.IXI_DIR;
@@ -64,6 +96,8 @@ public abstract class BaseIotaConfig extends IotaConfig {
     protected String mainDb = Defaults.ROCKS_DB;
     protected boolean revalidate = Defaults.REVALIDATE;
     protected boolean rescanDb = Defaults.RESCAN_DB;
+    protected boolean dbExistsFilterEnabled = Defaults.DB_EXISTS_FILTER_ENABLED;
+    protected boolean dbCompositeIndexEnabled = Defaults.DB_COMPOSITE_INDEX_ENABLED;
 
     //Protocol
     protected double pReplyRandomTip = Defaults.P_REPLY_RANDOM_TIP;
@@ -313,6 +347,367 @@ public abstract class BaseIotaConfig extends IotaConfig {
         this.neighbors = IotaUtils.splitStringToImmutableList(neighbors, SPLIT_STRING_TO_LIST_REGEX);
     }
 
+    @Override
+    public boolean isUdpBatchedReceiverEnabled() {
+        return udpBatchedReceiverEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--udp-batched-receiver"}, description = NetworkConfig.Descriptions.UDP_BATCHED_RECEIVER_ENABLED,
+            arity = 1)
+    protected void setUdpBatchedReceiverEnabled(boolean udpBatchedReceiverEnabled) {
+        this.udpBatchedReceiverEnabled = udpBatchedReceiverEnabled;
+    }
+
+    @Override
+    public int getUdpReceiveLoops() {
+        return udpReceiveLoops;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--udp-receive-loops"}, description = NetworkConfig.Descriptions.UDP_RECEIVE_LOOPS)
+    protected void setUdpReceiveLoops(int udpReceiveLoops) {
+        this.udpReceiveLoops = udpReceiveLoops;
+    }
+
+    @Override
+    public int getUdpReceiveSockets() {
+        return udpReceiveSockets;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--udp-receive-sockets"}, description = NetworkConfig.Descriptions.UDP_RECEIVE_SOCKETS)
+    protected void setUdpReceiveSockets(int udpReceiveSockets) {
+        this.udpReceiveSockets = udpReceiveSockets;
+    }
+
+    @Override
+    public boolean isTcpSelectorReplicatorEnabled() {
+        return tcpSelectorReplicatorEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--tcp-selector-replicator"}, description = NetworkConfig.Descriptions.TCP_SELECTOR_REPLICATOR_ENABLED,
+            arity = 1)
+    protected void setTcpSelectorReplicatorEnabled(boolean tcpSelectorReplicatorEnabled) {
+        this.tcpSelectorReplicatorEnabled = tcpSelectorReplicatorEnabled;
+    }
+
+    @Override
+    public int getTcpIoThreads() {
+        return tcpIoThreads;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--tcp-io-threads"}, description = NetworkConfig.Descriptions.TCP_IO_THREADS)
+    protected void setTcpIoThreads(int tcpIoThreads) {
+        this.tcpIoThreads = tcpIoThreads;
+    }
+
+    @Override
+    public boolean isTcpBinaryFramingEnabled() {
+        return tcpBinaryFramingEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--tcp-binary-framing"}, description = NetworkConfig.Descriptions.TCP_BINARY_FRAMING_ENABLED,
+            arity = 1)
+    protected void setTcpBinaryFramingEnabled(boolean tcpBinaryFramingEnabled) {
+        this.tcpBinaryFramingEnabled = tcpBinaryFramingEnabled;
+    }
+
+    @Override
+    public boolean isCatchUpSyncEnabled() {
+        return catchUpSyncEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--catch-up-sync"}, description = NetworkConfig.Descriptions.CATCH_UP_SYNC_ENABLED,
+            arity = 1)
+    protected void setCatchUpSyncEnabled(boolean catchUpSyncEnabled) {
+        this.catchUpSyncEnabled = catchUpSyncEnabled;
+    }
+
+    @Override
+    public int getCatchUpSyncPort() {
+        return catchUpSyncPort;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--catch-up-sync-port"}, description = NetworkConfig.Descriptions.CATCH_UP_SYNC_PORT)
+    protected void setCatchUpSyncPort(int catchUpSyncPort) {
+        this.catchUpSyncPort = catchUpSyncPort;
+    }
+
+    @Override
+    public boolean isAdaptiveRequestsEnabled() {
+        return adaptiveRequestsEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--adaptive-requests"}, description = NetworkConfig.Descriptions.ADAPTIVE_REQUESTS_ENABLED,
+            arity = 1)
+    protected void setAdaptiveRequestsEnabled(boolean adaptiveRequestsEnabled) {
+        this.adaptiveRequestsEnabled = adaptiveRequestsEnabled;
+    }
+
+    @Override
+    public double getRequestExploration() {
+        return requestExploration;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--request-exploration"}, description = NetworkConfig.Descriptions.REQUEST_EXPLORATION)
+    protected void setRequestExploration(double requestExploration) {
+        this.requestExploration = requestExploration;
+    }
+
+    @Override
+    public boolean isReceiveLanesEnabled() {
+        return receiveLanesEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--receive-lanes"}, description = NetworkConfig.Descriptions.RECEIVE_LANES_ENABLED,
+            arity = 1)
+    protected void setReceiveLanesEnabled(boolean receiveLanesEnabled) {
+        this.receiveLanesEnabled = receiveLanesEnabled;
+    }
+
+    @Override
+    public boolean isAdmissionControlEnabled() {
+        return admissionControlEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--admission-control"}, description = NetworkConfig.Descriptions.ADMISSION_CONTROL_ENABLED,
+            arity = 1)
+    protected void setAdmissionControlEnabled(boolean admissionControlEnabled) {
+        this.admissionControlEnabled = admissionControlEnabled;
+    }
+
+    @Override
+    public boolean isGroupCommitEnabled() {
+        return groupCommitEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--group-commit"}, description = NetworkConfig.Descriptions.GROUP_COMMIT_ENABLED, arity = 1)
+    protected void setGroupCommitEnabled(boolean groupCommitEnabled) {
+        this.groupCommitEnabled = groupCommitEnabled;
+    }
+
+    @Override
+    public int getGroupCommitWindow() {
+        return groupCommitWindow;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--group-commit-window"}, description = NetworkConfig.Descriptions.GROUP_COMMIT_WINDOW)
+    protected void setGroupCommitWindow(int groupCommitWindow) {
+        this.groupCommitWindow = groupCommitWindow;
+    }
+
+    @Override
+    public boolean isCompressedGossipEnabled() {
+        return compressedGossipEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--compressed-gossip"}, description = NetworkConfig.Descriptions.COMPRESSED_GOSSIP_ENABLED,
+            arity = 1)
+    protected void setCompressedGossipEnabled(boolean compressedGossipEnabled) {
+        this.compressedGossipEnabled = compressedGossipEnabled;
+    }
+
+    @Override
+    public boolean isBatchHashingEnabled() {
+        return batchHashingEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--batch-hashing"}, description = NetworkConfig.Descriptions.BATCH_HASHING_ENABLED,
+            arity = 1)
+    protected void setBatchHashingEnabled(boolean batchHashingEnabled) {
+        this.batchHashingEnabled = batchHashingEnabled;
+    }
+
+    @Override
+    public int getHashingThreads() {
+        return hashingThreads;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--hashing-threads"}, description = NetworkConfig.Descriptions.HASHING_THREADS)
+    protected void setHashingThreads(int hashingThreads) {
+        this.hashingThreads = hashingThreads;
+    }
+
+    @Override
+    public int getHashBatchLatency() {
+        return hashBatchLatency;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--hash-batch-latency"}, description = NetworkConfig.Descriptions.HASH_BATCH_LATENCY)
+    protected void setHashBatchLatency(int hashBatchLatency) {
+        this.hashBatchLatency = hashBatchLatency;
+    }
+
+    @Override
+    public int getUdpBufferPoolSize() {
+        return udpBufferPoolSize;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--udp-buffer-pool-size"}, description = NetworkConfig.Descriptions.UDP_BUFFER_POOL_SIZE)
+    protected void setUdpBufferPoolSize(int udpBufferPoolSize) {
+        this.udpBufferPoolSize = udpBufferPoolSize;
+    }
+
+    @Override
+    public int getReceiveWorkers() {
+        return receiveWorkers;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--receive-workers"}, description = NetworkConfig.Descriptions.RECEIVE_WORKERS)
+    protected void setReceiveWorkers(int receiveWorkers) {
+        this.receiveWorkers = receiveWorkers;
+    }
+
+    @Override
+    public int getReplyWorkers() {
+        return replyWorkers;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--reply-workers"}, description = NetworkConfig.Descriptions.REPLY_WORKERS)
+    protected void setReplyWorkers(int replyWorkers) {
+        this.replyWorkers = replyWorkers;
+    }
+
+    @Override
+    public int getBroadcastWorkers() {
+        return broadcastWorkers;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--broadcast-workers"}, description = NetworkConfig.Descriptions.BROADCAST_WORKERS)
+    protected void setBroadcastWorkers(int broadcastWorkers) {
+        this.broadcastWorkers = broadcastWorkers;
+    }
+
+    @Override
+    public int getWorkerBatchSize() {
+        return workerBatchSize;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--worker-batch-size"}, description = NetworkConfig.Descriptions.WORKER_BATCH_SIZE)
+    protected void setWorkerBatchSize(int workerBatchSize) {
+        this.workerBatchSize = workerBatchSize;
+    }
+
+    @Override
+    public int getUdpSenderThreads() {
+        return udpSenderThreads;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--udp-sender-threads"}, description = NetworkConfig.Descriptions.UDP_SENDER_THREADS)
+    protected void setUdpSenderThreads(int udpSenderThreads) {
+        this.udpSenderThreads = udpSenderThreads;
+    }
+
+    @Override
+    public int getUdpSendQueueSize() {
+        return udpSendQueueSize;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--udp-send-queue-size"}, description = NetworkConfig.Descriptions.UDP_SEND_QUEUE_SIZE)
+    protected void setUdpSendQueueSize(int udpSendQueueSize) {
+        this.udpSendQueueSize = udpSendQueueSize;
+    }
+
+    @Override
+    public int getSendBurst() {
+        return sendBurst;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--send-burst"}, description = NetworkConfig.Descriptions.SEND_BURST)
+    protected void setSendBurst(int sendBurst) {
+        this.sendBurst = sendBurst;
+    }
+
+    @Override
+    public double getSendMilestoneReserve() {
+        return sendMilestoneReserve;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--send-milestone-reserve"}, description = NetworkConfig.Descriptions.SEND_MILESTONE_RESERVE)
+    protected void setSendMilestoneReserve(double sendMilestoneReserve) {
+        this.sendMilestoneReserve = sendMilestoneReserve;
+    }
+
+    @Override
+    public double getSendReplyReserve() {
+        return sendReplyReserve;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--send-reply-reserve"}, description = NetworkConfig.Descriptions.SEND_REPLY_RESERVE)
+    protected void setSendReplyReserve(double sendReplyReserve) {
+        this.sendReplyReserve = sendReplyReserve;
+    }
+
+    @Override
+    public List<String> getSendNeighborWeights() {
+        return sendNeighborWeights;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--send-neighbor-weights"}, description = NetworkConfig.Descriptions.SEND_NEIGHBOR_WEIGHTS)
+    protected void setSendNeighborWeights(String sendNeighborWeights) {
+        this.sendNeighborWeights = IotaUtils.splitStringToImmutableList(sendNeighborWeights, SPLIT_STRING_TO_LIST_REGEX);
+    }
+
+    @Override
+    public int getReplyCacheSizeBytes() {
+        return replyCacheSizeBytes;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--reply-cache-size"}, description = NetworkConfig.Descriptions.REPLY_CACHE_SIZE_BYTES)
+    protected void setReplyCacheSizeBytes(int replyCacheSizeBytes) {
+        this.replyCacheSizeBytes = replyCacheSizeBytes;
+    }
+
+    @Override
+    public int getSeenSetSize() {
+        return seenSetSize;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--seen-set-size"}, description = NetworkConfig.Descriptions.SEEN_SET_SIZE)
+    protected void setSeenSetSize(int seenSetSize) {
+        this.seenSetSize = seenSetSize;
+    }
+
+    @Override
+    public int getRequestRetryInterval() {
+        return requestRetryInterval;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--request-retry-interval"}, description = NetworkConfig.Descriptions.REQUEST_RETRY_INTERVAL)
+    protected void setRequestRetryInterval(int requestRetryInterval) {
+        this.requestRetryInterval = requestRetryInterval;
+    }
+
     @Override
     public String getIxiDir() {
         return ixiDir;
@@ -390,6 +785,28 @@ public abstract class BaseIotaConfig extends IotaConfig {
         this.rescanDb = rescanDb;
     }
 
+    @Override
+    public boolean isDbExistsFilterEnabled() {
+        return dbExistsFilterEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--db-exists-filter"}, description = DbConfig.Descriptions.DB_EXISTS_FILTER, arity = 1)
+    protected void setDbExistsFilterEnabled(boolean dbExistsFilterEnabled) {
+        this.dbExistsFilterEnabled = dbExistsFilterEnabled;
+    }
+
+    @Override
+    public boolean isDbCompositeIndexEnabled() {
+        return dbCompositeIndexEnabled;
+    }
+
+    @JsonProperty
+    @Parameter(names = {"--db-composite-index"}, description = DbConfig.Descriptions.DB_COMPOSITE_INDEX, arity = 1)
+    protected void setDbCompositeIndexEnabled(boolean dbCompositeIndexEnabled) {
+        this.dbCompositeIndexEnabled = dbCompositeIndexEnabled;
+    }
+
     @Override
     public int getMwm() {
         return Defaults.MWM;
@@ -720,6 +1137,37 @@ public abstract class BaseIotaConfig extends IotaConfig {
         public static final int MAX_PEERS = 0;
         public static final boolean DNS_REFRESHER_ENABLED = true;
         public static final boolean DNS_RESOLUTION_ENABLED = true;
+        public static final boolean UDP_BATCHED_RECEIVER_ENABLED = false;
+        public static final int UDP_RECEIVE_LOOPS = 1;
+        public static final int UDP_RECEIVE_SOCKETS = 1;
+        public static final boolean TCP_SELECTOR_REPLICATOR_ENABLED = false;
+        public static final int TCP_IO_THREADS = 2;
+        public static final boolean TCP_BINARY_FRAMING_ENABLED = true;
+        public static final boolean CATCH_UP_SYNC_ENABLED = false;
+        public static final int CATCH_UP_SYNC_PORT = 15610;
+        public static final boolean ADAPTIVE_REQUESTS_ENABLED = false;
+        public static final double REQUEST_EXPLORATION = 0.1d;
+        public static final boolean RECEIVE_LANES_ENABLED = false;
+        public static final boolean ADMISSION_CONTROL_ENABLED = false;
+        public static final boolean GROUP_COMMIT_ENABLED = false;
+        public static final int GROUP_COMMIT_WINDOW = 0;
+        public static final boolean COMPRESSED_GOSSIP_ENABLED = false;
+        public static final boolean BATCH_HASHING_ENABLED = false;
+        public static final int HASHING_THREADS = 1;
+        public static final int HASH_BATCH_LATENCY = 2_000;
+        public static final int UDP_BUFFER_POOL_SIZE = 1_024;
+        public static final int RECEIVE_WORKERS = 1;
+        public static final int REPLY_WORKERS = 1;
+        public static final int BROADCAST_WORKERS = 1;
+        public static final int WORKER_BATCH_SIZE = 16;
+        public static final int UDP_SENDER_THREADS = 2;
+        public static final int UDP_SEND_QUEUE_SIZE = 256;
+        public static final int SEND_BURST = 100;
+        public static final double SEND_MILESTONE_RESERVE = 0.1d;
+        public static final double SEND_REPLY_RESERVE = 0.2d;
+        public static final int REPLY_CACHE_SIZE_BYTES = 16 * 1024 * 1024;
+        public static final int SEEN_SET_SIZE = 100_000;
+        public static final int REQUEST_RETRY_INTERVAL = 250;
 
         //ixi
         public static final String IXI_DIR = "ixi";
@@ -731,6 +1179,8 @@ public abstract class BaseIotaConfig extends IotaConfig {
         public static final String ROCKS_DB = "rocksdb";
         public static final boolean REVALIDATE = false;
         public static final boolean RESCAN_DB = false;
+        public static final boolean DB_EXISTS_FILTER_ENABLED = false;
+        public static final boolean DB_COMPOSITE_INDEX_ENABLED = false;
 
         //Protocol
         public static final double P_REPLY_RANDOM_TIP = 0.66d;
@@ -35,6 +35,16 @@ public interface DbConfig extends Config {
      */
     boolean isRescanDb();
 
+    /**
+     * @return {@value Descriptions#DB_EXISTS_FILTER}
+     */
+    boolean isDbExistsFilterEnabled();
+
+    /**
+     * @return {@value Descriptions#DB_COMPOSITE_INDEX}
+     */
+    boolean isDbCompositeIndexEnabled();
+
     interface Descriptions {
 
         String DB_PATH = "The folder where the DB saves its data.";
@@ -44,5 +54,12 @@ public interface DbConfig extends Config {
         String REVALIDATE = "Reload from the db data about confirmed transaction (milestones), state of the ledger, " +
                 "and transaction metadata.";
         String RESCAN_DB = "Rescan all transaction metadata (Approvees, Bundles, and Tags)";
+        String DB_EXISTS_FILTER = "Keep a Bloom filter of all stored transaction hashes in memory, about 1.25 bytes " +
+                "per transaction, so that most checks for missing transactions do not read the DB. It is built at " +
+                "startup.";
+        String DB_COMPOSITE_INDEX = "Store the address, bundle, approvee, tag and obsolete tag indexes as one " +
+                "empty DB entry per transaction instead of one list of hashes per key. The indexes are migrated at " +
+                "startup when this is switched on or off. Releases without this option cannot open a DB which has " +
+                "the composite indexes; start once with it switched off before going back to one.";
     }
 }
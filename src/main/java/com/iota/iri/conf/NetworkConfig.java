@@ -63,6 +63,166 @@ public interface NetworkConfig extends Config {
      */
     int getCacheSizeBytes();
 
+    /**
+     * @return Descriptions#UDP_BATCHED_RECEIVER_ENABLED
+     */
+    boolean isUdpBatchedReceiverEnabled();
+
+    /**
+     * @return Descriptions#UDP_RECEIVE_LOOPS
+     */
+    int getUdpReceiveLoops();
+
+    /**
+     * @return Descriptions#UDP_RECEIVE_SOCKETS
+     */
+    int getUdpReceiveSockets();
+
+    /**
+     * @return Descriptions#TCP_SELECTOR_REPLICATOR_ENABLED
+     */
+    boolean isTcpSelectorReplicatorEnabled();
+
+    /**
+     * @return Descriptions#TCP_IO_THREADS
+     */
+    int getTcpIoThreads();
+
+    /**
+     * @return Descriptions#TCP_BINARY_FRAMING_ENABLED
+     */
+    boolean isTcpBinaryFramingEnabled();
+
+    /**
+     * @return Descriptions#CATCH_UP_SYNC_ENABLED
+     */
+    boolean isCatchUpSyncEnabled();
+
+    /**
+     * @return Descriptions#CATCH_UP_SYNC_PORT
+     */
+    int getCatchUpSyncPort();
+
+    /**
+     * @return Descriptions#COMPRESSED_GOSSIP_ENABLED
+     */
+    boolean isCompressedGossipEnabled();
+
+    /**
+     * @return Descriptions#BATCH_HASHING_ENABLED
+     */
+    boolean isBatchHashingEnabled();
+
+    /**
+     * @return Descriptions#HASHING_THREADS
+     */
+    int getHashingThreads();
+
+    /**
+     * @return Descriptions#HASH_BATCH_LATENCY
+     */
+    int getHashBatchLatency();
+
+    /**
+     * @return Descriptions#UDP_BUFFER_POOL_SIZE
+     */
+    int getUdpBufferPoolSize();
+
+    /**
+     * @return Descriptions#RECEIVE_WORKERS
+     */
+    int getReceiveWorkers();
+
+    /**
+     * @return Descriptions#REPLY_WORKERS
+     */
+    int getReplyWorkers();
+
+    /**
+     * @return Descriptions#BROADCAST_WORKERS
+     */
+    int getBroadcastWorkers();
+
+    /**
+     * @return Descriptions#WORKER_BATCH_SIZE
+     */
+    int getWorkerBatchSize();
+
+    /**
+     * @return Descriptions#UDP_SENDER_THREADS
+     */
+    int getUdpSenderThreads();
+
+    /**
+     * @return Descriptions#UDP_SEND_QUEUE_SIZE
+     */
+    int getUdpSendQueueSize();
+
+    /**
+     * @return Descriptions#SEND_BURST
+     */
+    int getSendBurst();
+
+    /**
+     * @return Descriptions#SEND_MILESTONE_RESERVE
+     */
+    double getSendMilestoneReserve();
+
+    /**
+     * @return Descriptions#SEND_REPLY_RESERVE
+     */
+    double getSendReplyReserve();
+
+    /**
+     * @return Descriptions#SEND_NEIGHBOR_WEIGHTS
+     */
+    List<String> getSendNeighborWeights();
+
+    /**
+     * @return Descriptions#REPLY_CACHE_SIZE_BYTES
+     */
+    int getReplyCacheSizeBytes();
+
+    /**
+     * @return Descriptions#SEEN_SET_SIZE
+     */
+    int getSeenSetSize();
+
+    /**
+     * @return Descriptions#REQUEST_RETRY_INTERVAL
+     */
+    int getRequestRetryInterval();
+
+    /**
+     * @return Descriptions#ADAPTIVE_REQUESTS_ENABLED
+     */
+    boolean isAdaptiveRequestsEnabled();
+
+    /**
+     * @return Descriptions#REQUEST_EXPLORATION
+     */
+    double getRequestExploration();
+
+    /**
+     * @return Descriptions#RECEIVE_LANES_ENABLED
+     */
+    boolean isReceiveLanesEnabled();
+
+    /**
+     * @return Descriptions#ADMISSION_CONTROL_ENABLED
+     */
+    boolean isAdmissionControlEnabled();
+
+    /**
+     * @return Descriptions#GROUP_COMMIT_ENABLED
+     */
+    boolean isGroupCommitEnabled();
+
+    /**
+     * @return Descriptions#GROUP_COMMIT_WINDOW
+     */
+    int getGroupCommitWindow();
+
     abstract  class Descriptions {
         private Descriptions() {
 
@@ -71,7 +231,7 @@ public interface NetworkConfig extends Config {
         public static final String UDP_RECEIVER_PORT = "The UDP Receiver Port.";
         public static final String TCP_RECEIVER_PORT = "The TCP Receiver Port.";
         public static final String P_REMOVE_REQUEST = "A number between 0 and 1 that represents the probability of  stopping to request a transaction. This number should be " +
-            "closer to 0 so non-existing transaction hashes will eventually be removed.";
+            "closer to 0 so non-existing transaction hashes will eventually be removed. Requests expire after 1 / p attempts, 0 never removes them.";
         public static final String SEND_LIMIT = "The maximum number of packets that may be sent by this node in a 1 second interval. If this number is below 0 then there is no limit.";
         public static final String MAX_PEERS = "The maximum number of non mutually tethered connections allowed. Works only in testnet mode";
         public static final String DNS_REFRESHER_ENABLED = "Reconnect to neighbors that have dynamic IPs.";
@@ -80,5 +240,37 @@ public interface NetworkConfig extends Config {
         public static final String Q_SIZE_NODE = "The size of the REPLY, BROADCAST, and RECEIVE network queues.";
         public static final String P_DROP_CACHE_ENTRY =   "A number between 0 and 1 that represents the probability of  dropping recently seen transactions out of the network cache.";
         public static final String CACHE_SIZE_BYTES = "The size of the network cache in bytes";
+        public static final String UDP_BATCHED_RECEIVER_ENABLED = "Receive UDP packets through a non-blocking channel with pooled buffers instead of the classic single socket receiver.";
+        public static final String UDP_RECEIVE_LOOPS = "The number of receive loops draining the UDP channel when the batched receiver is enabled.";
+        public static final String UDP_RECEIVE_SOCKETS = "The number of UDP channels the batched receiver binds to the same port with SO_REUSEPORT, each with its own receive loops. Falls back to a single channel where the platform does not support it.";
+        public static final String TCP_SELECTOR_REPLICATOR_ENABLED = "Serve all TCP neighbors from a few non-blocking I/O threads instead of the classic replicator with a thread per connection.";
+        public static final String TCP_IO_THREADS = "The number of I/O threads serving the TCP neighbors when the selector replicator is enabled.";
+        public static final String TCP_BINARY_FRAMING_ENABLED = "Advertise and switch to the binary TCP framing with length prefixes and CRC32C checksums when the selector replicator is enabled. Neighbors which do not advertise it keep getting the text checksums.";
+        public static final String CATCH_UP_SYNC_ENABLED = "Serve the transactions confirmed by ranges of milestones to neighbors in bulk over TCP, and request them from neighbors when this node lags more than 20 milestones behind.";
+        public static final String CATCH_UP_SYNC_PORT = "The TCP port of the catch-up sync. Neighbors are requested on the same port.";
+        public static final String ADAPTIVE_REQUESTS_ENABLED = "Attach requests for missing transactions mainly to packets for the neighbors that answered requests most reliably and quickly, instead of to packets for every neighbor.";
+        public static final String RECEIVE_LANES_ENABLED = "Queue received transactions in three lanes, for transactions requested to solidify a milestone, other requested transactions and unsolicited ones, and process them at a ratio of 16 to 4 to 1, so that spam does not delay the next milestone.";
+        public static final String ADMISSION_CONTROL_ENABLED = "Drop unsolicited transactions of low priority when the receive queues fill up, database writes slow down or the CPU is saturated, starting with low weight transactions and ending with packets of neighbors that mostly send unsolicited transactions, which are dropped before they are hashed.";
+        public static final String GROUP_COMMIT_ENABLED = "Store received transactions through a single writer thread, which merges the transactions of all receive workers that arrive together into one database write. It pays off with several receive workers.";
+        public static final String GROUP_COMMIT_WINDOW = "The maximum time in microseconds a received transaction waits for others to be stored with it when group commit is enabled. With 0 only the transactions that queued up during the previous write are stored together, which adds no latency.";
+        public static final String REQUEST_EXPLORATION = "A number between 0 and 1 that represents the probability of attaching a request to a packet for one of the other neighbors when adaptive requests are enabled, so that their answers keep being measured.";
+        public static final String COMPRESSED_GOSSIP_ENABLED = "Leave out the trailing zeros of the signature message fragment when gossiping with neighbors that announce support for it. Over TCP this needs the selector replicator with binary framing.";
+        public static final String BATCH_HASHING_ENABLED = "Hash received transactions in batches of up to 64 on dedicated threads instead of one by one on the receiving threads.";
+        public static final String HASHING_THREADS = "The number of threads hashing received transactions when batch hashing is enabled.";
+        public static final String HASH_BATCH_LATENCY = "The number of microseconds a received transaction may wait for its hashing batch to fill when batch hashing is enabled.";
+        public static final String UDP_BUFFER_POOL_SIZE = "The number of pooled packet buffers shared by the batched UDP receiver. Packets are dropped when all buffers are in use.";
+        public static final String RECEIVE_WORKERS = "The number of threads storing transactions taken from the RECEIVE queue.";
+        public static final String REPLY_WORKERS = "The number of threads answering requests taken from the REPLY queue.";
+        public static final String BROADCAST_WORKERS = "The number of threads sending transactions taken from the BROADCAST queue to the neighbors.";
+        public static final String WORKER_BATCH_SIZE = "The maximum number of items a network queue worker takes from its queue per wakeup.";
+        public static final String UDP_SENDER_THREADS = "The number of threads sending queued UDP packets to the neighbors.";
+        public static final String UDP_SEND_QUEUE_SIZE = "The number of outgoing packets queued per UDP neighbor. The oldest packet is dropped when the queue is full.";
+        public static final String SEND_BURST = "The number of packets that may be sent at once when the send limit has not been used for a while.";
+        public static final String SEND_MILESTONE_RESERVE = "A number between 0 and 1 that represents the share of the send burst only milestones may use.";
+        public static final String SEND_REPLY_RESERVE = "A number between 0 and 1 that represents the share of the send burst only milestones and replies may use, on top of the milestone reserve.";
+        public static final String SEND_NEIGHBOR_WEIGHTS = "Weights of the neighbors' shares of the send limit, as uri=weight pairs. Neighbors without a weight get 1.";
+        public static final String SEEN_SET_SIZE = "The number of recently received transactions for which the node remembers which neighbors sent them, so that it does not broadcast them back. 0 broadcasts every transaction to all neighbors.";
+        public static final String REPLY_CACHE_SIZE_BYTES = "The size in bytes of the cache of recently stored transactions used to answer requests of neighbors. 0 disables the cache.";
+        public static final String REQUEST_RETRY_INTERVAL = "The number of milliseconds before a missing transaction is requested again. The interval doubles with every attempt up to 32 times its value.";
     }
 }
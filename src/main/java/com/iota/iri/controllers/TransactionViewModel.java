@@ -7,6 +7,7 @@ import com.iota.iri.model.persistables.Bundle;
 import com.iota.iri.model.persistables.ObsoleteTag;
 import com.iota.iri.model.persistables.Tag;
 import com.iota.iri.model.persistables.Transaction;
+import com.iota.iri.storage.GroupCommitWriter;
 import com.iota.iri.storage.Indexable;
 import com.iota.iri.storage.Persistable;
 import com.iota.iri.storage.Tangle;
@@ -151,6 +152,29 @@ public class TransactionViewModel {
         return transactionViewModel;
     }
 
+    /**
+     * Creates controllers for several {@link Transaction} sets at once, like {@link #fromHash(Tangle, Hash)} does for
+     * each of them, but with a single batched read from the database.
+     *
+     * @param tangle The tangle reference for the database
+     * @param hashes The {@link Hash} identifiers to search with
+     * @return The {@link TransactionViewModel}s with their Metadata filled in, in the iteration order of the hashes
+     * @throws Exception Thrown if there is an error loading the {@link Transaction} objects from the database
+     */
+    public static List<TransactionViewModel> fromHashes(Tangle tangle, final Collection<Hash> hashes)
+            throws Exception {
+        List<Persistable> transactions = tangle.loadBatch(Transaction.class, hashes);
+        List<TransactionViewModel> transactionViewModels = new ArrayList<>(hashes.size());
+        int i = 0;
+        for (Hash hash : hashes) {
+            TransactionViewModel transactionViewModel = new TransactionViewModel((Transaction) transactions.get(i++),
+                    hash);
+            fillMetadata(tangle, transactionViewModel);
+            transactionViewModels.add(transactionViewModel);
+        }
+        return transactionViewModels;
+    }
+
     /**
      * This method checks the {@link com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider} to determine if the
      * {@link Transaction} object might exist in the database. If it definitively does not exist, it will return False.
@@ -424,15 +448,44 @@ public class TransactionViewModel {
      * @throws Exception Thrown if there is an error fetching the batch or storing in the database.
      */
     public boolean store(Tangle tangle) throws Exception {
-        if (hash.equals(Hash.NULL_HASH) || exists(tangle, hash)) {
+        List<Pair<Indexable, Persistable>> batch = batchToStore(tangle);
+        if (batch == null || exists(tangle, hash)) {
             return false;
         }
+        return tangle.saveBatch(batch);
+    }
 
-        List<Pair<Indexable, Persistable>> batch = getSaveBatch();
-        if (exists(tangle, hash)) {
-            return false;
+    /**
+     * Stores the {@link Transaction} like {@link #store(Tangle)} does, but merges the write with those of other threads
+     * in a {@link GroupCommitWriter}. Returns once the {@link Transaction} is written.
+     *
+     * Unlike {@link #store(Tangle)}, the existence is not checked again after the batch was built: the write lands up
+     * to the window of the writer later, so that check would be just as stale. Two threads storing the same
+     * {@link Transaction} at the same time may therefore both write it, see {@link GroupCommitWriter}.
+     *
+     * @param tangle The tangle reference for the database.
+     * @param writer The writer that saves the batch
+     * @return True if the {@link Transaction} is stored, False if not.
+     * @throws Exception Thrown if there is an error fetching the batch or storing in the database.
+     */
+    public boolean store(Tangle tangle, GroupCommitWriter writer) throws Exception {
+        List<Pair<Indexable, Persistable>> batch = batchToStore(tangle);
+        return batch != null && writer.saveBatch(batch);
+    }
+
+    /**
+     * The part of storing a {@link Transaction} that does not depend on how the batch is written.
+     *
+     * @param tangle The tangle reference for the database.
+     * @return the batch storing the {@link Transaction}, null if its {@link Hash} identifier is null or it is stored
+     * already
+     * @throws Exception Thrown if there is an error fetching the batch.
+     */
+    private List<Pair<Indexable, Persistable>> batchToStore(Tangle tangle) throws Exception {
+        if (hash.equals(Hash.NULL_HASH) || exists(tangle, hash)) {
+            return null;
         }
-        return tangle.saveBatch(batch);
+        return getSaveBatch();
     }
 
     /**
@@ -0,0 +1,123 @@
+package com.iota.iri.crypto;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Curl-P hashing of up to {@link #MAX_BATCH_SIZE} inputs in one pass.
+ * <p>
+ * The state is bitsliced like in the pair mode of {@link Curl} and in {@link PearlDiver}: every trit of the state is
+ * held in two longs, and bit {@code i} of both belongs to input {@code i}. A transform then costs a few bitwise
+ * operations per trit for all inputs together, instead of a table lookup per trit for every single input.
+ * </p>
+ * <p>
+ * The hashes are the same as the ones of a {@link Curl} of the same mode which absorbs an input after a reset and
+ * squeezes {@link Sponge#HASH_LENGTH} trits. Instances are not thread safe.
+ * </p>
+ */
+public final class BatchCurl {
+
+    public static final int MAX_BATCH_SIZE = Long.SIZE;
+
+    private static final int STATE_LENGTH = 3 * Sponge.HASH_LENGTH;
+
+    /**
+     * The state index read by every step of a round, plus the one after the last step.
+     */
+    private static final int[] INDICES = new int[STATE_LENGTH + 1];
+
+    static {
+        for (int i = 1; i <= STATE_LENGTH; i++) {
+            INDICES[i] = INDICES[i - 1] < 365 ? INDICES[i - 1] + 364 : INDICES[i - 1] - 365;
+        }
+    }
+
+    private final int numberOfRounds;
+
+    private long[] stateLow = new long[STATE_LENGTH];
+    private long[] stateHigh = new long[STATE_LENGTH];
+    private long[] scratchpadLow = new long[STATE_LENGTH];
+    private long[] scratchpadHigh = new long[STATE_LENGTH];
+
+    /**
+     * @param mode {@link SpongeFactory.Mode#CURLP81} or {@link SpongeFactory.Mode#CURLP27}
+     */
+    public BatchCurl(SpongeFactory.Mode mode) {
+        switch (mode) {
+            case CURLP27:
+                numberOfRounds = Curl.NUMBER_OF_ROUNDSP27;
+                break;
+            case CURLP81:
+                numberOfRounds = Curl.NUMBER_OF_ROUNDSP81;
+                break;
+            default:
+                throw new NoSuchElementException("Only Curl-P-27 and Curl-P-81 are supported.");
+        }
+    }
+
+    /**
+     * Hashes inputs of the same length.
+     *
+     * @param inputs the trits of the inputs
+     * @param count the number of inputs to hash, at most {@link #MAX_BATCH_SIZE}
+     * @param length the number of trits of every input
+     * @param hashes receives the {@link Sponge#HASH_LENGTH} trits of the hash of every input
+     */
+    public void hash(byte[][] inputs, int count, int length, byte[][] hashes) {
+        if (count > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("at most " + MAX_BATCH_SIZE + " inputs per batch: " + count);
+        }
+        Arrays.fill(stateLow, -1L);
+        Arrays.fill(stateHigh, -1L);
+        int offset = 0;
+        do {
+            absorb(inputs, count, offset, Math.min(length - offset, Sponge.HASH_LENGTH));
+            transform();
+            offset += Sponge.HASH_LENGTH;
+        } while (offset < length);
+        for (int lane = 0; lane < count; lane++) {
+            byte[] hash = hashes[lane];
+            for (int i = 0; i < Sponge.HASH_LENGTH; i++) {
+                hash[i] = (byte) (((stateHigh[i] >>> lane) & 1) - ((stateLow[i] >>> lane) & 1));
+            }
+        }
+    }
+
+    /**
+     * Packs a block of every input into the first trits of the state. A trit {@code t} is set to {@code 0} in the low
+     * bits if it is {@code 1} and to {@code 0} in the high bits if it is {@code -1}.
+     */
+    private void absorb(byte[][] inputs, int count, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            stateLow[i] = 0;
+            stateHigh[i] = 0;
+        }
+        for (int lane = 0; lane < count; lane++) {
+            byte[] input = inputs[lane];
+            for (int i = 0; i < length; i++) {
+                int trit = input[offset + i];
+                stateLow[i] |= (long) ((trit - 1) >>> 31) << lane;
+                stateHigh[i] |= (long) ((-trit - 1) >>> 31) << lane;
+            }
+        }
+    }
+
+    private void transform() {
+        for (int round = 0; round < numberOfRounds; round++) {
+            long[] low = scratchpadLow;
+            long[] high = scratchpadHigh;
+            scratchpadLow = stateLow;
+            scratchpadHigh = stateHigh;
+            stateLow = low;
+            stateHigh = high;
+            for (int i = 0; i < STATE_LENGTH; i++) {
+                long alpha = scratchpadLow[INDICES[i]];
+                long beta = scratchpadHigh[INDICES[i]];
+                long gamma = scratchpadHigh[INDICES[i + 1]];
+                long delta = (alpha | ~gamma) & (scratchpadLow[INDICES[i + 1]] ^ beta);
+                low[i] = ~delta;
+                high[i] = (alpha ^ gamma) | delta;
+            }
+        }
+    }
+}
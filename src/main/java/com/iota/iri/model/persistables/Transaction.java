@@ -7,6 +7,8 @@ import com.iota.iri.storage.Persistable;
 import com.iota.iri.utils.Serializer;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Transaction implements Persistable {
     public static final int SIZE = 1604;
@@ -21,6 +23,30 @@ public class Transaction implements Persistable {
      */
     public static final int IS_MILESTONE_BITMASK = 0b10;
 
+    /**
+     * Bits of the first byte of a metadata patch, each one marks a field the patch carries.
+     */
+    private static final int PATCH_SOLID = 0b1;
+    private static final int PATCH_MILESTONE = 0b10;
+    private static final int PATCH_HEIGHT = 0b100;
+    private static final int PATCH_SNAPSHOT = 0b1000;
+    private static final int PATCH_VALIDITY = 0b10000;
+    private static final int PATCH_ARRIVAL_TIME = 0b100000;
+    private static final int PATCH_SENDER = 0b1000000;
+
+    /**
+     * A patch ends with this byte, its length in two bytes and this byte again. The full metadata never ends like
+     * that: it ends with the sender, which is never 0xFF in UTF-8, or with the snapshot index, which is not negative.
+     */
+    private static final byte PATCH_MARK = (byte) 0xFF;
+    private static final int PATCH_TRAILER_SIZE = 4;
+    private static final int MAX_PATCH_SIZE = 0xFFFF;
+
+    /**
+     * The delimiter the merge operator of the database puts between the stored value and a merged patch.
+     */
+    private static final byte MERGE_DELIMITER = ',';
+
     private byte[] bytes;
 
     private Hash address;
@@ -268,61 +294,204 @@ public class Transaction implements Persistable {
         return buffer.array();
     }
 
+    /**
+     * Encodes the fields named by {@code item} as a patch, so an update of a few flags writes a few bytes instead of
+     * the whole metadata. Patches are merged behind the stored metadata and applied by {@link #readMetadata(byte[])}
+     * in the order they were written.
+     *
+     * @param item the fields separated by {@code |}, any of {@code solid}, {@code milestone}, {@code height},
+     *             {@code snapshot}, {@code validity}, {@code arrivalTime} and {@code sender}
+     * @return the patch, or {@code null} if {@code item} names another field
+     */
+    @Override
+    public byte[] metadataPatch(String item) {
+        if (item == null) {
+            return null;
+        }
+        int mask = 0;
+        for (String field : item.split("\\|")) {
+            switch (field) {
+                case "solid":
+                    mask |= PATCH_SOLID;
+                    break;
+                case "milestone":
+                    mask |= PATCH_MILESTONE;
+                    break;
+                case "height":
+                    mask |= PATCH_HEIGHT;
+                    break;
+                case "snapshot":
+                    mask |= PATCH_SNAPSHOT;
+                    break;
+                case "validity":
+                    mask |= PATCH_VALIDITY;
+                    break;
+                case "arrivalTime":
+                    mask |= PATCH_ARRIVAL_TIME;
+                    break;
+                case "sender":
+                    mask |= PATCH_SENDER;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        byte[] senderBytes = (mask & PATCH_SENDER) != 0 ? sender.getBytes() : new byte[0];
+        int size = 1 +
+                ((mask & (PATCH_SOLID | PATCH_MILESTONE)) != 0 ? 1 : 0) +
+                ((mask & PATCH_HEIGHT) != 0 ? Long.BYTES : 0) +
+                ((mask & PATCH_SNAPSHOT) != 0 ? Integer.BYTES : 0) +
+                ((mask & PATCH_VALIDITY) != 0 ? Integer.BYTES : 0) +
+                ((mask & PATCH_ARRIVAL_TIME) != 0 ? Long.BYTES : 0) +
+                senderBytes.length;
+        if (size > MAX_PATCH_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size + PATCH_TRAILER_SIZE);
+        buffer.put((byte) mask);
+        if ((mask & (PATCH_SOLID | PATCH_MILESTONE)) != 0) {
+            byte flags = 0;
+            flags |= solid ? IS_SOLID_BITMASK : 0;
+            flags |= milestone ? IS_MILESTONE_BITMASK : 0;
+            buffer.put(flags);
+        }
+        if ((mask & PATCH_HEIGHT) != 0) {
+            buffer.putLong(height);
+        }
+        if ((mask & PATCH_SNAPSHOT) != 0) {
+            buffer.putInt(snapshot);
+        }
+        if ((mask & PATCH_VALIDITY) != 0) {
+            buffer.putInt(validity);
+        }
+        if ((mask & PATCH_ARRIVAL_TIME) != 0) {
+            buffer.putLong(arrivalTime);
+        }
+        buffer.put(senderBytes);
+        buffer.put(PATCH_MARK);
+        buffer.putShort((short) size);
+        buffer.put(PATCH_MARK);
+        return buffer.array();
+    }
+
+    /**
+     * Reads the metadata written by {@link #metadata()}, followed by the patches of {@link #metadataPatch(String)}
+     * merged since. A value made of patches only, because the metadata of the transaction was never written, leaves
+     * all other fields untouched.
+     *
+     * @param bytes the stored value
+     */
     @Override
     public void readMetadata(byte[] bytes) {
-        int i = 0;
-        if(bytes != null) {
-            address = HashFactory.ADDRESS.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
-            bundle = HashFactory.BUNDLE.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
-            trunk = HashFactory.TRANSACTION.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
-            branch = HashFactory.TRANSACTION.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
-            obsoleteTag = HashFactory.OBSOLETETAG.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
-            value = Serializer.getLong(bytes, i);
-            i += Long.BYTES;
-            currentIndex = Serializer.getLong(bytes, i);
-            i += Long.BYTES;
-            lastIndex = Serializer.getLong(bytes, i);
-            i += Long.BYTES;
-            timestamp = Serializer.getLong(bytes, i);
-            i += Long.BYTES;
+        if (bytes == null) {
+            return;
+        }
+        // patches are found from the end, the newest first
+        List<int[]> patches = new ArrayList<>();
+        int end = bytes.length;
+        while (end >= PATCH_TRAILER_SIZE + 1 && bytes[end - 1] == PATCH_MARK
+                && bytes[end - PATCH_TRAILER_SIZE] == PATCH_MARK) {
+            int size = ((bytes[end - 3] & 0xFF) << 8) | (bytes[end - 2] & 0xFF);
+            int start = end - PATCH_TRAILER_SIZE - size;
+            if (size == 0 || start < 0 || (start > 0 && bytes[start - 1] != MERGE_DELIMITER)) {
+                break;
+            }
+            patches.add(new int[]{start, start + size});
+            end = start > 0 ? start - 1 : 0;
+        }
+        if (end > 0) {
+            readFullMetadata(bytes, end);
+        }
+        for (int p = patches.size() - 1; p >= 0; p--) {
+            applyPatch(bytes, patches.get(p)[0], patches.get(p)[1]);
+        }
+    }
 
-            tag = HashFactory.TAG.create(bytes, i, Hash.SIZE_IN_BYTES);
-            i += Hash.SIZE_IN_BYTES;
-            attachmentTimestamp = Serializer.getLong(bytes, i);
-            i += Long.BYTES;
-            attachmentTimestampLowerBound = Serializer.getLong(bytes, i);
-            i += Long.BYTES;
-            attachmentTimestampUpperBound = Serializer.getLong(bytes, i);
+    private void applyPatch(byte[] bytes, int start, int end) {
+        int i = start;
+        int mask = bytes[i++];
+        if ((mask & (PATCH_SOLID | PATCH_MILESTONE)) != 0) {
+            if ((mask & PATCH_SOLID) != 0) {
+                solid = (bytes[i] & IS_SOLID_BITMASK) != 0;
+            }
+            if ((mask & PATCH_MILESTONE) != 0) {
+                milestone = (bytes[i] & IS_MILESTONE_BITMASK) != 0;
+            }
+            i++;
+        }
+        if ((mask & PATCH_HEIGHT) != 0) {
+            height = Serializer.getLong(bytes, i);
             i += Long.BYTES;
-
-            validity = Serializer.getInteger(bytes, i);
+        }
+        if ((mask & PATCH_SNAPSHOT) != 0) {
+            snapshot = Serializer.getInteger(bytes, i);
             i += Integer.BYTES;
-            type = Serializer.getInteger(bytes, i);
+        }
+        if ((mask & PATCH_VALIDITY) != 0) {
+            validity = Serializer.getInteger(bytes, i);
             i += Integer.BYTES;
+        }
+        if ((mask & PATCH_ARRIVAL_TIME) != 0) {
             arrivalTime = Serializer.getLong(bytes, i);
             i += Long.BYTES;
-            height = Serializer.getLong(bytes, i);
-            i += Long.BYTES;
-
-            // decode the boolean byte by checking the bitmasks
-            solid = (bytes[i] & IS_SOLID_BITMASK) != 0;
-            milestone = (bytes[i] & IS_MILESTONE_BITMASK) != 0;
-            i++;
+        }
+        if ((mask & PATCH_SENDER) != 0) {
+            sender = new String(bytes, i, end - i);
+        }
+    }
 
-            snapshot = Serializer.getInteger(bytes, i);
-            i += Integer.BYTES;
-            byte[] senderBytes = new byte[bytes.length - i];
-            if (senderBytes.length != 0) {
-                System.arraycopy(bytes, i, senderBytes, 0, senderBytes.length);
-            }
-            sender = new String(senderBytes);
-            parsed = true;
+    private void readFullMetadata(byte[] bytes, int end) {
+        int i = 0;
+        address = HashFactory.ADDRESS.create(bytes, i, Hash.SIZE_IN_BYTES);
+        i += Hash.SIZE_IN_BYTES;
+        bundle = HashFactory.BUNDLE.create(bytes, i, Hash.SIZE_IN_BYTES);
+        i += Hash.SIZE_IN_BYTES;
+        trunk = HashFactory.TRANSACTION.create(bytes, i, Hash.SIZE_IN_BYTES);
+        i += Hash.SIZE_IN_BYTES;
+        branch = HashFactory.TRANSACTION.create(bytes, i, Hash.SIZE_IN_BYTES);
+        i += Hash.SIZE_IN_BYTES;
+        obsoleteTag = HashFactory.OBSOLETETAG.create(bytes, i, Hash.SIZE_IN_BYTES);
+        i += Hash.SIZE_IN_BYTES;
+        value = Serializer.getLong(bytes, i);
+        i += Long.BYTES;
+        currentIndex = Serializer.getLong(bytes, i);
+        i += Long.BYTES;
+        lastIndex = Serializer.getLong(bytes, i);
+        i += Long.BYTES;
+        timestamp = Serializer.getLong(bytes, i);
+        i += Long.BYTES;
+
+        tag = HashFactory.TAG.create(bytes, i, Hash.SIZE_IN_BYTES);
+        i += Hash.SIZE_IN_BYTES;
+        attachmentTimestamp = Serializer.getLong(bytes, i);
+        i += Long.BYTES;
+        attachmentTimestampLowerBound = Serializer.getLong(bytes, i);
+        i += Long.BYTES;
+        attachmentTimestampUpperBound = Serializer.getLong(bytes, i);
+        i += Long.BYTES;
+
+        validity = Serializer.getInteger(bytes, i);
+        i += Integer.BYTES;
+        type = Serializer.getInteger(bytes, i);
+        i += Integer.BYTES;
+        arrivalTime = Serializer.getLong(bytes, i);
+        i += Long.BYTES;
+        height = Serializer.getLong(bytes, i);
+        i += Long.BYTES;
+
+        // decode the boolean byte by checking the bitmasks
+        solid = (bytes[i] & IS_SOLID_BITMASK) != 0;
+        milestone = (bytes[i] & IS_MILESTONE_BITMASK) != 0;
+        i++;
+
+        snapshot = Serializer.getInteger(bytes, i);
+        i += Integer.BYTES;
+        byte[] senderBytes = new byte[end - i];
+        if (senderBytes.length != 0) {
+            System.arraycopy(bytes, i, senderBytes, 0, senderBytes.length);
         }
+        sender = new String(senderBytes);
+        parsed = true;
     }
 
     @Override
@@ -0,0 +1,278 @@
+package com.iota.iri.network;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Sheds received transactions of low priority when the node is overloaded, before they cost hashing, validation and
+ * a database write.
+ * <p>
+ * The load is a single pressure, the highest of a set of signals such as queue fill levels, the database write latency
+ * and the CPU load, each scaled so that 1 means overloaded. It is sampled every {@link #SAMPLE_INTERVAL_NS} and
+ * smoothed over the samples. As the pressure rises, transactions are shed progressively by priority:
+ * </p>
+ * <ol>
+ * <li>From {@link #LOW_WEIGHT_START} unsolicited transactions of low weight magnitude, all of them at
+ * {@link #LOW_WEIGHT_FULL}.</li>
+ * <li>From {@link #UNSOLICITED_START} all unsolicited transactions, all of them at {@link #UNSOLICITED_FULL}.</li>
+ * <li>Above {@link #BLIND_START} packets before they are hashed, which is the most expensive step. A queue that
+ * overflows drops requested transactions too, so this step does not settle at some pressure between the start and
+ * overload like the others: its probability grows with every sample above {@link #BLIND_START} and falls with every
+ * sample below, which holds the pressure at {@link #BLIND_START} whatever the excess load. Whether a transaction was
+ * requested is only known from its hash, so a packet is shed with this probability scaled by the
+ * {@link NeighborMetrics#getUnsolicitedShare() unsolicited share} of its sender, and at most with
+ * {@link #MAX_BLIND_SHED}. A neighbor that floods the node with spam is shed first, one that answers requests last.
+ * Packets of the coordinator are never shed.</li>
+ * </ol>
+ * <p>
+ * Requested transactions are not shed once they are hashed.
+ * </p>
+ */
+public class AdmissionController {
+
+    static final long SAMPLE_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(10);
+    /**
+     * Weight of the latest sample in the pressure.
+     */
+    static final double SAMPLE_WEIGHT = 0.5;
+    static final double LOW_WEIGHT_START = 0.5;
+    static final double LOW_WEIGHT_FULL = 0.8;
+    static final double UNSOLICITED_START = 0.6;
+    static final double UNSOLICITED_FULL = 0.9;
+    static final double BLIND_START = 0.75;
+    /**
+     * Change of the probability to shed packets before hashing per sample and unit of pressure above
+     * {@link #BLIND_START}.
+     */
+    static final double BLIND_GAIN = 1.0;
+    static final double MAX_BLIND_SHED = 0.95;
+    /**
+     * A fully loaded CPU alone sheds low weight transactions only.
+     */
+    static final double CPU_PRESSURE = 0.7;
+    /**
+     * Weight of a single write in the running average of the write latency.
+     */
+    private static final double WRITE_WEIGHT = 0.05;
+
+    private final LongSupplier clock;
+    private final DoubleSupplier random;
+    private final List<String> names = new ArrayList<>();
+    private final List<DoubleSupplier> signals = new ArrayList<>();
+
+    private volatile double pressure;
+    private volatile double blindShed;
+    private volatile double[] signalPressures = new double[0];
+    private volatile long sampledAt;
+    private volatile boolean sampled;
+    private volatile double writeLatencyNanos;
+
+    private final LongAdder admittedPackets = new LongAdder();
+    private final LongAdder shedPackets = new LongAdder();
+    private final LongAdder admittedTransactions = new LongAdder();
+    private final LongAdder shedTransactions = new LongAdder();
+
+    private long reportedAt;
+    private long reportedShedPackets;
+    private long reportedShedTransactions;
+
+    /**
+     * @param clock source of time in nanoseconds
+     * @param random source of the shedding decisions, uniform in [0, 1)
+     */
+    public AdmissionController(LongSupplier clock, DoubleSupplier random) {
+        this.clock = clock;
+        this.random = random;
+        this.reportedAt = clock.getAsLong();
+    }
+
+    /**
+     * Adds a load signal. Signals have to be added before the first transaction is admitted.
+     *
+     * @param name name of the signal in the statistics
+     * @param signal the current load, 1 or more means overloaded
+     * @return this controller
+     */
+    public AdmissionController addSignal(String name, DoubleSupplier signal) {
+        names.add(name);
+        signals.add(signal);
+        return this;
+    }
+
+    /**
+     * Adds the running average of the latencies recorded with {@link #recordWriteLatency(long)} as a signal.
+     *
+     * @param limitNanos the write latency that means overloaded
+     * @return this controller
+     */
+    public AdmissionController addWriteLatencySignal(long limitNanos) {
+        return addSignal("write", () -> writeLatencyNanos / limitNanos);
+    }
+
+    /**
+     * Adds the CPU load of the whole system as a signal, scaled by {@link #CPU_PRESSURE}, if the JVM reports it.
+     *
+     * @return this controller
+     */
+    public AdmissionController addCpuSignal() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean bean = (com.sun.management.OperatingSystemMXBean) os;
+            addSignal("cpu", () -> CPU_PRESSURE * Math.max(0d, bean.getSystemCpuLoad()));
+        }
+        return this;
+    }
+
+    /**
+     * Records the latency of a database write of a received transaction.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void recordWriteLatency(long nanos) {
+        // concurrent updates may get lost, the average is a sample
+        writeLatencyNanos += WRITE_WEIGHT * (nanos - writeLatencyNanos);
+    }
+
+    /**
+     * Decides whether a packet that was not seen before is hashed.
+     *
+     * @param neighbor the sender of the packet
+     * @param coordinator true if the transaction in the packet was issued by the coordinator
+     * @return true to process the packet, false to drop it
+     */
+    public boolean admitPacket(Neighbor neighbor, boolean coordinator) {
+        double shed = 0d;
+        if (!coordinator) {
+            currentPressure();
+            shed = blindShed * neighbor.getMetrics().getUnsolicitedShare();
+        }
+        if (shed > 0 && random.getAsDouble() < shed) {
+            shedPackets.increment();
+            return false;
+        }
+        admittedPackets.increment();
+        return true;
+    }
+
+    /**
+     * Decides whether a hashed transaction is validated and stored, and updates the unsolicited share of the sender.
+     *
+     * @param neighbor the sender of the transaction
+     * @param requested true if this node requested the transaction or the coordinator issued it
+     * @param lowWeight true if the transaction barely has the minimum weight magnitude
+     * @return true to process the transaction, false to drop it
+     */
+    public boolean admitTransaction(Neighbor neighbor, boolean requested, boolean lowWeight) {
+        neighbor.getMetrics().transactionClassified(!requested);
+        if (!requested) {
+            double pressure = currentPressure();
+            double shed = lowWeight ? ramp(pressure, LOW_WEIGHT_START, LOW_WEIGHT_FULL)
+                    : ramp(pressure, UNSOLICITED_START, UNSOLICITED_FULL);
+            if (shed > 0 && random.getAsDouble() < shed) {
+                shedTransactions.increment();
+                return false;
+            }
+        }
+        admittedTransactions.increment();
+        return true;
+    }
+
+    /**
+     * @return the share of transactions shed at a pressure, rising linearly from 0 at {@code start} to 1 at
+     * {@code full}
+     */
+    static double ramp(double pressure, double start, double full) {
+        return Math.max(0d, Math.min(1d, (pressure - start) / (full - start)));
+    }
+
+    private double currentPressure() {
+        long now = clock.getAsLong();
+        if (!sampled || now - sampledAt >= SAMPLE_INTERVAL_NS) {
+            sample(now);
+        }
+        return pressure;
+    }
+
+    private synchronized void sample(long now) {
+        if (sampled && now - sampledAt < SAMPLE_INTERVAL_NS) {
+            return;
+        }
+        double[] values = new double[signals.size()];
+        double highest = 0d;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = signals.get(i).getAsDouble();
+            highest = Math.max(highest, values[i]);
+        }
+        pressure = sampled ? pressure + SAMPLE_WEIGHT * (highest - pressure) : highest;
+        blindShed = Math.max(0d, Math.min(MAX_BLIND_SHED, blindShed + BLIND_GAIN * (pressure - BLIND_START)));
+        signalPressures = values;
+        sampledAt = now;
+        sampled = true;
+    }
+
+    /**
+     * @return the smoothed pressure of the last sample
+     */
+    public double getPressure() {
+        return pressure;
+    }
+
+    /**
+     * @return the probability to shed a packet of a sender that sends unsolicited transactions only
+     */
+    public double getBlindShed() {
+        return blindShed;
+    }
+
+    public long getAdmittedPackets() {
+        return admittedPackets.sum();
+    }
+
+    /**
+     * @return number of packets dropped before hashing
+     */
+    public long getShedPackets() {
+        return shedPackets.sum();
+    }
+
+    public long getAdmittedTransactions() {
+        return admittedTransactions.sum();
+    }
+
+    /**
+     * @return number of unsolicited transactions dropped after hashing
+     */
+    public long getShedTransactions() {
+        return shedTransactions.sum();
+    }
+
+    /**
+     * Computes the shedding rates since the previous call.
+     *
+     * @return a one line summary of the pressure and the shedding
+     */
+    public synchronized String report() {
+        long now = clock.getAsLong();
+        double seconds = Math.max(1e-9, (now - reportedAt) / 1e9);
+        long packets = shedPackets.sum();
+        long transactions = shedTransactions.sum();
+        StringBuilder summary = new StringBuilder(String.format(
+                "admission pressure = %.2f, blind shed = %.2f, shed before hashing = %.1f/s, shed unsolicited = %.1f/s",
+                pressure, blindShed, (packets - reportedShedPackets) / seconds,
+                (transactions - reportedShedTransactions) / seconds));
+        double[] values = signalPressures;
+        for (int i = 0; i < values.length; i++) {
+            summary.append(String.format(", %s = %.2f", names.get(i), values[i]));
+        }
+        reportedAt = now;
+        reportedShedPackets = packets;
+        reportedShedTransactions = transactions;
+        return summary.toString();
+    }
+}
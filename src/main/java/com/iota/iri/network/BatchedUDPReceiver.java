@@ -0,0 +1,394 @@
+package com.iota.iri.network;
+
+import com.iota.iri.conf.NodeConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An alternative to the classic {@link UDPReceiver} which receives on a non-blocking {@link DatagramChannel}.
+ * <p>
+ * Packets are read directly into a fixed ring of pooled direct {@link ByteBuffer}s by one or more receive loops.
+ * Every wakeup of a loop drains the channel until it is empty or {@link #MAX_BATCH_SIZE} packets have been read.
+ * Filled buffers are handed to the processor threads through a bounded queue which can hold every buffer of the pool,
+ * so the handoff itself never fails. If the pool is exhausted the packet is still read from the channel (so the
+ * kernel buffer keeps draining), but it is discarded and counted as dropped.
+ * </p>
+ * <p>
+ * Unlike the classic receiver no packet is ever silently rejected by an executor: every received packet shows up in
+ * exactly one of the {@link #getProcessedCount() processed}, {@link #getDroppedCount() dropped} or
+ * {@link #getMalformedCount() malformed} counters.
+ * </p>
+ * <p>
+ * With more than one receive socket configured, that many channels are bound to the same port with
+ * {@code SO_REUSEPORT}, and the kernel spreads the packets over them by the address of the sender. Every channel has
+ * its own receive loops, so the packets of different neighbors are read in parallel. Where the option is not available
+ * (before Java 9, or on platforms without it) the receiver falls back to a single channel.
+ * </p>
+ */
+public class BatchedUDPReceiver extends UDPReceiver {
+    private static final Logger log = LoggerFactory.getLogger(BatchedUDPReceiver.class);
+
+    /**
+     * Maximum number of packets a receive loop drains from the channel before it selects again.
+     */
+    static final int MAX_BATCH_SIZE = 64;
+
+    private static final long SELECT_TIMEOUT_MS = 500L;
+    private static final int SOCKET_RECEIVE_BUFFER_BYTES = 4 * 1024 * 1024;
+
+    private final int receiveLoops;
+    private final int receiveSockets;
+    private final int processorThreads;
+    private final PacketBufferPool bufferPool;
+    private final BlockingQueue<PooledPacket> readyPackets;
+
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong malformedCount = new AtomicLong();
+    private final AtomicLong backpressureCount = new AtomicLong();
+
+    private final List<Thread> threads = new ArrayList<>();
+    private final List<ReceiveSocket> sockets = new ArrayList<>();
+    private DatagramChannel channel;
+
+    public BatchedUDPReceiver(Node node, NodeConfig config) {
+        super(node, config);
+        this.receiveLoops = Math.max(1, config.getUdpReceiveLoops());
+        this.receiveSockets = Math.max(1, config.getUdpReceiveSockets());
+        this.processorThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        int poolSize = Math.max(MAX_BATCH_SIZE, config.getUdpBufferPoolSize());
+        this.bufferPool = new PacketBufferPool(poolSize, packetSize);
+        this.readyPackets = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    @Override
+    public void init() {
+        SocketOption<Boolean> reusePort = receiveSockets > 1 ? reusePortOption() : null;
+        if (receiveSockets > 1 && reusePort == null) {
+            log.warn("SO_REUSEPORT is not supported, receiving UDP packets on a single channel");
+        }
+        try {
+            channel = open(reusePort, new InetSocketAddress(port));
+            sockets.add(new ReceiveSocket(channel));
+            // bind to the actual port in case the first channel got an ephemeral one
+            InetSocketAddress bound = (InetSocketAddress) channel.getLocalAddress();
+            for (int i = 1; reusePort != null && i < receiveSockets; i++) {
+                sockets.add(new ReceiveSocket(open(reusePort, bound)));
+            }
+        } catch (IOException e) {
+            log.error("Could not open UDP channel on port {}", port, e);
+            closeChannels();
+            sockets.clear();
+            channel = null;
+            return;
+        }
+        // neighbors send through the channel itself, its blocking socket adapter must not be used next to it
+        node.setUDPChannel(channel);
+        log.info("Batched UDP receiver is accepting packets on udp port {} with {} channel(s) and {} receive loop(s) "
+                + "each", port, sockets.size(), receiveLoops);
+
+        for (int s = 0; s < sockets.size(); s++) {
+            for (int i = 0; i < receiveLoops; i++) {
+                startThread(spawnReceiveLoop(sockets.get(s)), "UDP receive loop " + s + "." + i);
+            }
+        }
+        for (int i = 0; i < processorThreads; i++) {
+            startThread(spawnProcessorThread(), "UDP packet processor " + i);
+        }
+    }
+
+    private static DatagramChannel open(SocketOption<Boolean> reusePort, InetSocketAddress address)
+            throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_RECEIVE_BUFFER_BYTES);
+            if (reusePort != null) {
+                channel.setOption(reusePort, true);
+            }
+            channel.bind(address);
+            channel.configureBlocking(false);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Looks up {@code StandardSocketOptions.SO_REUSEPORT}, which was added in Java 9.
+     *
+     * @return the option or {@code null} if it is not available for UDP channels on this platform
+     */
+    @SuppressWarnings("unchecked")
+    static SocketOption<Boolean> reusePortOption() {
+        try {
+            SocketOption<Boolean> option =
+                    (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+            try (DatagramChannel probe = DatagramChannel.open()) {
+                return probe.supportedOptions().contains(option) ? option : null;
+            }
+        } catch (ReflectiveOperationException | LinkageError | IOException e) {
+            return null;
+        }
+    }
+
+    private void startThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        threads.add(thread);
+        thread.start();
+    }
+
+    private Runnable spawnReceiveLoop(ReceiveSocket socket) {
+        return () -> {
+            log.info("Spawning Batched Receive Loop");
+            ByteBuffer scratch = ByteBuffer.allocateDirect(packetSize + 1);
+            try (Selector selector = Selector.open()) {
+                socket.channel.register(selector, SelectionKey.OP_READ);
+                while (!shuttingDown.get()) {
+                    if (selector.select(SELECT_TIMEOUT_MS) > 0) {
+                        selector.selectedKeys().clear();
+                        drain(socket, scratch);
+                    }
+                }
+            } catch (final IOException e) {
+                log.error("Batched Receive Loop Exception:", e);
+            }
+            log.info("Shutting down Batched Receive Loop");
+        };
+    }
+
+    /**
+     * Reads up to {@link #MAX_BATCH_SIZE} packets from a channel without blocking.
+     *
+     * @param socket the channel to read from
+     * @param scratch buffer used to discard packets when the pool is exhausted
+     * @return the number of packets read from the channel
+     */
+    int drain(ReceiveSocket socket, ByteBuffer scratch) throws IOException {
+        int batch = 0;
+        while (batch < MAX_BATCH_SIZE) {
+            PooledPacket packet = bufferPool.acquire();
+            ByteBuffer target = packet == null ? scratch : packet.buffer;
+            target.clear();
+            SocketAddress address = socket.channel.receive(target);
+            if (address == null) {
+                bufferPool.release(packet);
+                break;
+            }
+            batch++;
+            receivedCount.incrementAndGet();
+            socket.received.incrementAndGet();
+            if (packet == null) {
+                backpressureCount.incrementAndGet();
+                droppedCount.incrementAndGet();
+            } else if (!isAcceptedLength(target.position())) {
+                malformedCount.incrementAndGet();
+                bufferPool.release(packet);
+            } else {
+                packet.address = address;
+                readyPackets.add(packet);
+            }
+        }
+        return batch;
+    }
+
+    private Runnable spawnProcessorThread() {
+        return () -> {
+            List<PooledPacket> batch = new ArrayList<>(MAX_BATCH_SIZE);
+            while (!shuttingDown.get()) {
+                try {
+                    PooledPacket first = readyPackets.poll(SELECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    readyPackets.drainTo(batch, MAX_BATCH_SIZE - 1);
+                    for (PooledPacket packet : batch) {
+                        process(packet);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } finally {
+                    batch.clear();
+                }
+            }
+        };
+    }
+
+    private void process(PooledPacket packet) {
+        try {
+            packet.buffer.flip();
+            byte[] bytes = new byte[packet.buffer.remaining()];
+            packet.buffer.get(bytes);
+            node.preProcessReceivedData(bytes, packet.address, "udp");
+            long processed = processedCount.incrementAndGet();
+            if (processed % 50000 == 0 && log.isInfoEnabled()) {
+                log.info(String.format("Batched receiver processed/dropped/malformed: %d / %d / %d, received per "
+                        + "channel: %s", processed, droppedCount.get(), malformedCount.get(),
+                        Arrays.toString(getReceivedCounts())));
+            }
+        } catch (final Exception e) {
+            log.error("Packet Processor Exception:", e);
+        } finally {
+            bufferPool.release(packet);
+        }
+    }
+
+    @Override
+    public void send(final DatagramPacket packet) {
+        try {
+            if (channel != null) {
+                channel.send(ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength()),
+                        packet.getSocketAddress());
+            }
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        shuttingDown.set(true);
+        for (Thread thread : threads) {
+            thread.join(6000L);
+        }
+        closeChannels();
+    }
+
+    private void closeChannels() {
+        for (ReceiveSocket socket : sockets) {
+            try {
+                socket.channel.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * @return number of packets read from the channels
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * @return number of packets read from every channel, in the order the channels were bound
+     */
+    public long[] getReceivedCounts() {
+        return sockets.stream().mapToLong(socket -> socket.received.get()).toArray();
+    }
+
+    /**
+     * @return number of channels bound to the port, 1 unless {@code SO_REUSEPORT} is used
+     */
+    public int getSocketCount() {
+        return sockets.size();
+    }
+
+    /**
+     * @return number of packets handed to {@link Node#preProcessReceivedData}
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * @return number of packets discarded because no pooled buffer was available
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * @return number of packets discarded because they did not have the expected size
+     */
+    public long getMalformedCount() {
+        return malformedCount.get();
+    }
+
+    /**
+     * @return number of times a receive loop found the buffer pool exhausted
+     */
+    public long getBackpressureCount() {
+        return backpressureCount.get();
+    }
+
+    /**
+     * A bound channel and the number of packets read from it.
+     */
+    static class ReceiveSocket {
+        final DatagramChannel channel;
+        final AtomicLong received = new AtomicLong();
+
+        ReceiveSocket(DatagramChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * A packet slot of the {@link PacketBufferPool}.
+     */
+    static class PooledPacket {
+        final ByteBuffer buffer;
+        SocketAddress address;
+
+        PooledPacket(int packetSize) {
+            // one spare byte lets us detect oversized datagrams, which are otherwise silently truncated
+            this.buffer = ByteBuffer.allocateDirect(packetSize + 1);
+        }
+    }
+
+    /**
+     * A fixed ring of preallocated packet slots. Slots are never created after construction, so the receive path does
+     * not allocate.
+     */
+    static class PacketBufferPool {
+        private final BlockingQueue<PooledPacket> free;
+
+        PacketBufferPool(int size, int packetSize) {
+            free = new ArrayBlockingQueue<>(size);
+            for (int i = 0; i < size; i++) {
+                free.add(new PooledPacket(packetSize));
+            }
+        }
+
+        /**
+         * @return a free slot or {@code null} if all slots are in use
+         */
+        PooledPacket acquire() {
+            return free.poll();
+        }
+
+        void release(PooledPacket packet) {
+            if (packet != null) {
+                packet.address = null;
+                free.offer(packet);
+            }
+        }
+
+        int available() {
+            return free.size();
+        }
+    }
+}
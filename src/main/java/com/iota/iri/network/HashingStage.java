@@ -0,0 +1,205 @@
+package com.iota.iri.network;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.crypto.BatchCurl;
+import com.iota.iri.crypto.Sponge;
+import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.utils.Converter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-batching stage that computes the Curl-P-81 hashes of received transactions with a {@link BatchCurl}.
+ * <p>
+ * Receiver threads {@link #submit} packets that were not seen before. A worker takes up to
+ * {@link BatchCurl#MAX_BATCH_SIZE} packets from the queue, but waits at most {@code maxLatencyNanos} after the first
+ * one arrived for the batch to fill, so a single packet on an idle node is not held back for long. It then hashes the
+ * whole batch in one pass and hands every packet with its hash to the {@link Handler}.
+ * </p>
+ * <p>
+ * The metrics of the stage record the time from the submission of a packet until its handler was called.
+ * </p>
+ */
+public class HashingStage {
+
+    private static final Logger log = LoggerFactory.getLogger(HashingStage.class);
+
+    /**
+     * How long an idle worker waits for a packet before it checks whether the stage is shutting down.
+     */
+    private static final long WORKER_WAIT_MS = 100L;
+
+    /**
+     * Batches that may wait in the queue per worker.
+     */
+    private static final int QUEUED_BATCHES = 4;
+
+    /**
+     * Continues the processing of a packet once its hash is known.
+     */
+    @FunctionalInterface
+    public interface Handler {
+
+        /**
+         * @param packet the received packet
+         * @param neighbor the neighbor that sent the packet
+         * @param digest the digest of the packet, see {@link Node}
+         * @param hash the hash of the transaction in the packet
+         */
+        void hashed(byte[] packet, Neighbor neighbor, long digest, Hash hash);
+    }
+
+    private final int threads;
+    private final long maxLatencyNanos;
+    private final Handler handler;
+    private final BlockingQueue<Item> queue;
+    private final StageMetrics metrics = new StageMetrics("hash");
+    private final ExecutorService executor;
+    private volatile boolean shuttingDown;
+
+    /**
+     * @param threads the number of workers
+     * @param maxLatencyNanos how long the first packet of a batch may wait for the batch to fill
+     * @param handler called by the workers for every hashed packet
+     */
+    public HashingStage(int threads, long maxLatencyNanos, Handler handler) {
+        this.threads = Math.max(1, threads);
+        this.maxLatencyNanos = Math.max(0, maxLatencyNanos);
+        this.handler = handler;
+        this.queue = new ArrayBlockingQueue<>(this.threads * QUEUED_BATCHES * BatchCurl.MAX_BATCH_SIZE);
+        this.executor = Executors.newFixedThreadPool(this.threads, r -> new Thread(r, "Hashing Stage"));
+    }
+
+    public void init() {
+        for (int i = 0; i < threads; i++) {
+            executor.submit(this::work);
+        }
+        executor.shutdown();
+    }
+
+    public void shutdown() throws InterruptedException {
+        shuttingDown = true;
+        if (!executor.awaitTermination(6, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues a packet for hashing.
+     *
+     * @param packet the packet, which the stage owns from now on: it is read by a worker later, so the caller must
+     *               not reuse or change it
+     * @return false if the queue is full, the caller has to hash the packet itself then
+     */
+    public boolean submit(byte[] packet, Neighbor neighbor, long digest) {
+        return queue.offer(new Item(packet, neighbor, digest, System.nanoTime()));
+    }
+
+    /**
+     * @return throughput of the stage and the latency it adds to a packet
+     */
+    public StageMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of packets the queue holds
+     */
+    public int getQueueCapacity() {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    private void work() {
+        log.info("Spawning Hashing Stage Thread");
+        BatchCurl curl = new BatchCurl(SpongeFactory.Mode.CURLP81);
+        byte[][] trits = new byte[BatchCurl.MAX_BATCH_SIZE][TransactionViewModel.TRINARY_SIZE];
+        byte[][] hashes = new byte[BatchCurl.MAX_BATCH_SIZE][Sponge.HASH_LENGTH];
+        List<Item> batch = new ArrayList<>(BatchCurl.MAX_BATCH_SIZE);
+        while (!shuttingDown) {
+            try {
+                if (!fill(batch)) {
+                    continue;
+                }
+                metrics.recordBatch();
+                for (int i = 0; i < batch.size(); i++) {
+                    Converter.getTrits(batch.get(i).packet, trits[i]);
+                }
+                curl.hash(trits, batch.size(), TransactionViewModel.TRINARY_SIZE, hashes);
+                for (int i = 0; i < batch.size(); i++) {
+                    Item item = batch.get(i);
+                    boolean success = false;
+                    try {
+                        handler.hashed(item.packet, item.neighbor, item.digest,
+                                HashFactory.TRANSACTION.create(hashes[i], 0, Sponge.HASH_LENGTH));
+                        success = true;
+                    } catch (final Exception e) {
+                        log.error("Hashing Stage Thread Exception:", e);
+                    } finally {
+                        metrics.recordItem(System.nanoTime() - item.submitted, success);
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        log.info("Shutting down Hashing Stage Thread");
+    }
+
+    /**
+     * Takes packets from the queue until the batch is full or its first packet waited long enough.
+     *
+     * @return false if no packet arrived
+     */
+    private boolean fill(List<Item> batch) throws InterruptedException {
+        Item first = queue.poll(WORKER_WAIT_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = first.submitted + maxLatencyNanos;
+        while (batch.size() < BatchCurl.MAX_BATCH_SIZE) {
+            queue.drainTo(batch, BatchCurl.MAX_BATCH_SIZE - batch.size());
+            long wait = deadline - System.nanoTime();
+            if (batch.size() == BatchCurl.MAX_BATCH_SIZE || wait <= 0) {
+                break;
+            }
+            Item next = queue.poll(wait, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return true;
+    }
+
+    private static class Item {
+        private final byte[] packet;
+        private final Neighbor neighbor;
+        private final long digest;
+        private final long submitted;
+
+        private Item(byte[] packet, Neighbor neighbor, long digest, long submitted) {
+            this.packet = packet;
+            this.neighbor = neighbor;
+            this.digest = digest;
+            this.submitted = submitted;
+        }
+    }
+}
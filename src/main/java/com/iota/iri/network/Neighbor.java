@@ -12,12 +12,7 @@ public abstract class Neighbor {
 
     private final InetSocketAddress address;
     
-    private long numberOfAllTransactions;
-    private long numberOfNewTransactions;
-    private long numberOfInvalidTransactions;
-    private long randomTransactionRequests;
-    private long numberOfSentTransactions;
-    private long numberOfStaleTransactions;
+    private final NeighborMetrics metrics = new NeighborMetrics(System.nanoTime());
 
     private final boolean flagged;
     public boolean isFlagged() {
@@ -72,52 +67,79 @@ public abstract class Neighbor {
         }
     }
 
-    void incAllTransactions() {
-    	numberOfAllTransactions++;
+    /**
+     * @param bytes size of the received packet
+     */
+    void incAllTransactions(int bytes) {
+    	metrics.received(bytes);
     }
     
     void incNewTransactions() {
-    	numberOfNewTransactions++;
+    	metrics.incNewTransactions();
     }
 
     void incRandomTransactionRequests() {
-        randomTransactionRequests++;
+        metrics.incRandomTransactionRequests();
     }
 
     public void incInvalidTransactions() {
-    	numberOfInvalidTransactions++;
+    	metrics.incInvalidTransactions();
     }
 
     void incStaleTransactions() {
-        numberOfStaleTransactions++;
+        metrics.incStaleTransactions();
     }
 
-    public void incSentTransactions() {
-        numberOfSentTransactions++;
+    /**
+     * @param bytes number of bytes written for the transaction
+     */
+    public void incSentTransactions(int bytes) {
+        metrics.sent(bytes);
     }
 
     public long getNumberOfAllTransactions() {
-		return numberOfAllTransactions;
+		return metrics.getAllTransactions();
 	}
     
     public long getNumberOfInvalidTransactions() {
-		return numberOfInvalidTransactions;
+		return metrics.getInvalidTransactions();
 	}
 
     public long getNumberOfStaleTransactions() {
-        return numberOfStaleTransactions;
+        return metrics.getStaleTransactions();
     }
 
     public long getNumberOfNewTransactions() {
-		return numberOfNewTransactions;
+		return metrics.getNewTransactions();
 	}
 
 	public long getNumberOfRandomTransactionRequests() {
-        return randomTransactionRequests;
+        return metrics.getRandomTransactionRequests();
     }
 	
 	public long getNumberOfSentTransactions() {
-	    return numberOfSentTransactions;
+	    return metrics.getSentTransactions();
 	}
 
+    /**
+     * @return the traffic metrics of this neighbor
+     */
+    public NeighborMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return number of outgoing packets waiting to be sent to this neighbor
+     */
+    public int getSendQueueSize() {
+        return 0;
+    }
+
+    /**
+     * @return number of outgoing packets that were dropped because the send queue was full
+     */
+    public long getNumberOfDroppedSends() {
+        return 0;
+    }
+
 }
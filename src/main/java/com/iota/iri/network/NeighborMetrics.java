@@ -0,0 +1,331 @@
+package com.iota.iri.network;
+
+import com.iota.iri.model.Hash;
+import com.iota.iri.utils.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traffic counters of a single {@link Neighbor}.
+ * <p>
+ * The counters are updated by the receiving, replying and sending threads at the same time, so they are
+ * {@link LongAdder}s. Rates and latency percentiles are computed over the window between two calls to
+ * {@link #sample(long)}, which the node does in its statistics interval, and stay readable until the next one.
+ * </p>
+ * <p>
+ * The request to reply latency is the time between queueing a packet that requests a hash from this neighbor and
+ * receiving that transaction from it. Outstanding requests are kept in a small table indexed by hash, so a request
+ * may be overwritten by a newer one before it is answered; the histogram is a sample, not a complete record.
+ * </p>
+ * <p>
+ * For routing requests the same records are kept as running averages, see {@link #updateRequestScore(long)}: the
+ * fraction of requests that this neighbor answers and its mean request to reply latency, each an exponentially
+ * weighted average over the windows between two updates.
+ * </p>
+ */
+public class NeighborMetrics {
+
+    static final int PENDING_REQUESTS = 256;
+    /**
+     * Weight of the latest window in the running averages of the request score.
+     */
+    static final double SCORE_WEIGHT = 0.3;
+    /**
+     * Assumed latency of a neighbor that has not answered a request yet. It is low, so that new neighbors are tried.
+     */
+    static final long INITIAL_REQUEST_LATENCY_NANOS = 50_000_000L;
+    /**
+     * Weight of a single transaction in the running average of the unsolicited share.
+     */
+    static final double UNSOLICITED_SHARE_WEIGHT = 0.01;
+
+    private final LongAdder allTransactions = new LongAdder();
+    private final LongAdder newTransactions = new LongAdder();
+    private final LongAdder invalidTransactions = new LongAdder();
+    private final LongAdder staleTransactions = new LongAdder();
+    private final LongAdder randomTransactionRequests = new LongAdder();
+    private final LongAdder sentTransactions = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder requestsSent = new LongAdder();
+    private final LongAdder requestsAnswered = new LongAdder();
+    private final LongAdder answeredLatencyNanos = new LongAdder();
+
+    private final AtomicReferenceArray<PendingRequest> pendingRequests = new AtomicReferenceArray<>(PENDING_REQUESTS);
+    private final LatencyHistogram replyLatency = new LatencyHistogram();
+
+    private long lastSample;
+    private long lastReceived;
+    private long lastSent;
+    private long lastBytesReceived;
+    private long lastBytesSent;
+
+    private volatile double receivedPerSecond;
+    private volatile double sentPerSecond;
+    private volatile double bytesReceivedPerSecond;
+    private volatile double bytesSentPerSecond;
+    private volatile long replyLatencyP50Micros;
+    private volatile long replyLatencyP99Micros;
+
+    private final Object scoreLock = new Object();
+    private long scoredSent;
+    private long scoredAnswered;
+    private long scoredLatencyNanos;
+    private volatile double requestFulfilment = 1d;
+    private volatile double requestLatencyNanos = INITIAL_REQUEST_LATENCY_NANOS;
+    private volatile double unsolicitedShare = 0.5;
+
+    /**
+     * @param now start of the first window in nanoseconds
+     */
+    NeighborMetrics(long now) {
+        this.lastSample = now;
+    }
+
+    void received(int bytes) {
+        allTransactions.increment();
+        bytesReceived.add(bytes);
+    }
+
+    void sent(int bytes) {
+        sentTransactions.increment();
+        bytesSent.add(bytes);
+    }
+
+    void incNewTransactions() {
+        newTransactions.increment();
+    }
+
+    void incInvalidTransactions() {
+        invalidTransactions.increment();
+    }
+
+    void incStaleTransactions() {
+        staleTransactions.increment();
+    }
+
+    void incRandomTransactionRequests() {
+        randomTransactionRequests.increment();
+    }
+
+    /**
+     * Remembers that a hash was requested from this neighbor.
+     *
+     * @param hash the requested hash
+     * @param now time of the request in nanoseconds
+     */
+    public void requestSent(Hash hash, long now) {
+        requestsSent.increment();
+        pendingRequests.set(slotOf(hash), new PendingRequest(hash, now));
+    }
+
+    /**
+     * Records the request to reply latency if the transaction was requested from this neighbor.
+     *
+     * @param hash hash of a transaction received from this neighbor
+     * @param now time of arrival in nanoseconds
+     */
+    public void transactionReceived(Hash hash, long now) {
+        int slot = slotOf(hash);
+        PendingRequest pending = pendingRequests.get(slot);
+        if (pending != null && pending.hash.equals(hash) && pendingRequests.compareAndSet(slot, pending, null)) {
+            long latency = now - pending.sentAt;
+            replyLatency.record(latency);
+            requestsAnswered.increment();
+            answeredLatencyNanos.add(latency);
+        }
+    }
+
+    /**
+     * Updates the running average of the share of new transactions from this neighbor that were not requested.
+     * Concurrent updates may get lost, which only makes the average a little slower.
+     *
+     * @param unsolicited true if this node did not request the transaction
+     */
+    void transactionClassified(boolean unsolicited) {
+        unsolicitedShare += UNSOLICITED_SHARE_WEIGHT * ((unsolicited ? 1d : 0d) - unsolicitedShare);
+    }
+
+    /**
+     * @return running average of the share of new transactions from this neighbor that were not requested, over
+     * roughly the last {@code 1 / UNSOLICITED_SHARE_WEIGHT} transactions
+     */
+    public double getUnsolicitedShare() {
+        return unsolicitedShare;
+    }
+
+    private static int slotOf(Hash hash) {
+        int h = hash.hashCode();
+        return (h ^ (h >>> 16)) & (PENDING_REQUESTS - 1);
+    }
+
+    /**
+     * Computes the rates and latencies of the window since the previous call and starts a new window.
+     *
+     * @param now end of the window in nanoseconds
+     */
+    synchronized void sample(long now) {
+        double seconds = Math.max(1e-9, (now - lastSample) / 1e9);
+        long received = allTransactions.sum();
+        long sent = sentTransactions.sum();
+        long inBytes = bytesReceived.sum();
+        long outBytes = bytesSent.sum();
+        receivedPerSecond = (received - lastReceived) / seconds;
+        sentPerSecond = (sent - lastSent) / seconds;
+        bytesReceivedPerSecond = (inBytes - lastBytesReceived) / seconds;
+        bytesSentPerSecond = (outBytes - lastBytesSent) / seconds;
+        replyLatencyP50Micros = replyLatency.getPercentileMicros(0.5);
+        replyLatencyP99Micros = replyLatency.getPercentileMicros(0.99);
+        replyLatency.reset();
+        lastReceived = received;
+        lastSent = sent;
+        lastBytesReceived = inBytes;
+        lastBytesSent = outBytes;
+        lastSample = now;
+    }
+
+    /**
+     * Folds the requests sent and answered since the previous call into the running averages. A window in which no
+     * request was sent leaves the fulfilment as it is, one in which none was answered leaves the latency as it is.
+     *
+     * @param now time of the update in nanoseconds
+     * @return the expected number of requests this neighbor answers per second of latency, see
+     * {@link #getRequestScore()}
+     */
+    public double updateRequestScore(long now) {
+        synchronized (scoreLock) {
+            long sent = requestsSent.sum();
+            long answered = requestsAnswered.sum();
+            long latency = answeredLatencyNanos.sum();
+            long windowSent = sent - scoredSent;
+            long windowAnswered = answered - scoredAnswered;
+            if (windowSent > 0) {
+                // answers to requests of the previous window may arrive in this one
+                double fulfilment = Math.min(1d, (double) windowAnswered / windowSent);
+                requestFulfilment += SCORE_WEIGHT * (fulfilment - requestFulfilment);
+            }
+            if (windowAnswered > 0) {
+                double meanLatency = (double) (latency - scoredLatencyNanos) / windowAnswered;
+                requestLatencyNanos += SCORE_WEIGHT * (meanLatency - requestLatencyNanos);
+            }
+            scoredSent = sent;
+            scoredAnswered = answered;
+            scoredLatencyNanos = latency;
+            return getRequestScore();
+        }
+    }
+
+    /**
+     * @return the fraction of requests answered divided by the mean latency in seconds, higher is better
+     */
+    public double getRequestScore() {
+        return requestFulfilment / Math.max(1e-6, requestLatencyNanos / 1e9);
+    }
+
+    /**
+     * @return running average of the fraction of requests this neighbor answers
+     */
+    public double getRequestFulfilment() {
+        return requestFulfilment;
+    }
+
+    /**
+     * @return running average of the request to reply latency in microseconds
+     */
+    public long getRequestLatencyMicros() {
+        return (long) (requestLatencyNanos / 1000);
+    }
+
+    public long getRequestsSent() {
+        return requestsSent.sum();
+    }
+
+    public long getRequestsAnswered() {
+        return requestsAnswered.sum();
+    }
+
+    public long getAllTransactions() {
+        return allTransactions.sum();
+    }
+
+    public long getNewTransactions() {
+        return newTransactions.sum();
+    }
+
+    public long getInvalidTransactions() {
+        return invalidTransactions.sum();
+    }
+
+    public long getStaleTransactions() {
+        return staleTransactions.sum();
+    }
+
+    public long getRandomTransactionRequests() {
+        return randomTransactionRequests.sum();
+    }
+
+    public long getSentTransactions() {
+        return sentTransactions.sum();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * @return transactions received per second in the last window
+     */
+    public double getReceivedPerSecond() {
+        return receivedPerSecond;
+    }
+
+    /**
+     * @return transactions sent per second in the last window
+     */
+    public double getSentPerSecond() {
+        return sentPerSecond;
+    }
+
+    /**
+     * @return bytes received per second in the last window
+     */
+    public double getBytesReceivedPerSecond() {
+        return bytesReceivedPerSecond;
+    }
+
+    /**
+     * @return bytes sent per second in the last window
+     */
+    public double getBytesSentPerSecond() {
+        return bytesSentPerSecond;
+    }
+
+    /**
+     * @return median request to reply latency of the last window, 0 if no request was answered
+     */
+    public long getReplyLatencyP50Micros() {
+        return replyLatencyP50Micros;
+    }
+
+    /**
+     * @return 99th percentile of the request to reply latency of the last window, 0 if no request was answered
+     */
+    public long getReplyLatencyP99Micros() {
+        return replyLatencyP99Micros;
+    }
+
+    private static class PendingRequest {
+        private final Hash hash;
+        private final long sentAt;
+
+        PendingRequest(Hash hash, long sentAt) {
+            this.hash = hash;
+            this.sentAt = sentAt;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.iota.iri.network;
+
+import com.iota.iri.model.Hash;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers which neighbors are known to have a recently received transaction, so that it is not broadcast back to
+ * them.
+ * <p>
+ * Every neighbor gets one of {@link #SLOTS} slots, and a transaction maps to a bitmask with a bit per slot. The masks
+ * are kept in two generations of a fixed capacity table keyed by a 64-bit fingerprint of the transaction hash: new
+ * entries go to the current generation, lookups check both, and every {@code windowMillis} the previous generation is
+ * dropped and the current one takes its place. An entry therefore lives between one and two windows, and the memory
+ * is bounded by the capacity no matter how many transactions arrive.
+ * </p>
+ * <p>
+ * The set may forget a neighbor that has a transaction, which only costs a packet, but it never claims that a neighbor
+ * has a transaction it was not seen sending, except for fingerprint collisions. A slot of a removed neighbor is only
+ * handed out again after its bits expired. Neighbors beyond the first {@link #SLOTS} get no slot and are never skipped.
+ * </p>
+ */
+public class NeighborSeenSet {
+
+    public static final int SLOTS = Long.SIZE;
+
+    /**
+     * Number of entries per bucket.
+     */
+    static final int WAYS = 4;
+
+    private static final int STRIPES = 64;
+
+    /**
+     * Fingerprint marking an empty entry. Fingerprints that happen to be 0 are remapped.
+     */
+    private static final long EMPTY = 0L;
+
+    private final int bucketMask;
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final Object[] locks = new Object[STRIPES];
+
+    private volatile Generation current;
+    private volatile Generation previous;
+    private volatile long rotatedAt;
+
+    private final Map<Neighbor, Integer> slots = new ConcurrentHashMap<>();
+    /**
+     * Time from which a slot may be handed out again, {@code Long.MAX_VALUE} while it is taken.
+     */
+    private final long[] slotFreeFrom = new long[SLOTS];
+
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * @param capacity minimum number of transactions per generation
+     * @param windowMillis how long a generation takes new entries
+     * @param clock source of time in milliseconds, {@link System#currentTimeMillis()} outside of tests
+     */
+    public NeighborSeenSet(int capacity, long windowMillis, LongSupplier clock) {
+        int buckets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS));
+        if (buckets * WAYS < capacity) {
+            buckets <<= 1;
+        }
+        this.bucketMask = buckets - 1;
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+        this.current = new Generation(buckets * WAYS);
+        this.previous = new Generation(buckets * WAYS);
+        this.rotatedAt = clock.getAsLong();
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Gives a neighbor a slot unless it has one or all slots are taken.
+     */
+    public synchronized void register(Neighbor neighbor) {
+        if (slots.containsKey(neighbor)) {
+            return;
+        }
+        long now = clock.getAsLong();
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (slotFreeFrom[slot] <= now) {
+                slotFreeFrom[slot] = Long.MAX_VALUE;
+                slots.put(neighbor, slot);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Releases the slot of a neighbor once its bits have expired.
+     */
+    public synchronized void unregister(Neighbor neighbor) {
+        Integer slot = slots.remove(neighbor);
+        if (slot != null) {
+            slotFreeFrom[slot] = clock.getAsLong() + 2 * windowMillis;
+        }
+    }
+
+    /**
+     * Records that a neighbor has a transaction.
+     */
+    public void markSeen(Hash hash, Neighbor neighbor) {
+        Integer slot = slots.get(neighbor);
+        if (slot == null) {
+            return;
+        }
+        rotateIfDue();
+        long fingerprint = fingerprint(hash);
+        int bucket = (int) (fingerprint ^ (fingerprint >>> 32)) & bucketMask;
+        Generation generation = current;
+        synchronized (locks[bucket & (STRIPES - 1)]) {
+            generation.mark(bucket * WAYS, fingerprint, 1L << slot);
+        }
+    }
+
+    /**
+     * @return the bits of the neighbors known to have a transaction, see {@link #isSeenBy(long, Neighbor)}
+     */
+    public long seenBy(Hash hash) {
+        long fingerprint = fingerprint(hash);
+        int bucket = (int) (fingerprint ^ (fingerprint >>> 32)) & bucketMask;
+        synchronized (locks[bucket & (STRIPES - 1)]) {
+            return current.get(bucket * WAYS, fingerprint) | previous.get(bucket * WAYS, fingerprint);
+        }
+    }
+
+    /**
+     * @param seenBy the result of {@link #seenBy(Hash)}
+     * @return true if the neighbor is known to have the transaction, which counts as a suppressed broadcast
+     */
+    public boolean isSeenBy(long seenBy, Neighbor neighbor) {
+        if (seenBy == 0) {
+            return false;
+        }
+        Integer slot = slots.get(neighbor);
+        if (slot == null || (seenBy & 1L << slot) == 0) {
+            return false;
+        }
+        suppressed.increment();
+        return true;
+    }
+
+    /**
+     * @return number of packets {@link #isSeenBy(long, Neighbor)} suppressed
+     */
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+
+    private void rotateIfDue() {
+        long now = clock.getAsLong();
+        if (now - rotatedAt < windowMillis) {
+            return;
+        }
+        synchronized (this) {
+            if (now - rotatedAt < windowMillis) {
+                return;
+            }
+            // after two idle windows both generations have expired
+            for (int i = now - rotatedAt < 2 * windowMillis ? 1 : 2; i > 0; i--) {
+                Generation expired = previous;
+                for (int stripe = 0; stripe < STRIPES; stripe++) {
+                    synchronized (locks[stripe]) {
+                        for (int bucket = stripe; bucket <= bucketMask; bucket += STRIPES) {
+                            expired.clear(bucket * WAYS);
+                        }
+                    }
+                }
+                previous = current;
+                current = expired;
+            }
+            rotatedAt = now;
+        }
+    }
+
+    private static long fingerprint(Hash hash) {
+        long fingerprint = ByteBuffer.wrap(hash.bytes()).getLong();
+        return fingerprint == EMPTY ? 1L : fingerprint;
+    }
+
+    /**
+     * A set-associative table of fingerprints and masks. The entries of a bucket are kept in the order they were added,
+     * and the oldest one is replaced when the bucket is full.
+     */
+    private static class Generation {
+        private final long[] fingerprints;
+        private final long[] masks;
+
+        private Generation(int size) {
+            this.fingerprints = new long[size];
+            this.masks = new long[size];
+        }
+
+        private void mark(int start, long fingerprint, long bit) {
+            int free = -1;
+            for (int i = start; i < start + WAYS; i++) {
+                if (fingerprints[i] == fingerprint) {
+                    masks[i] |= bit;
+                    return;
+                }
+                if (free < 0 && fingerprints[i] == EMPTY) {
+                    free = i;
+                }
+            }
+            if (free < 0) {
+                System.arraycopy(fingerprints, start + 1, fingerprints, start, WAYS - 1);
+                System.arraycopy(masks, start + 1, masks, start, WAYS - 1);
+                free = start + WAYS - 1;
+            }
+            fingerprints[free] = fingerprint;
+            masks[free] = bit;
+        }
+
+        private long get(int start, long fingerprint) {
+            for (int i = start; i < start + WAYS; i++) {
+                if (fingerprints[i] == fingerprint) {
+                    return masks[i];
+                }
+            }
+            return 0L;
+        }
+
+        private void clear(int start) {
+            Arrays.fill(fingerprints, start, start + WAYS, EMPTY);
+            Arrays.fill(masks, start, start + WAYS, 0L);
+        }
+    }
+}
@@ -5,11 +5,18 @@ import com.iota.iri.TransactionValidator;
 import com.iota.iri.conf.NodeConfig;
 import com.iota.iri.controllers.TipsViewModel;
 import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.crypto.Sponge;
 import com.iota.iri.crypto.SpongeFactory;
 import com.iota.iri.model.Hash;
 import com.iota.iri.model.HashFactory;
 import com.iota.iri.model.TransactionHash;
+import com.iota.iri.network.SendScheduler.TrafficClass;
+import com.iota.iri.storage.GroupCommitWriter;
 import com.iota.iri.storage.Tangle;
+import com.iota.iri.utils.Converter;
+import com.iota.iri.utils.LatencyHistogram;
+import com.iota.iri.utils.collections.impl.BoundedPriorityQueue;
+import com.iota.iri.utils.collections.impl.WeightedLaneQueue;
 import com.iota.iri.zmq.MessageQ;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -19,6 +26,7 @@ import org.slf4j.LoggerFactory;
 
 import java.net.*;
 import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -26,6 +34,8 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
 /**
  * Class Node is the core class for handling IRI gossip protocol packets.
@@ -46,24 +56,63 @@ public class Node {
     private static final Logger log = LoggerFactory.getLogger(Node.class);
     private final int reqHashSize;
 
+    /**
+     * How long an idle queue worker waits for new items before it checks whether the node is shutting down.
+     */
+    private static final long WORKER_WAIT_MS = 100L;
 
-    private int broadcastQueueSize;
-    private int recvQueueSize;
-    private int replyQueueSize;
-    private static final int PAUSE_BETWEEN_TRANSACTIONS = 1;
+    /**
+     * How long the {@link NeighborSeenSet} takes new entries before it drops the older generation.
+     */
+    private static final long SEEN_SET_WINDOW_MS = 60_000L;
+    /**
+     * Lanes of the {@link #receiveQueue} if {@link NodeConfig#isReceiveLanesEnabled()}: transactions requested to
+     * solidify a milestone, other requested transactions and unsolicited transactions.
+     */
+    static final int MILESTONE_LANE = 0;
+    static final int REQUESTED_LANE = 1;
+    static final int UNSOLICITED_LANE = 2;
+    private static final int[] RECEIVE_LANE_WEIGHTS = {16, 4, 1};
+    private static final String[] RECEIVE_LANE_NAMES = {"milestone", "requested", "unsolicited"};
+    /**
+     * The average database write latency of received transactions that counts as overloaded, see
+     * {@link AdmissionController}.
+     */
+    private static final long WRITE_LATENCY_LIMIT_NS = TimeUnit.MILLISECONDS.toNanos(20);
+    /**
+     * Unsolicited transactions with less than this many trits of weight magnitude above the minimum are shed first.
+     */
+    private static final int LOW_WEIGHT_MARGIN = 2;
+    /**
+     * Entries after which the group commit writer stops waiting for more transactions, about 64 transactions.
+     */
+    private static final int GROUP_COMMIT_MAX_ENTRIES = 64 * 7;
 
     private final AtomicBoolean shuttingDown = new AtomicBoolean(false);
 
     private final List<Neighbor> neighbors = new CopyOnWriteArrayList<>();
-    private final ConcurrentSkipListSet<TransactionViewModel> broadcastQueue = weightQueue();
-    private final ConcurrentSkipListSet<Pair<TransactionViewModel, Neighbor>> receiveQueue = weightQueueTxPair();
-    private final ConcurrentSkipListSet<Pair<Hash, Neighbor>> replyQueue = weightQueueHashPair();
+    /**
+     * Index of {@link #neighbors} by protocol and IP address, used to find the sender of incoming packets.
+     */
+    private final Map<String, Neighbor> neighborsByAddress = new ConcurrentHashMap<>();
+    private final BoundedPriorityQueue<TransactionViewModel> broadcastQueue;
+    private final WeightedLaneQueue<Pair<TransactionViewModel, Neighbor>> receiveQueue;
+    private final BoundedPriorityQueue<Pair<Hash, Neighbor>> replyQueue;
 
+    private final StageMetrics receiveStage = new StageMetrics("receive");
+    private final StageMetrics replyStage = new StageMetrics("reply");
+    private final StageMetrics broadcastStage = new StageMetrics("broadcast");
 
-    private final DatagramPacket sendingPacket;
-    private final DatagramPacket tipRequestingPacket;
 
-    private final ExecutorService executor = Executors.newFixedThreadPool(5);
+    private final int packetSize;
+    private final boolean compressedGossip;
+    private UDPSender udpSender;
+    /**
+     * Hashes received transactions in batches, {@code null} if they are hashed one by one.
+     */
+    private HashingStage hashingStage;
+
+    private final ExecutorService executor;
     private final NodeConfig configuration;
     private final Tangle tangle;
     private final TipsViewModel tipsViewModel;
@@ -74,15 +123,42 @@ public class Node {
 
     private static final SecureRandom rnd = new SecureRandom();
 
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
 
-    private FIFOCache<ByteBuffer, Hash> recentSeenBytes;
+    private RecentSeenBytesCache<Hash> recentSeenBytes;
+    private final TransactionBytesCache transactionBytesCache;
+    /**
+     * The neighbors known to have a transaction, {@code null} if transactions are broadcast to all neighbors.
+     */
+    private final NeighborSeenSet seenSet;
+    /**
+     * Picks the packets that carry requests, {@code null} if every packet carries one.
+     */
+    private final RequestRouter requestRouter;
+    /**
+     * Sheds received transactions under overload, {@code null} if every transaction is processed.
+     */
+    private final AdmissionController admissionController;
+    /**
+     * Merges the writes of the receive workers, {@code null} if every worker writes on its own.
+     */
+    private GroupCommitWriter groupCommitWriter;
 
     private static AtomicLong recentSeenBytesMissCount = new AtomicLong(0L);
     private static AtomicLong recentSeenBytesHitCount = new AtomicLong(0L);
 
-    private long sendLimit = -1;
-    private static AtomicLong sendPacketsCounter = new AtomicLong(0L);
-    private static AtomicLong sendPacketsTimer = new AtomicLong(0L);
+    private final SendScheduler sendScheduler;
+    /**
+     * Weights of the neighbors' send shares by uri, see {@link NodeConfig#getSendNeighborWeights()}.
+     */
+    private final Map<String, Integer> sendWeights = new HashMap<>();
 
     protected static final ConcurrentSkipListSet<String> rejectedAddresses = new ConcurrentSkipListSet<String>();
 
@@ -93,6 +169,7 @@ public class Node {
 
 
     private DatagramSocket udpSocket;
+    private DatagramChannel udpChannel;
 
     /**
      * Constructs a Node class instance. The constructor is passed reference
@@ -117,10 +194,42 @@ public class Node {
         this.milestoneTracker = milestoneTracker;
         this.messageQ = messageQ;
         this.reqHashSize = configuration.getRequestHashSize();
-        int packetSize = configuration.getTransactionPacketSize();
-        this.sendingPacket = new DatagramPacket(new byte[packetSize], packetSize);
-        this.tipRequestingPacket = new DatagramPacket(new byte[packetSize], packetSize);
-
+        this.packetSize = configuration.getTransactionPacketSize();
+        this.compressedGossip = configuration.isCompressedGossipEnabled();
+
+        // the send limit is given in Mbit/s
+        double packetsPerSecond = configuration.getSendLimit() < 0 ? -1d
+                : configuration.getSendLimit() * 1_000_000d / (packetSize * 8);
+        this.sendScheduler = new SendScheduler(packetsPerSecond, configuration.getSendBurst(),
+                configuration.getSendMilestoneReserve(), configuration.getSendReplyReserve(), System::nanoTime);
+        parseSendWeights();
+
+        this.transactionBytesCache = new TransactionBytesCache(configuration.getReplyCacheSizeBytes());
+        this.seenSet = configuration.getSeenSetSize() > 0
+                ? new NeighborSeenSet(configuration.getSeenSetSize(), SEEN_SET_WINDOW_MS, System::currentTimeMillis)
+                : null;
+        this.requestRouter = configuration.isAdaptiveRequestsEnabled()
+                ? new RequestRouter(configuration.getRequestExploration(), rnd)
+                : null;
+
+        int queueSize = configuration.getqSizeNode();
+        this.broadcastQueue = weightQueue(queueSize);
+        this.receiveQueue = configuration.isReceiveLanesEnabled()
+                ? weightLanesTxPair(queueSize, RECEIVE_LANE_WEIGHTS, pair -> receiveLaneOf(pair.getLeft().getHash()))
+                : weightLanesTxPair(queueSize, new int[]{1}, pair -> 0);
+        this.replyQueue = fifoQueueHashPair(queueSize);
+        this.admissionController = configuration.isAdmissionControlEnabled()
+                ? new AdmissionController(System::nanoTime, () -> ThreadLocalRandom.current().nextDouble())
+                        .addSignal("receive", () -> (double) receiveQueue.size() / receiveQueue.getCapacity())
+                        .addSignal("hash", () -> hashingStage == null ? 0d
+                                : (double) hashingStage.getQueueSize() / hashingStage.getQueueCapacity())
+                        .addWriteLatencySignal(WRITE_LATENCY_LIMIT_NS)
+                        .addCpuSignal()
+                : null;
+
+        // tip requester and DNS refresher plus the queue workers
+        this.executor = Executors.newFixedThreadPool(2 + Math.max(1, configuration.getReceiveWorkers())
+                + Math.max(1, configuration.getReplyWorkers()) + Math.max(1, configuration.getBroadcastWorkers()));
     }
 
     /**
@@ -129,19 +238,32 @@ public class Node {
      */
     public void init() {
 
-        //TODO ask Alon
-         sendLimit = (long) ((configuration.getSendLimit() * 1000000) / (configuration.getTransactionPacketSize() * 8));
-
-        broadcastQueueSize = recvQueueSize = replyQueueSize = configuration.getqSizeNode();
-        recentSeenBytes = new FIFOCache<>(configuration.getCacheSizeBytes(), configuration.getpDropCacheEntry());
+        recentSeenBytes = new RecentSeenBytesCache<>(configuration.getCacheSizeBytes(), configuration.getpDropCacheEntry());
+        udpSender = new UDPSender(configuration.getUdpSenderThreads(), packetSize, reqHashSize, compressedGossip);
+        if (configuration.isBatchHashingEnabled()) {
+            hashingStage = new HashingStage(configuration.getHashingThreads(),
+                    TimeUnit.MICROSECONDS.toNanos(configuration.getHashBatchLatency()), this::preProcessHashedData);
+            hashingStage.init();
+        }
+        if (configuration.isGroupCommitEnabled() && tangle != null) {
+            groupCommitWriter = new GroupCommitWriter(tangle, GROUP_COMMIT_MAX_ENTRIES,
+                    TimeUnit.MICROSECONDS.toNanos(configuration.getGroupCommitWindow()));
+            groupCommitWriter.init();
+        }
 
         parseNeighborsConfig();
 
-        executor.submit(spawnBroadcasterThread());
         executor.submit(spawnTipRequesterThread());
         executor.submit(spawnNeighborDNSRefresherThread());
-        executor.submit(spawnProcessReceivedThread());
-        executor.submit(spawnReplyToRequestThread());
+        for (int i = 0; i < Math.max(1, configuration.getBroadcastWorkers()); i++) {
+            executor.submit(spawnBroadcasterThread());
+        }
+        for (int i = 0; i < Math.max(1, configuration.getReceiveWorkers()); i++) {
+            executor.submit(spawnProcessReceivedThread());
+        }
+        for (int i = 0; i < Math.max(1, configuration.getReplyWorkers()); i++) {
+            executor.submit(spawnReplyToRequestThread());
+        }
 
         executor.shutdown();
     }
@@ -165,6 +287,17 @@ public class Node {
         return udpSocket;
     }
 
+    /**
+     * Keeps the passed non-blocking UDP channel reference from {@link BatchedUDPReceiver}.
+     * New {@link UDPNeighbor}s send through this channel instead of the socket if it is set. The receiver does not
+     * set a socket, the socket adapter of a non-blocking channel cannot be used to send.
+     *
+     * @param channel channel created by BatchedUDPReceiver
+     */
+    public void setUDPChannel(final DatagramChannel channel) {
+        this.udpChannel = channel;
+    }
+
     /**
      * Internal map used to keep track of neighbor's IP vs DNS name
      */
@@ -290,71 +423,156 @@ public class Node {
      * on the received transaction via  {@link TransactionValidator#runValidation}
      *
      * The packet is then added to  {@link *receiveQueue} for further processing.
+     *
+     * The node takes ownership of {@code receivedData}, which may be hashed by another thread after this method
+     * returned, so receivers must pass an array of exactly one packet that they do not reuse.
      */
 
     public void preProcessReceivedData(byte[] receivedData, SocketAddress senderAddress, String uriScheme) {
-        Hash receivedTransactionHash = null;
-
-        boolean addressMatch = false;
-        boolean cached = false;
-        double pDropTransaction = configuration.getpDropTransaction();
-
-        for (final Neighbor neighbor : getNeighbors()) {
-            addressMatch = neighbor.matches(senderAddress);
-
-            neighbor.incAllTransactions();
-            if ( rnd.nextDouble() < pDropTransaction) {
-                break;
+        final Neighbor neighbor = findNeighbor(senderAddress, uriScheme);
+        if (neighbor != null) {
+            if (receivedData.length != packetSize) {
+                receivedData = canonicalPacket(receivedData, neighbor);
+                if (receivedData == null) {
+                    return;
+                }
             }
-            try {
+            preProcessReceivedData(receivedData, neighbor);
+        } else if (configuration.isTestnet()) {
+            getIfBody(senderAddress, uriScheme);
+        }
+    }
 
-                //Transaction bytes
-                ByteBuffer digest = getBytesDigest(receivedData);
+    /**
+     * Handles a datagram shorter than a packet, which is a {@link PacketCompression#HELLO} or a compressed packet if
+     * compressed gossip is enabled. Either one tells that the neighbor may be sent compressed packets.
+     *
+     * @return the canonical packet or {@code null} if there is none
+     */
+    private byte[] canonicalPacket(byte[] data, Neighbor neighbor) {
+        if (!compressedGossip) {
+            return null;
+        }
+        boolean hello = PacketCompression.isHello(data, data.length);
+        if (!hello && !PacketCompression.isCompressedLength(data.length, packetSize)) {
+            return null;
+        }
+        if (neighbor instanceof UDPNeighbor) {
+            ((UDPNeighbor) neighbor).compressionHelloReceived(System.currentTimeMillis());
+        }
+        return hello ? null : PacketCompression.decompress(data, 0, data.length, packetSize);
+    }
 
-                //check if cached
-                synchronized (recentSeenBytes) {
-                    cached = (receivedTransactionHash = recentSeenBytes.get(digest)) != null;
-                }
+    /**
+     * Digests, deduplicates and validates a packet exactly once after its sender has been identified.
+     *
+     * @param receivedData the raw packet
+     * @param neighbor the neighbor that sent the packet
+     */
+    private void preProcessReceivedData(byte[] receivedData, Neighbor neighbor) {
+        neighbor.incAllTransactions(receivedData.length);
+        if (rnd.nextDouble() < configuration.getpDropTransaction()) {
+            return;
+        }
 
-                receivedTransactionHash = getIfTryCatch(receivedData, receivedTransactionHash, cached, neighbor, digest);
+        //Transaction bytes
+        long digest = getBytesDigest(receivedData);
 
-            } catch (NoSuchAlgorithmException e) {
-                String strErr = String.format("MessageDigest: %s", e);
-                log.error(strErr);
-            } catch (final TransactionValidator.StaleTimestampException e) {
-                getTransactionRequester(receivedTransactionHash, neighbor, e);
-            } catch (final RuntimeException e) {
-                invalidTransactionVM(neighbor, e);
+        //check if cached
+        Hash cachedHash = recentSeenBytes.get(digest);
+        if (cachedHash == null && admissionController != null
+                && !admissionController.admitPacket(neighbor, isFromCoordinator(receivedData))) {
+            return;
+        }
+        if (cachedHash == null && hashingStage != null && hashingStage.submit(receivedData, neighbor, digest)) {
+            // continued by the hashing stage in preProcessHashedData
+            return;
+        }
+        preProcessReceivedData(receivedData, neighbor, digest, cachedHash, null);
+    }
 
-            }
+    /**
+     * Continues {@link #preProcessReceivedData(byte[], Neighbor)} for a packet whose transaction was hashed by the
+     * {@link HashingStage}.
+     */
+    private void preProcessHashedData(byte[] receivedData, Neighbor neighbor, long digest, Hash hash) {
+        preProcessReceivedData(receivedData, neighbor, digest, null, hash);
+    }
 
-            //Request bytes
+    /**
+     * @param cachedHash the hash of the transaction if it was seen before
+     * @param calculatedHash the hash of the transaction if it was not seen before and has already been calculated
+     */
+    private void preProcessReceivedData(byte[] receivedData, Neighbor neighbor, long digest, Hash cachedHash,
+                                        Hash calculatedHash) {
+        Hash receivedTransactionHash = cachedHash;
+        boolean cached = cachedHash != null;
+        try {
+            receivedTransactionHash = getIfTryCatch(receivedData, receivedTransactionHash, cached, neighbor, digest,
+                    calculatedHash);
+            neighbor.getMetrics().transactionReceived(receivedTransactionHash, System.nanoTime());
 
-            //add request to reply queue (requestedHash, neighbor)
-            Hash requestedHash = HashFactory.TRANSACTION.create(receivedData, TransactionViewModel.SIZE, reqHashSize);
-            requestedHash = getReceivedTransaction(receivedTransactionHash, requestedHash);
+        } catch (final TransactionValidator.StaleTimestampException e) {
+            getTransactionRequester(receivedTransactionHash, neighbor, e);
+        } catch (final RuntimeException e) {
+            invalidTransactionVM(neighbor, e);
 
-            addReceivedDataToReplyQueue(requestedHash, neighbor);
+        }
+        if (seenSet != null && receivedTransactionHash != null) {
+            seenSet.markSeen(receivedTransactionHash, neighbor);
+        }
 
-            //recentSeenBytes statistics
+        //Request bytes
 
-            long hitCount;
-            long missCount;
-            if (cached) {
-                hitCount = recentSeenBytesHitCount.incrementAndGet();
-                missCount = recentSeenBytesMissCount.get();
-            } else {
-                hitCount = recentSeenBytesHitCount.get();
-                missCount = recentSeenBytesMissCount.incrementAndGet();
-            }
-            getGetInfoCount(hitCount, missCount);
+        //add request to reply queue (requestedHash, neighbor)
+        Hash requestedHash = HashFactory.TRANSACTION.create(receivedData, TransactionViewModel.SIZE, reqHashSize);
+        requestedHash = getReceivedTransaction(receivedTransactionHash, requestedHash);
+
+        addReceivedDataToReplyQueue(requestedHash, neighbor);
 
+        //recentSeenBytes statistics
 
+        long hitCount;
+        long missCount;
+        if (cached) {
+            hitCount = recentSeenBytesHitCount.incrementAndGet();
+            missCount = recentSeenBytesMissCount.get();
+        } else {
+            hitCount = recentSeenBytesHitCount.get();
+            missCount = recentSeenBytesMissCount.incrementAndGet();
         }
+        getGetInfoCount(hitCount, missCount);
+    }
 
-        if (!addressMatch && configuration.isTestnet()) {
-            getIfBody(senderAddress, uriScheme);
+    /**
+     * Looks up the neighbor that sent a packet. Neighbors are matched by protocol and IP address only, the source port
+     * of the packet is ignored.
+     *
+     * @param senderAddress the source address of the packet
+     * @param uriScheme the protocol the packet was received on
+     * @return the sending neighbor or {@code null} if the sender is not one of our neighbors
+     */
+    Neighbor findNeighbor(SocketAddress senderAddress, String uriScheme) {
+        if (senderAddress instanceof InetSocketAddress) {
+            InetAddress inetAddress = ((InetSocketAddress) senderAddress).getAddress();
+            return inetAddress == null ? null
+                    : neighborsByAddress.get(neighborKey(uriScheme, inetAddress.getHostAddress()));
+        }
+        // fallback for exotic address types
+        for (final Neighbor neighbor : neighbors) {
+            if (neighbor.connectionType().equals(uriScheme) && neighbor.matches(senderAddress)) {
+                return neighbor;
+            }
         }
+        return null;
+    }
+
+    private static String neighborKey(String uriScheme, String hostAddress) {
+        return uriScheme + "://" + hostAddress;
+    }
+
+    private static String neighborKey(Neighbor neighbor) {
+        return neighborKey(neighbor.connectionType(), neighbor.getHostAddress());
     }
 
     private void getIfBody(SocketAddress senderAddress, String uriScheme) {
@@ -382,17 +600,20 @@ public class Node {
         }
     }
 
-    private Hash getIfTryCatch(byte[] receivedData, Hash receivedTransactionHash, boolean cached, Neighbor neighbor, ByteBuffer digest) {
+    private Hash getIfTryCatch(byte[] receivedData, Hash receivedTransactionHash, boolean cached, Neighbor neighbor, long digest,
+                               Hash calculatedHash) {
         TransactionViewModel receivedTransactionViewModel;
         if (!cached) {
             //if not, then validate
-            receivedTransactionViewModel = new TransactionViewModel(receivedData, TransactionHash.calculate(receivedData, TransactionViewModel.TRINARY_SIZE, SpongeFactory.create(SpongeFactory.Mode.CURLP81)));
+            receivedTransactionViewModel = new TransactionViewModel(receivedData, calculatedHash != null ? calculatedHash
+                    : TransactionHash.calculate(receivedData, TransactionViewModel.TRINARY_SIZE, SpongeFactory.create(SpongeFactory.Mode.CURLP81)));
             receivedTransactionHash = receivedTransactionViewModel.getHash();
+            if (admissionController != null && !admit(receivedTransactionViewModel, neighbor)) {
+                return receivedTransactionHash;
+            }
             transactionValidator.runValidation(receivedTransactionViewModel, transactionValidator.getMinWeightMagnitude());
 
-            synchronized (recentSeenBytes) {
-                recentSeenBytes.put(digest, receivedTransactionHash);
-            }
+            recentSeenBytes.put(digest, receivedTransactionHash);
 
             //if valid - add to receive queue (receivedTransactionViewModel, neighbor)
             addReceivedDataToReceiveQueue(receivedTransactionViewModel, neighbor);
@@ -401,6 +622,41 @@ public class Node {
         return receivedTransactionHash;
     }
 
+    /**
+     * Asks the {@link AdmissionController} whether a hashed transaction is processed. A shed transaction is not put
+     * into the recently seen cache, so a later copy gets another chance.
+     */
+    private boolean admit(TransactionViewModel transactionViewModel, Neighbor neighbor) {
+        boolean requested = transactionRequester.isTransactionRequested(transactionViewModel.getHash(), false)
+                || trafficClassOf(transactionViewModel, TrafficClass.BROADCAST) == TrafficClass.MILESTONE;
+        boolean lowWeight = transactionViewModel.getWeightMagnitude()
+                < transactionValidator.getMinWeightMagnitude() + LOW_WEIGHT_MARGIN;
+        return admissionController.admitTransaction(neighbor, requested, lowWeight);
+    }
+
+    private boolean isFromCoordinator(byte[] packet) {
+        Hash coordinator = milestoneTracker == null ? null : milestoneTracker.getCoordinator();
+        return coordinator != null && hasAddress(packet, coordinator);
+    }
+
+    /**
+     * Compares the address of the transaction in a packet with an address without hashing the transaction.
+     */
+    static boolean hasAddress(byte[] packet, Hash addressHash) {
+        // the address starts within a byte, every byte holds 5 trits
+        int first = TransactionViewModel.ADDRESS_TRINARY_OFFSET / 5;
+        int skip = TransactionViewModel.ADDRESS_TRINARY_OFFSET % 5;
+        byte[] trits = new byte[skip + TransactionViewModel.ADDRESS_TRINARY_SIZE];
+        Converter.getTrits(Arrays.copyOfRange(packet, first, first + (trits.length + 4) / 5), trits);
+        byte[] address = addressHash.trits();
+        for (int i = 0; i < TransactionViewModel.ADDRESS_TRINARY_SIZE; i++) {
+            if (trits[skip + i] != address[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private Hash getReceivedTransaction(Hash receivedTransactionHash, Hash requestedHash) {
         if (requestedHash.equals(receivedTransactionHash)) {
             //requesting a random tip
@@ -414,8 +670,7 @@ public class Node {
             final URI uri = new URI(uriString);
             // 3rd parameter false (not tcp), 4th parameter true (configured tethering)
             final Neighbor newneighbor = newNeighbor(uri, false);
-            if (!getNeighbors().contains(newneighbor)) {
-                getNeighbors().add(newneighbor);
+            if (addNeighbor(newneighbor)) {
                 Neighbor.incNumPeers();
             }
         } catch (URISyntaxException e) {
@@ -432,10 +687,13 @@ public class Node {
 
     private void getTransactionRequester(Hash receivedTransactionHash, Neighbor neighbor, TransactionValidator.StaleTimestampException e) {
         log.debug(e.getMessage());
-        try {
-            transactionRequester.clearTransactionRequest(receivedTransactionHash);
-        } catch (Exception e1) {
-            log.error(e1.getMessage());
+        // the hash is only known if the transaction was seen before
+        if (receivedTransactionHash != null) {
+            try {
+                transactionRequester.clearTransactionRequest(receivedTransactionHash);
+            } catch (Exception e1) {
+                log.error(e1.getMessage());
+            }
         }
         neighbor.incStaleTransactions();
     }
@@ -464,21 +722,14 @@ public class Node {
      * Adds incoming transactions to the {@link *receiveQueue} to be processed later.
      */
     public void addReceivedDataToReceiveQueue(TransactionViewModel receivedTransactionViewModel, Neighbor neighbor) {
-        receiveQueue.add(new ImmutablePair<>(receivedTransactionViewModel, neighbor));
-        if (receiveQueue.size() > recvQueueSize) {
-            receiveQueue.pollLast();
-        }
-
+        receiveQueue.offer(new ImmutablePair<>(receivedTransactionViewModel, neighbor));
     }
 
     /**
      * Adds incoming transactions to the {@link *replyQueue} to be processed later
      */
     public void addReceivedDataToReplyQueue(Hash requestedHash, Neighbor neighbor) {
-        replyQueue.add(new ImmutablePair<>(requestedHash, neighbor));
-        if (replyQueue.size() > replyQueueSize) {
-            replyQueue.pollLast();
-        }
+        replyQueue.offer(new ImmutablePair<>(requestedHash, neighbor));
     }
 
     /**
@@ -486,7 +737,7 @@ public class Node {
      * {@link *processReceivedData} on the pair.
      */
     public void processReceivedDataFromQueue() {
-        final Pair<TransactionViewModel, Neighbor> receivedData = receiveQueue.pollFirst();
+        final Pair<TransactionViewModel, Neighbor> receivedData = receiveQueue.poll();
         if (receivedData != null) {
             processReceivedData(receivedData.getLeft(), receivedData.getRight());
         }
@@ -497,7 +748,7 @@ public class Node {
      * {@link *eplyToRequest} on the pair.
      */
     public void replyToRequestFromQueue() {
-        final Pair<Hash, Neighbor> receivedData = replyQueue.pollFirst();
+        final Pair<Hash, Neighbor> receivedData = replyQueue.poll();
         if (receivedData != null) {
             replyToRequest(receivedData.getLeft(), receivedData.getRight());
         }
@@ -515,7 +766,12 @@ public class Node {
 
         //store new transaction
         try {
-            stored = receivedTransactionViewModel.store(tangle);
+            long start = System.nanoTime();
+            stored = groupCommitWriter != null ? receivedTransactionViewModel.store(tangle, groupCommitWriter)
+                    : receivedTransactionViewModel.store(tangle);
+            if (admissionController != null) {
+                admissionController.recordWriteLatency(System.nanoTime() - start);
+            }
         } catch (Exception e) {
             log.error("Error accessing persistence store.", e);
             neighbor.incInvalidTransactions();
@@ -537,6 +793,32 @@ public class Node {
 
     }
 
+    /**
+     * Validates and stores a transaction received through the catch-up sync. Unlike a gossiped transaction it is not
+     * broadcast, since it was confirmed long ago.
+     *
+     * @param transaction the received transaction with its calculated hash
+     * @param sender the address of the neighbor that sent it
+     * @return true if the transaction was new, false if it was known or has a stale timestamp
+     * @throws IllegalStateException if the transaction is invalid
+     */
+    public boolean storeSyncedTransaction(TransactionViewModel transaction, String sender) throws Exception {
+        try {
+            transactionValidator.runValidation(transaction, transactionValidator.getMinWeightMagnitude());
+        } catch (final TransactionValidator.StaleTimestampException e) {
+            log.debug(e.getMessage());
+            return false;
+        }
+        if (!transaction.store(tangle)) {
+            return false;
+        }
+        transaction.setArrivalTime(System.currentTimeMillis());
+        transactionValidator.updateStatus(transaction);
+        transaction.updateSender(sender);
+        transaction.update(tangle, "arrivalTime|sender");
+        return true;
+    }
+
     /**
      * This is second step of incoming transaction processing. The newly received
      * and validated transactions are stored in {@link *receiveQueue}. This function
@@ -585,12 +867,9 @@ public class Node {
 
     private void getCorpoIfTryCatch(Neighbor neighbor, TransactionViewModel transactionViewModel) {
         try {
-            sendPacket(sendingPacket, transactionViewModel, neighbor);
+            sendPacket(transactionViewModel, neighbor, trafficClassOf(transactionViewModel, TrafficClass.REPLY));
 
-            ByteBuffer digest = getBytesDigest(transactionViewModel.getBytes());
-            synchronized (recentSeenBytes) {
-                recentSeenBytes.put(digest, transactionViewModel.getHash());
-            }
+            recentSeenBytes.put(getBytesDigest(transactionViewModel.getBytes()), transactionViewModel.getHash());
         } catch (Exception e) {
             log.error("Error fetching transaction to request.", e);
         }
@@ -607,8 +886,15 @@ public class Node {
 
     private TransactionViewModel getBodyElseTVM(Hash requestedHash, TransactionViewModel transactionViewModel) {
         try {
+            Hash requestKey = HashFactory.TRANSACTION.create(requestedHash.bytes(), 0, reqHashSize);
+            if (transactionBytesCache.isEnabled()) {
+                TransactionBytesCache.Entry cached = transactionBytesCache.get(requestKey);
+                if (cached != null) {
+                    return new TransactionViewModel(cached.getBytes(), cached.getHash());
+                }
+            }
 
-            transactionViewModel = TransactionViewModel.fromHash(tangle, HashFactory.TRANSACTION.create(requestedHash.bytes(), 0, reqHashSize));
+            transactionViewModel = TransactionViewModel.fromHash(tangle, requestKey);
 
         } catch (Exception e) {
             log.error("Error while searching for transaction.", e);
@@ -623,73 +909,77 @@ public class Node {
 
     /**
      * Sends a Datagram to the neighbour. Also appends a random hash request
-     * to the outgoing packet. Note that this is only used for UDP handling. For TCP
+     * to the outgoing packet, unless the {@link RequestRouter} routes requests to other neighbors. Note that this is only used for UDP handling. For TCP
      * the outgoing packets are sent by {@link *ReplicatorSinkProcessor}
      *
-     * @param {@link DatagramPacket} sendingPacket the UDP payload buffer
      * @param {@link TransactionViewModel} transactionViewModel which should be sent.
      * @praram {@link Neighbor} the neighbor where this should be sent.
+     * @param trafficClass class of the packet for the {@link SendScheduler}
      *
      */
-    public void sendPacket(DatagramPacket sendingPacket, TransactionViewModel transactionViewModel, Neighbor neighbor) throws Exception {
+    public void sendPacket(TransactionViewModel transactionViewModel, Neighbor neighbor, TrafficClass trafficClass) throws Exception {
 
         //limit amount of sends per second
-        long now = System.currentTimeMillis();
-        if ((now - sendPacketsTimer.get()) > 1000L) {
-            //reset counter every second
-            sendPacketsCounter.set(0);
-            sendPacketsTimer.set(now);
-        }
-        if (sendLimit >= 0 && sendPacketsCounter.get() > sendLimit) {
-
+        if (!sendScheduler.tryAcquire(neighbor, trafficClass)) {
             return;
         }
 
+        long now = System.nanoTime();
+        Hash hash = requestRouter == null || requestRouter.shouldRequest(neighbor, neighbors, now)
+                ? transactionRequester.transactionToRequest(rnd.nextDouble() < configuration.getpSelectMilestoneChild())
+                : null;
+        if (hash != null) {
+            neighbor.getMetrics().requestSent(hash, now);
+        }
+        send(neighbor, transactionViewModel.getBytes(), (hash != null ? hash : transactionViewModel.getHash()).bytes());
+    }
 
-        synchronized (sendingPacket.getData()) {
-            System.arraycopy(transactionViewModel.getBytes(), 0, sendingPacket.getData(), 0, TransactionViewModel.SIZE);
-            Hash hash = transactionRequester.transactionToRequest(rnd.nextDouble() < configuration.getpSelectMilestoneChild());
-            System.arraycopy(hash != null ? hash.bytes() : transactionViewModel.getHash().bytes(), 0,
-                    sendingPacket.getData(), TransactionViewModel.SIZE, reqHashSize);
-            neighbor.send(sendingPacket);
+    /**
+     * Transactions issued by the coordinator are sent as milestones, everything else as {@code trafficClass}.
+     */
+    private TrafficClass trafficClassOf(TransactionViewModel transactionViewModel, TrafficClass trafficClass) {
+        if (milestoneTracker != null && milestoneTracker.getCoordinator() != null
+                && milestoneTracker.getCoordinator().equals(transactionViewModel.getAddressHash())) {
+            return TrafficClass.MILESTONE;
         }
+        return trafficClass;
+    }
 
-        sendPacketsCounter.getAndIncrement();
+    /**
+     * Hands a packet to the neighbor. UDP packets are queued for the {@link UDPSender} once the node is initialized;
+     * everything else is composed in a fresh buffer, since TCP neighbors queue a copy anyway.
+     */
+    private void send(Neighbor neighbor, byte[] transaction, byte[] requestHash) {
+        if (udpSender != null && neighbor instanceof UDPNeighbor) {
+            udpSender.send((UDPNeighbor) neighbor, transaction, requestHash);
+            return;
+        }
+        DatagramPacket packet = new DatagramPacket(new byte[packetSize], packetSize);
+        System.arraycopy(transaction, 0, packet.getData(), 0, TransactionViewModel.SIZE);
+        System.arraycopy(requestHash, 0, packet.getData(), TransactionViewModel.SIZE, reqHashSize);
+        neighbor.send(packet);
     }
 
 
     /**
-     * This thread picks up a new transaction from the broadcast queue and
-     * spams it to all of the neigbors. Sadly, this also includes the neigbor who
-     * originally sent us the transaction. This could be improved in future.
+     * This thread picks up new transactions from the broadcast queue and
+     * spams them to all of the neigbors, except for those that are known to have
+     * them already, see {@link NeighborSeenSet}.
      *
      */
     private Runnable spawnBroadcasterThread() {
-        return () -> {
-
-            log.info("Spawning Broadcaster Thread");
-
-            while (!shuttingDown.get()) {
-
-                try {
-                    final TransactionViewModel transactionViewModel = broadcastQueue.pollFirst();
-                    if (transactionViewModel != null) {
-
-                        sendPacketToNeighbor(transactionViewModel);
-                    }
-                    Thread.sleep(PAUSE_BETWEEN_TRANSACTIONS);
-                } catch (final Exception e) {
-                    log.error("Broadcaster Thread Exception:", e);
-                }
-            }
-            log.info("Shutting down Broadcaster Thread");
-        };
+        return spawnQueueWorker("Broadcaster", broadcastQueue::drainTo, broadcastStage, this::sendPacketToNeighbor);
     }
 
     private void sendPacketToNeighbor(TransactionViewModel transactionViewModel) {
+        TrafficClass trafficClass = trafficClassOf(transactionViewModel, TrafficClass.BROADCAST);
+        long seenBy = seenSet != null ? seenSet.seenBy(transactionViewModel.getHash()) : 0L;
         for (final Neighbor neighbor : neighbors) {
+            if (seenBy != 0 && seenSet.isSeenBy(seenBy, neighbor)) {
+                continue;
+            }
             try {
-                sendPacket(sendingPacket, transactionViewModel, neighbor);
+                sendPacket(transactionViewModel, neighbor, trafficClass);
             } catch (final Exception e) {
                 // ignore
             }
@@ -709,12 +999,17 @@ public class Node {
 
                 try {
                     final TransactionViewModel transactionViewModel = TransactionViewModel.fromHash(tangle, milestoneTracker.getLatestMilestone());
-                    System.arraycopy(transactionViewModel.getBytes(), 0, tipRequestingPacket.getData(), 0, TransactionViewModel.SIZE);
-                    System.arraycopy(transactionViewModel.getHash().bytes(), 0, tipRequestingPacket.getData(), TransactionViewModel.SIZE,
-                            reqHashSize);
-
-
-                    neighbors.forEach(n -> n.send(tipRequestingPacket));
+                    byte[] transaction = transactionViewModel.getBytes();
+                    byte[] requestHash = transactionViewModel.getHash().bytes();
+
+                    neighbors.stream()
+                            .filter(n -> sendScheduler.tryAcquire(n, TrafficClass.MILESTONE))
+                            .forEach(n -> send(n, transaction, requestHash));
+                    if (compressedGossip) {
+                        neighbors.stream()
+                                .filter(n -> n instanceof UDPNeighbor)
+                                .forEach(n -> ((UDPNeighbor) n).sendCompressionHello());
+                    }
 
                     long now = System.currentTimeMillis();
                     if ((now - lastTime) > 10000L) {
@@ -727,6 +1022,21 @@ public class Node {
                                 getReceiveQueueSize(), getBroadcastQueueSize(),
                                 transactionRequester.numberOfTransactionsToRequest(), getReplyQueueSize(),
                                 TransactionViewModel.getNumberOfStoredTransactions(tangle));
+                        for (StageMetrics stage : getStageMetrics()) {
+                            messageQ.publish("stage %s %d %d %d", stage.getName(), stage.getProcessedCount(),
+                                    stage.getLatency().getPercentileMicros(0.5),
+                                    stage.getLatency().getPercentileMicros(0.99));
+                            log.info(stage.report());
+                        }
+                        logSendScheduler();
+                        logTransactionBytesCache();
+                        logNeighborSeenSet();
+                        logRequestRouter();
+                        logReceiveLanes();
+                        logAdmissionController();
+                        logGroupCommitWriter();
+                        logTransactionRequester();
+                        publishNeighborMetrics();
                     }
 
                     Thread.sleep(5000);
@@ -739,106 +1049,145 @@ public class Node {
     }
 
     private Runnable spawnProcessReceivedThread() {
-        return () -> {
-
-            log.info("Spawning Process Received Data Thread");
+        return spawnQueueWorker("Process Received Data", receiveQueue::drainTo, receiveStage,
+                receivedData -> processReceivedData(receivedData.getLeft(), receivedData.getRight()));
+    }
 
-            while (!shuttingDown.get()) {
+    private Runnable spawnReplyToRequestThread() {
+        return spawnQueueWorker("Reply To Request", replyQueue::drainTo, replyStage,
+                receivedData -> replyToRequest(receivedData.getLeft(), receivedData.getRight()));
+    }
 
-                try {
-                    processReceivedDataFromQueue();
-                    Thread.sleep(1);
-                } catch (final Exception e) {
-                    log.error("Process Received Data Thread Exception:", e);
-                }
-            }
-            log.info("Shutting down Process Received Data Thread");
-        };
+    /**
+     * The blocking batch removal of {@link BoundedPriorityQueue} and {@link WeightedLaneQueue}.
+     */
+    @FunctionalInterface
+    private interface BatchSource<E> {
+        int drainTo(Collection<E> target, int maxElements, long timeout, TimeUnit unit)
+                throws InterruptedException;
     }
 
-    private Runnable spawnReplyToRequestThread() {
+    /**
+     * Creates a worker that blocks until items arrive in {@code queue} and hands up to
+     * {@link NodeConfig#getWorkerBatchSize()} of them per wakeup to {@code handler}. On shutdown the worker finishes
+     * the batch in hand and exits.
+     */
+    private <E> Runnable spawnQueueWorker(String name, BatchSource<E> queue, StageMetrics metrics,
+                                          Consumer<E> handler) {
+        int batchSize = Math.max(1, configuration.getWorkerBatchSize());
         return () -> {
 
-            log.info("Spawning Reply To Request Thread");
-
+            log.info("Spawning {} Thread", name);
+            List<E> batch = new ArrayList<>(batchSize);
             while (!shuttingDown.get()) {
 
                 try {
-                    replyToRequestFromQueue();
-                    Thread.sleep(1);
-                } catch (final Exception e) {
-                    log.error("Reply To Request Thread Exception:", e);
+                    if (queue.drainTo(batch, batchSize, WORKER_WAIT_MS, TimeUnit.MILLISECONDS) == 0) {
+                        continue;
+                    }
+                    metrics.recordBatch();
+                    for (E item : batch) {
+                        long start = System.nanoTime();
+                        boolean success = false;
+                        try {
+                            handler.accept(item);
+                            success = true;
+                        } catch (final Exception e) {
+                            log.error(name + " Thread Exception:", e);
+                        } finally {
+                            metrics.recordItem(System.nanoTime() - start, success);
+                        }
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } finally {
+                    batch.clear();
                 }
             }
-            log.info("Shutting down Reply To Request Thread");
+            log.info("Shutting down {} Thread", name);
         };
     }
 
 
-    private static ConcurrentSkipListSet<TransactionViewModel> weightQueue() {
-        return new ConcurrentSkipListSet<>((transaction1, transaction2) -> {
-            if (transaction1.getWeightMagnitude() == transaction2.getWeightMagnitude()) {
-                for (int i = Hash.SIZE_IN_BYTES; i-- > 0; ) {
-                    if (transaction1.getHash().bytes()[i] != transaction2.getHash().bytes()[i]) {
-                        return transaction2.getHash().bytes()[i] - transaction1.getHash().bytes()[i];
-                    }
-                }
-                return 0;
-            }
-            return transaction2.getWeightMagnitude() - transaction1.getWeightMagnitude();
-        });
+    /**
+     * Transactions with a higher weight magnitude are served first and evicted last. A transaction is queued at most
+     * once at a time.
+     */
+    private static BoundedPriorityQueue<TransactionViewModel> weightQueue(int capacity) {
+        return new BoundedPriorityQueue<>(capacity, Sponge.HASH_LENGTH,
+                TransactionViewModel::getWeightMagnitude, TransactionViewModel::getHash);
     }
 
-    //TODO generalize these weightQueues
-    private static ConcurrentSkipListSet<Pair<Hash, Neighbor>> weightQueueHashPair() {
-        return new ConcurrentSkipListSet<Pair<Hash, Neighbor>>((transaction1, transaction2) -> {
-            Hash tx1 = transaction1.getLeft();
-            Hash tx2 = transaction2.getLeft();
-
-            for (int i = Hash.SIZE_IN_BYTES; i-- > 0; ) {
-                if (tx1.bytes()[i] != tx2.bytes()[i]) {
-                    return tx2.bytes()[i] - tx1.bytes()[i];
-                }
-            }
-            return 0;
-
-        });
+    /**
+     * Same ordering as {@link #weightQueue(int)} within each lane. A transaction received from several neighbors is
+     * only queued once.
+     */
+    private static WeightedLaneQueue<Pair<TransactionViewModel, Neighbor>> weightLanesTxPair(int capacity,
+            int[] weights, ToIntFunction<Pair<TransactionViewModel, Neighbor>> lane) {
+        return new WeightedLaneQueue<>(capacity, Sponge.HASH_LENGTH, pair -> pair.getLeft().getWeightMagnitude(),
+                pair -> pair.getLeft().getHash(), lane, weights, System::nanoTime);
     }
 
-    private static ConcurrentSkipListSet<Pair<TransactionViewModel, Neighbor>> weightQueueTxPair() {
-        return new ConcurrentSkipListSet<Pair<TransactionViewModel, Neighbor>>((transaction1, transaction2) -> {
-            TransactionViewModel tx1 = transaction1.getLeft();
-            TransactionViewModel tx2 = transaction2.getLeft();
+    /**
+     * @return the receive lane of a transaction, by whether and why it was requested
+     */
+    int receiveLaneOf(Hash hash) {
+        if (transactionRequester.isTransactionRequested(hash, true)) {
+            return MILESTONE_LANE;
+        }
+        return transactionRequester.isTransactionRequested(hash, false) ? REQUESTED_LANE : UNSOLICITED_LANE;
+    }
 
-            if (tx1.getWeightMagnitude() == tx2.getWeightMagnitude()) {
-                for (int i = Hash.SIZE_IN_BYTES; i-- > 0; ) {
-                    if (tx1.getHash().bytes()[i] != tx2.getHash().bytes()[i]) {
-                        return tx2.getHash().bytes()[i] - tx1.getHash().bytes()[i];
-                    }
-                }
-                return 0;
-            }
-            return tx2.getWeightMagnitude() - tx1.getWeightMagnitude();
-        });
+    /**
+     * Requests carry no weight, so they are answered in arrival order. The same hash requested by different
+     * neighbors is answered to each of them.
+     */
+    private static BoundedPriorityQueue<Pair<Hash, Neighbor>> fifoQueueHashPair(int capacity) {
+        return new BoundedPriorityQueue<>(capacity, 0, pair -> 0, pair -> pair);
     }
 
 
     public void broadcast(final TransactionViewModel transactionViewModel) {
-        broadcastQueue.add(transactionViewModel);
-        if (broadcastQueue.size() > broadcastQueueSize) {
-            broadcastQueue.pollLast();
+        cacheTransaction(transactionViewModel);
+        broadcastQueue.offer(transactionViewModel);
+    }
+
+    /**
+     * Keeps the bytes of a transaction that is broadcast, neighbors are likely to request it soon.
+     */
+    private void cacheTransaction(TransactionViewModel transactionViewModel) {
+        if (transactionBytesCache.isEnabled() && transactionViewModel.getType() == TransactionViewModel.FILLED_SLOT) {
+            Hash hash = transactionViewModel.getHash();
+            transactionBytesCache.put(HashFactory.TRANSACTION.create(hash.bytes(), 0, reqHashSize), hash,
+                    transactionViewModel.getBytes());
         }
     }
 
     public void shutdown() throws InterruptedException {
         shuttingDown.set(true);
-        executor.awaitTermination(6, TimeUnit.SECONDS);
+        if (!executor.awaitTermination(6, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        if (udpSender != null) {
+            udpSender.shutdown();
+        }
+        if (hashingStage != null) {
+            hashingStage.shutdown();
+        }
+        if (groupCommitWriter != null) {
+            groupCommitWriter.shutdown();
+        }
     }
 
-    private ByteBuffer getBytesDigest(byte[] receivedData) throws NoSuchAlgorithmException {
-        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+    /**
+     * Fingerprints the transaction part of a packet with the first 64 bits of its SHA-256 digest. Forging a packet
+     * that collides with somebody else's transaction still requires a 64-bit second preimage.
+     */
+    private long getBytesDigest(byte[] receivedData) {
+        MessageDigest digest = SHA_256.get();
         digest.update(receivedData, 0, TransactionViewModel.SIZE);
-        return ByteBuffer.wrap(digest.digest());
+        return ByteBuffer.wrap(digest.digest()).getLong();
     }
 
     // helpers methods
@@ -851,11 +1200,184 @@ public class Node {
                     .filter(n -> n.equals(neighbor))
                     .forEach(TCPNeighbor::clear);
         }
-        return neighbors.remove(neighbor);
+        synchronized (neighbors) {
+            if (!neighbors.remove(neighbor)) {
+                return false;
+            }
+            sendScheduler.removeNeighbor(neighbor);
+            if (seenSet != null) {
+                seenSet.unregister(neighbor);
+            }
+            String key = neighborKey(neighbor);
+            neighborsByAddress.remove(key);
+            // another neighbor on the same host (but a different port) takes over the lookup entry
+            neighbors.stream()
+                    .filter(n -> key.equals(neighborKey(n)))
+                    .findFirst()
+                    .ifPresent(n -> neighborsByAddress.put(key, n));
+            return true;
+        }
     }
 
+    /**
+     * Adds a neighbor unless it is already known. This is the only way to add neighbors, so that the lookup of the
+     * sender of incoming packets stays in sync with the neighbor list.
+     *
+     * @param neighbor the neighbor to add
+     * @return true if the neighbor was added
+     */
     public boolean addNeighbor(Neighbor neighbor) {
-        return !getNeighbors().contains(neighbor) && getNeighbors().add(neighbor);
+        synchronized (neighbors) {
+            if (neighbors.contains(neighbor)) {
+                return false;
+            }
+            neighbors.add(neighbor);
+            neighborsByAddress.putIfAbsent(neighborKey(neighbor), neighbor);
+            if (seenSet != null) {
+                seenSet.register(neighbor);
+            }
+            sendScheduler.setWeight(neighbor, sendWeightOf(neighbor));
+            return true;
+        }
+    }
+
+    private void parseSendWeights() {
+        for (String entry : configuration.getSendNeighborWeights()) {
+            int separator = entry.lastIndexOf('=');
+            try {
+                sendWeights.put(entry.substring(0, separator).trim(),
+                        Integer.parseInt(entry.substring(separator + 1).trim()));
+            } catch (RuntimeException e) {
+                log.error("Ignoring send weight '{}', expected uri=weight", entry);
+            }
+        }
+    }
+
+    private int sendWeightOf(Neighbor neighbor) {
+        String host = neighbor.connectionType() + "://" + neighbor.getAddress().getHostString() + ":" + neighbor.getPort();
+        String ip = neighbor.connectionType() + "://" + neighbor.getHostAddress() + ":" + neighbor.getPort();
+        return sendWeights.getOrDefault(host, sendWeights.getOrDefault(ip, 1));
+    }
+
+    private void logNeighborSeenSet() {
+        if (seenSet != null) {
+            log.info("broadcasts skipped because the neighbor sent the transaction = {}",
+                    seenSet.getSuppressedCount());
+        }
+    }
+
+    private void logGroupCommitWriter() {
+        if (groupCommitWriter != null) {
+            long batches = groupCommitWriter.getBatchCount();
+            long writes = groupCommitWriter.getWriteCount();
+            messageQ.publish("gcommit %d %d", batches, writes);
+            log.info("group commit: {} transactions in {} writes, {} per write", batches, writes,
+                    String.format("%.1f", writes == 0 ? 0d : (double) batches / writes));
+        }
+    }
+
+    private void logAdmissionController() {
+        if (admissionController != null) {
+            messageQ.publish("shed %d %d %.2f", admissionController.getShedPackets(),
+                    admissionController.getShedTransactions(), admissionController.getPressure());
+            log.info(admissionController.report());
+        }
+    }
+
+    private void logReceiveLanes() {
+        if (receiveQueue.getLaneCount() == 1) {
+            return;
+        }
+        for (int lane = 0; lane < receiveQueue.getLaneCount(); lane++) {
+            LatencyHistogram wait = receiveQueue.getWait(lane);
+            long p50 = wait.getPercentileMicros(0.5);
+            long p99 = wait.getPercentileMicros(0.99);
+            wait.reset();
+            messageQ.publish("rlane %s %d %d %d %d", RECEIVE_LANE_NAMES[lane], receiveQueue.size(lane),
+                    receiveQueue.getServedCount(lane), p50, p99);
+            log.info("receive lane {}: queued = {}, processed = {}, evicted = {}, wait p50 = {}us, p99 = {}us",
+                    RECEIVE_LANE_NAMES[lane], receiveQueue.size(lane), receiveQueue.getServedCount(lane),
+                    receiveQueue.getEvictedCount(lane), p50, p99);
+        }
+    }
+
+    private void logRequestRouter() {
+        if (requestRouter != null) {
+            for (Neighbor neighbor : neighbors) {
+                NeighborMetrics metrics = neighbor.getMetrics();
+                log.info(String.format("requests to %s = %d, answered = %.0f%% in %d us%s", neighbor.getHostAddress(),
+                        metrics.getRequestsSent(), 100 * metrics.getRequestFulfilment(),
+                        metrics.getRequestLatencyMicros(),
+                        requestRouter.getPreferred().contains(neighbor) ? ", preferred" : ""));
+            }
+        }
+    }
+
+    private void logTransactionBytesCache() {
+        long hits = transactionBytesCache.getHitCount();
+        long lookups = hits + transactionBytesCache.getMissCount();
+        if (lookups > 0) {
+            log.info(String.format("reply cache hit/miss = %d/%d, %.1f%% of requests answered without a database read, "
+                            + "size = %d bytes", hits, lookups - hits, 100d * hits / lookups,
+                    transactionBytesCache.getSizeInBytes()));
+        }
+    }
+
+    /**
+     * Closes the metrics window of every neighbor and publishes it on the {@code nstat} topic.
+     */
+    private void publishNeighborMetrics() {
+        long now = System.nanoTime();
+        for (Neighbor neighbor : neighbors) {
+            NeighborMetrics metrics = neighbor.getMetrics();
+            metrics.sample(now);
+            messageQ.publish("nstat %s %s %d %d %d %d %d %.1f %.1f %.0f %.0f %d %d %d",
+                    neighbor.getAddress().getHostString() + ":" + neighbor.getPort(), neighbor.connectionType(),
+                    metrics.getAllTransactions(), metrics.getNewTransactions(), metrics.getInvalidTransactions(),
+                    metrics.getStaleTransactions(), metrics.getSentTransactions(), metrics.getReceivedPerSecond(),
+                    metrics.getSentPerSecond(), metrics.getBytesReceivedPerSecond(), metrics.getBytesSentPerSecond(),
+                    metrics.getReplyLatencyP50Micros(), metrics.getReplyLatencyP99Micros(),
+                    neighbor.getSendQueueSize());
+        }
+    }
+
+    private void logTransactionRequester() {
+        messageQ.publish("rqstat %d %d %d %d %d", transactionRequester.numberOfTransactionsToRequest(),
+                transactionRequester.getRetryCount(), transactionRequester.getExpiredCount(),
+                transactionRequester.getFulfilledCount(),
+                transactionRequester.getTimeToFulfil().getPercentileMicros(0.5) / 1000);
+        log.info(String.format("requests outstanding = %d, retried = %d, expired = %d, fulfilled = %d, "
+                        + "time to fulfil p50/p99 = %dms/%dms", transactionRequester.numberOfTransactionsToRequest(),
+                transactionRequester.getRetryCount(), transactionRequester.getExpiredCount(),
+                transactionRequester.getFulfilledCount(),
+                transactionRequester.getTimeToFulfil().getPercentileMicros(0.5) / 1000,
+                transactionRequester.getTimeToFulfil().getPercentileMicros(0.99) / 1000));
+    }
+
+    /**
+     * @return the cache of recently stored transactions used to answer requests
+     */
+    public TransactionBytesCache getTransactionBytesCache() {
+        return transactionBytesCache;
+    }
+
+    private void logSendScheduler() {
+        if (sendScheduler.isUnlimited()) {
+            return;
+        }
+        StringBuilder summary = new StringBuilder("send scheduler sent/throttled:");
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            summary.append(String.format(" %s = %d/%d", trafficClass.name().toLowerCase(),
+                    sendScheduler.getSentCount(trafficClass), sendScheduler.getThrottledCount(trafficClass)));
+        }
+        log.info(summary.toString());
+    }
+
+    /**
+     * @return the scheduler of outgoing packets
+     */
+    public SendScheduler getSendScheduler() {
+        return sendScheduler;
     }
 
     public boolean isUriValid(final URI uri) {
@@ -884,7 +1406,8 @@ public class Node {
                 return new TCPNeighbor(new InetSocketAddress(uri.getHost(), uri.getPort()), isConfigured);
             }
             if (uri.getScheme().equals("udp")) {
-                return new UDPNeighbor(new InetSocketAddress(uri.getHost(), uri.getPort()), udpSocket, isConfigured);
+                return new UDPNeighbor(new InetSocketAddress(uri.getHost(), uri.getPort()), udpSocket, udpChannel,
+                        configuration.getUdpSendQueueSize(), isConfigured);
             }
         }
         throw new MyException(uri.toString());
@@ -908,7 +1431,7 @@ public class Node {
                 .peek(u -> {
                     log.info("-> Adding neighbor : {} ", u.getAddress());
                     messageQ.publish("-> Adding Neighbor : %s", u.getAddress());
-                }).forEach(neighbors::add);
+                }).forEach(this::addNeighbor);
     }
 
     public int queuedTransactionsSize() {
@@ -919,8 +1442,12 @@ public class Node {
         return getNeighbors().size();
     }
 
+    /**
+     * @return a read-only view of the current neighbors. Use {@link #addNeighbor(Neighbor)} and
+     *         {@link #removeNeighbor(URI, boolean)} to modify it.
+     */
     public List<Neighbor> getNeighbors() {
-        return neighbors;
+        return Collections.unmodifiableList(neighbors);
     }
 
     public int getBroadcastQueueSize() {
@@ -935,39 +1462,21 @@ public class Node {
         return replyQueue.size();
     }
 
-    public class FIFOCache<K, V> {
-
-        private final int capacity;
-        private final double dropRate;
-        private LinkedHashMap<K, V> map;
-        private final SecureRandom rnd = new SecureRandom();
-
-        public FIFOCache(int capacity, double dropRate) {
-            this.capacity = capacity;
-            this.dropRate = dropRate;
-            this.map = new LinkedHashMap<>();
-        }
-
-        public V get(K key) {
-            V value = this.map.get(key);
-            if (value != null && (rnd.nextDouble() < this.dropRate)) {
-                this.map.remove(key);
-                return null;
-            }
-            return value;
+    /**
+     * @return throughput and latency of the hashing stage if enabled and of the receive, reply and broadcast stages
+     */
+    public List<StageMetrics> getStageMetrics() {
+        if (hashingStage != null) {
+            return Arrays.asList(hashingStage.getMetrics(), receiveStage, replyStage, broadcastStage);
         }
+        return Arrays.asList(receiveStage, replyStage, broadcastStage);
+    }
 
-        public V put(K key, V value) {
-            if (this.map.containsKey(key)) {
-                return value;
-            }
-            if (this.map.size() >= this.capacity) {
-                Iterator<K> it = this.map.keySet().iterator();
-                it.next();
-                it.remove();
-            }
-            return this.map.put(key, value);
-        }
+    /**
+     * @return the cache of recently seen packets, {@code null} before {@link #init()}
+     */
+    public RecentSeenBytesCache<Hash> getRecentSeenBytesCache() {
+        return recentSeenBytes;
     }
 
 }
@@ -0,0 +1,89 @@
+package com.iota.iri.network;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.utils.Converter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The compressed encoding of gossip packets.
+ * <p>
+ * A packet is a transaction followed by a requested hash. Its first {@link #SIGNATURE_BYTES} bytes hold nothing but
+ * the signature or message fragment, which is all zeros for most zero value transactions and zero padded for most
+ * messages. The compressed encoding leaves out the trailing zero bytes of that part, so its length alone tells how many
+ * zero bytes to put back. A packet whose fragment ends with a non zero byte is the same in both encodings.
+ * </p>
+ * <p>
+ * Neighbors that do not know the encoding must never get a compressed packet. Over UDP a node that supports it sends
+ * {@link #HELLO} datagrams, which older nodes drop like any datagram that is not a full packet; over TCP it is a
+ * framing version negotiated when the connection starts.
+ * </p>
+ */
+public final class PacketCompression {
+
+    /**
+     * Number of bytes holding only trits of the signature or message fragment. The next byte also holds the first
+     * trits of the address.
+     */
+    public static final int SIGNATURE_BYTES = TransactionViewModel.SIGNATURE_MESSAGE_FRAGMENT_TRINARY_SIZE
+            / Converter.NUMBER_OF_TRITS_IN_A_BYTE;
+
+    /**
+     * Announces that the sender understands compressed packets. It is shorter than any compressed packet.
+     */
+    public static final byte[] HELLO = "compressed-gossip-1".getBytes(StandardCharsets.US_ASCII);
+
+    private PacketCompression() {
+    }
+
+    /**
+     * Compresses a packet in place.
+     *
+     * @param packet the packet, its fragment is overwritten
+     * @param packetSize the length of the packet
+     * @return the length of the compressed packet at the start of the array
+     */
+    public static int compress(byte[] packet, int packetSize) {
+        int kept = SIGNATURE_BYTES;
+        while (kept > 0 && packet[kept - 1] == 0) {
+            kept--;
+        }
+        if (kept < SIGNATURE_BYTES) {
+            System.arraycopy(packet, SIGNATURE_BYTES, packet, kept, packetSize - SIGNATURE_BYTES);
+        }
+        return kept + packetSize - SIGNATURE_BYTES;
+    }
+
+    /**
+     * Restores the canonical packet of a compressed one.
+     *
+     * @param data the array holding the compressed packet
+     * @param offset the start of the compressed packet
+     * @param length the length of the compressed packet
+     * @param packetSize the length of a canonical packet
+     * @return the canonical packet
+     * @throws IllegalArgumentException if the length is not the one of a compressed packet
+     */
+    public static byte[] decompress(byte[] data, int offset, int length, int packetSize) {
+        if (!isCompressedLength(length, packetSize)) {
+            throw new IllegalArgumentException("invalid compressed packet length " + length);
+        }
+        int kept = length - (packetSize - SIGNATURE_BYTES);
+        byte[] packet = new byte[packetSize];
+        System.arraycopy(data, offset, packet, 0, kept);
+        System.arraycopy(data, offset + kept, packet, SIGNATURE_BYTES, packetSize - SIGNATURE_BYTES);
+        return packet;
+    }
+
+    /**
+     * @return true if a packet of this length may be compressed
+     */
+    public static boolean isCompressedLength(int length, int packetSize) {
+        return length >= packetSize - SIGNATURE_BYTES && length <= packetSize;
+    }
+
+    public static boolean isHello(byte[] data, int length) {
+        return length == HELLO.length && Arrays.equals(Arrays.copyOf(data, length), HELLO);
+    }
+}
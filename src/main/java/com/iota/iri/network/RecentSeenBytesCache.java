@@ -0,0 +1,188 @@
+package com.iota.iri.network;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed capacity cache of recently seen packets, keyed by a 64-bit fingerprint of the packet bytes.
+ * <p>
+ * The cache is organized as a set-associative table: a fingerprint selects a bucket of {@link #WAYS} slots and can
+ * only live in that bucket. Buckets are guarded by a fixed number of striped locks, so threads only contend when they
+ * touch buckets of the same stripe, and each critical section scans at most {@link #WAYS} slots.
+ * </p>
+ * <p>
+ * When a bucket is full, a victim is chosen with the clock algorithm: every slot has a reference bit that is set on
+ * access and cleared by the clock hand, and the first slot found without its bit set is evicted. Recently used
+ * entries therefore survive longer than with plain FIFO eviction, at a cost of a single flag per slot.
+ * </p>
+ * <p>
+ * Like the cache it replaces, a hit is turned into a miss with probability {@code dropRate} and the entry is removed,
+ * so that a packet is occasionally revalidated.
+ * </p>
+ *
+ * @param <V> type of the cached values
+ */
+public class RecentSeenBytesCache<V> {
+
+    /**
+     * Number of slots per bucket.
+     */
+    static final int WAYS = 8;
+
+    private static final int STRIPES = 64;
+
+    /**
+     * Fingerprint marking an empty slot. Fingerprints that happen to be 0 are remapped.
+     */
+    private static final long EMPTY = 0L;
+
+    private final long[] fingerprints;
+    private final Object[] values;
+    private final boolean[] referenced;
+    private final int[] hands;
+    private final int bucketMask;
+    private final double dropRate;
+
+    private final Object[] locks = new Object[STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache for at least {@code capacity} entries.
+     *
+     * @param capacity minimum number of entries, rounded up to a power of two number of buckets
+     * @param dropRate probability to treat a hit as a miss and remove the entry
+     */
+    public RecentSeenBytesCache(int capacity, double dropRate) {
+        int buckets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS));
+        if (buckets * WAYS < capacity) {
+            buckets <<= 1;
+        }
+        this.bucketMask = buckets - 1;
+        this.fingerprints = new long[buckets * WAYS];
+        this.values = new Object[buckets * WAYS];
+        this.referenced = new boolean[buckets * WAYS];
+        this.hands = new int[buckets];
+        this.dropRate = dropRate;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Looks up a fingerprint.
+     *
+     * @param fingerprint 64-bit fingerprint of the packet
+     * @return the cached value or {@code null} on a miss or a probabilistic drop
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long fingerprint) {
+        long key = normalize(fingerprint);
+        int bucket = bucket(key);
+        int base = bucket * WAYS;
+        synchronized (lock(bucket)) {
+            for (int i = base; i < base + WAYS; i++) {
+                if (fingerprints[i] == key) {
+                    if (dropRate > 0 && ThreadLocalRandom.current().nextDouble() < dropRate) {
+                        fingerprints[i] = EMPTY;
+                        values[i] = null;
+                        referenced[i] = false;
+                        break;
+                    }
+                    referenced[i] = true;
+                    hits.increment();
+                    return (V) values[i];
+                }
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores a value unless the fingerprint is already present.
+     *
+     * @param fingerprint 64-bit fingerprint of the packet
+     * @param value value to store
+     */
+    public void put(long fingerprint, V value) {
+        long key = normalize(fingerprint);
+        int bucket = bucket(key);
+        int base = bucket * WAYS;
+        synchronized (lock(bucket)) {
+            int free = -1;
+            for (int i = base; i < base + WAYS; i++) {
+                if (fingerprints[i] == key) {
+                    return;
+                }
+                if (free < 0 && fingerprints[i] == EMPTY) {
+                    free = i;
+                }
+            }
+            if (free < 0) {
+                free = evict(bucket);
+            }
+            fingerprints[free] = key;
+            values[free] = value;
+            referenced[free] = false;
+        }
+    }
+
+    /**
+     * Advances the clock hand of a full bucket until it finds a slot that was not referenced since the last pass.
+     */
+    private int evict(int bucket) {
+        int base = bucket * WAYS;
+        int hand = hands[bucket];
+        while (referenced[base + hand]) {
+            referenced[base + hand] = false;
+            hand = (hand + 1) % WAYS;
+        }
+        hands[bucket] = (hand + 1) % WAYS;
+        evictions.increment();
+        return base + hand;
+    }
+
+    private int bucket(long key) {
+        // fold the high bits in, the fingerprint may be weak in its low bits
+        return (int) (key ^ (key >>> 32)) & bucketMask;
+    }
+
+    private Object lock(int bucket) {
+        return locks[bucket & (STRIPES - 1)];
+    }
+
+    private static long normalize(long fingerprint) {
+        return fingerprint == EMPTY ? 1L : fingerprint;
+    }
+
+    /**
+     * @return the number of slots in this cache
+     */
+    public int capacity() {
+        return fingerprints.length;
+    }
+
+    /**
+     * @return number of successful lookups
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that did not return a value, including probabilistic drops
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries that were evicted to make room for a new one
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+}
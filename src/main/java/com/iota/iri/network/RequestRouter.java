@@ -0,0 +1,81 @@
+package com.iota.iri.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which outgoing packets carry a request for a missing transaction, so that requests go mainly to the
+ * neighbors that answer them reliably and quickly.
+ * <p>
+ * Every packet to a neighbor has room for one requested hash, and every request is taken from the
+ * {@link TransactionRequester}, so attaching requests only to packets for some neighbors routes the requests to
+ * them. The router ranks the neighbors by their {@link NeighborMetrics#getRequestScore() request score} at most every
+ * {@link #RANK_INTERVAL_NS} and prefers the better {@link #PREFERRED_SHARE} of them, at least one. Packets for the
+ * preferred neighbors always carry a request. Packets for the others carry one with the exploration probability,
+ * which is the epsilon of an epsilon-greedy choice: their scores keep being updated, so a neighbor that gets faster is
+ * preferred again.
+ * </p>
+ */
+public class RequestRouter {
+
+    static final long RANK_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+    static final double PREFERRED_SHARE = 0.5;
+
+    private final double exploration;
+    private final Random random;
+
+    private volatile Set<Neighbor> preferred = Collections.emptySet();
+    private volatile long rankedAt;
+    private volatile boolean ranked;
+
+    /**
+     * @param exploration probability of a request to a neighbor that is not preferred, between 0 and 1
+     * @param random source of the exploration decisions
+     */
+    public RequestRouter(double exploration, Random random) {
+        this.exploration = exploration;
+        this.random = random;
+    }
+
+    /**
+     * @param neighbor the neighbor a packet is sent to
+     * @param neighbors all neighbors
+     * @param now current time in nanoseconds
+     * @return true if the packet should carry a request
+     */
+    public boolean shouldRequest(Neighbor neighbor, List<Neighbor> neighbors, long now) {
+        if (!ranked || now - rankedAt >= RANK_INTERVAL_NS) {
+            rank(neighbors, now);
+        }
+        return preferred.contains(neighbor) || random.nextDouble() < exploration;
+    }
+
+    /**
+     * @return the neighbors that get every request
+     */
+    public Set<Neighbor> getPreferred() {
+        return preferred;
+    }
+
+    private synchronized void rank(List<Neighbor> neighbors, long now) {
+        if (ranked && now - rankedAt < RANK_INTERVAL_NS) {
+            return;
+        }
+        List<Neighbor> byScore = new ArrayList<>(neighbors);
+        for (Neighbor neighbor : byScore) {
+            neighbor.getMetrics().updateRequestScore(now);
+        }
+        byScore.sort(Comparator.comparingDouble((Neighbor neighbor) -> neighbor.getMetrics().getRequestScore())
+                .reversed());
+        int count = Math.max(1, (int) Math.ceil(byScore.size() * PREFERRED_SHARE));
+        preferred = new HashSet<>(byScore.subList(0, Math.min(count, byScore.size())));
+        rankedAt = now;
+        ranked = true;
+    }
+}
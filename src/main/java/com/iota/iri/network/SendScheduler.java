@@ -0,0 +1,202 @@
+package com.iota.iri.network;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket scheduler for outgoing gossip packets.
+ * <p>
+ * A global bucket refills continuously at the configured packet rate and holds at most {@code burst} tokens, so the
+ * output is smooth instead of a burst at the start of every second. Each packet takes one token.
+ * </p>
+ * <p>
+ * Traffic classes are prioritized by reserving part of the global bucket: broadcasts may only take a token while
+ * more than the milestone and reply reserves are left, replies while more than the milestone reserve is left, and
+ * milestones whenever a token is available. Under saturation broadcasts are throttled first and milestones last.
+ * </p>
+ * <p>
+ * Replies and broadcasts are also limited per neighbor: every neighbor has its own bucket with a share of the global
+ * rate proportional to its weight, so a neighbor that requests a lot cannot use up the budget of the others.
+ * </p>
+ * <p>
+ * A packet that does not get a token is not sent, and neither is a packet for a neighbor that is not registered,
+ * for example because it was removed while its packets were queued.
+ * </p>
+ * <p>
+ * Every sender thread takes a token, so the buckets are locked separately: a neighbor's bucket is only contended by
+ * the threads sending to that neighbor, and the global bucket is only locked for a refill and a comparison. Only
+ * registering and removing neighbors locks the whole scheduler.
+ * </p>
+ */
+public class SendScheduler {
+
+    /**
+     * Traffic classes in order of priority.
+     */
+    public enum TrafficClass {
+        MILESTONE, REPLY, BROADCAST
+    }
+
+    private final double packetsPerNano;
+    private final double burst;
+    private final LongSupplier nanoClock;
+    private final Map<TrafficClass, Double> floors = new EnumMap<>(TrafficClass.class);
+
+    private final Bucket global;
+    private final Map<Neighbor, Bucket> neighborBuckets = new ConcurrentHashMap<>();
+    private long totalWeight;
+
+    private final Map<TrafficClass, LongAdder> sentCounters = new EnumMap<>(TrafficClass.class);
+    private final Map<TrafficClass, LongAdder> throttledCounters = new EnumMap<>(TrafficClass.class);
+
+    /**
+     * @param packetsPerSecond global rate, a negative rate disables the limit
+     * @param burst capacity of the global bucket in packets
+     * @param milestoneReserve share of the burst only milestones may use
+     * @param replyReserve share of the burst only milestones and replies may use, on top of the milestone reserve
+     * @param nanoClock source of time, {@link System#nanoTime()} outside of tests
+     */
+    public SendScheduler(double packetsPerSecond, int burst, double milestoneReserve, double replyReserve,
+                         LongSupplier nanoClock) {
+        this.packetsPerNano = packetsPerSecond / 1e9;
+        this.burst = Math.max(1, burst);
+        this.nanoClock = nanoClock;
+        floors.put(TrafficClass.MILESTONE, 0d);
+        floors.put(TrafficClass.REPLY, this.burst * milestoneReserve);
+        floors.put(TrafficClass.BROADCAST, this.burst * (milestoneReserve + replyReserve));
+        this.global = new Bucket(this.burst, packetsPerNano, nanoClock.getAsLong());
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            sentCounters.put(trafficClass, new LongAdder());
+            throttledCounters.put(trafficClass, new LongAdder());
+        }
+    }
+
+    /**
+     * @return true if the scheduler does not limit anything
+     */
+    public boolean isUnlimited() {
+        return packetsPerNano < 0;
+    }
+
+    /**
+     * Sets the weight of a neighbor's share, registering the neighbor if necessary.
+     *
+     * @param neighbor the neighbor
+     * @param weight weight of the share, at least 1
+     */
+    public synchronized void setWeight(Neighbor neighbor, int weight) {
+        Bucket bucket = neighborBuckets.computeIfAbsent(neighbor, n -> new Bucket(0, 0, nanoClock.getAsLong()));
+        totalWeight += Math.max(1, weight) - bucket.weight;
+        bucket.weight = Math.max(1, weight);
+        updateShares();
+    }
+
+    /**
+     * Releases the share of a neighbor.
+     */
+    public synchronized void removeNeighbor(Neighbor neighbor) {
+        Bucket bucket = neighborBuckets.remove(neighbor);
+        if (bucket != null) {
+            totalWeight -= bucket.weight;
+            updateShares();
+        }
+    }
+
+    private void updateShares() {
+        long now = nanoClock.getAsLong();
+        for (Bucket bucket : neighborBuckets.values()) {
+            synchronized (bucket) {
+                bucket.refill(now);
+                double share = (double) bucket.weight / totalWeight;
+                bucket.rate = packetsPerNano * share;
+                bucket.capacity = Math.max(1, burst * share);
+                bucket.tokens = Math.min(bucket.tokens, bucket.capacity);
+            }
+        }
+    }
+
+    /**
+     * Takes a token for a packet.
+     *
+     * @param neighbor receiver of the packet
+     * @param trafficClass class of the packet
+     * @return true if the packet may be sent, false if there is no token or the neighbor is not registered
+     */
+    public boolean tryAcquire(Neighbor neighbor, TrafficClass trafficClass) {
+        if (isUnlimited()) {
+            sentCounters.get(trafficClass).increment();
+            return true;
+        }
+        Bucket bucket = neighborBuckets.get(neighbor);
+        if (bucket == null) {
+            throttledCounters.get(trafficClass).increment();
+            return false;
+        }
+        long now = nanoClock.getAsLong();
+        boolean acquired;
+        if (trafficClass == TrafficClass.MILESTONE) {
+            acquired = tryAcquireGlobal(trafficClass, now);
+        } else {
+            synchronized (bucket) {
+                bucket.refill(now);
+                acquired = bucket.tokens >= 1 && tryAcquireGlobal(trafficClass, now);
+                if (acquired) {
+                    bucket.tokens--;
+                }
+            }
+        }
+        (acquired ? sentCounters : throttledCounters).get(trafficClass).increment();
+        return acquired;
+    }
+
+    private boolean tryAcquireGlobal(TrafficClass trafficClass, long now) {
+        synchronized (global) {
+            global.refill(now);
+            if (global.tokens - 1 < floors.get(trafficClass)) {
+                return false;
+            }
+            global.tokens--;
+            return true;
+        }
+    }
+
+    /**
+     * @return number of packets of a class that got a token
+     */
+    public long getSentCount(TrafficClass trafficClass) {
+        return sentCounters.get(trafficClass).sum();
+    }
+
+    /**
+     * @return number of packets of a class that were not sent for lack of a token or of a registered neighbor
+     */
+    public long getThrottledCount(TrafficClass trafficClass) {
+        return throttledCounters.get(trafficClass).sum();
+    }
+
+    /**
+     * A token bucket. Neighbor buckets start empty and get their capacity and rate from {@link #updateShares()}.
+     */
+    private static class Bucket {
+        private double capacity;
+        private double rate;
+        private double tokens;
+        private long lastRefill;
+        private int weight;
+
+        Bucket(double capacity, double rate, long now) {
+            this.capacity = capacity;
+            this.rate = rate;
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * rate);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.iota.iri.network;
+
+import com.iota.iri.utils.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput and latency of one of the {@link Node} queue stages (receive, reply, broadcast).
+ * <p>
+ * The latency is the time a worker spent on a single item. Together with the size of the stage's queue it shows which
+ * stage saturates: a full queue with a low latency means the stage needs more workers, a full queue with a high
+ * latency points at the work itself.
+ * </p>
+ */
+public class StageMetrics {
+
+    private final String name;
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private long lastProcessed;
+    private long lastReport = System.nanoTime();
+
+    StageMetrics(String name) {
+        this.name = name;
+    }
+
+    void recordItem(long nanos, boolean success) {
+        processed.increment();
+        if (!success) {
+            failed.increment();
+        }
+        latency.record(nanos);
+    }
+
+    void recordBatch() {
+        batches.increment();
+    }
+
+    /**
+     * Computes the throughput since the previous call and starts a new latency window.
+     *
+     * @return a one line summary of the stage
+     */
+    synchronized String report() {
+        long now = System.nanoTime();
+        long total = processed.sum();
+        double seconds = Math.max(1e-9, (now - lastReport) / 1e9);
+        double rate = (total - lastProcessed) / seconds;
+        lastProcessed = total;
+        lastReport = now;
+        String summary = String.format("%s: %.1f/s, p50 = %dus, p99 = %dus, max = %dus, batches = %d, failed = %d",
+                name, rate, latency.getPercentileMicros(0.5), latency.getPercentileMicros(0.99),
+                latency.getMaxMicros(), batches.sum(), failed.sum());
+        latency.reset();
+        return summary;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of items the stage handled since the node started
+     */
+    public long getProcessedCount() {
+        return processed.sum();
+    }
+
+    /**
+     * @return number of items whose handling threw an exception
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * @return number of wakeups in which the workers took items from the queue
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return per item latency of the current reporting window
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
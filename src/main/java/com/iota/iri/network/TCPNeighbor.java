@@ -10,6 +10,7 @@ import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by paul on 4/15/17.
@@ -40,7 +41,9 @@ public class TCPNeighbor extends Neighbor {
     private int tcpPort;
 
     private final ArrayBlockingQueue<ByteBuffer> sendQueue = new ArrayBlockingQueue<>(10);
+    private final AtomicLong droppedSends = new AtomicLong();
     private boolean stopped = false;
+    private volatile Runnable sendListener;
 
     public TCPNeighbor(InetSocketAddress address, boolean isConfigured) {
         super(address, isConfigured);
@@ -103,13 +106,36 @@ public class TCPNeighbor extends Neighbor {
         synchronized (sendQueue) {
             if (sendQueue.remainingCapacity() == 0) {
                 sendQueue.poll();
+                droppedSends.incrementAndGet();
                 log.info("Sendqueue full...dropped 1 tx");
             }
             log.info("Sendqueue size: {}",sendQueue.size());
             byte[] bytes = packet.getData().clone();
             sendQueue.add(ByteBuffer.wrap(bytes));
         }
-            
+        Runnable listener = sendListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Registers a callback that is run after every queued packet, so a non-blocking sink knows when to write.
+     *
+     * @param sendListener the callback or {@code null} to remove it
+     */
+    public void setSendListener(Runnable sendListener) {
+        this.sendListener = sendListener;
+    }
+
+    @Override
+    public int getSendQueueSize() {
+        return sendQueue.size();
+    }
+
+    @Override
+    public long getNumberOfDroppedSends() {
+        return droppedSends.get();
     }
 
     @Override
@@ -130,4 +156,11 @@ public class TCPNeighbor extends Neighbor {
         return (this.sendQueue.poll(10000, TimeUnit.MILLISECONDS));
     }
 
+    /**
+     * @return the next queued message or {@code null} if the queue is empty, never blocks
+     */
+    public ByteBuffer pollMessage() {
+        return this.sendQueue.poll();
+    }
+
 }
@@ -0,0 +1,148 @@
+package com.iota.iri.network;
+
+import com.iota.iri.model.Hash;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the raw bytes of recently stored and broadcast transactions, used to answer requests of
+ * neighbors without reading the transaction from the database.
+ * <p>
+ * Most requests are for transactions that arrived a few seconds earlier, so a small cache of the most recently used
+ * transactions catches most of them. The cache is bounded by the number of bytes it holds (including a fixed estimate
+ * of the per entry overhead) and evicts the least recently used entries first.
+ * </p>
+ * <p>
+ * Entries are keyed by the hash as it is requested, i.e. truncated to the request hash size of the gossip packet.
+ * </p>
+ */
+public class TransactionBytesCache {
+
+    /**
+     * Estimated heap cost of an entry on top of the transaction bytes: map entry, key and hash objects.
+     */
+    static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final long maxBytes;
+    private final Map<Hash, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes maximum number of bytes held by the cache, 0 disables the cache
+     */
+    public TransactionBytesCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * Caches a transaction unless it is already cached.
+     *
+     * @param requestKey the hash of the transaction truncated to the request hash size
+     * @param hash the full hash of the transaction
+     * @param transactionBytes the transaction bytes, must not be modified afterwards
+     */
+    public void put(Hash requestKey, Hash hash, byte[] transactionBytes) {
+        long cost = transactionBytes.length + ENTRY_OVERHEAD_BYTES;
+        if (cost > maxBytes) {
+            return;
+        }
+        synchronized (entries) {
+            if (entries.putIfAbsent(requestKey, new Entry(hash, transactionBytes)) != null) {
+                return;
+            }
+            bytes += cost;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= eldest.next().cost();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * @param requestKey the requested hash, truncated to the request hash size
+     * @return the cached entry or {@code null}
+     */
+    public Entry get(Hash requestKey) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(requestKey);
+        }
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * @return true if the cache can hold any transaction
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * @return number of bytes currently accounted to the cached entries
+     */
+    public long getSizeInBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    /**
+     * @return number of requests answered from the cache, each one a database lookup less
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of requests that had to be answered from the database
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries evicted to stay within the size bound
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * A cached transaction.
+     */
+    public static class Entry {
+        private final Hash hash;
+        private final byte[] bytes;
+
+        Entry(Hash hash, byte[] bytes) {
+            this.hash = hash;
+            this.bytes = bytes;
+        }
+
+        public Hash getHash() {
+            return hash;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        long cost() {
+            return bytes.length + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+}
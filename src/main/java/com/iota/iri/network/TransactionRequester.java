@@ -2,16 +2,38 @@ package com.iota.iri.network;
 
 import com.iota.iri.controllers.TransactionViewModel;
 import com.iota.iri.model.Hash;
+import com.iota.iri.utils.LatencyHistogram;
 import com.iota.iri.zmq.MessageQ;
 import com.iota.iri.storage.Tangle;
-import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.security.SecureRandom;
-import java.util.*;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
 
 /**
+ * Keeps track of the transactions this node is missing and picks the hash to request in every outgoing packet.
+ * <p>
+ * Requests which may be sent right now wait in one of two lanes, milestone and normal, so picking the next hash is a
+ * single poll. A request that was just sent goes into a hashed timing wheel and only comes back into its lane after a
+ * retry delay which doubles with every attempt, so the same hash is not asked for in every packet while the first
+ * answer is still on its way.
+ * </p>
+ * <p>
+ * Normal requests expire after a number of attempts, so hashes nobody knows are eventually given up on. Milestone
+ * requests are needed to solidify the ledger and are retried until the transaction arrives.
+ * </p>
+ * <p>
+ * Removed requests are not searched for in the lanes and the wheel, they are skipped once they come up.
+ * </p>
  * Created by paul on 3/27/17.
  */
 public class TransactionRequester {
@@ -19,64 +41,134 @@ public class TransactionRequester {
 
     private static final Logger log = LoggerFactory.getLogger(TransactionRequester.class);
     private final MessageQ messageQ;
-    private final Set<Hash> milestoneTransactionsToRequest = new LinkedHashSet<>();
-    private final Set<Hash> transactionsToRequest = new LinkedHashSet<>();
 
     public static final int MAX_TX_REQ_QUEUE_SIZE = 10000;
 
-    private double PRemoveRequest;
+    /**
+     * Resolution of the retry delays.
+     */
+    static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int WHEEL_SIZE = 512;
+    /**
+     * The retry delay stops doubling at this multiple of the retry interval.
+     */
+    static final int MAX_BACKOFF_FACTOR = 32;
+
+    private final Map<Hash, Request> requests = new ConcurrentHashMap<>();
+    private final AtomicInteger normalRequests = new AtomicInteger();
+    private final Queue<Request> milestoneLane = new ConcurrentLinkedQueue<>();
+    private final Queue<Request> normalLane = new ConcurrentLinkedQueue<>();
+
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final ArrayDeque<Request>[] wheel;
+    private long currentTick;
+
+    private int maxAttempts = Integer.MAX_VALUE;
+    private long retryIntervalTicks = 1;
     private boolean initialized = false;
-    private final SecureRandom random = new SecureRandom();
 
-    private final Object syncObj = new Object();
     private final Tangle tangle;
+    private final LongSupplier nanoClock;
+
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder fulfilled = new LongAdder();
+    private final LatencyHistogram timeToFulfil = new LatencyHistogram();
 
     public TransactionRequester(Tangle tangle, MessageQ messageQ) {
+        this(tangle, messageQ, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock source of time, {@link System#nanoTime()} outside of tests
+     */
+    @SuppressWarnings("unchecked")
+    public TransactionRequester(Tangle tangle, MessageQ messageQ, LongSupplier nanoClock) {
         this.tangle = tangle;
         this.messageQ = messageQ;
+        this.nanoClock = nanoClock;
+        this.wheel = new ArrayDeque[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.currentTick = tick();
     }
 
-    public void init(double pRemoveRequest) {
+    /**
+     * @param pRemoveRequest the probability of dropping a normal request after an attempt. Requests expire
+     *                       deterministically after {@code 1 / pRemoveRequest} attempts instead, which is the number
+     *                       of attempts they got on average. 0 disables the expiry.
+     * @param retryIntervalMs delay before the first retry of a request
+     */
+    public void init(double pRemoveRequest, long retryIntervalMs) {
         if(!initialized) {
             initialized = true;
-            PRemoveRequest = pRemoveRequest;
+            maxAttempts = pRemoveRequest <= 0 ? Integer.MAX_VALUE : (int) Math.ceil(1 / Math.min(1, pRemoveRequest));
+            retryIntervalTicks = Math.max(1, TimeUnit.MILLISECONDS.toNanos(retryIntervalMs) / TICK_NANOS);
         }
     }
 
     public Hash[] getRequestedTransactions() {
-        synchronized (syncObj) {
-            return ArrayUtils.addAll(transactionsToRequest.stream().toArray(Hash[]::new),
-                    milestoneTransactionsToRequest.stream().toArray(Hash[]::new));
-        }
+        return requests.values().stream()
+                .sorted((a, b) -> Boolean.compare(a.milestone, b.milestone))
+                .map(request -> request.hash)
+                .toArray(Hash[]::new);
     }
 
     public int numberOfTransactionsToRequest() {
-        return transactionsToRequest.size() + milestoneTransactionsToRequest.size();
+        return requests.size();
     }
 
     public boolean clearTransactionRequest(Hash hash) {
-        synchronized (syncObj) {
-            boolean milestone = milestoneTransactionsToRequest.remove(hash);
-            boolean normal = transactionsToRequest.remove(hash);
-            return normal || milestone;
+        if (hash == null) {
+            return false;
+        }
+        Request request = remove(hash);
+        if (request == null) {
+            return false;
         }
+        fulfilled.increment();
+        timeToFulfil.record(nanoClock.getAsLong() - request.created);
+        return true;
     }
 
     public void requestTransaction(Hash hash, boolean milestone) throws Exception {
         if (!hash.equals(Hash.NULL_HASH) && !TransactionViewModel.exists(tangle, hash)) {
-            synchronized (syncObj) {
-                if(milestone) {
-                    transactionsToRequest.remove(hash);
-                    milestoneTransactionsToRequest.add(hash);
-                } else {
-                    if(!milestoneTransactionsToRequest.contains(hash) && !transactionsToRequestIsFull()) {
-                        transactionsToRequest.add(hash);
-                    }
+            if (milestone) {
+                Request request = requests.computeIfAbsent(hash, h -> new Request(h, true, nanoClock.getAsLong()));
+                upgrade(request);
+                if (request.publish()) {
+                    laneOf(request).offer(request);
+                }
+            } else if (!transactionsToRequestIsFull()) {
+                Request request = requests.computeIfAbsent(hash, h -> {
+                    normalRequests.incrementAndGet();
+                    return new Request(h, false, nanoClock.getAsLong());
+                });
+                if (request.publish()) {
+                    laneOf(request).offer(request);
                 }
             }
         }
     }
 
+    /**
+     * Turns a normal request into a milestone request, which moves it into the milestone lane if it is waiting in the
+     * normal lane. The stale entry in the normal lane is skipped when it comes up.
+     */
+    private void upgrade(Request request) {
+        synchronized (request) {
+            if (request.milestone) {
+                return;
+            }
+            request.milestone = true;
+        }
+        normalRequests.decrementAndGet();
+        if (request.state == Request.READY) {
+            milestoneLane.offer(request);
+        }
+    }
+
     /**
      * This method allows to check if a transaction was requested by the TransactionRequester.
      *
@@ -88,64 +180,211 @@ public class TransactionRequester {
      * @return true if the transaction is in the set of transactions to be requested and false otherwise
      */
     public boolean isTransactionRequested(Hash transactionHash, boolean milestoneRequest) {
-        return (milestoneRequest && milestoneTransactionsToRequest.contains(transactionHash))
-                || (!milestoneRequest && milestoneTransactionsToRequest.contains(transactionHash) ||
-                transactionsToRequest.contains(transactionHash));
+        Request request = requests.get(transactionHash);
+        return request != null && (!milestoneRequest || request.milestone);
     }
 
     private boolean transactionsToRequestIsFull() {
-        return transactionsToRequest.size() >= TransactionRequester.MAX_TX_REQ_QUEUE_SIZE;
+        return normalRequests.get() >= TransactionRequester.MAX_TX_REQ_QUEUE_SIZE;
     }
 
-
+    /**
+     * Picks the next hash to request. Requests from the preferred lane come first; if it has nothing ready the other
+     * lane is used.
+     *
+     * @param milestone true to prefer milestone requests
+     * @return the hash to request or {@code null} if no request is due
+     */
     public Hash transactionToRequest(boolean milestone) throws Exception {
-        // determine which set of transactions to operate on
-        Set<Hash> primarySet = milestone ? milestoneTransactionsToRequest : transactionsToRequest;
-        Set<Hash> alternativeSet = milestone ? transactionsToRequest : milestoneTransactionsToRequest;
-        Set<Hash> requestSet = primarySet.isEmpty() ? alternativeSet : primarySet;
-
-        // determine the first hash in our set that needs to be processed
-        Hash hash = null;
-        synchronized (syncObj) {
-            // repeat while we have transactions that shall be requested
-            String ok = String.valueOf(requestSet.size());
-            while (ok.isEmpty()) {
-                // remove the first item in our set for further examination
-                Iterator<Hash> iterator = requestSet.iterator();
-                hash = iterator.next();
-                iterator.remove();
-
-                // if we have received the transaction in the mean time ....
-                if (TransactionViewModel.exists(tangle, hash)) {
-                    // ... dump a log message ...
-                    if(log.isInfoEnabled()) {
-                        log.info(String.format("Removed existing tx from request list: %s", hash));
+        advanceWheel();
+        Request request;
+        while ((request = poll(milestone ? milestoneLane : normalLane, milestone ? normalLane : milestoneLane)) != null) {
+            // the first attempt was checked in requestTransaction, a retry may have been answered in the meantime
+            if (request.attempts > 0 && TransactionViewModel.exists(tangle, request.hash)) {
+                if (remove(request.hash) != null) {
+                    if (log.isInfoEnabled()) {
+                        log.info(String.format("Removed existing tx from request list: %s", request.hash));
                     }
-                    messageQ.publish("rtl %s", hash);
-
-                    // ... and continue to the next element in the set
-                    break;
+                    messageQ.publish("rtl %s", request.hash);
+                }
+                continue;
+            }
+            if (request.attempts++ > 0) {
+                retries.increment();
+            }
+            if (!request.milestone && request.attempts >= maxAttempts) {
+                // this is the last attempt
+                if (remove(request.hash) != null) {
+                    expired.increment();
                 }
+            } else {
+                schedule(request);
+            }
+            return request.hash;
+        }
+        return null;
+    }
 
-                // ... otherwise -> re-add it at the end of the set ...
-                //
-                // Note: we always have enough space since we removed the element before
-                requestSet.add(hash);
+    private Request poll(Queue<Request> primary, Queue<Request> alternative) {
+        Request request = claim(primary);
+        return request != null ? request : claim(alternative);
+    }
 
-                // ... and abort our loop to continue processing with the element we found
+    private Request claim(Queue<Request> lane) {
+        Request request;
+        while ((request = lane.poll()) != null) {
+            if (request.claim()) {
+                return request;
+            }
+        }
+        return null;
+    }
 
+    private Request remove(Hash hash) {
+        Request request = requests.remove(hash);
+        if (request != null) {
+            synchronized (request) {
+                request.state = Request.REMOVED;
+                if (!request.milestone) {
+                    normalRequests.decrementAndGet();
+                }
             }
         }
+        return request;
+    }
+
+    private void makeReady(Request request) {
+        if (request.ready()) {
+            laneOf(request).offer(request);
+        }
+    }
+
+    private Queue<Request> laneOf(Request request) {
+        return request.milestone ? milestoneLane : normalLane;
+    }
 
-        // randomly drop "non-milestone" transactions so we don't keep on asking for non-existent transactions forever
-        if(random.nextDouble() < PRemoveRequest && !requestSet.equals(milestoneTransactionsToRequest)) {
-            synchronized (syncObj) {
-                transactionsToRequest.remove(hash);
+    private void schedule(Request request) {
+        long delay = retryIntervalTicks << Math.min(request.attempts - 1, Integer.numberOfTrailingZeros(MAX_BACKOFF_FACTOR));
+        wheelLock.lock();
+        try {
+            request.due = currentTick + delay;
+            wheel[(int) (request.due % WHEEL_SIZE)].add(request);
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    /**
+     * Moves the requests whose delay has passed back into their lanes. Whoever gets the lock does the work for
+     * everybody, the others go on with the requests which are ready already.
+     */
+    private void advanceWheel() {
+        if (!wheelLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = tick();
+            // a full turn visits every slot, no matter how much time has passed
+            long from = Math.max(currentTick + 1, now - WHEEL_SIZE + 1);
+            for (long tick = from; tick <= now; tick++) {
+                ArrayDeque<Request> slot = wheel[(int) (tick % WHEEL_SIZE)];
+                for (int i = slot.size(); i > 0; i--) {
+                    Request request = slot.poll();
+                    if (request.due > now) {
+                        // due in a later turn of the wheel
+                        slot.add(request);
+                    } else {
+                        makeReady(request);
+                    }
+                }
             }
+            currentTick = Math.max(currentTick, now);
+        } finally {
+            wheelLock.unlock();
         }
+    }
+
+    private long tick() {
+        return nanoClock.getAsLong() / TICK_NANOS;
+    }
+
+    /**
+     * @return number of requests sent again after a previous attempt
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * @return number of normal requests given up on after the maximum number of attempts
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
 
-        // return our result
-        return hash;
+    /**
+     * @return number of requested transactions which arrived
+     */
+    public long getFulfilledCount() {
+        return fulfilled.sum();
     }
 
+    /**
+     * @return time from the first request of a transaction to its arrival
+     */
+    public LatencyHistogram getTimeToFulfil() {
+        return timeToFulfil;
+    }
+
+    /**
+     * A missing transaction.
+     * <p>
+     * A request waits either in its lane or in the wheel until it is removed; only the thread that claims it from a
+     * lane changes its attempts and puts it into the wheel. An upgrade to a milestone request may leave a stale entry
+     * in the normal lane, which fails to claim the request once it comes up.
+     * </p>
+     */
+    private static class Request {
+        static final int NEW = 0;
+        static final int READY = 1;
+        static final int CLAIMED = 2;
+        static final int REMOVED = 3;
+
+        private final Hash hash;
+        private final long created;
+        private volatile boolean milestone;
+        private volatile int state = NEW;
+        private int attempts;
+        private long due;
+
+        Request(Hash hash, boolean milestone, long created) {
+            this.hash = hash;
+            this.milestone = milestone;
+            this.created = created;
+        }
+
+        synchronized boolean publish() {
+            if (state != NEW) {
+                return false;
+            }
+            state = READY;
+            return true;
+        }
+
+        synchronized boolean ready() {
+            if (state == REMOVED) {
+                return false;
+            }
+            state = READY;
+            return true;
+        }
+
+        synchronized boolean claim() {
+            if (state != READY) {
+                return false;
+            }
+            state = CLAIMED;
+            return true;
+        }
+    }
 }
@@ -1,11 +1,17 @@
 package com.iota.iri.network;
 
+import com.iota.iri.conf.BaseIotaConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by paul on 4/15/17.
@@ -13,7 +19,8 @@ import java.net.InetSocketAddress;
  
   /**
  * This class Extends {@link Neighbor} base class with UDP specific functionality. 
- * It keeps reference of socket and doesnt maintains any queue for UDP outgoing packets. 
+ * It keeps reference of socket and a bounded queue of outgoing packets which is drained by the {@link UDPSender}.
+ * When the queue is full the oldest packet is dropped.
  * 
  */
 public class UDPNeighbor extends Neighbor {
@@ -32,29 +39,133 @@ public class UDPNeighbor extends Neighbor {
 
     private static final Logger log = LoggerFactory.getLogger(UDPNeighbor.class);
 
+    /**
+     * How long a neighbor gets compressed packets after its last {@link PacketCompression#HELLO}.
+     */
+    static final long COMPRESSION_HELLO_TIMEOUT_MS = 30_000L;
+
     private final DatagramSocket socket;
+    private final DatagramChannel channel;
+
+    private final ArrayBlockingQueue<Outbound> sendQueue;
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicLong droppedSends = new AtomicLong();
+    private volatile long lastCompressionHello;
 
     UDPNeighbor(final InetSocketAddress address, final DatagramSocket socket, final boolean isConfigured) {
+        this(address, socket, null, isConfigured);
+    }
+
+    UDPNeighbor(final InetSocketAddress address, final DatagramSocket socket, final DatagramChannel channel,
+                final boolean isConfigured) {
+        this(address, socket, channel, BaseIotaConfig.Defaults.UDP_SEND_QUEUE_SIZE, isConfigured);
+    }
+
+    /**
+     * Creates a neighbor that writes through the non-blocking channel of the {@link BatchedUDPReceiver} if one is
+     * given, and through the classic socket otherwise.
+     */
+    UDPNeighbor(final InetSocketAddress address, final DatagramSocket socket, final DatagramChannel channel,
+                final int sendQueueSize, final boolean isConfigured) {
         super(address, isConfigured);
         this.socket = socket;
+        this.channel = channel;
+        this.sendQueue = new ArrayBlockingQueue<>(Math.max(1, sendQueueSize));
     }
 
     /**
      * This is a blocking write and it is not necessary to copy the sent data.
+     * When the node receives through a non-blocking channel the write never blocks. If the kernel send buffer is
+     * full the packet is discarded, just like any other lost datagram.
      *
      * @param packet the packet to be sent immediately.
      */
     @Override
     public void send(DatagramPacket packet) {
+        if (write(packet)) {
+            incSentTransactions(packet.getLength());
+        }
+    }
+
+    /**
+     * Announces that this node understands compressed packets. It is not counted as a sent transaction.
+     */
+    void sendCompressionHello() {
+        write(new DatagramPacket(PacketCompression.HELLO, PacketCompression.HELLO.length));
+    }
+
+    private boolean write(DatagramPacket packet) {
         try {
+            if (channel != null) {
+                ByteBuffer buffer = ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength());
+                return channel.send(buffer, getAddress()) > 0;
+            }
             packet.setSocketAddress(getAddress());
             socket.send(packet);
-            incSentTransactions();
+            return true;
         } catch (final Exception e) {
             log.error("Error sending UDP packet to [{}]: {}", getAddress(), e);
+            return false;
         }
     }
 
+    /**
+     * Records that the neighbor announced or used compressed packets.
+     *
+     * @param now the current time in milliseconds
+     */
+    void compressionHelloReceived(long now) {
+        lastCompressionHello = now;
+    }
+
+    /**
+     * @param now the current time in milliseconds
+     * @return true if the neighbor announced compressed packets recently enough to be sent them
+     */
+    boolean acceptsCompressedPackets(long now) {
+        long last = lastCompressionHello;
+        return last != 0 && now - last < COMPRESSION_HELLO_TIMEOUT_MS;
+    }
+
+    /**
+     * Queues a packet for the {@link UDPSender}, dropping the oldest queued packet if the queue is full.
+     */
+    void queue(Outbound packet) {
+        while (!sendQueue.offer(packet)) {
+            if (sendQueue.poll() != null) {
+                droppedSends.incrementAndGet();
+            }
+        }
+    }
+
+    Outbound nextQueued() {
+        return sendQueue.poll();
+    }
+
+    /**
+     * Makes sure at most one sender thread drains this neighbor at a time, so a slow neighbor ties up at most one
+     * thread.
+     *
+     * @return true if the caller may drain the queue and has to {@link #releaseDrain()} afterwards
+     */
+    boolean claimDrain() {
+        return draining.compareAndSet(false, true);
+    }
+
+    void releaseDrain() {
+        draining.set(false);
+    }
+
+    @Override
+    public int getSendQueueSize() {
+        return sendQueue.size();
+    }
+
+    @Override
+    public long getNumberOfDroppedSends() {
+        return droppedSends.get();
+    }
+
     @Override
     public int getPort() {
         return getAddress().getPort();
@@ -65,4 +176,17 @@ public class UDPNeighbor extends Neighbor {
         return "udp";
     }
 
-}
\ No newline at end of file
+    /**
+     * A queued packet: the transaction and the hash to request, which are copied into the sender's buffer when the
+     * packet is sent.
+     */
+    static class Outbound {
+        final byte[] transaction;
+        final byte[] requestHash;
+
+        Outbound(byte[] transaction, byte[] requestHash) {
+            this.transaction = transaction;
+            this.requestHash = requestHash;
+        }
+    }
+}
@@ -22,10 +22,11 @@ public class UDPReceiver {
 
     private final DatagramPacket receivingPacket;
 
-    private final AtomicBoolean shuttingDown = new AtomicBoolean(false);
-    private final int port;
-    private final Node node;
-    private final int packetSize;
+    protected final AtomicBoolean shuttingDown = new AtomicBoolean(false);
+    protected final int port;
+    protected final Node node;
+    protected final int packetSize;
+    protected final boolean compressedGossip;
 
     private DatagramSocket socket;
 
@@ -41,6 +42,7 @@ public class UDPReceiver {
         this.node = node;
         this.port = config.getUdpReceiverPort();
         this.packetSize = config.getTransactionPacketSize();
+        this.compressedGossip = config.isCompressedGossipEnabled();
         this.receivingPacket = new DatagramPacket(new byte[packetSize], packetSize);
     }
 
@@ -97,16 +99,23 @@ public class UDPReceiver {
     }
 
     private int getRanProcessed(int processed) {
-        if (receivingPacket.getLength() == packetSize) {
+        if (isAcceptedLength(receivingPacket.getLength())) {
 
             processed = getProcessed(processed);
 
-        } else {
-            receivingPacket.setLength(packetSize);
         }
+        receivingPacket.setLength(packetSize);
         return processed;
     }
 
+    /**
+     * @return true for full packets and, if compressed gossip is enabled, for compressed packets and hellos
+     */
+    protected boolean isAcceptedLength(int length) {
+        return length == packetSize || compressedGossip && (length == PacketCompression.HELLO.length
+                || PacketCompression.isCompressedLength(length, packetSize));
+    }
+
     private int getProcessed(int processed) {
         byte[] bytes = Arrays.copyOf(receivingPacket.getData(), receivingPacket.getLength());
         SocketAddress address = receivingPacket.getSocketAddress();
@@ -0,0 +1,115 @@
+package com.iota.iri.network;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.DatagramPacket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends outgoing UDP gossip packets asynchronously.
+ * <p>
+ * Packets are queued per {@link UDPNeighbor} and a small pool of sender threads drains the queues. A neighbor is
+ * drained by at most one thread at a time and only for {@link #MAX_BATCH_SIZE} packets before it goes to the back of
+ * the line, so one slow or blackholed neighbor cannot stall the others. Every sender thread composes the packets in
+ * its own reusable buffer.
+ * </p>
+ */
+public class UDPSender {
+    private static final Logger log = LoggerFactory.getLogger(UDPSender.class);
+
+    /**
+     * Maximum number of packets sent to one neighbor before the thread moves on to the next one.
+     */
+    static final int MAX_BATCH_SIZE = 32;
+
+    private final ExecutorService executor;
+    private final ThreadLocal<DatagramPacket> buffers;
+    private final int reqHashSize;
+    private final boolean compressedGossip;
+
+    /**
+     * @param threads number of sender threads
+     * @param packetSize size of a gossip packet
+     * @param reqHashSize number of bytes of the requested hash appended to the transaction
+     */
+    public UDPSender(int threads, int packetSize, int reqHashSize) {
+        this(threads, packetSize, reqHashSize, false);
+    }
+
+    /**
+     * @param compressedGossip true to send {@link PacketCompression compressed packets} to neighbors that announced
+     *                         support for them
+     */
+    public UDPSender(int threads, int packetSize, int reqHashSize, boolean compressedGossip) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "UDP sender " + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), threadFactory);
+        this.buffers = ThreadLocal.withInitial(() -> new DatagramPacket(new byte[packetSize], packetSize));
+        this.reqHashSize = reqHashSize;
+        this.compressedGossip = compressedGossip;
+    }
+
+    /**
+     * Queues a packet for a neighbor. Never blocks.
+     *
+     * @param neighbor the receiver
+     * @param transaction the transaction bytes, must not be modified afterwards
+     * @param requestHash the hash to request, must not be modified afterwards
+     */
+    public void send(UDPNeighbor neighbor, byte[] transaction, byte[] requestHash) {
+        neighbor.queue(new UDPNeighbor.Outbound(transaction, requestHash));
+        schedule(neighbor);
+    }
+
+    private void schedule(UDPNeighbor neighbor) {
+        if (neighbor.claimDrain()) {
+            try {
+                executor.execute(() -> drain(neighbor));
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                neighbor.releaseDrain();
+            }
+        }
+    }
+
+    private void drain(UDPNeighbor neighbor) {
+        try {
+            DatagramPacket packet = buffers.get();
+            byte[] data = packet.getData();
+            boolean compress = compressedGossip && neighbor.acceptsCompressedPackets(System.currentTimeMillis());
+            UDPNeighbor.Outbound next;
+            for (int i = 0; i < MAX_BATCH_SIZE && (next = neighbor.nextQueued()) != null; i++) {
+                System.arraycopy(next.transaction, 0, data, 0, TransactionViewModel.SIZE);
+                System.arraycopy(next.requestHash, 0, data, TransactionViewModel.SIZE, reqHashSize);
+                packet.setLength(compress ? PacketCompression.compress(data, data.length) : data.length);
+                neighbor.send(packet);
+            }
+        } catch (final Exception e) {
+            log.error("UDP Sender Exception:", e);
+        } finally {
+            neighbor.releaseDrain();
+        }
+        if (neighbor.getSendQueueSize() > 0) {
+            schedule(neighbor);
+        }
+    }
+
+    /**
+     * Stops the sender threads. Packets which are still queued are discarded.
+     */
+    public void shutdown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,248 @@
+package com.iota.iri.network.replicator;
+
+import com.iota.iri.MilestoneTracker;
+import com.iota.iri.conf.NodeConfig;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.crypto.BatchCurl;
+import com.iota.iri.crypto.Sponge;
+import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.network.Neighbor;
+import com.iota.iri.network.Node;
+import com.iota.iri.utils.Converter;
+import com.iota.iri.utils.Crc32c;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Checksum;
+
+/**
+ * Requests the transactions of milestones this node is missing from its neighbors with the
+ * {@link CatchUpSyncProtocol catch-up sync}, instead of discovering and requesting them one by one.
+ * <p>
+ * Every {@link #CHECK_INTERVAL_MS} the client checks how far the latest solid milestone lags behind the latest
+ * milestone. If it is more than {@link #MIN_LAG} milestones, the next {@link CatchUpSyncProtocol#MAX_RANGE} milestones
+ * are requested from a random neighbor on the configured sync port, which is expected to be the same on all nodes.
+ * The received transactions are hashed in batches with a {@link BatchCurl} and handed to the {@link Handler}, which
+ * validates and stores them; the milestone tracker then solidifies the milestones as usual. The client syncs at most
+ * {@link #MAX_AHEAD} milestones beyond the latest solid one, and starts over from it if it does not advance for
+ * {@link #STALL_MS}.
+ * </p>
+ */
+public class CatchUpSyncClient {
+
+    private static final Logger log = LoggerFactory.getLogger(CatchUpSyncClient.class);
+
+    static final long CHECK_INTERVAL_MS = 5_000L;
+    static final int MIN_LAG = 20;
+    static final int MAX_AHEAD = 4 * CatchUpSyncProtocol.MAX_RANGE;
+    static final long STALL_MS = 120_000L;
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int SOCKET_TIMEOUT_MS = 60_000;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * Takes the transactions received from a neighbor.
+     */
+    @FunctionalInterface
+    public interface Handler {
+
+        /**
+         * @param transaction a received transaction with its calculated hash
+         * @param sender the address of the neighbor that sent it
+         * @return true if the transaction was new
+         * @throws Exception if the transaction is invalid, which ends the session
+         */
+        boolean received(TransactionViewModel transaction, String sender) throws Exception;
+    }
+
+    private final Node node;
+    private final int port;
+    private final Handler handler;
+    private final Random random = new SecureRandom();
+    private final AtomicLong syncedMilestones = new AtomicLong();
+    private final AtomicLong syncedTransactions = new AtomicLong();
+    private final AtomicLong newTransactions = new AtomicLong();
+
+    private volatile boolean shuttingDown;
+    private Thread thread;
+    private int syncedUpTo;
+    private long syncedAt;
+
+    /**
+     * @param node provides the neighbors to sync from
+     * @param configuration provides the sync port of the neighbors
+     * @param handler validates and stores the received transactions
+     */
+    public CatchUpSyncClient(Node node, NodeConfig configuration, Handler handler) {
+        this(node, configuration.getCatchUpSyncPort(), handler);
+    }
+
+    CatchUpSyncClient(Node node, int port, Handler handler) {
+        this.node = node;
+        this.port = port;
+        this.handler = handler;
+    }
+
+    public void init() {
+        thread = new Thread(this::run, "Catch-up sync client");
+        thread.start();
+    }
+
+    public void shutdown() throws InterruptedException {
+        shuttingDown = true;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(6000L);
+        }
+    }
+
+    /**
+     * @return number of milestones received completely
+     */
+    public long getSyncedMilestones() {
+        return syncedMilestones.get();
+    }
+
+    /**
+     * @return number of transactions received
+     */
+    public long getSyncedTransactions() {
+        return syncedTransactions.get();
+    }
+
+    /**
+     * @return number of received transactions that were new
+     */
+    public long getNewTransactions() {
+        return newTransactions.get();
+    }
+
+    private void run() {
+        log.info("Spawning Catch-up Sync Client Thread");
+        while (!shuttingDown) {
+            try {
+                Thread.sleep(CHECK_INTERVAL_MS);
+                syncIfBehind(MilestoneTracker.getLatestSolidSubtangleMilestoneIndex(),
+                        MilestoneTracker.getLatestMilestoneIndex());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException | RuntimeException e) {
+                log.error("Catch-up sync failed, {}", e.getMessage());
+            }
+        }
+        log.info("Shutting down Catch-up Sync Client Thread");
+    }
+
+    private void syncIfBehind(int solid, int latest) throws IOException {
+        long now = System.currentTimeMillis();
+        if (syncedUpTo < solid || now - syncedAt > STALL_MS) {
+            syncedUpTo = solid;
+        }
+        int from = syncedUpTo + 1;
+        if (latest - solid <= MIN_LAG || from > latest || from - solid > MAX_AHEAD) {
+            return;
+        }
+        List<Neighbor> neighbors = node.getNeighbors();
+        if (neighbors.isEmpty()) {
+            return;
+        }
+        Neighbor neighbor = neighbors.get(random.nextInt(neighbors.size()));
+        int to = Math.min(latest, from + CatchUpSyncProtocol.MAX_RANGE - 1);
+        int last = sync(new InetSocketAddress(neighbor.getHostAddress(), port), from, to);
+        if (last >= from) {
+            syncedUpTo = last;
+            syncedAt = now;
+        }
+    }
+
+    /**
+     * Requests the transactions confirmed by a range of milestones from a neighbor.
+     *
+     * @param peer the sync address of the neighbor
+     * @param from the first milestone index
+     * @param to the last milestone index
+     * @return the index of the last milestone that was received completely, {@code from - 1} if none
+     * @throws IOException if the session failed or the neighbor sent an invalid transaction
+     */
+    public int sync(InetSocketAddress peer, int from, int to) throws IOException {
+        long start = System.currentTimeMillis();
+        String sender = peer.getAddress().getHostAddress();
+        BatchCurl curl = new BatchCurl(SpongeFactory.Mode.CURLP81);
+        Checksum crc32c = Crc32c.create();
+        byte[][] bytes = new byte[CatchUpSyncProtocol.MAX_FRAME_TRANSACTIONS][TransactionViewModel.SIZE];
+        byte[][] trits = new byte[CatchUpSyncProtocol.MAX_FRAME_TRANSACTIONS][TransactionViewModel.TRINARY_SIZE];
+        byte[][] hashes = new byte[CatchUpSyncProtocol.MAX_FRAME_TRANSACTIONS][Sponge.HASH_LENGTH];
+        long transactions = 0;
+        try (Socket socket = new Socket()) {
+            socket.connect(peer, CONNECT_TIMEOUT_MS);
+            socket.setSoTimeout(SOCKET_TIMEOUT_MS);
+            OutputStream out = socket.getOutputStream();
+            out.write(CatchUpSyncProtocol.request(from, to));
+            out.flush();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(),
+                    READ_BUFFER_BYTES));
+            int milestone = from - 1;
+            while (true) {
+                int index = in.readInt();
+                int count = in.readInt();
+                if (count == 0) {
+                    if (index < from - 1 || index > to || index < milestone) {
+                        throw new IOException("invalid last milestone " + index);
+                    }
+                    syncedMilestones.addAndGet(index - from + 1);
+                    log.info("Synced milestones {} to {} ({} transactions) from {} in {} ms", from, index,
+                            transactions, sender, System.currentTimeMillis() - start);
+                    return index;
+                }
+                if (count < 0 || count > CatchUpSyncProtocol.MAX_FRAME_TRANSACTIONS || index < milestone
+                        || index < from || index > to) {
+                    throw new IOException("invalid frame of " + count + " transactions of milestone " + index);
+                }
+                milestone = index;
+                crc32c.reset();
+                for (int i = 0; i < count; i++) {
+                    in.readFully(bytes[i]);
+                    crc32c.update(bytes[i], 0, TransactionViewModel.SIZE);
+                }
+                if ((int) crc32c.getValue() != in.readInt()) {
+                    throw new IOException("checksum mismatch in milestone " + index);
+                }
+                for (int i = 0; i < count; i++) {
+                    Converter.getTrits(bytes[i], trits[i]);
+                }
+                curl.hash(trits, count, TransactionViewModel.TRINARY_SIZE, hashes);
+                for (int i = 0; i < count; i++) {
+                    TransactionViewModel transaction = new TransactionViewModel(bytes[i],
+                            HashFactory.TRANSACTION.create(hashes[i], 0, Sponge.HASH_LENGTH));
+                    if (receive(transaction, sender)) {
+                        newTransactions.incrementAndGet();
+                    }
+                }
+                transactions += count;
+                syncedTransactions.addAndGet(count);
+            }
+        }
+    }
+
+    private boolean receive(TransactionViewModel transaction, String sender) throws IOException {
+        try {
+            return handler.received(transaction, sender);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("rejected transaction " + transaction.getHash() + ", " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.iota.iri.network.replicator;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.crypto.BatchCurl;
+import com.iota.iri.model.Hash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The wire format of the catch-up sync, a bulk transfer of the transactions confirmed by a range of milestones.
+ * <p>
+ * A session is a single TCP connection to the sync port of a neighbor. The requester sends {@link #VERSION} and the
+ * first and last milestone index of the range in 4 bytes each. The neighbor answers with frames of a milestone index in
+ * 4 bytes, a count of one to {@link #MAX_FRAME_TRANSACTIONS} transactions in 4 bytes, the transactions of
+ * {@link TransactionViewModel#SIZE} bytes and the CRC-32C of the transactions in 4 bytes, all big endian. The
+ * transactions of a milestone come in {@link #topologicalOrder topological order}, possibly spread over several
+ * frames, and the milestones in ascending order.
+ * </p>
+ * <p>
+ * The stream ends with a frame whose count is 0, which carries the index of the last milestone that was sent
+ * completely and nothing else. A neighbor stops early at the first milestone in the range that it has not confirmed
+ * itself, and serves at most {@link #MAX_RANGE} milestones per session.
+ * </p>
+ */
+final class CatchUpSyncProtocol {
+
+    static final byte VERSION = 1;
+    static final int REQUEST_BYTES = 1 + 2 * Integer.BYTES;
+    static final int MAX_RANGE = 100;
+    /**
+     * A frame holds one hashing batch of the requester.
+     */
+    static final int MAX_FRAME_TRANSACTIONS = BatchCurl.MAX_BATCH_SIZE;
+
+    private CatchUpSyncProtocol() {
+    }
+
+    /**
+     * @return the request for the milestones {@code from} to {@code to}
+     */
+    static byte[] request(int from, int to) {
+        return ByteBuffer.allocate(REQUEST_BYTES).put(VERSION).putInt(from).putInt(to).array();
+    }
+
+    /**
+     * Orders transactions so that every one comes after the transactions of the list that it references.
+     *
+     * @param transactions transactions which do not reference each other in a cycle
+     * @return the same transactions in topological order
+     */
+    static List<TransactionViewModel> topologicalOrder(List<TransactionViewModel> transactions) {
+        Map<Hash, TransactionViewModel> byHash = new HashMap<>();
+        for (TransactionViewModel transaction : transactions) {
+            byHash.put(transaction.getHash(), transaction);
+        }
+        Map<Hash, List<TransactionViewModel>> approvers = new HashMap<>();
+        Map<Hash, Integer> missingApprovees = new HashMap<>();
+        Deque<TransactionViewModel> ready = new ArrayDeque<>();
+        for (TransactionViewModel transaction : byHash.values()) {
+            int missing = 0;
+            Hash trunk = transaction.getTrunkTransactionHash();
+            Hash branch = transaction.getBranchTransactionHash();
+            List<Hash> approvees = trunk.equals(branch) ? Collections.singletonList(trunk)
+                    : Arrays.asList(trunk, branch);
+            for (Hash approvee : approvees) {
+                if (byHash.containsKey(approvee)) {
+                    approvers.computeIfAbsent(approvee, hash -> new ArrayList<>()).add(transaction);
+                    missing++;
+                }
+            }
+            if (missing == 0) {
+                ready.add(transaction);
+            } else {
+                missingApprovees.put(transaction.getHash(), missing);
+            }
+        }
+        List<TransactionViewModel> ordered = new ArrayList<>(byHash.size());
+        TransactionViewModel transaction;
+        while ((transaction = ready.poll()) != null) {
+            ordered.add(transaction);
+            for (TransactionViewModel approver : approvers.getOrDefault(transaction.getHash(),
+                    Collections.emptyList())) {
+                if (missingApprovees.merge(approver.getHash(), -1, Integer::sum) == 0) {
+                    ready.add(approver);
+                }
+            }
+        }
+        return ordered;
+    }
+}
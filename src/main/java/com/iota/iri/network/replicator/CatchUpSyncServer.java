@@ -0,0 +1,244 @@
+package com.iota.iri.network.replicator;
+
+import com.iota.iri.conf.NodeConfig;
+import com.iota.iri.controllers.MilestoneViewModel;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.network.Neighbor;
+import com.iota.iri.network.Node;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.utils.Crc32c;
+import com.iota.iri.utils.dag.DAGHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Checksum;
+
+/**
+ * Serves {@link CatchUpSyncProtocol catch-up sync} sessions to neighbors on the sync port.
+ * <p>
+ * The transactions confirmed by a milestone are found with {@link DAGHelper#traverseApprovees} from the milestone
+ * down to the transactions confirmed by earlier milestones. Only neighbors are served, and at most
+ * {@link #MAX_SESSIONS} at a time; further connections are closed right away.
+ * </p>
+ */
+public class CatchUpSyncServer {
+
+    private static final Logger log = LoggerFactory.getLogger(CatchUpSyncServer.class);
+
+    static final int MAX_SESSIONS = 2;
+    private static final int SOCKET_TIMEOUT_MS = 30_000;
+    private static final int WRITE_BUFFER_BYTES = 64 * 1024;
+
+    private final Node node;
+    private final Tangle tangle;
+    private final int port;
+    private final ThreadPoolExecutor sessions;
+    private final AtomicLong servedMilestones = new AtomicLong();
+    private final AtomicLong servedTransactions = new AtomicLong();
+
+    private volatile boolean shuttingDown;
+    private ServerSocket server;
+    private Thread acceptor;
+
+    public CatchUpSyncServer(Node node, Tangle tangle, NodeConfig configuration) {
+        this(node, tangle, configuration.getCatchUpSyncPort());
+    }
+
+    CatchUpSyncServer(Node node, Tangle tangle, int port) {
+        this.node = node;
+        this.tangle = tangle;
+        this.port = port;
+        AtomicInteger sessionCount = new AtomicInteger();
+        this.sessions = new ThreadPoolExecutor(MAX_SESSIONS, MAX_SESSIONS, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(),
+                runnable -> new Thread(runnable, "Catch-up sync session " + sessionCount.getAndIncrement()));
+    }
+
+    public void init() {
+        try {
+            server = new ServerSocket();
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress(port));
+        } catch (IOException e) {
+            log.error("***** NETWORK ALERT ***** Cannot create catch-up sync socket on port {}, {}", port,
+                    e.getMessage());
+            return;
+        }
+        acceptor = new Thread(this::accept, "Catch-up sync acceptor");
+        acceptor.start();
+        log.info("Catch-up sync is accepting connections on tcp port {}", port);
+    }
+
+    public void shutdown() throws InterruptedException {
+        shuttingDown = true;
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException e) {
+            // ignore
+        }
+        if (acceptor != null) {
+            acceptor.join(6000L);
+        }
+        sessions.shutdownNow();
+        sessions.awaitTermination(6, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return number of milestones sent completely
+     */
+    public long getServedMilestones() {
+        return servedMilestones.get();
+    }
+
+    /**
+     * @return number of transactions sent
+     */
+    public long getServedTransactions() {
+        return servedTransactions.get();
+    }
+
+    private void accept() {
+        while (!shuttingDown) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                if (!shuttingDown) {
+                    log.error("Catch-up sync accept exception:", e);
+                }
+                continue;
+            }
+            if (!isNeighbor(socket)) {
+                log.info("Refused catch-up sync from {}, it is not a neighbor",
+                        socket.getInetAddress().getHostAddress());
+                closeQuietly(socket);
+                continue;
+            }
+            try {
+                sessions.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                log.info("Refused catch-up sync from {}, {} sessions are running",
+                        socket.getInetAddress().getHostAddress(), MAX_SESSIONS);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private boolean isNeighbor(Socket socket) {
+        String hostAddress = socket.getInetAddress().getHostAddress();
+        for (Neighbor neighbor : node.getNeighbors()) {
+            if (neighbor.getHostAddress().equals(hostAddress)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void serve(Socket socket) {
+        String peer = socket.getInetAddress().getHostAddress();
+        try {
+            socket.setSoTimeout(SOCKET_TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream(), WRITE_BUFFER_BYTES));
+            byte version = in.readByte();
+            int from = in.readInt();
+            int to = in.readInt();
+            if (version != CatchUpSyncProtocol.VERSION || from < 1 || to < from) {
+                log.info("Invalid catch-up sync request from {}: version {}, milestones {} to {}", peer, version,
+                        from, to);
+                return;
+            }
+            to = Math.min(to, from + CatchUpSyncProtocol.MAX_RANGE - 1);
+            long start = System.currentTimeMillis();
+            int last = from - 1;
+            long transactions = 0;
+            for (int index = from; index <= to; index++) {
+                List<TransactionViewModel> confirmed = confirmedBy(index);
+                if (confirmed == null) {
+                    break;
+                }
+                writeMilestone(out, index, confirmed);
+                last = index;
+                transactions += confirmed.size();
+                servedMilestones.incrementAndGet();
+                servedTransactions.addAndGet(confirmed.size());
+            }
+            out.writeInt(last);
+            out.writeInt(0);
+            out.flush();
+            log.info("Served catch-up sync of milestones {} to {} ({} transactions) to {} in {} ms", from, last,
+                    transactions, peer, System.currentTimeMillis() - start);
+        } catch (SocketException e) {
+            log.info("Catch-up sync session with {} closed, {}", peer, e.getMessage());
+        } catch (Exception e) {
+            log.error("Catch-up sync session with {} failed", peer, e);
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * @return the transactions confirmed by a milestone in topological order, or {@code null} if this node did not
+     * confirm the milestone
+     */
+    List<TransactionViewModel> confirmedBy(int index) throws Exception {
+        MilestoneViewModel milestone = MilestoneViewModel.get(tangle, index);
+        if (milestone == null) {
+            return null;
+        }
+        TransactionViewModel tail = TransactionViewModel.fromHash(tangle, milestone.getHash());
+        if (tail.getType() == TransactionViewModel.PREFILLED_SLOT || tail.snapshotIndex() != index) {
+            return null;
+        }
+        List<TransactionViewModel> confirmed = new ArrayList<>();
+        confirmed.add(tail);
+        DAGHelper.get(tangle).traverseApprovees(milestone.getHash(),
+                transaction -> transaction.snapshotIndex() == index, confirmed::add);
+        return CatchUpSyncProtocol.topologicalOrder(confirmed);
+    }
+
+    private static void writeMilestone(DataOutputStream out, int index, List<TransactionViewModel> transactions)
+            throws IOException {
+        Checksum crc32c = Crc32c.create();
+        for (int offset = 0; offset < transactions.size(); offset += CatchUpSyncProtocol.MAX_FRAME_TRANSACTIONS) {
+            int count = Math.min(CatchUpSyncProtocol.MAX_FRAME_TRANSACTIONS, transactions.size() - offset);
+            out.writeInt(index);
+            out.writeInt(count);
+            crc32c.reset();
+            for (int i = offset; i < offset + count; i++) {
+                byte[] bytes = transactions.get(i).getBytes();
+                crc32c.update(bytes, 0, TransactionViewModel.SIZE);
+                out.write(bytes, 0, TransactionViewModel.SIZE);
+            }
+            out.writeInt((int) crc32c.getValue());
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -271,7 +271,7 @@ class ReplicatorSinkProcessor implements Runnable {
             out.write(message.array());
             out.write(crc32String.getBytes());
             out.flush();
-            neighbor.incSentTransactions();
+            neighbor.incSentTransactions(message.limit() + crc32String.length());
         }
 
         private OutputStream getOutputStream(OutputStream out) throws IOException {
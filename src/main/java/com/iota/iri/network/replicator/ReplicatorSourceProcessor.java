@@ -13,6 +13,7 @@ import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.util.Arrays;
 import java.util.List;
 import java.util.zip.CRC32;
 
@@ -75,7 +76,7 @@ class ReplicatorSourceProcessor implements Runnable {
             // Read neighbors tcp listener port number.
             InputStream stream = connection.getInputStream();
             offset = 0;
-            count = getCount(data, offset, stream, ReplicatorSinkPool.PORT_BYTES - offset, ReplicatorSinkPool.PORT_BYTES);
+            count = getCount(data, offset, stream, ReplicatorSinkPool.PORT_BYTES);
 
             if (connectionState(count)) {
                 return;
@@ -92,7 +93,7 @@ class ReplicatorSourceProcessor implements Runnable {
             offset = 0;
             while (!SHUTDOWN && !neighbor.isStopped()) {
 
-                count = getCount(data, offset, stream, packetSize - offset + ReplicatorSinkProcessor.CRC32_BYTES, packetSize + ReplicatorSinkProcessor.CRC32_BYTES);
+                count = getCount(data, offset, stream, packetSize + ReplicatorSinkProcessor.CRC32_BYTES);
 
                 if (isaBoolean(count == -1, connection.isClosed())) {
                     break;
@@ -171,7 +172,8 @@ class ReplicatorSourceProcessor implements Runnable {
         boolean crcError = false;
         crcError = isCrcError(data, crc32Bytes, crcError);
         if (!crcError) {
-            node.preProcessReceivedData(data, address, "tcp");
+            // the read buffer is reused for the next packet and is longer than one
+            node.preProcessReceivedData(Arrays.copyOf(data, packetSize), address, "tcp");
         }
     }
 
@@ -198,7 +200,7 @@ class ReplicatorSourceProcessor implements Runnable {
 
     private void getNodes(InetSocketAddress inetSocketAddress) {
         final TCPNeighbor freshNeighbor = new TCPNeighbor(inetSocketAddress, false);
-        node.getNeighbors().add(freshNeighbor);
+        node.addNeighbor(freshNeighbor);
         neighbor = freshNeighbor;
         Neighbor.incNumPeers();
     }
@@ -233,10 +235,11 @@ class ReplicatorSourceProcessor implements Runnable {
                 });
     }
 
-    private int getCount(byte[] data, int offset, InputStream stream, int i, int i2) throws IOException {
+    private int getCount(byte[] data, int offset, InputStream stream, int length) throws IOException {
         int count;
-        while (((count = stream.read(data, offset, (i))) != -1)
-                && (offset < (i2))) {
+        // a read may return part of the bytes, the next one only reads what is missing
+        while (((count = stream.read(data, offset, length - offset)) != -1)
+                && (offset < (length))) {
             offset += count;
         }
         return count;
@@ -0,0 +1,784 @@
+package com.iota.iri.network.replicator;
+
+import com.iota.iri.conf.NodeConfig;
+import com.iota.iri.network.Neighbor;
+import com.iota.iri.network.Node;
+import com.iota.iri.network.PacketCompression;
+import com.iota.iri.network.TCPNeighbor;
+import com.iota.iri.utils.Crc32c;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * An alternative to the classic {@link Replicator} which multiplexes all TCP neighbors over a few I/O threads instead
+ * of running a blocking thread per connection.
+ * <p>
+ * The wire protocol is the same: every neighbor has an inbound <em>source</em> connection, which starts with the
+ * neighbor's listening port and then carries packets followed by their CRC32 in hex, and an outbound <em>sink</em>
+ * connection in the other direction. Every connection is owned by one I/O loop with its own {@link Selector}.
+ * </p>
+ * <p>
+ * Unless disabled, sources advertise the binary {@link TcpFraming} and sinks switch to it, which replaces the hex checksums
+ * by a length prefix and a CRC-32C over up to {@link TcpFraming#MAX_FRAME_PACKETS} packets. With compressed gossip
+ * enabled on both ends the packets in the frames are compressed as well.
+ * </p>
+ * <p>
+ * Sources are read without blocking into a buffer per connection which holds several packets, and complete packets
+ * are handed to a pool of processor threads. When the processors fall behind, the I/O thread processes the packet
+ * itself and stops reading for that time, so TCP flow control slows the neighbors down instead of queueing without
+ * bound. Sinks are written with gathering writes of up to {@link #MAX_GATHER} queued packets and their checksums.
+ * </p>
+ * <p>
+ * Sinks to configured neighbors are reconnected every {@link #RECONNECT_INTERVAL_MS}, like in the classic replicator.
+ * </p>
+ */
+public class SelectorReplicator extends Replicator {
+
+    private static final Logger log = LoggerFactory.getLogger(SelectorReplicator.class);
+
+    /**
+     * Maximum number of packets written to a sink in a single gathering write.
+     */
+    static final int MAX_GATHER = 16;
+    /**
+     * Maximum number of gathering writes to a sink before the loop serves the other connections.
+     */
+    private static final int MAX_WRITES = 4;
+    /**
+     * Number of packets the read buffer of a source can hold.
+     */
+    private static final int READ_BUFFER_PACKETS = 16;
+    /**
+     * Maximum number of reads from a source before the loop serves the other connections.
+     */
+    private static final int MAX_READS = 4;
+    private static final int PROCESSOR_QUEUE_SIZE = 1024;
+    private static final long SELECT_TIMEOUT_MS = 500L;
+    static final long RECONNECT_INTERVAL_MS = 30_000L;
+
+    private final Node node;
+    private final int port;
+    private final int packetSize;
+    private final int maxPeers;
+    private final boolean testnet;
+    /**
+     * The highest framing version advertised and switched to.
+     */
+    private final int framingVersion;
+
+    private final IoLoop[] loops;
+    private final ThreadPoolExecutor processor;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicBoolean shuttingDown = new AtomicBoolean(false);
+    private final List<Thread> threads = new ArrayList<>();
+
+    private ServerSocketChannel server;
+    private long nextReconnect;
+
+    public SelectorReplicator(Node node, NodeConfig configuration) {
+        super(node, configuration);
+        this.node = node;
+        this.port = configuration.getTcpReceiverPort();
+        this.packetSize = configuration.getTransactionPacketSize();
+        this.maxPeers = configuration.getMaxPeers();
+        this.testnet = configuration.isTestnet();
+        this.framingVersion = !configuration.isTcpBinaryFramingEnabled() ? TcpFraming.TEXT
+                : configuration.isCompressedGossipEnabled() ? TcpFraming.COMPRESSED : TcpFraming.BINARY;
+        this.loops = new IoLoop[Math.max(1, configuration.getTcpIoThreads())];
+        int processors = Runtime.getRuntime().availableProcessors();
+        AtomicInteger processorCount = new AtomicInteger();
+        this.processor = new ThreadPoolExecutor(processors, processors, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(PROCESSOR_QUEUE_SIZE),
+                runnable -> new Thread(runnable, "TCP packet processor " + processorCount.getAndIncrement()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public void init() {
+        try {
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new IoLoop(Selector.open());
+            }
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            log.error("***** NETWORK ALERT ***** Cannot create server socket on port {}, {}", port, e.getMessage());
+            return;
+        }
+        for (int i = 0; i < loops.length; i++) {
+            Thread thread = new Thread(loops[i], "TCP I/O loop " + i);
+            threads.add(thread);
+            thread.start();
+        }
+        log.info("TCP selector replicator is accepting connections on tcp port {} with {} I/O thread(s)", port,
+                loops.length);
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        shuttingDown.set(true);
+        for (IoLoop loop : loops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join(6000L);
+        }
+        processor.shutdown();
+        processor.awaitTermination(6, TimeUnit.SECONDS);
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * @return number of threads used for I/O
+     */
+    public int getIoThreadCount() {
+        return loops.length;
+    }
+
+    private IoLoop nextLoop() {
+        return loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+    }
+
+    private static void configure(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Accepts the pending connections as sources of known neighbors. On the testnet unknown neighbors are added until
+     * the maximum number of peers is reached.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            InetSocketAddress address;
+            try {
+                configure(channel);
+                address = (InetSocketAddress) channel.getRemoteAddress();
+            } catch (IOException e) {
+                log.error("Error accepting connection", e);
+                closeQuietly(channel);
+                continue;
+            }
+            TCPNeighbor neighbor = neighborFor(address);
+            if (neighbor == null || !claimSource(neighbor, channel.socket())) {
+                closeQuietly(channel);
+                continue;
+            }
+            nextLoop().register(new SourceConnection(neighbor, channel, address), SelectionKey.OP_READ);
+        }
+    }
+
+    private TCPNeighbor neighborFor(InetSocketAddress address) {
+        String hostAddress = address.getAddress().getHostAddress();
+        for (Neighbor neighbor : node.getNeighbors()) {
+            if (neighbor instanceof TCPNeighbor && neighbor.getHostAddress().equals(hostAddress)) {
+                return (TCPNeighbor) neighbor;
+            }
+        }
+        if (!testnet || Neighbor.getNumPeers() >= maxPeers) {
+            if (Node.getRejectedAddresses().add(address.getHostName())) {
+                String message = "***** NETWORK ALERT ***** Got connected from unknown neighbor tcp://"
+                        + address.getHostName() + ":" + address.getPort() + " (" + hostAddress
+                        + ") - closing connection";
+                if (testnet) {
+                    message += " (max-peers allowed is " + maxPeers + ")";
+                }
+                log.info(message);
+            }
+            return null;
+        }
+        TCPNeighbor neighbor = new TCPNeighbor(address, false);
+        node.addNeighbor(neighbor);
+        Neighbor.incNumPeers();
+        return neighbor;
+    }
+
+    private static boolean claimSource(TCPNeighbor neighbor, Socket socket) {
+        synchronized (neighbor) {
+            if (neighbor.getSource() != null) {
+                log.info("Source {} already connected", neighbor.getHostAddress());
+                return false;
+            }
+            neighbor.setSource(socket);
+            return true;
+        }
+    }
+
+    /**
+     * Starts connecting the sink of a neighbor unless it has one.
+     */
+    private void openSink(TCPNeighbor neighbor) {
+        SocketChannel channel;
+        boolean connected;
+        synchronized (neighbor) {
+            if (neighbor.getSink() != null || neighbor.isStopped()) {
+                return;
+            }
+            try {
+                log.info("Opening sink {}", neighbor.getHostAddress());
+                channel = SocketChannel.open();
+                configure(channel);
+                connected = channel.connect(new InetSocketAddress(neighbor.getHostAddress(), neighbor.getPort()));
+            } catch (IOException | RuntimeException e) {
+                log.error("***** NETWORK ALERT ***** No sink to apiHost {}:{}, reason: {}", neighbor.getHostAddress(),
+                        neighbor.getPort(), e.getMessage());
+                return;
+            }
+            neighbor.setSink(channel.socket());
+        }
+        SinkConnection sink = new SinkConnection(neighbor, channel);
+        if (connected) {
+            nextLoop().register(sink, SelectionKey.OP_READ, sink::connected);
+        } else {
+            nextLoop().register(sink, SelectionKey.OP_CONNECT);
+        }
+    }
+
+    private void reconnectIfDue() {
+        long now = System.currentTimeMillis();
+        if (now < nextReconnect) {
+            return;
+        }
+        nextReconnect = now + RECONNECT_INTERVAL_MS;
+        for (Neighbor neighbor : node.getNeighbors()) {
+            if (neighbor instanceof TCPNeighbor && neighbor.isFlagged()) {
+                openSink((TCPNeighbor) neighbor);
+            }
+        }
+    }
+
+    /**
+     * Writes the CRC32 of the first {@code length} bytes as 16 zero padded hex digits, the checksum format of the
+     * replicator protocol.
+     */
+    static byte[] checksum(byte[] data, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, length);
+        byte[] hex = new byte[ReplicatorSinkProcessor.CRC32_BYTES];
+        long value = crc32.getValue();
+        for (int i = hex.length - 1; i >= 0; i--, value >>>= 4) {
+            hex[i] = (byte) Character.forDigit((int) (value & 0xf), 16);
+        }
+        return hex;
+    }
+
+    /**
+     * A thread with its own selector serving a share of the connections.
+     */
+    private class IoLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        IoLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * Runs a task on this loop's thread, which is the only one allowed to touch its selection keys.
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void register(Connection connection, int ops) {
+            register(connection, ops, null);
+        }
+
+        void register(Connection connection, int ops, Runnable onRegistered) {
+            connection.loop = this;
+            execute(() -> {
+                try {
+                    connection.key = connection.channel.register(selector, ops, connection);
+                    if (onRegistered != null) {
+                        onRegistered.run();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    connection.fail(e);
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            while (!shuttingDown.get()) {
+                try {
+                    selector.select(SELECT_TIMEOUT_MS);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        handle(key);
+                    }
+                    selector.selectedKeys().clear();
+                    if (this == loops[0]) {
+                        reconnectIfDue();
+                    }
+                } catch (final IOException | RuntimeException e) {
+                    log.error("TCP I/O Loop Exception:", e);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    ((Connection) key.attachment()).close();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            log.info("Shutting down TCP I/O Loop");
+        }
+
+        private void handle(SelectionKey key) throws IOException {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isConnectable()) {
+                    ((SinkConnection) connection).finishConnect();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    connection.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.write();
+                }
+            } catch (IOException | RuntimeException e) {
+                connection.fail(e);
+            }
+        }
+    }
+
+    /**
+     * A connection of a neighbor, owned by a single {@link IoLoop}.
+     */
+    private abstract static class Connection {
+        final TCPNeighbor neighbor;
+        final SocketChannel channel;
+        IoLoop loop;
+        SelectionKey key;
+
+        Connection(TCPNeighbor neighbor, SocketChannel channel) {
+            this.neighbor = neighbor;
+            this.channel = channel;
+        }
+
+        abstract void read() throws IOException;
+
+        void write() throws IOException {
+            // only sinks write
+        }
+
+        void fail(Exception e) {
+            String reason = e.getMessage() == null ? "closed" : e.getMessage();
+            log.error("***** NETWORK ALERT ***** TCP connection to neighbor {} closed, {}", neighbor.getHostAddress(),
+                    reason);
+            close();
+        }
+
+        abstract void close();
+    }
+
+    /**
+     * The inbound connection of a neighbor.
+     */
+    private class SourceConnection extends Connection {
+        private final InetSocketAddress address;
+        private final int frameSize = packetSize + ReplicatorSinkProcessor.CRC32_BYTES;
+        private final ByteBuffer buffer = ByteBuffer.allocate(
+                Math.max(frameSize * READ_BUFFER_PACKETS, TcpFraming.maxFrameBytes(packetSize)));
+        private final byte[] expected = new byte[ReplicatorSinkProcessor.CRC32_BYTES];
+        private final Checksum crc32c = Crc32c.create();
+        private boolean portReceived;
+        /**
+         * The highest framing advertised to the neighbor.
+         */
+        private int advertisedFraming = TcpFraming.TEXT;
+        private int framing = TcpFraming.TEXT;
+
+        SourceConnection(TCPNeighbor neighbor, SocketChannel channel, InetSocketAddress address) {
+            super(neighbor, channel);
+            this.address = address;
+        }
+
+        @Override
+        void read() throws IOException {
+            for (int i = 0; i < MAX_READS; i++) {
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new EOFException("source closed by neighbor");
+                }
+                if (read == 0) {
+                    return;
+                }
+                buffer.flip();
+                consume();
+                buffer.compact();
+            }
+        }
+
+        private void consume() throws IOException {
+            if (!portReceived) {
+                if (buffer.remaining() < ReplicatorSinkPool.PORT_BYTES) {
+                    return;
+                }
+                byte[] header = new byte[ReplicatorSinkPool.PORT_BYTES];
+                buffer.get(header);
+                neighbor.setTcpPort(TcpFraming.port(header));
+                portReceived = true;
+                log.info("----- NETWORK INFO ----- Source {} is connected", neighbor.getHostAddress());
+                if (framingVersion >= TcpFraming.BINARY) {
+                    // a fresh socket takes a byte without blocking, if not the neighbor just keeps the text framing
+                    if (channel.write(ByteBuffer.wrap(new byte[]{TcpFraming.advertisement(framingVersion)})) == 1) {
+                        advertisedFraming = framingVersion;
+                    }
+                }
+                openSink(neighbor);
+            }
+            while (framing == TcpFraming.TEXT ? consumeText() : consumeBinary()) {
+                // until the buffer holds no complete frame
+            }
+        }
+
+        private boolean consumeText() {
+            if (buffer.remaining() < frameSize) {
+                return false;
+            }
+            byte[] data = new byte[packetSize];
+            buffer.get(data);
+            buffer.get(expected);
+            int switched = advertisedFraming != TcpFraming.TEXT ? TcpFraming.switchedVersion(expected) : -1;
+            if (switched != -1 && switched <= advertisedFraming) {
+                framing = switched;
+                log.info("Source {} switched to binary framing version {}", neighbor.getHostAddress(), framing);
+            } else if (Arrays.equals(expected, checksum(data, packetSize))) {
+                processor.execute(() -> process(data));
+            }
+            return true;
+        }
+
+        private boolean consumeBinary() throws IOException {
+            if (buffer.remaining() < TcpFraming.LENGTH_BYTES) {
+                return false;
+            }
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            boolean valid = framing == TcpFraming.COMPRESSED
+                    ? TcpFraming.isValidCompressedLength(length, packetSize)
+                    : TcpFraming.packetsIn(length, packetSize) > 0;
+            if (!valid) {
+                throw new IOException("invalid frame length " + length);
+            }
+            int payload = start + TcpFraming.LENGTH_BYTES;
+            if (buffer.limit() - payload < length + TcpFraming.CHECKSUM_BYTES) {
+                return false;
+            }
+            crc32c.reset();
+            crc32c.update(buffer.array(), buffer.arrayOffset() + payload, length);
+            if ((int) crc32c.getValue() == buffer.getInt(payload + length)) {
+                if (framing == TcpFraming.COMPRESSED) {
+                    readCompressedPackets(payload, length);
+                } else {
+                    for (int offset = 0; offset < length; offset += packetSize) {
+                        byte[] data = new byte[packetSize];
+                        System.arraycopy(buffer.array(), buffer.arrayOffset() + payload + offset, data, 0,
+                                packetSize);
+                        processor.execute(() -> process(data));
+                    }
+                }
+            }
+            buffer.position(payload + length + TcpFraming.CHECKSUM_BYTES);
+            return true;
+        }
+
+        private void readCompressedPackets(int payload, int length) throws IOException {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset() + payload;
+            int end = offset + length;
+            while (offset < end) {
+                int packetLength = (array[offset] & 0xff) << 8 | (array[offset + 1] & 0xff);
+                offset += TcpFraming.PACKET_LENGTH_BYTES;
+                if (!PacketCompression.isCompressedLength(packetLength, packetSize) || end - offset < packetLength) {
+                    throw new IOException("invalid packet length " + packetLength);
+                }
+                byte[] data = PacketCompression.decompress(array, offset, packetLength, packetSize);
+                processor.execute(() -> process(data));
+                offset += packetLength;
+            }
+        }
+
+        private void process(byte[] data) {
+            try {
+                node.preProcessReceivedData(data, address, "tcp");
+            } catch (final RuntimeException e) {
+                log.error("Transaction processing runtime exception ", e);
+                neighbor.incInvalidTransactions();
+            }
+        }
+
+        @Override
+        void close() {
+            closeQuietly(channel);
+            synchronized (neighbor) {
+                if (neighbor.getSource() == channel.socket()) {
+                    neighbor.setSource(null);
+                    neighbor.setSink(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * The outbound connection of a neighbor.
+     */
+    private class SinkConnection extends Connection {
+        private final ByteBuffer[] gather = new ByteBuffer[2 * MAX_GATHER + 3];
+        /**
+         * Bytes to count as one sent packet once the buffer at the same index is written, 0 if it does not end one.
+         */
+        private final int[] sentBytes = new int[gather.length];
+        private final AtomicBoolean writeRequested = new AtomicBoolean(true);
+        private final ByteBuffer scratch = ByteBuffer.allocate(64);
+        private final Checksum crc32c = Crc32c.create();
+        private ByteBuffer portHeader;
+        private int framing = TcpFraming.TEXT;
+        /**
+         * The framing to switch to with the next write, once the neighbor advertised it.
+         */
+        private int pendingFraming = TcpFraming.TEXT;
+        private int head;
+        private int tail;
+
+        SinkConnection(TCPNeighbor neighbor, SocketChannel channel) {
+            super(neighbor, channel);
+        }
+
+        void finishConnect() throws IOException {
+            if (channel.finishConnect()) {
+                connected();
+            }
+        }
+
+        /**
+         * Queues the port header and starts writing. Packets queued before the connection was up are sent first.
+         */
+        void connected() {
+            log.info("----- NETWORK INFO ----- Sink {} is connected", neighbor.getHostAddress());
+            portHeader = ByteBuffer.wrap(TcpFraming.header(port));
+            neighbor.setSendListener(this::requestWrite);
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Called by the threads queueing packets; wakes the loop once until the queue has been written.
+         */
+        private void requestWrite() {
+            if (writeRequested.compareAndSet(false, true)) {
+                loop.execute(() -> {
+                    if (key != null && key.isValid()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    }
+                });
+            }
+        }
+
+        /**
+         * The neighbor only advertises the binary framing on the sink, apart from that reading detects that it was
+         * closed.
+         */
+        @Override
+        void read() throws IOException {
+            scratch.clear();
+            int read = channel.read(scratch);
+            if (read < 0) {
+                throw new EOFException("sink closed by neighbor");
+            }
+            if (framingVersion != TcpFraming.TEXT && framing == TcpFraming.TEXT
+                    && pendingFraming == TcpFraming.TEXT) {
+                for (int i = 0; i < read; i++) {
+                    int version = TcpFraming.advertisedVersion(scratch.get(i));
+                    if (version != -1) {
+                        pendingFraming = Math.min(version, framingVersion);
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        break;
+                    }
+                }
+            }
+        }
+
+        @Override
+        void write() throws IOException {
+            for (int i = 0; i < MAX_WRITES; i++) {
+                if (head == tail && !fill()) {
+                    writeRequested.set(false);
+                    // a packet may have been queued after the last poll without waking us
+                    if (neighbor.getSendQueueSize() == 0 || !writeRequested.compareAndSet(false, true)) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        return;
+                    }
+                    continue;
+                }
+                channel.write(gather, head, tail - head);
+                while (head < tail && !gather[head].hasRemaining()) {
+                    if (sentBytes[head] > 0) {
+                        neighbor.incSentTransactions(sentBytes[head]);
+                    }
+                    gather[head++] = null;
+                }
+                if (head < tail) {
+                    // the socket buffer is full, wait for OP_WRITE
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Takes up to {@link #MAX_GATHER} packets from the queue of the neighbor.
+         *
+         * @return true if there is anything to write
+         */
+        private boolean fill() {
+            head = 0;
+            tail = 0;
+            if (portHeader != null) {
+                add(portHeader, 0);
+                portHeader = null;
+            }
+            if (pendingFraming != TcpFraming.TEXT) {
+                // the last text frame, the neighbor reads binary frames after it
+                add(ByteBuffer.wrap(new byte[packetSize]), 0);
+                add(ByteBuffer.wrap(TcpFraming.switchMarker(pendingFraming)), 0);
+                framing = pendingFraming;
+                pendingFraming = TcpFraming.TEXT;
+                log.info("Sink {} switched to binary framing version {}", neighbor.getHostAddress(), framing);
+            }
+            if (framing == TcpFraming.TEXT) {
+                fillText();
+            } else {
+                fillFrame();
+            }
+            return tail > 0;
+        }
+
+        private void fillText() {
+            byte[] bytes;
+            while (tail < gather.length - 1 && (bytes = nextPacket()) != null) {
+                add(ByteBuffer.wrap(bytes), 0);
+                add(ByteBuffer.wrap(checksum(bytes, packetSize)), packetSize + ReplicatorSinkProcessor.CRC32_BYTES);
+            }
+        }
+
+        /**
+         * Puts the queued packets into a single binary frame.
+         */
+        private void fillFrame() {
+            int lengthIndex = tail++;
+            int packets = 0;
+            int length = 0;
+            crc32c.reset();
+            byte[] bytes;
+            while (packets < TcpFraming.MAX_FRAME_PACKETS && (bytes = nextPacket()) != null) {
+                if (framing == TcpFraming.COMPRESSED) {
+                    // the queued packet is a copy owned by the sink
+                    bytes = TcpFraming.compressedEntry(bytes, packetSize);
+                }
+                crc32c.update(bytes, 0, bytes.length);
+                add(ByteBuffer.wrap(bytes), bytes.length);
+                length += bytes.length;
+                packets++;
+            }
+            if (packets == 0) {
+                tail = lengthIndex;
+                return;
+            }
+            gather[lengthIndex] = TcpFraming.lengthField(length);
+            sentBytes[lengthIndex] = 0;
+            // the framing overhead is counted with the last packet
+            sentBytes[tail - 1] += TcpFraming.LENGTH_BYTES + TcpFraming.CHECKSUM_BYTES;
+            add(TcpFraming.checksumField(crc32c.getValue()), 0);
+        }
+
+        /**
+         * @return the next queued packet or {@code null} if the queue is empty
+         */
+        private byte[] nextPacket() {
+            // like the classic sink, packets are only sent while the neighbor's source is connected too
+            boolean sourceConnected = neighbor.getSource() != null && neighbor.getSource().isConnected();
+            ByteBuffer message;
+            while ((message = neighbor.pollMessage()) != null) {
+                byte[] bytes = message.array();
+                if (sourceConnected && bytes.length == packetSize) {
+                    return bytes;
+                }
+            }
+            return null;
+        }
+
+        private void add(ByteBuffer buffer, int bytes) {
+            gather[tail] = buffer;
+            sentBytes[tail++] = bytes;
+        }
+
+        @Override
+        void close() {
+            neighbor.setSendListener(null);
+            closeQuietly(channel);
+            synchronized (neighbor) {
+                if (neighbor.getSink() == channel.socket()) {
+                    neighbor.setSink(null);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.iota.iri.network.replicator;
+
+import com.iota.iri.network.PacketCompression;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The framing versions of the TCP replicator protocol and their negotiation.
+ * <p>
+ * A connection starts with a header of {@link ReplicatorSinkPool#PORT_BYTES} decimal digits holding the listening
+ * port of the sender. In the text framing every packet follows as is, trailed by its CRC32 in
+ * {@link ReplicatorSinkProcessor#CRC32_BYTES} hex digits.
+ * </p>
+ * <p>
+ * In the binary framing a frame is a 4 byte length, one to {@link #MAX_FRAME_PACKETS} packets and the CRC-32C of the
+ * packets in 4 bytes, all big endian. Checking it takes one pass over the bytes and no formatting or parsing of text.
+ * </p>
+ * <p>
+ * The {@link #COMPRESSED} framing is the binary framing with {@link PacketCompression compressed packets}, each
+ * preceded by its length in 2 bytes.
+ * </p>
+ * <p>
+ * The header is the same as in the text framing, so older nodes read the right port from it. A receiver that supports
+ * a binary framing advertises the highest version it accepts with an {@link #advertisement(int)} byte on the same
+ * connection, which older senders never read. A sender keeps using the text framing until it reads an advertisement,
+ * then sends a text frame whose checksum is the {@link #switchMarker(int)} of the highest version both support and
+ * only frames of that version after it. A receiver only takes the marker for a version it advertised, and a sender
+ * never switches without an advertisement, so a node that does not know the binary framing only ever sees text
+ * frames and headers.
+ * </p>
+ */
+final class TcpFraming {
+
+    static final int TEXT = 0;
+    static final int BINARY = 1;
+    static final int COMPRESSED = 2;
+
+    /**
+     * The advertisement of {@link #BINARY} is {@code 'B'}.
+     */
+    private static final byte ADVERTISEMENT_BASE = 'A';
+
+    /**
+     * Followed by the version, takes the place of the checksum of the last text frame before the binary framing
+     * starts; it is not hex, so it never matches a real checksum.
+     */
+    private static final String SWITCH_MARKER_PREFIX = "binary-framing-";
+
+    static final int LENGTH_BYTES = 4;
+    static final int CHECKSUM_BYTES = 4;
+    static final int MAX_FRAME_PACKETS = 16;
+    static final int PACKET_LENGTH_BYTES = 2;
+
+    private TcpFraming() {
+    }
+
+    /**
+     * @param port the listening port of the sender
+     * @return the header starting a connection, the same in every framing
+     */
+    static byte[] header(int port) {
+        return String.format("%0" + ReplicatorSinkPool.PORT_BYTES + "d", port).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return the listening port in a header
+     */
+    static int port(byte[] header) {
+        return (int) Long.parseLong(new String(header, StandardCharsets.US_ASCII).trim());
+    }
+
+    /**
+     * @param version the highest binary framing the receiver accepts
+     * @return the byte a receiver advertises it with
+     */
+    static byte advertisement(int version) {
+        return (byte) (ADVERTISEMENT_BASE + version);
+    }
+
+    /**
+     * @return the binary framing advertised by a byte or -1 if it is not an advertisement
+     */
+    static int advertisedVersion(byte advertisement) {
+        int version = advertisement - ADVERTISEMENT_BASE;
+        return version >= BINARY && version <= COMPRESSED ? version : -1;
+    }
+
+    /**
+     * @param version the binary framing the sender switches to
+     * @return the checksum of the last text frame, {@link ReplicatorSinkProcessor#CRC32_BYTES} long
+     */
+    static byte[] switchMarker(int version) {
+        return (SWITCH_MARKER_PREFIX + version).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return the binary framing switched to by a checksum or -1 if it is not a switch marker
+     */
+    static int switchedVersion(byte[] checksum) {
+        for (int version = BINARY; version <= COMPRESSED; version++) {
+            if (Arrays.equals(checksum, switchMarker(version))) {
+                return version;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks the length field of a {@link #BINARY} frame.
+     *
+     * @return the number of packets in the frame or -1 if the length is not valid
+     */
+    static int packetsIn(int length, int packetSize) {
+        if (length <= 0 || length % packetSize != 0 || length / packetSize > MAX_FRAME_PACKETS) {
+            return -1;
+        }
+        return length / packetSize;
+    }
+
+    /**
+     * Checks the length field of a {@link #COMPRESSED} frame, the lengths of its packets are checked as they are read.
+     */
+    static boolean isValidCompressedLength(int length, int packetSize) {
+        return length > PACKET_LENGTH_BYTES && length <= MAX_FRAME_PACKETS * (PACKET_LENGTH_BYTES + packetSize);
+    }
+
+    /**
+     * @return the largest binary frame of any version, including the length and checksum fields
+     */
+    static int maxFrameBytes(int packetSize) {
+        return LENGTH_BYTES + MAX_FRAME_PACKETS * (PACKET_LENGTH_BYTES + packetSize) + CHECKSUM_BYTES;
+    }
+
+    /**
+     * Compresses a packet into an entry of a {@link #COMPRESSED} frame.
+     *
+     * @param packet the packet, it is overwritten
+     * @return the length of the packet in 2 bytes followed by the compressed packet
+     */
+    static byte[] compressedEntry(byte[] packet, int packetSize) {
+        int length = PacketCompression.compress(packet, packetSize);
+        byte[] entry = new byte[PACKET_LENGTH_BYTES + length];
+        entry[0] = (byte) (length >>> 8);
+        entry[1] = (byte) length;
+        System.arraycopy(packet, 0, entry, PACKET_LENGTH_BYTES, length);
+        return entry;
+    }
+
+    static ByteBuffer lengthField(int length) {
+        return ByteBuffer.allocate(LENGTH_BYTES).putInt(0, length);
+    }
+
+    static ByteBuffer checksumField(long checksum) {
+        return ByteBuffer.allocate(CHECKSUM_BYTES).putInt(0, (int) checksum);
+    }
+}
@@ -13,8 +13,11 @@ import com.iota.iri.crypto.Sponge;
 import com.iota.iri.crypto.SpongeFactory;
 import com.iota.iri.model.Hash;
 import com.iota.iri.model.HashFactory;
+import com.iota.iri.model.persistables.Address;
 import com.iota.iri.model.persistables.Transaction;
 import com.iota.iri.network.Neighbor;
+import com.iota.iri.network.RecentSeenBytesCache;
+import com.iota.iri.network.TransactionBytesCache;
 import com.iota.iri.service.dto.*;
 import com.iota.iri.service.tipselection.TipSelector;
 import com.iota.iri.service.tipselection.impl.WalkValidatorImpl;
@@ -103,6 +106,10 @@ public class API extends MilestoneTracker {
 
     private static final int HASH_SIZE = 81;
     private static final int TRYTES_SIZE = 2673;
+    /**
+     * Transactions of an address read at once while looking for a spend.
+     */
+    private static final int ADDRESS_PAGE_SIZE = 1000;
 
     private static final long MAX_TIMESTAMP_VALUE = (long) (Math.pow(3, 27) - 1) / 2; // max positive 27-trits value
 
@@ -645,23 +652,32 @@ public class API extends MilestoneTracker {
             return true;
         }
         
-        Set<Hash> hashes = AddressViewModel.load(instance.tangle, address).getHashes();
         boolean flag = false;
-        for (Hash hash : hashes) {
-            final TransactionViewModel tx = TransactionViewModel.fromHash(instance.tangle, hash);
-            // Check for spending transactions
-            if (tx.value() < 0) {
-                // Transaction is confirmed
-                if (tx.snapshotIndex() != 0) {
-                    return true;
-                }
-                
-                // Transaction is pending
-                Hash tail = findTail(hash);
-                if (tail != null && (BundleValidator.validate(instance.tangle, tail).isEmpty() == flag)) {
-                    return true;
+        // the first spend ends the search, the remaining transactions of the address are not read
+        Hash after = null;
+        while (true) {
+            List<Hash> hashes = instance.tangle.loadHashesPage(Address.class, address, after, ADDRESS_PAGE_SIZE);
+            for (Hash hash : hashes) {
+                final TransactionViewModel tx = TransactionViewModel.fromHash(instance.tangle, hash);
+                // Check for spending transactions
+                if (tx.value() < 0) {
+                    // Transaction is confirmed
+                    if (tx.snapshotIndex() != 0) {
+                        return true;
+                    }
+
+                    // Transaction is pending
+                    Hash tail = findTail(hash);
+                    if (tail != null && (BundleValidator.validate(instance.tangle, tail).isEmpty() == flag)) {
+                        return true;
+                    }
                 }
             }
+            // only a full page can be followed by another one, a hash list is read as a single page of any size
+            if (hashes.size() != ADDRESS_PAGE_SIZE) {
+                break;
+            }
+            after = hashes.get(hashes.size() - 1);
         }
         
         // No spending transaction found
@@ -803,8 +819,7 @@ public class API extends MilestoneTracker {
                if (log.isInfoEnabled()) {
                log.info(String.format("Adding neighbor: %s", uriString)); }
                final Neighbor neighbor = instance.node.newNeighbor(new URI(uriString), true);
-               if (!instance.node.getNeighbors().contains(neighbor)) {
-                   instance.node.getNeighbors().add(neighbor);
+               if (instance.node.addNeighbor(neighbor)) {
                    numberOfAddedNeighbors++;
                }
            }
@@ -853,11 +868,12 @@ public class API extends MilestoneTracker {
       **/
     private synchronized AbstractResponse getTrytesStatement(List<String> hashes) throws Exception {
         final List<String> elements = new LinkedList<>();
+        final List<Hash> transactionHashes = new ArrayList<>(hashes.size());
         for (final String hash : hashes) {
-            final TransactionViewModel transactionViewModel = TransactionViewModel.fromHash(instance.tangle, HashFactory.TRANSACTION.create(hash));
-            if (transactionViewModel != null) {
-                elements.add(Converter.trytes(transactionViewModel.trits()));
-            }
+            transactionHashes.add(HashFactory.TRANSACTION.create(hash));
+        }
+        for (final TransactionViewModel transactionViewModel : TransactionViewModel.fromHashes(instance.tangle, transactionHashes)) {
+            elements.add(Converter.trytes(transactionViewModel.trits()));
         }
         if (elements.size() > maxGetTrytes){
             return ErrorResponse.create(OVER_MAX_ERROR_MESSAGE);
@@ -1028,6 +1044,8 @@ public class API extends MilestoneTracker {
       * @return {@link com.iota.iri.service.dto.GetNodeInfoResponse}
       **/
     private AbstractResponse getNodeInfoStatement(){
+        RecentSeenBytesCache<Hash> recentSeenBytes = instance.node.getRecentSeenBytesCache();
+        TransactionBytesCache replyCache = instance.node.getTransactionBytesCache();
         String name = instance.configuration.isTestnet() ? IRI.TESTNET_NAME : IRI.MAINNET_NAME;
         return GetNodeInfoResponse.create(name, IRI.VERSION, 
                 Runtime.getRuntime().availableProcessors(),
@@ -1045,7 +1063,12 @@ public class API extends MilestoneTracker {
                 instance.tipsViewModel.size(),
                 instance.transactionRequester.numberOfTransactionsToRequest(),
                 features,
-                instance.configuration.getCoordinator());
+                instance.configuration.getCoordinator(),
+                recentSeenBytes == null ? 0 : recentSeenBytes.getHitCount(),
+                recentSeenBytes == null ? 0 : recentSeenBytes.getMissCount(),
+                recentSeenBytes == null ? 0 : recentSeenBytes.getEvictionCount(),
+                replyCache.getHitCount(),
+                replyCache.getMissCount());
     }
 
     /**
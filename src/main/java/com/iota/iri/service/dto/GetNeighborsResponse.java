@@ -2,6 +2,7 @@ package com.iota.iri.service.dto;
 
 import java.util.List;
 
+import com.iota.iri.network.NeighborMetrics;
 import com.iota.iri.service.API;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -26,6 +27,14 @@ public class GetNeighborsResponse extends AbstractResponse {
      *     <li>numberOfInvalidTransactions</li>
      *     <li>numberOfSentTransactions</li>
      *     <li>numberOfStaleTransactions</li>
+     *     <li>sendQueueSize</li>
+     *     <li>numberOfDroppedSentTransactions</li>
+     *     <li>receivedTransactionsPerSecond</li>
+     *     <li>sentTransactionsPerSecond</li>
+     *     <li>receivedBytesPerSecond</li>
+     *     <li>sentBytesPerSecond</li>
+     *     <li>replyLatencyP50Micros</li>
+     *     <li>replyLatencyP99Micros</li>
      * </ol>
      * @see {@link com.iota.iri.service.dto.GetNeighborsResponse.Neighbor}
      */
@@ -69,6 +78,14 @@ public class GetNeighborsResponse extends AbstractResponse {
         private long numberOfInvalidTransactions;
         private long numberOfStaleTransactions;
         private long numberOfSentTransactions;
+        private int sendQueueSize;
+        private long numberOfDroppedSentTransactions;
+        private double receivedTransactionsPerSecond;
+        private double sentTransactionsPerSecond;
+        private double receivedBytesPerSecond;
+        private double sentBytesPerSecond;
+        private long replyLatencyP50Micros;
+        private long replyLatencyP99Micros;
         private String connectionType;
 
         /**
@@ -129,6 +146,79 @@ public class GetNeighborsResponse extends AbstractResponse {
             return numberOfSentTransactions;
         }
 
+        /**
+         * Outgoing transactions waiting to be sent to your neighbor
+         *
+         * @return the number
+         */
+        public int getSendQueueSize() {
+            return sendQueueSize;
+        }
+
+        /**
+         * Outgoing transactions that were dropped because the send queue of your neighbor was full
+         *
+         * @return the number
+         */
+        public long getNumberOfDroppedSentTransactions() {
+            return numberOfDroppedSentTransactions;
+        }
+
+        /**
+         * Transactions per second your neighbor has sent you in the last statistics interval
+         *
+         * @return the rate
+         */
+        public double getReceivedTransactionsPerSecond() {
+            return receivedTransactionsPerSecond;
+        }
+
+        /**
+         * Transactions per second sent to your neighbor in the last statistics interval
+         *
+         * @return the rate
+         */
+        public double getSentTransactionsPerSecond() {
+            return sentTransactionsPerSecond;
+        }
+
+        /**
+         * Bytes per second your neighbor has sent you in the last statistics interval
+         *
+         * @return the rate
+         */
+        public double getReceivedBytesPerSecond() {
+            return receivedBytesPerSecond;
+        }
+
+        /**
+         * Bytes per second sent to your neighbor in the last statistics interval
+         *
+         * @return the rate
+         */
+        public double getSentBytesPerSecond() {
+            return sentBytesPerSecond;
+        }
+
+        /**
+         * Median time in microseconds between requesting a transaction from your neighbor and receiving it
+         *
+         * @return the latency
+         */
+        public long getReplyLatencyP50Micros() {
+            return replyLatencyP50Micros;
+        }
+
+        /**
+         * 99th percentile of the time in microseconds between requesting a transaction from your neighbor and
+         * receiving it
+         *
+         * @return the latency
+         */
+        public long getReplyLatencyP99Micros() {
+            return replyLatencyP99Micros;
+        }
+
         /**
          * The method type your neighbor is using to connect (TCP / UDP)
          * 
@@ -153,6 +243,15 @@ public class GetNeighborsResponse extends AbstractResponse {
             ne.numberOfNewTransactions = n.getNumberOfNewTransactions();
             ne.numberOfRandomTransactionRequests = n.getNumberOfRandomTransactionRequests();
             ne.numberOfSentTransactions = n.getNumberOfSentTransactions();
+            ne.sendQueueSize = n.getSendQueueSize();
+            ne.numberOfDroppedSentTransactions = n.getNumberOfDroppedSends();
+            NeighborMetrics metrics = n.getMetrics();
+            ne.receivedTransactionsPerSecond = metrics.getReceivedPerSecond();
+            ne.sentTransactionsPerSecond = metrics.getSentPerSecond();
+            ne.receivedBytesPerSecond = metrics.getBytesReceivedPerSecond();
+            ne.sentBytesPerSecond = metrics.getBytesSentPerSecond();
+            ne.replyLatencyP50Micros = metrics.getReplyLatencyP50Micros();
+            ne.replyLatencyP99Micros = metrics.getReplyLatencyP99Micros();
             ne.connectionType = n.connectionType();
             return ne;
         }
@@ -119,6 +119,33 @@ public class GetNodeInfoResponse extends AbstractResponse {
      */
     private String coordinatorAddress;
 
+    /**
+     * Number of received packets that were found in the cache of recently seen packets and therefore not validated
+     * again.
+     */
+    private long recentSeenBytesHits;
+
+    /**
+     * Number of received packets that were not found in the cache of recently seen packets.
+     */
+    private long recentSeenBytesMisses;
+
+    /**
+     * Number of entries evicted from the cache of recently seen packets to make room for new ones.
+     */
+    private long recentSeenBytesEvictions;
+
+    /**
+     * Number of requests of neighbors answered from the cache of recently stored transactions, each one a database
+     * read less.
+     */
+    private long replyCacheHits;
+
+    /**
+     * Number of requests of neighbors that had to be answered from the database.
+     */
+    private long replyCacheMisses;
+
     /**
      * Creates a new {@link GetNodeInfoResponse}
      * 
@@ -141,13 +168,20 @@ public class GetNodeInfoResponse extends AbstractResponse {
      * @param numberOfTransactionsToRequest {@link #transactionsToRequest}
      * @param features {@link #features}
      * @param coordinatorAddress {@link #coordinatorAddress}
+     * @param recentSeenBytesHits {@link #recentSeenBytesHits}
+     * @param recentSeenBytesMisses {@link #recentSeenBytesMisses}
+     * @param recentSeenBytesEvictions {@link #recentSeenBytesEvictions}
+     * @param replyCacheHits {@link #replyCacheHits}
+     * @param replyCacheMisses {@link #replyCacheMisses}
      * @return a {@link GetNodeInfoResponse} filled with all the provided parameters
      */
 	public static AbstractResponse create(String appName, String appVersion, int jreAvailableProcessors, long jreFreeMemory,
 	        String jreVersion, long maxMemory, long totalMemory, Hash latestMilestone, int latestMilestoneIndex,
 	        Hash latestSolidSubtangleMilestone, int latestSolidSubtangleMilestoneIndex, int milestoneStartIndex,
 	        int neighbors, int packetsQueueSize, long currentTimeMillis, int tips, 
-	        int numberOfTransactionsToRequest,  String[] features, String coordinatorAddress) {
+	        int numberOfTransactionsToRequest,  String[] features, String coordinatorAddress,
+	        long recentSeenBytesHits, long recentSeenBytesMisses, long recentSeenBytesEvictions,
+	        long replyCacheHits, long replyCacheMisses) {
 		final GetNodeInfoResponse res = new GetNodeInfoResponse();
 		res.appName = appName;
 		res.appVersion = appVersion;
@@ -173,6 +207,12 @@ public class GetNodeInfoResponse extends AbstractResponse {
 		
 		res.features = features;
 		res.coordinatorAddress = coordinatorAddress;
+
+		res.recentSeenBytesHits = recentSeenBytesHits;
+		res.recentSeenBytesMisses = recentSeenBytesMisses;
+		res.recentSeenBytesEvictions = recentSeenBytesEvictions;
+		res.replyCacheHits = replyCacheHits;
+		res.replyCacheMisses = replyCacheMisses;
 		return res;
 	}
 
@@ -328,6 +368,46 @@ public class GetNodeInfoResponse extends AbstractResponse {
 		return coordinatorAddress;
 	}
 
+	/**
+	 *
+	 * @return {@link #recentSeenBytesHits}
+	 */
+	public long getRecentSeenBytesHits() {
+		return recentSeenBytesHits;
+	}
+
+	/**
+	 *
+	 * @return {@link #recentSeenBytesMisses}
+	 */
+	public long getRecentSeenBytesMisses() {
+		return recentSeenBytesMisses;
+	}
+
+	/**
+	 *
+	 * @return {@link #recentSeenBytesEvictions}
+	 */
+	public long getRecentSeenBytesEvictions() {
+		return recentSeenBytesEvictions;
+	}
+
+	/**
+	 *
+	 * @return {@link #replyCacheHits}
+	 */
+	public long getReplyCacheHits() {
+		return replyCacheHits;
+	}
+
+	/**
+	 *
+	 * @return {@link #replyCacheMisses}
+	 */
+	public long getReplyCacheMisses() {
+		return replyCacheMisses;
+	}
+
 	@Override
 	public int hashCode() {
 		return HashCodeBuilder.reflectionHashCode(this, false);
@@ -0,0 +1,208 @@
+package com.iota.iri.storage;
+
+import com.iota.iri.utils.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Merges the save batches of many threads into few database writes.
+ * <p>
+ * Producers {@link #submit} the batches they would otherwise pass to {@link Tangle#saveBatch(List)} themselves. A
+ * single writer thread takes the first queued batch, then keeps taking batches until they hold
+ * {@code maxEntries} entries or {@code windowNanos} passed since the first one was submitted, and saves all of them
+ * with one {@link Tangle#saveBatch(List)}. Under load the window rarely matters: the batches that queue up while a
+ * write is in progress make up the next write.
+ * </p>
+ * <p>
+ * Guarantees:
+ * </p>
+ * <ul>
+ * <li>Durability is that of {@link Tangle#saveBatch(List)}: the write goes to the write-ahead log without a sync, so
+ * it survives a crash of the process but not necessarily one of the machine. The future of a batch completes only
+ * after the write that contains it returned, so whatever a producer does after waiting for it, like broadcasting the
+ * transaction, happens after the transaction is readable.</li>
+ * <li>All batches of a write are applied atomically. They are applied in the order they were submitted, so of two
+ * submissions that write the same key the later one wins, and a thread that submits several batches sees them applied
+ * in its own order.</li>
+ * <li>If a write fails, the futures of all its batches complete exceptionally, none of them is retried.</li>
+ * <li>A batch is only readable once its future completed. Two threads that store the same transaction in the same
+ * window may both find it missing, like two threads calling {@link Tangle#saveBatch(List)} at the same time.</li>
+ * </ul>
+ */
+public class GroupCommitWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    /**
+     * How long an idle writer waits for a batch before it checks whether it is shutting down.
+     */
+    private static final long WRITER_WAIT_MS = 100L;
+
+    private final Tangle tangle;
+    private final int maxEntries;
+    private final long windowNanos;
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private volatile boolean shuttingDown;
+
+    /**
+     * @param tangle the tangle the merged batches are saved to
+     * @param maxEntries the number of entries after which a write is started without waiting for more batches
+     * @param windowNanos how long the first batch of a write may wait for more batches
+     */
+    public GroupCommitWriter(Tangle tangle, int maxEntries, long windowNanos) {
+        this.tangle = tangle;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.windowNanos = Math.max(0, windowNanos);
+        this.writer = new Thread(this::work, "Group Commit Writer");
+        this.writer.setDaemon(true);
+    }
+
+    public void init() {
+        writer.start();
+    }
+
+    /**
+     * Writes the batches that are still queued and stops the writer.
+     */
+    public void shutdown() throws InterruptedException {
+        shuttingDown = true;
+        writer.join(TimeUnit.SECONDS.toMillis(6));
+        Submission submission;
+        while ((submission = queue.poll()) != null) {
+            submission.future.completeExceptionally(new IllegalStateException("the writer is shut down"));
+        }
+    }
+
+    /**
+     * Queues a batch for the next write.
+     *
+     * @param models the key value pairs to save
+     * @return a future that completes with the result of {@link Tangle#saveBatch(List)} once the batch is written
+     */
+    public CompletableFuture<Boolean> submit(List<Pair<Indexable, Persistable>> models) {
+        Submission submission = new Submission(models, System.nanoTime());
+        if (!shuttingDown) {
+            queue.add(submission);
+            // a shutdown that started meanwhile may already have drained the queue, whoever removes it completes it
+            if (!shuttingDown || !queue.remove(submission)) {
+                return submission.future;
+            }
+        }
+        submission.future.completeExceptionally(new IllegalStateException("the writer is shut down"));
+        return submission.future;
+    }
+
+    /**
+     * Queues a batch and waits until it is written.
+     *
+     * @param models the key value pairs to save
+     * @return the result of {@link Tangle#saveBatch(List)}
+     * @throws Exception the exception of the write
+     */
+    public boolean saveBatch(List<Pair<Indexable, Persistable>> models) throws Exception {
+        try {
+            return submit(models).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    /**
+     * @return the number of batches written
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return the number of database writes the batches were merged into
+     */
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    private void work() {
+        log.info("Spawning Group Commit Writer Thread");
+        List<Submission> group = new ArrayList<>();
+        List<Pair<Indexable, Persistable>> models = new ArrayList<>();
+        while (!shuttingDown || !queue.isEmpty()) {
+            try {
+                if (!fill(group)) {
+                    continue;
+                }
+                for (Submission submission : group) {
+                    models.addAll(submission.models);
+                }
+                boolean saved = tangle.saveBatch(models);
+                writes.increment();
+                batches.add(group.size());
+                for (Submission submission : group) {
+                    submission.future.complete(saved);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (final Exception e) {
+                log.error("Group Commit Writer Thread Exception:", e);
+                for (Submission submission : group) {
+                    submission.future.completeExceptionally(e);
+                }
+            } finally {
+                group.clear();
+                models.clear();
+            }
+        }
+        log.info("Shutting down Group Commit Writer Thread");
+    }
+
+    /**
+     * Takes batches from the queue until they hold enough entries or the first one waited long enough.
+     *
+     * @return false if no batch arrived
+     */
+    private boolean fill(List<Submission> group) throws InterruptedException {
+        Submission first = queue.poll(WRITER_WAIT_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        group.add(first);
+        int entries = first.models.size();
+        long deadline = first.submitted + windowNanos;
+        while (entries < maxEntries) {
+            Submission next = queue.poll();
+            if (next == null) {
+                long wait = deadline - System.nanoTime();
+                if (wait <= 0 || (next = queue.poll(wait, TimeUnit.NANOSECONDS)) == null) {
+                    break;
+                }
+            }
+            group.add(next);
+            entries += next.models.size();
+        }
+        return true;
+    }
+
+    private static class Submission {
+        private final List<Pair<Indexable, Persistable>> models;
+        private final long submitted;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+        private Submission(List<Pair<Indexable, Persistable>> models, long submitted) {
+            this.models = models;
+            this.submitted = submitted;
+        }
+    }
+}
@@ -8,4 +8,15 @@ public interface Persistable extends Serializable {
     byte[] metadata();
     void readMetadata(byte[] bytes);
     boolean merge();
+
+    /**
+     * Encodes some fields of the metadata as a patch that is merged into the stored metadata, instead of writing all
+     * of it again. {@link #readMetadata(byte[])} must apply the patches that follow the metadata.
+     *
+     * @param item the fields to write, as passed to {@link PersistenceProvider#update(Persistable, Indexable, String)}
+     * @return the patch, or {@code null} if the whole metadata has to be written
+     */
+    default byte[] metadataPatch(String item) {
+        return null;
+    }
 }
@@ -1,5 +1,6 @@
 package com.iota.iri.storage;
 
+import com.iota.iri.model.Hash;
 import com.iota.iri.utils.Pair;
 
 import java.util.Collection;
@@ -27,6 +28,32 @@ public interface PersistenceProvider {
 
     Persistable get(Class<?> model, Indexable index) throws Exception;
 
+    /**
+     * Loads several objects of a model at once, like {@link #get(Class, Indexable)} does for each of them.
+     *
+     * @param model the model class
+     * @param indexes keys of the objects
+     * @return the objects in the iteration order of {@code indexes}, empty objects for missing keys, or {@code null} if
+     * the provider does not store the model
+     * @throws Exception if the objects could not be loaded
+     */
+    List<Persistable> loadBatch(Class<?> model, Collection<? extends Indexable> indexes) throws Exception;
+
+    /**
+     * Reads the hashes of a {@link com.iota.iri.model.persistables.Hashes} model, like the transactions of an address,
+     * a page at a time, so that a caller can stop before it read all of them.
+     *
+     * @param model the model class
+     * @param index the key of the hashes
+     * @param after the last hash of the previous page, {@code null} for the first page
+     * @param limit the maximal number of hashes of the page, a provider that can only read all hashes at once may
+     *              return all that follow {@code after}
+     * @return the hashes following {@code after}, an empty list after the last page, or {@code null} if the provider
+     * does not store the model. Only a page of exactly {@code limit} hashes can be followed by another one.
+     * @throws Exception if the hashes could not be loaded
+     */
+    List<Hash> loadHashesPage(Class<?> model, Indexable index, Hash after, int limit) throws Exception;
+
     boolean mayExist(Class<?> model, Indexable index) throws Exception;
 
     long count(Class<?> model) throws Exception;
@@ -1,11 +1,13 @@
 package com.iota.iri.storage;
 
+import com.iota.iri.model.Hash;
 import com.iota.iri.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -44,6 +46,47 @@ public class Tangle {
             return out;
     }
 
+    /**
+     * Loads several objects of a model from the first provider that stores the model.
+     *
+     * @param model the model class
+     * @param indexes keys of the objects
+     * @return the objects in the iteration order of {@code indexes}, empty objects for missing keys
+     * @throws Exception if the objects could not be loaded
+     */
+    public List<Persistable> loadBatch(Class<?> model, Collection<? extends Indexable> indexes) throws Exception {
+        List<Persistable> out = null;
+        for (PersistenceProvider provider : this.persistenceProviders) {
+            if ((out = provider.loadBatch(model, indexes)) != null) {
+                break;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Loads a page of the hashes of a {@link com.iota.iri.model.persistables.Hashes} model from the first provider
+     * that stores the model. Pages of a composite index are in the byte order of the hashes. A hash list is read as a
+     * whole, its only page holds all hashes in the order they were added.
+     *
+     * @param model the model class
+     * @param index the key of the hashes
+     * @param after the last hash of the previous page, {@code null} for the first page
+     * @param limit the maximal number of hashes of a page of a composite index
+     * @return the hashes following {@code after}, an empty list after the last page. Only a page of exactly
+     * {@code limit} hashes can be followed by another one.
+     * @throws Exception if the hashes could not be loaded
+     */
+    public List<Hash> loadHashesPage(Class<?> model, Indexable index, Hash after, int limit) throws Exception {
+        List<Hash> out = null;
+        for (PersistenceProvider provider : this.persistenceProviders) {
+            if ((out = provider.loadHashesPage(model, index, after, limit)) != null) {
+                break;
+            }
+        }
+        return out == null ? Collections.emptyList() : out;
+    }
+
     public Boolean saveBatch(List<Pair<Indexable, Persistable>> models) throws Exception {
         boolean exists = false;
         for(PersistenceProvider provider: persistenceProviders) {
@@ -126,6 +126,16 @@ public class ZmqPublishProvider implements PersistenceProvider {
         return null;
     }
 
+    @Override
+    public List<Persistable> loadBatch(Class<?> model, Collection<? extends Indexable> indexes) throws Exception {
+        return null;
+    }
+
+    @Override
+    public List<Hash> loadHashesPage(Class<?> model, Indexable index, Hash after, int limit) throws Exception {
+        return null;
+    }
+
     @Override
     public boolean mayExist(Class<?> model, Indexable index) throws Exception {
         return false;
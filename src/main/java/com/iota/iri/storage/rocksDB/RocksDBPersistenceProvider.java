@@ -4,6 +4,7 @@ import com.iota.iri.model.*;
 import com.iota.iri.model.persistables.Address;
 import com.iota.iri.model.persistables.Approvee;
 import com.iota.iri.model.persistables.Bundle;
+import com.iota.iri.model.persistables.Hashes;
 import com.iota.iri.model.persistables.Milestone;
 import com.iota.iri.model.persistables.ObsoleteTag;
 import com.iota.iri.model.persistables.Tag;
@@ -13,6 +14,7 @@ import com.iota.iri.storage.Persistable;
 import com.iota.iri.storage.PersistenceProvider;
 import com.iota.iri.utils.IotaIOUtils;
 import com.iota.iri.utils.Pair;
+import com.iota.iri.utils.collections.impl.BlockedBloomFilter;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.rocksdb.*;
@@ -29,6 +31,23 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
 
     private static final Logger log = LoggerFactory.getLogger(RocksDBPersistenceProvider.class);
     private static final int BLOOM_FILTER_BITS_PER_KEY = 10;
+    /**
+     * Bits per transaction hash of the in-process existence filter, about 1% false positives.
+     */
+    private static final int EXISTS_FILTER_BITS_PER_KEY = 10;
+    /**
+     * Room for new transactions in the existence filter before it grows, relative to the transactions at startup.
+     */
+    private static final double EXISTS_FILTER_HEADROOM = 1.25;
+    /**
+     * Target of reads that only check whether a key exists, the value is not copied.
+     */
+    private static final byte[] NO_VALUE = new byte[0];
+    /**
+     * Index entries written per batch while the indexes are migrated from one layout to the other.
+     */
+    private static final int MIGRATION_BATCH_SIZE = 10_000;
+    private static final byte HASH_LIST_DELIMITER = ',';
 
     private static final Pair<Indexable, Persistable> PAIR_OF_NULLS = new Pair<>(null, null);
 
@@ -44,6 +63,16 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
             "obsoleteTag",
             "tag"
     );
+    /**
+     * Only created with the composite index layout, releases before it cannot open a database which has them.
+     */
+    private final List<String> compositeIndexColumnFamilyNames = Arrays.asList(
+            "address-index",
+            "approvee-index",
+            "bundle-index",
+            "obsoleteTag-index",
+            "tag-index"
+    );
 
     private final List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>();
     private final SecureRandom seed = new SecureRandom();
@@ -51,6 +80,8 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
     private final String dbPath;
     private final String logPath;
     private final int cacheSize;
+    private final boolean existsFilterEnabled;
+    private final boolean compositeIndexEnabled;
 
     private ColumnFamilyHandle transactionHandle;
     private ColumnFamilyHandle transactionMetadataHandle;
@@ -61,20 +92,58 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
     private ColumnFamilyHandle bundleHandle;
     private ColumnFamilyHandle obsoleteTagHandle;
     private ColumnFamilyHandle tagHandle;
+    private ColumnFamilyHandle addressIndexHandle;
+    private ColumnFamilyHandle approveeIndexHandle;
+    private ColumnFamilyHandle bundleIndexHandle;
+    private ColumnFamilyHandle obsoleteTagIndexHandle;
+    private ColumnFamilyHandle tagIndexHandle;
 
     private Map<Class<?>, ColumnFamilyHandle> classTreeMap;
     private Map<Class<?>, ColumnFamilyHandle> metadataReference;
+    /**
+     * The column families of the composite index layout by model. Their keys are the key of the model followed by
+     * a transaction hash, their values are empty.
+     */
+    private Map<Class<?>, ColumnFamilyHandle> compositeIndexReference;
 
     private RocksDB db;
     // DBOptions is only used in initDB(). However, it is closeable - so we keep a reference for shutdown.
     private DBOptions options = new DBOptions();
     private BloomFilter bloomFilter;
+    /**
+     * The hashes of all stored transactions, {@code null} if existence checks go to the database only.
+     */
+    private volatile BlockedBloomFilter transactionFilter;
     private boolean available;
 
     public RocksDBPersistenceProvider(String dbPath, String logPath, int cacheSize) {
+        this(dbPath, logPath, cacheSize, false);
+    }
+
+    /**
+     * @param existsFilterEnabled true to answer most existence checks of missing transactions from an in-process
+     *                            Bloom filter, which is built from all stored transactions at startup
+     */
+    public RocksDBPersistenceProvider(String dbPath, String logPath, int cacheSize, boolean existsFilterEnabled) {
+        this(dbPath, logPath, cacheSize, existsFilterEnabled, false);
+    }
+
+    /**
+     * @param existsFilterEnabled true to answer most existence checks of missing transactions from an in-process
+     *                            Bloom filter, which is built from all stored transactions at startup
+     * @param compositeIndexEnabled true to store the {@link Hashes} models, like {@link Address}, as one entry per
+     *                              transaction hash instead of one list per key. The indexes stored in the other
+     *                              layout are migrated at startup. Switching it on adds column families which older
+     *                              releases cannot open, a start with it switched off migrates the indexes back and
+     *                              drops them again.
+     */
+    public RocksDBPersistenceProvider(String dbPath, String logPath, int cacheSize, boolean existsFilterEnabled,
+                                      boolean compositeIndexEnabled) {
         this.dbPath = dbPath;
         this.logPath = logPath;
         this.cacheSize = cacheSize;
+        this.existsFilterEnabled = existsFilterEnabled;
+        this.compositeIndexEnabled = compositeIndexEnabled;
     }
 
     public class DbException extends Exception {
@@ -88,6 +157,17 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         log.info("Initializing Database Backend... ");
         initDB(dbPath, logPath);
         initClassTreeMap();
+        if (db != null) {
+            try {
+                migrateIndexes();
+            } catch (RocksDBException e) {
+                log.error("Could not migrate the indexes", e);
+                throw new IllegalStateException("the indexes are stored in both layouts", e);
+            }
+        }
+        if (existsFilterEnabled && db != null) {
+            initTransactionFilter();
+        }
         available = true;
         log.info("RocksDB persistence provider initialized.");
     }
@@ -112,6 +192,251 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         Map<Class<?>, ColumnFamilyHandle> metadataHashMap = new HashMap<>();
         metadataHashMap.put(Transaction.class, transactionMetadataHandle);
         metadataReference = metadataHashMap;
+
+        Map<Class<?>, ColumnFamilyHandle> compositeIndexMap = new LinkedHashMap<>();
+        if (addressIndexHandle != null) {
+            compositeIndexMap.put(Address.class, addressIndexHandle);
+            compositeIndexMap.put(Approvee.class, approveeIndexHandle);
+            compositeIndexMap.put(Bundle.class, bundleIndexHandle);
+            compositeIndexMap.put(ObsoleteTag.class, obsoleteTagIndexHandle);
+            compositeIndexMap.put(Tag.class, tagIndexHandle);
+        }
+        compositeIndexReference = compositeIndexMap;
+    }
+
+    /**
+     * @return the column family of the composite index of a model, {@code null} if the model is not stored in the
+     * composite layout
+     */
+    private ColumnFamilyHandle compositeIndexOf(Class<?> model) {
+        return compositeIndexEnabled ? compositeIndexReference.get(model) : null;
+    }
+
+    /**
+     * Moves the index entries stored in the other layout to the configured one, so the layout can be switched
+     * between two starts. Every write deletes what it moved from the old layout, so a migration that was interrupted
+     * continues at the next start. Once the indexes are back in hash lists, the column families of the composite
+     * layout are dropped, so that older releases can open the database again.
+     */
+    private void migrateIndexes() throws RocksDBException {
+        for (Map.Entry<Class<?>, ColumnFamilyHandle> entry : compositeIndexReference.entrySet()) {
+            long start = System.currentTimeMillis();
+            ColumnFamilyHandle listHandle = classTreeMap.get(entry.getKey());
+            long keys = compositeIndexEnabled
+                    ? migrateToCompositeIndex(listHandle, entry.getValue())
+                    : migrateToHashLists(entry.getValue(), listHandle);
+            if (keys > 0) {
+                log.info("Migrated {} {} keys to the {} layout in {} ms", keys, entry.getKey().getSimpleName(),
+                        compositeIndexEnabled ? "composite index" : "hash list", System.currentTimeMillis() - start);
+            }
+        }
+        if (!compositeIndexEnabled && !compositeIndexReference.isEmpty()) {
+            dropCompositeIndexes();
+        }
+    }
+
+    private void dropCompositeIndexes() throws RocksDBException {
+        for (ColumnFamilyHandle indexHandle : compositeIndexReference.values()) {
+            db.dropColumnFamily(indexHandle);
+            columnFamilyHandles.remove(indexHandle);
+            IotaIOUtils.closeQuietly(indexHandle);
+        }
+        compositeIndexReference = new LinkedHashMap<>();
+        addressIndexHandle = null;
+        approveeIndexHandle = null;
+        bundleIndexHandle = null;
+        obsoleteTagIndexHandle = null;
+        tagIndexHandle = null;
+        log.info("Dropped the column families of the composite index layout");
+    }
+
+    private long migrateToCompositeIndex(ColumnFamilyHandle listHandle, ColumnFamilyHandle indexHandle)
+            throws RocksDBException {
+        long keys = 0;
+        try (RocksIterator iterator = db.newIterator(listHandle);
+             WriteBatch writeBatch = new WriteBatch();
+             WriteOptions writeOptions = new WriteOptions()) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                byte[] key = iterator.key();
+                byte[] list = iterator.value();
+                for (int i = 0; i < list.length; i += 1 + Hash.SIZE_IN_BYTES) {
+                    writeBatch.put(indexHandle, compositeKey(key, list, i), NO_VALUE);
+                    if (writeBatch.count() >= MIGRATION_BATCH_SIZE) {
+                        // the list is deleted with its last entries, writing an entry twice does no harm
+                        db.write(writeOptions, writeBatch);
+                        writeBatch.clear();
+                    }
+                }
+                writeBatch.remove(listHandle, key);
+                keys++;
+            }
+            db.write(writeOptions, writeBatch);
+        }
+        if (keys > 0) {
+            db.compactRange(listHandle);
+        }
+        return keys;
+    }
+
+    private long migrateToHashLists(ColumnFamilyHandle indexHandle, ColumnFamilyHandle listHandle)
+            throws RocksDBException {
+        long keys = 0;
+        try (RocksIterator iterator = db.newIterator(indexHandle);
+             WriteBatch writeBatch = new WriteBatch();
+             WriteOptions writeOptions = new WriteOptions()) {
+            byte[] key = null;
+            List<byte[]> hashes = new ArrayList<>();
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                byte[] entry = iterator.key();
+                if (key == null || !keyStartsWithValue(key, entry)) {
+                    mergeHashList(writeBatch, listHandle, key, hashes);
+                    key = Arrays.copyOf(entry, entry.length - Hash.SIZE_IN_BYTES);
+                    keys++;
+                }
+                hashes.add(Arrays.copyOfRange(entry, key.length, entry.length));
+                writeBatch.remove(indexHandle, entry);
+                if (writeBatch.count() >= MIGRATION_BATCH_SIZE) {
+                    // the merge operator appends the hashes of the next write to this list
+                    mergeHashList(writeBatch, listHandle, key, hashes);
+                    db.write(writeOptions, writeBatch);
+                    writeBatch.clear();
+                }
+            }
+            mergeHashList(writeBatch, listHandle, key, hashes);
+            db.write(writeOptions, writeBatch);
+        }
+        if (keys > 0) {
+            db.compactRange(indexHandle);
+        }
+        return keys;
+    }
+
+    private static void mergeHashList(WriteBatch writeBatch, ColumnFamilyHandle listHandle, byte[] key,
+                                      List<byte[]> hashes) {
+        if (hashes.isEmpty()) {
+            return;
+        }
+        byte[] list = new byte[hashes.size() * (1 + Hash.SIZE_IN_BYTES) - 1];
+        for (int i = 0; i < hashes.size(); i++) {
+            int offset = i * (1 + Hash.SIZE_IN_BYTES);
+            if (i > 0) {
+                list[offset - 1] = HASH_LIST_DELIMITER;
+            }
+            System.arraycopy(hashes.get(i), 0, list, offset, Hash.SIZE_IN_BYTES);
+        }
+        writeBatch.merge(listHandle, key, list);
+        hashes.clear();
+    }
+
+    private static byte[] compositeKey(byte[] key, byte[] hash, int offset) {
+        byte[] compositeKey = Arrays.copyOf(key, key.length + Hash.SIZE_IN_BYTES);
+        System.arraycopy(hash, offset, compositeKey, key.length, Hash.SIZE_IN_BYTES);
+        return compositeKey;
+    }
+
+    /**
+     * @return the smallest key greater than all composite keys starting with {@code key}, {@code null} if there is
+     * none
+     */
+    private static byte[] successor(byte[] key) {
+        byte[] successor = key.clone();
+        for (int i = successor.length - 1; i >= 0; i--) {
+            if (++successor[i] != 0) {
+                return successor;
+            }
+        }
+        return null;
+    }
+
+    private Persistable readCompositeIndex(Class<?> model, ColumnFamilyHandle indexHandle, byte[] key)
+            throws Exception {
+        Hashes hashes = (Hashes) model.newInstance();
+        if (key.length == 0) {
+            return hashes;
+        }
+        try (RocksIterator iterator = db.newIterator(indexHandle)) {
+            byte[] entry;
+            for (iterator.seek(key); iterator.isValid() && keyStartsWithValue(key, entry = iterator.key());
+                 iterator.next()) {
+                hashes.getSet().add(HashFactory.TRANSACTION.create(entry, key.length, Hash.SIZE_IN_BYTES));
+            }
+        }
+        return hashes;
+    }
+
+    private boolean compositeIndexExists(ColumnFamilyHandle indexHandle, byte[] key) {
+        try (RocksIterator iterator = db.newIterator(indexHandle)) {
+            iterator.seek(key);
+            return iterator.isValid() && keyStartsWithValue(key, iterator.key());
+        }
+    }
+
+    private void putCompositeIndex(WriteBatch writeBatch, ColumnFamilyHandle indexHandle, byte[] key,
+                                   Persistable hashes) {
+        for (Hash hash : ((Hashes) hashes).getSet()) {
+            writeBatch.put(indexHandle, compositeKey(key, hash.bytes(), 0), NO_VALUE);
+        }
+    }
+
+    private void removeCompositeIndex(WriteBatch writeBatch, ColumnFamilyHandle indexHandle, byte[] key) {
+        try (RocksIterator iterator = db.newIterator(indexHandle)) {
+            byte[] entry;
+            for (iterator.seek(key); iterator.isValid() && keyStartsWithValue(key, entry = iterator.key());
+                 iterator.next()) {
+                writeBatch.remove(indexHandle, entry);
+            }
+        }
+    }
+
+    /**
+     * Reads the key and the hashes of the composite index the iterator points to.
+     */
+    private Pair<Indexable, Persistable> compositeIndexAt(Class<?> model, ColumnFamilyHandle indexHandle,
+                                                          RocksIterator iterator) throws Exception {
+        if (!iterator.isValid()) {
+            return PAIR_OF_NULLS;
+        }
+        byte[] entry = iterator.key();
+        byte[] key = Arrays.copyOf(entry, entry.length - Hash.SIZE_IN_BYTES);
+        return new Pair<>(HashFactory.GENERIC.create(model, key), readCompositeIndex(model, indexHandle, key));
+    }
+
+    /**
+     * Adds the hashes of all stored transactions to a new existence filter. Deleted transactions leave their bits set
+     * until the filter is built again at the next start, they only cost a database read when they are looked up.
+     */
+    private void initTransactionFilter() {
+        long start = System.currentTimeMillis();
+        long stored = 0;
+        try {
+            stored = getCountEstimate(Transaction.class);
+        } catch (RocksDBException e) {
+            log.warn("Could not estimate the number of transactions", e);
+        }
+        BlockedBloomFilter filter = new BlockedBloomFilter((long) (stored * EXISTS_FILTER_HEADROOM),
+                EXISTS_FILTER_BITS_PER_KEY);
+        try (RocksIterator iterator = db.newIterator(transactionHandle)) {
+            for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                filter.put(iterator.key());
+            }
+        }
+        transactionFilter = filter;
+        log.info("Built the transaction existence filter of {} transactions ({} KB) in {} ms", filter.size(),
+                filter.getSizeInBytes() / 1024, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return the existence filter of a model, {@code null} if it has none
+     */
+    private BlockedBloomFilter filterOf(Class<?> model) {
+        return model == Transaction.class ? transactionFilter : null;
+    }
+
+    /**
+     * @return the existence filter of transactions, {@code null} if it is disabled
+     */
+    public BlockedBloomFilter getTransactionFilter() {
+        return transactionFilter;
     }
 
     @Override
@@ -124,7 +449,21 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
 
     @Override
     public boolean save(Persistable thing, Indexable index) throws Exception {
+        ColumnFamilyHandle indexHandle = compositeIndexOf(thing.getClass());
+        if (indexHandle != null) {
+            try (WriteBatch writeBatch = new WriteBatch();
+                 WriteOptions writeOptions = new WriteOptions()) {
+                putCompositeIndex(writeBatch, indexHandle, index.bytes(), thing);
+                db.write(writeOptions, writeBatch);
+            }
+            return true;
+        }
         ColumnFamilyHandle handle = classTreeMap.get(thing.getClass());
+        BlockedBloomFilter filter = filterOf(thing.getClass());
+        if (filter != null) {
+            // before the write, so that the filter never misses a stored key
+            filter.put(index.bytes());
+        }
         db.put(handle, index.bytes(), thing.bytes());
 
         ColumnFamilyHandle referenceHandle = metadataReference.get(thing.getClass());
@@ -136,27 +475,73 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
 
     @Override
     public void delete(Class<?> model, Indexable index) throws Exception {
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        if (indexHandle != null) {
+            try (WriteBatch writeBatch = new WriteBatch();
+                 WriteOptions writeOptions = new WriteOptions()) {
+                removeCompositeIndex(writeBatch, indexHandle, index.bytes());
+                db.write(writeOptions, writeBatch);
+            }
+            return;
+        }
         db.delete(classTreeMap.get(model), index.bytes());
+        BlockedBloomFilter filter = filterOf(model);
+        if (filter != null) {
+            filter.recordRemoval();
+        }
     }
 
+    /**
+     * Checks the existence filter, if any, then whether RocksDB can rule the key out without reading from disk, and
+     * only then reads the key without copying its value.
+     */
     @Override
     public boolean exists(Class<?> model, Indexable key) throws Exception {
         ColumnFamilyHandle handle = classTreeMap.get(model);
-        return handle != null && db.get(handle, key.bytes()) != null;
+        if (handle == null) {
+            return false;
+        }
+        byte[] keyBytes = key.bytes();
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        if (indexHandle != null) {
+            return compositeIndexExists(indexHandle, keyBytes);
+        }
+        BlockedBloomFilter filter = filterOf(model);
+        if (filter != null && !filter.mightContain(keyBytes)) {
+            return false;
+        }
+        return db.keyMayExist(handle, keyBytes, new StringBuilder())
+                && db.get(handle, keyBytes, NO_VALUE) != RocksDB.NOT_FOUND;
     }
 
     @Override
     public Set<Indexable> keysWithMissingReferences(Class<?> model, Class<?> other) throws Exception {
-        ColumnFamilyHandle handle = classTreeMap.get(model);
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        ColumnFamilyHandle handle = indexHandle != null ? indexHandle : classTreeMap.get(model);
         ColumnFamilyHandle otherHandle = classTreeMap.get(other);
 
         try (RocksIterator iterator = db.newIterator(handle)) {
             Set<Indexable> indexables = null;
 
+            byte[] key;
             for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
-                if (db.get(otherHandle, iterator.key()) == null) {
+                key = iterator.key();
+                if (indexHandle != null) {
+                    key = Arrays.copyOf(key, key.length - Hash.SIZE_IN_BYTES);
+                    // the other entries of this key follow, skip them
+                    byte[] next = successor(key);
+                    if (next != null) {
+                        iterator.seek(next);
+                    }
+                    if (next == null || !iterator.isValid()) {
+                        iterator.seekToLast();
+                    } else {
+                        iterator.prev();
+                    }
+                }
+                if (db.get(otherHandle, key) == null) {
                     indexables = indexables == null ? new HashSet<>() : indexables;
-                    indexables.add(HashFactory.GENERIC.create(model, iterator.key()));
+                    indexables.add(HashFactory.GENERIC.create(model, key));
                 }
             }
             return indexables == null ? Collections.emptySet() : Collections.unmodifiableSet(indexables);
@@ -165,6 +550,10 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
 
     @Override
     public Persistable get(Class<?> model, Indexable index) throws Exception {
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        if (indexHandle != null) {
+            return readCompositeIndex(model, indexHandle, index == null ? new byte[0] : index.bytes());
+        }
         Persistable object = (Persistable) model.newInstance();
         object.read(db.get(classTreeMap.get(model), index == null ? new byte[0] : index.bytes()));
 
@@ -175,9 +564,102 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         return object;
     }
 
+    /**
+     * Reads the objects and, for models with metadata, their metadata with a single {@code multiGet} over both column
+     * families.
+     */
+    @Override
+    public List<Persistable> loadBatch(Class<?> model, Collection<? extends Indexable> indexes) throws Exception {
+        if (compositeIndexOf(model) != null) {
+            List<Persistable> objects = new ArrayList<>(indexes.size());
+            for (Indexable index : indexes) {
+                objects.add(get(model, index));
+            }
+            return objects;
+        }
+        ColumnFamilyHandle handle = classTreeMap.get(model);
+        ColumnFamilyHandle referenceHandle = metadataReference.get(model);
+        int columns = referenceHandle == null ? 1 : 2;
+        List<ColumnFamilyHandle> handles = new ArrayList<>(columns * indexes.size());
+        List<byte[]> keys = new ArrayList<>(columns * indexes.size());
+        for (Indexable index : indexes) {
+            byte[] key = index == null ? new byte[0] : index.bytes();
+            handles.add(handle);
+            keys.add(key);
+            if (referenceHandle != null) {
+                // the values are mapped by key identity, so the metadata needs its own key instance
+                handles.add(referenceHandle);
+                keys.add(key.clone());
+            }
+        }
+        Map<byte[], byte[]> values = keys.isEmpty() ? Collections.emptyMap() : db.multiGet(handles, keys);
+
+        List<Persistable> objects = new ArrayList<>(indexes.size());
+        for (int i = 0; i < keys.size(); i += columns) {
+            Persistable object = (Persistable) model.newInstance();
+            object.read(values.get(keys.get(i)));
+            if (referenceHandle != null) {
+                object.readMetadata(values.get(keys.get(i + 1)));
+            }
+            objects.add(object);
+        }
+        return objects;
+    }
+
+    /**
+     * Seeks to the entry after {@code after} in a composite index and reads the following ones. A hash list is read
+     * as a whole, so all of its hashes after {@code after} are returned at once instead of reading it again for every
+     * page.
+     */
+    @Override
+    public List<Hash> loadHashesPage(Class<?> model, Indexable index, Hash after, int limit) throws Exception {
+        if (!Hashes.class.isAssignableFrom(model) || !classTreeMap.containsKey(model)) {
+            return null;
+        }
+        List<Hash> page = new ArrayList<>();
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        if (indexHandle == null) {
+            boolean found = after == null;
+            for (Hash hash : ((Hashes) get(model, index)).getSet()) {
+                if (found) {
+                    page.add(hash);
+                } else {
+                    found = Arrays.equals(hash.bytes(), after.bytes());
+                }
+            }
+            return page;
+        }
+        byte[] key = index.bytes();
+        try (RocksIterator iterator = db.newIterator(indexHandle)) {
+            if (after == null) {
+                iterator.seek(key);
+            } else {
+                byte[] start = compositeKey(key, after.bytes(), 0);
+                iterator.seek(start);
+                if (iterator.isValid() && Arrays.equals(start, iterator.key())) {
+                    iterator.next();
+                }
+            }
+            byte[] entry;
+            while (page.size() < limit && iterator.isValid() && keyStartsWithValue(key, entry = iterator.key())) {
+                page.add(HashFactory.TRANSACTION.create(entry, key.length, Hash.SIZE_IN_BYTES));
+                iterator.next();
+            }
+        }
+        return page;
+    }
+
     @Override
     public boolean mayExist(Class<?> model, Indexable index) {
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        if (indexHandle != null) {
+            return compositeIndexExists(indexHandle, index.bytes());
+        }
         ColumnFamilyHandle handle = classTreeMap.get(model);
+        BlockedBloomFilter filter = filterOf(model);
+        if (filter != null && !filter.mightContain(index.bytes())) {
+            return false;
+        }
         return db.keyMayExist(handle, index.bytes(), new StringBuilder());
     }
 
@@ -186,15 +668,20 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         return getCountEstimate(model);
     }
 
+    /**
+     * @return the estimated number of keys, for a composite index the number of hashes of all keys
+     */
     private long getCountEstimate(Class<?> model) throws RocksDBException {
-        ColumnFamilyHandle handle = classTreeMap.get(model);
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        ColumnFamilyHandle handle = indexHandle != null ? indexHandle : classTreeMap.get(model);
         return db.getLongProperty(handle, "rocksdb.estimate-num-keys");
     }
 
     @Override
     public Set<Indexable> keysStartingWith(Class<?> modelClass, byte[] value) {
         Objects.requireNonNull(value, "value byte[] cannot be null");
-        ColumnFamilyHandle handle = classTreeMap.get(modelClass);
+        ColumnFamilyHandle indexHandle = compositeIndexOf(modelClass);
+        ColumnFamilyHandle handle = indexHandle != null ? indexHandle : classTreeMap.get(modelClass);
         Set<Indexable> keys = null;
         if (handle != null) {
             try (RocksIterator iterator = db.newIterator(handle)) {
@@ -203,6 +690,9 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
                 byte[] found;
                 while (iterator.isValid() && keyStartsWithValue(value, found = iterator.key())) {
                     keys = keys == null ? new HashSet<>() : keys;
+                    if (indexHandle != null) {
+                        found = Arrays.copyOf(found, found.length - Hash.SIZE_IN_BYTES);
+                    }
                     keys.add(HashFactory.GENERIC.create(modelClass, found));
                     iterator.next();
                 }
@@ -262,6 +752,17 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
 
     @Override
     public Pair<Indexable, Persistable> next(Class<?> model, Indexable index) throws Exception {
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        if (indexHandle != null) {
+            byte[] next = successor(index.bytes());
+            if (next == null) {
+                return PAIR_OF_NULLS;
+            }
+            try (RocksIterator iterator = db.newIterator(indexHandle)) {
+                iterator.seek(next);
+                return compositeIndexAt(model, indexHandle, iterator);
+            }
+        }
         try (RocksIterator iterator = db.newIterator(classTreeMap.get(model))) {
             iterator.seek(index.bytes());
             iterator.next();
@@ -271,6 +772,18 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
 
     @Override
     public Pair<Indexable, Persistable> previous(Class<?> model, Indexable index) throws Exception {
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        if (indexHandle != null) {
+            try (RocksIterator iterator = db.newIterator(indexHandle)) {
+                iterator.seek(index.bytes());
+                if (iterator.isValid()) {
+                    iterator.prev();
+                } else {
+                    iterator.seekToLast();
+                }
+                return compositeIndexAt(model, indexHandle, iterator);
+            }
+        }
         try (RocksIterator iterator = db.newIterator(classTreeMap.get(model))) {
             iterator.seek(index.bytes());
             iterator.prev();
@@ -281,6 +794,13 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
     @SuppressWarnings("unchecked")
     @Override
     public Pair<Indexable, Persistable> latest(Class<?> model, Class<?> indexModel) throws Exception {
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        if (indexHandle != null) {
+            try (RocksIterator iterator = db.newIterator(indexHandle)) {
+                iterator.seekToLast();
+                return compositeIndexAt(model, indexHandle, iterator);
+            }
+        }
         try (RocksIterator iterator = db.newIterator(classTreeMap.get(model))) {
             iterator.seekToLast();
             return modelAndIndex(model, (Class<Indexable>) indexModel, iterator);
@@ -290,6 +810,13 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
     @SuppressWarnings("unchecked")
     @Override
     public Pair<Indexable, Persistable> first(Class<?> model, Class<?> index) throws Exception {
+        ColumnFamilyHandle indexHandle = compositeIndexOf(model);
+        if (indexHandle != null) {
+            try (RocksIterator iterator = db.newIterator(indexHandle)) {
+                iterator.seekToFirst();
+                return compositeIndexAt(model, indexHandle, iterator);
+            }
+        }
         try (RocksIterator iterator = db.newIterator(classTreeMap.get(model))) {
             iterator.seekToFirst();
             return modelAndIndex(model, (Class<Indexable>) index, iterator);
@@ -306,8 +833,18 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
                 Indexable key = entry.low;
                 Persistable value = entry.hi;
 
+                ColumnFamilyHandle indexHandle = compositeIndexOf(value.getClass());
+                if (indexHandle != null) {
+                    putCompositeIndex(writeBatch, indexHandle, key.bytes(), value);
+                    continue;
+                }
                 ColumnFamilyHandle handle = classTreeMap.get(value.getClass());
                 ColumnFamilyHandle referenceHandle = metadataReference.get(value.getClass());
+                BlockedBloomFilter filter = filterOf(value.getClass());
+                if (filter != null) {
+                    // before the write, so that the filter never misses a stored key
+                    filter.put(key.bytes());
+                }
 
                 if (value.merge()) {
                     writeBatch.merge(handle, key.bytes(), value.bytes());
@@ -332,12 +869,21 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
                 models.forEach(entry -> {
                     Indexable indexable = entry.low;
                     byte[] keyBytes = indexable.bytes();
+                    ColumnFamilyHandle indexHandle = compositeIndexOf(entry.hi);
+                    if (indexHandle != null) {
+                        removeCompositeIndex(writeBatch, indexHandle, keyBytes);
+                        return;
+                    }
                     ColumnFamilyHandle handle = classTreeMap.get(entry.hi);
                     writeBatch.remove(handle, keyBytes);
                     ColumnFamilyHandle metadataHandle = metadataReference.get(entry.hi);
                     if (metadataHandle != null) {
                         writeBatch.remove(metadataHandle, keyBytes);
                     }
+                    BlockedBloomFilter filter = filterOf(entry.hi);
+                    if (filter != null) {
+                        filter.recordRemoval();
+                    }
                 });
                         //We are explicit about what happens if the node reboots before a flush to the db
                         writeOptions.setDisableWAL(false)
@@ -351,7 +897,14 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
     @Override
     public void clear(Class<?> column) throws Exception {
         log.info("Deleting: {} entries", column.getSimpleName());
+        if (filterOf(column) != null) {
+            // keys saved from now on survive the flush, so they have to be in the new filter
+            transactionFilter = new BlockedBloomFilter(0, EXISTS_FILTER_BITS_PER_KEY);
+        }
         flushHandle(classTreeMap.get(column));
+        if (compositeIndexOf(column) != null) {
+            flushHandle(compositeIndexOf(column));
+        }
     }
 
     @Override
@@ -386,7 +939,13 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
     public boolean update(Persistable thing, Indexable index, String item) throws Exception {
         ColumnFamilyHandle referenceHandle = metadataReference.get(thing.getClass());
         if (referenceHandle != null) {
-            db.put(referenceHandle, index.bytes(), thing.metadata());
+            byte[] patch = thing.metadataPatch(item);
+            if (patch != null) {
+                // appended by the merge operator, no other field is read or written again
+                db.merge(referenceHandle, index.bytes(), patch);
+            } else {
+                db.put(referenceHandle, index.bytes(), thing.metadata());
+            }
         }
         return false;
     }
@@ -449,8 +1008,13 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
 
             options.setAllowConcurrentMemtableWrite(true);
 
+            List<String> names = new ArrayList<>(columnFamilyNames);
+            if (compositeIndexEnabled || hasCompositeIndexColumnFamilies(path)) {
+                // the indexes are migrated to the configured layout after opening
+                names.addAll(compositeIndexColumnFamilyNames);
+            }
             List<ColumnFamilyDescriptor> columnFamilyDescriptors = new ArrayList<>();
-            for (String name : columnFamilyNames) {
+            for (String name : names) {
                 columnFamilyDescriptors.add(new ColumnFamilyDescriptor(name.getBytes(), columnFamilyOptions));
             }
 
@@ -465,6 +1029,22 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         }
     }
 
+    /**
+     * @return true if the database at the path has a column family of the composite index layout
+     */
+    private boolean hasCompositeIndexColumnFamilies(String path) {
+        try (Options listOptions = new Options()) {
+            for (byte[] name : RocksDB.listColumnFamilies(listOptions, path)) {
+                if (compositeIndexColumnFamilyNames.contains(new String(name))) {
+                    return true;
+                }
+            }
+        } catch (RocksDBException e) {
+            // there is no database yet
+        }
+        return false;
+    }
+
     private void nestedTry() {
         try {
             RocksDB.loadLibrary();
@@ -489,6 +1069,13 @@ public class RocksDBPersistenceProvider implements PersistenceProvider {
         bundleHandle = columnFamilyHandles.get(++i);
         obsoleteTagHandle = columnFamilyHandles.get(++i);
         tagHandle = columnFamilyHandles.get(++i);
+        if (i + compositeIndexColumnFamilyNames.size() < columnFamilyHandles.size()) {
+            addressIndexHandle = columnFamilyHandles.get(++i);
+            approveeIndexHandle = columnFamilyHandles.get(++i);
+            bundleIndexHandle = columnFamilyHandles.get(++i);
+            obsoleteTagIndexHandle = columnFamilyHandles.get(++i);
+            tagIndexHandle = columnFamilyHandles.get(++i);
+        }
 
         while (++i < columnFamilyHandles.size()) {
             db.dropColumnFamily(columnFamilyHandles.get(i));
@@ -0,0 +1,112 @@
+package com.iota.iri.utils;
+
+import java.lang.reflect.Constructor;
+import java.util.zip.Checksum;
+
+/**
+ * The CRC-32C (Castagnoli) checksum.
+ * <p>
+ * Java 9 ships it as {@code java.util.zip.CRC32C}, which uses the CRC32 instructions of the CPU. The node is built for
+ * Java 8, so {@link #create()} looks the class up at runtime and falls back to this table driven implementation, which
+ * processes eight bytes per step and gives the same values.
+ * </p>
+ */
+public final class Crc32c implements Checksum {
+
+    /**
+     * The reversed Castagnoli polynomial.
+     */
+    private static final int POLYNOMIAL = 0x82F63B78;
+
+    private static final int[][] TABLES = new int[8][256];
+
+    private static final Constructor<? extends Checksum> INTRINSIC = intrinsic();
+
+    static {
+        for (int n = 0; n < 256; n++) {
+            int crc = n;
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            }
+            TABLES[0][n] = crc;
+        }
+        for (int n = 0; n < 256; n++) {
+            int crc = TABLES[0][n];
+            for (int t = 1; t < 8; t++) {
+                crc = TABLES[0][crc & 0xff] ^ (crc >>> 8);
+                TABLES[t][n] = crc;
+            }
+        }
+    }
+
+    private int crc = 0xFFFFFFFF;
+
+    /**
+     * @return the JDK implementation if the runtime has one, otherwise a new {@link Crc32c}
+     */
+    public static Checksum create() {
+        if (INTRINSIC != null) {
+            try {
+                return INTRINSIC.newInstance();
+            } catch (ReflectiveOperationException e) {
+                // fall through
+            }
+        }
+        return new Crc32c();
+    }
+
+    /**
+     * @return true if {@link #create()} returns the JDK implementation
+     */
+    public static boolean isIntrinsic() {
+        return INTRINSIC != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Constructor<? extends Checksum> intrinsic() {
+        try {
+            return (Constructor<? extends Checksum>) Class.forName("java.util.zip.CRC32C").getConstructor();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void update(int b) {
+        crc = TABLES[0][(crc ^ b) & 0xff] ^ (crc >>> 8);
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int value = crc;
+        int end = off + len;
+        for (; off + 8 <= end; off += 8) {
+            int low = value ^ ((b[off] & 0xff) | (b[off + 1] & 0xff) << 8 | (b[off + 2] & 0xff) << 16
+                    | (b[off + 3] & 0xff) << 24);
+            value = TABLES[7][low & 0xff] ^ TABLES[6][(low >>> 8) & 0xff] ^ TABLES[5][(low >>> 16) & 0xff]
+                    ^ TABLES[4][low >>> 24] ^ TABLES[3][b[off + 4] & 0xff] ^ TABLES[2][b[off + 5] & 0xff]
+                    ^ TABLES[1][b[off + 6] & 0xff] ^ TABLES[0][b[off + 7] & 0xff];
+        }
+        for (; off < end; off++) {
+            value = TABLES[0][(value ^ b[off]) & 0xff] ^ (value >>> 8);
+        }
+        crc = value;
+    }
+
+    /**
+     * Updates the checksum with all bytes of an array.
+     */
+    public void update(byte[] b) {
+        update(b, 0, b.length);
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+}
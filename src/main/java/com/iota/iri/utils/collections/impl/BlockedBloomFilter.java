@@ -0,0 +1,207 @@
+package com.iota.iri.utils.collections.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread safe Bloom filter over byte array keys, made of blocks of 512 bits.
+ * <p>
+ * All bits of a key are set in a single block, so a lookup touches one cache line instead of one per hash function.
+ * This costs a slightly higher false positive rate than a classic Bloom filter with the same number of bits.
+ * </p>
+ * <p>
+ * The filter grows without a rebuild: when the keys added exceed the capacity of the newest segment, a segment of
+ * twice the capacity is added. New keys go into the newest segment, a lookup checks all of them. The false positive
+ * rate therefore stays below the sum of the rates of the segments.
+ * </p>
+ * <p>
+ * Keys cannot be removed. {@link #recordRemoval()} only counts them, so the owner can rebuild the filter when too many
+ * of its keys are gone.
+ * </p>
+ */
+public class BlockedBloomFilter {
+
+    private static final int BLOCK_BITS = 512;
+    private static final int LONGS_PER_BLOCK = BLOCK_BITS / Long.SIZE;
+
+    private final int bitsPerKey;
+    private final int hashes;
+    private final List<Segment> segments = new ArrayList<>();
+    private volatile Segment[] lookup;
+    private final LongAdder removals = new LongAdder();
+
+    /**
+     * @param expectedKeys the number of keys the first segment holds, the filter grows beyond it
+     * @param bitsPerKey bits per key, 10 give about 1% false positives
+     */
+    public BlockedBloomFilter(long expectedKeys, int bitsPerKey) {
+        if (bitsPerKey < 1) {
+            throw new IllegalArgumentException("bitsPerKey must be positive");
+        }
+        this.bitsPerKey = bitsPerKey;
+        this.hashes = Math.max(1, (int) Math.round(bitsPerKey * Math.log(2)));
+        Segment first = new Segment(Math.max(1024, expectedKeys), bitsPerKey);
+        segments.add(first);
+        lookup = new Segment[]{first};
+    }
+
+    /**
+     * Adds a key. The key is visible to {@link #mightContain(byte[])} of all threads once this method returned.
+     *
+     * @param key the key
+     */
+    public void put(byte[] key) {
+        long hash = hash(key);
+        Segment[] current = lookup;
+        Segment newest = current[current.length - 1];
+        if (newest.count.sum() >= newest.capacity) {
+            newest = grow(newest);
+        }
+        newest.put(hash, hashes);
+        newest.count.increment();
+    }
+
+    /**
+     * @param key the key
+     * @return false if the key was never added, true if it probably was
+     */
+    public boolean mightContain(byte[] key) {
+        long hash = hash(key);
+        for (Segment segment : lookup) {
+            if (segment.mightContain(hash, hashes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts a key that was removed from the underlying set. Its bits stay set.
+     */
+    public void recordRemoval() {
+        removals.increment();
+    }
+
+    /**
+     * @return the number of keys added, including those removed since
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : lookup) {
+            size += segment.count.sum();
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of removals recorded
+     */
+    public long getRemovals() {
+        return removals.sum();
+    }
+
+    /**
+     * @return the memory taken by the bits of all segments in bytes
+     */
+    public long getSizeInBytes() {
+        long bytes = 0;
+        for (Segment segment : lookup) {
+            bytes += (long) segment.bits.length() * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    public int getSegmentCount() {
+        return lookup.length;
+    }
+
+    private synchronized Segment grow(Segment full) {
+        Segment newest = segments.get(segments.size() - 1);
+        if (newest != full) {
+            // another thread grew the filter already
+            return newest;
+        }
+        newest = new Segment(2 * full.capacity, bitsPerKey);
+        segments.add(newest);
+        lookup = segments.toArray(new Segment[0]);
+        return newest;
+    }
+
+    /**
+     * FNV-1a over the key with the finalizer of MurmurHash3, so that keys with a common prefix spread evenly.
+     */
+    static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static class Segment {
+        private final long capacity;
+        private final int blocks;
+        private final AtomicLongArray bits;
+        private final LongAdder count = new LongAdder();
+
+        private Segment(long capacity, int bitsPerKey) {
+            long blockCount = (capacity * bitsPerKey + BLOCK_BITS - 1) / BLOCK_BITS;
+            if (blockCount * LONGS_PER_BLOCK > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("the segment for " + capacity + " keys is too large");
+            }
+            this.capacity = capacity;
+            this.blocks = (int) blockCount;
+            this.bits = new AtomicLongArray(blocks * LONGS_PER_BLOCK);
+        }
+
+        private void put(long hash, int hashes) {
+            int offset = blockOffset(hash);
+            int h1 = (int) hash;
+            int h2 = secondHash(hash);
+            for (int i = 0; i < hashes; i++) {
+                int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+                int index = offset + (bit >>> 6);
+                long mask = 1L << bit;
+                long word;
+                while (((word = bits.get(index)) & mask) == 0 && !bits.compareAndSet(index, word, word | mask)) {
+                    // retry until the bit is set
+                }
+            }
+        }
+
+        private boolean mightContain(long hash, int hashes) {
+            int offset = blockOffset(hash);
+            int h1 = (int) hash;
+            int h2 = secondHash(hash);
+            for (int i = 0; i < hashes; i++) {
+                int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+                if ((bits.get(offset + (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Derives the step between the bits of a key in its block, odd so that the steps do not repeat early.
+         */
+        private static int secondHash(long hash) {
+            return (int) ((hash * 0x9e3779b97f4a7c15L) >>> 32) | 1;
+        }
+
+        /**
+         * Picks the block by the upper bits of the hash, which the bit positions within the block hardly use.
+         */
+        private int blockOffset(long hash) {
+            long block = ((hash >>> 32) * blocks) >>> 32;
+            return (int) block * LONGS_PER_BLOCK;
+        }
+    }
+}
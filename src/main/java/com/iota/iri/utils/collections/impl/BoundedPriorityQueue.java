@@ -0,0 +1,225 @@
+package com.iota.iri.utils.collections.impl;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A thread safe, bounded priority queue for small integer priorities (i.e. the weight magnitude of a transaction).
+ * <p>
+ * Elements are kept in one FIFO bucket per priority. Inserting, removing the element with the highest priority and
+ * evicting the element with the lowest priority are O(1) apart from skipping empty buckets, and {@link #size()} is
+ * a plain read instead of the O(n) traversal of a {@link java.util.concurrent.ConcurrentSkipListSet}.
+ * </p>
+ * <p>
+ * When the queue is full, an offered element either replaces the most recently added element of the lowest priority
+ * bucket or, if it does not have a higher priority than that bucket, is rejected itself. Both cases are counted as
+ * evictions.
+ * </p>
+ * <p>
+ * Optionally the queue ignores elements that are equal (by an identity function) to an element which is still queued.
+ * </p>
+ * <p>
+ * Consumers can block until elements arrive with {@link #drainTo(Collection, int, long, TimeUnit)} instead of
+ * polling in a loop.
+ * </p>
+ *
+ * @param <E> type of the queued elements
+ */
+public class BoundedPriorityQueue<E> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final int capacity;
+    private final ToIntFunction<? super E> priority;
+    private final Function<? super E, ?> identity;
+    private final Set<Object> queued;
+    private final ArrayDeque<E>[] buckets;
+
+    private volatile int size;
+    /**
+     * Index of the highest non-empty bucket, -1 if the queue is empty.
+     */
+    private int highest = -1;
+    /**
+     * Index of the lowest non-empty bucket, {@link #buckets}.length if the queue is empty.
+     */
+    private int lowest;
+    private long evicted;
+
+    /**
+     * Creates a queue.
+     *
+     * @param capacity maximum number of queued elements
+     * @param maxPriority highest priority an element can have, higher priorities are clamped
+     * @param priority function returning the priority of an element, higher is served first
+     * @param identity function returning the identity used to reject duplicates, or {@code null} to allow duplicates
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedPriorityQueue(int capacity, int maxPriority, ToIntFunction<? super E> priority,
+                                Function<? super E, ?> identity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.priority = priority;
+        this.identity = identity;
+        this.queued = identity == null ? null : new HashSet<>();
+        this.buckets = new ArrayDeque[maxPriority + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.lowest = buckets.length;
+    }
+
+    /**
+     * Adds an element, evicting the lowest priority element if the queue is full.
+     *
+     * @param element element to add
+     * @return true if the element is queued after this call, false if it was a duplicate or got evicted right away
+     */
+    public boolean offer(E element) {
+        int bucket = bucketOf(element);
+        lock.lock();
+        try {
+            if (queued != null && !queued.add(identity.apply(element))) {
+                return false;
+            }
+            if (size >= capacity) {
+                if (bucket <= lowest) {
+                    evicted++;
+                    forget(element);
+                    return false;
+                }
+                forget(removeFrom(lowest, false));
+                evicted++;
+            }
+            buckets[bucket].addLast(element);
+            size++;
+            highest = Math.max(highest, bucket);
+            lowest = Math.min(lowest, bucket);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the element with the highest priority. Elements of the same priority are served in insertion order.
+     *
+     * @return the element or {@code null} if the queue is empty
+     */
+    public E poll() {
+        lock.lock();
+        try {
+            if (size == 0) {
+                return null;
+            }
+            E element = removeFrom(highest, true);
+            forget(element);
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes up to {@code maxElements} elements in {@link #poll()} order, waiting for the first one if the queue is
+     * empty.
+     *
+     * @param target collection the removed elements are added to
+     * @param maxElements maximum number of elements to remove
+     * @param timeout how long to wait for the first element
+     * @param unit unit of {@code timeout}
+     * @return the number of removed elements, 0 if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public int drainTo(Collection<? super E> target, int maxElements, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                if (nanos <= 0) {
+                    return 0;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            int drained = 0;
+            while (drained < maxElements && size > 0) {
+                E element = removeFrom(highest, true);
+                forget(element);
+                target.add(element);
+                drained++;
+            }
+            if (size > 0) {
+                // let another consumer pick up the rest
+                notEmpty.signal();
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private E removeFrom(int bucket, boolean first) {
+        E element = first ? buckets[bucket].pollFirst() : buckets[bucket].pollLast();
+        size--;
+        if (size == 0) {
+            highest = -1;
+            lowest = buckets.length;
+        } else if (buckets[bucket].isEmpty()) {
+            while (buckets[highest].isEmpty()) {
+                highest--;
+            }
+            while (buckets[lowest].isEmpty()) {
+                lowest++;
+            }
+        }
+        return element;
+    }
+
+    private void forget(E element) {
+        if (queued != null) {
+            queued.remove(identity.apply(element));
+        }
+    }
+
+    private int bucketOf(E element) {
+        return Math.max(0, Math.min(buckets.length - 1, priority.applyAsInt(element)));
+    }
+
+    /**
+     * @return the number of queued elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the maximum number of queued elements
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of elements that were dropped because the queue was full
+     */
+    public long getEvictedCount() {
+        lock.lock();
+        try {
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.iota.iri.utils.collections.impl;
+
+import com.iota.iri.utils.LatencyHistogram;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * A thread safe queue made of several {@link BoundedPriorityQueue lanes} which are served by weight.
+ * <p>
+ * Every offered element is put into one lane, chosen by a function of the element. Within a lane elements are ordered
+ * like in a {@link BoundedPriorityQueue}, and every lane has its own capacity, so a flood of elements in one lane
+ * evicts only elements of that lane.
+ * </p>
+ * <p>
+ * The lanes are served with smooth weighted round robin: while all lanes have elements, a lane of weight {@code w}
+ * gets {@code w} of every {@code sum of weights} removals, spread out evenly. Empty lanes are skipped, so the queue
+ * never waits for a lane while another one has elements.
+ * </p>
+ * <p>
+ * For every lane the queue records how long the removed elements were queued.
+ * </p>
+ *
+ * @param <E> type of the queued elements
+ */
+public class WeightedLaneQueue<E> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final ToIntFunction<? super E> lane;
+    private final BoundedPriorityQueue<Entry<E>>[] lanes;
+    private final int[] weights;
+    private final int[] credits;
+    private final LatencyHistogram[] waits;
+    private final LongAdder[] served;
+    private final LongSupplier clock;
+
+    /**
+     * Creates a queue.
+     *
+     * @param capacity maximum number of queued elements per lane
+     * @param maxPriority highest priority an element can have, higher priorities are clamped
+     * @param priority function returning the priority of an element within its lane, higher is served first
+     * @param identity function returning the identity used to reject duplicates within a lane, or {@code null} to
+     *                 allow duplicates
+     * @param lane function returning the index of the lane of an element, out of range indexes are clamped
+     * @param weights the positive weight of every lane
+     * @param clock source of the queue wait times in nanoseconds
+     */
+    @SuppressWarnings("unchecked")
+    public WeightedLaneQueue(int capacity, int maxPriority, ToIntFunction<? super E> priority,
+                             Function<? super E, ?> identity, ToIntFunction<? super E> lane, int[] weights,
+                             LongSupplier clock) {
+        if (weights.length == 0) {
+            throw new IllegalArgumentException("at least one lane is required");
+        }
+        this.lane = lane;
+        this.weights = weights.clone();
+        this.credits = new int[weights.length];
+        this.lanes = new BoundedPriorityQueue[weights.length];
+        this.waits = new LatencyHistogram[weights.length];
+        this.served = new LongAdder[weights.length];
+        this.clock = clock;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 1) {
+                throw new IllegalArgumentException("weights must be positive");
+            }
+            lanes[i] = new BoundedPriorityQueue<>(capacity, maxPriority, entry -> priority.applyAsInt(entry.element),
+                    identity == null ? null : entry -> identity.apply(entry.element));
+            waits[i] = new LatencyHistogram();
+            served[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Adds an element to its lane, evicting the lowest priority element of the lane if the lane is full.
+     *
+     * @param element element to add
+     * @return true if the element is queued after this call, false if it was a duplicate or got evicted right away
+     */
+    public boolean offer(E element) {
+        int index = Math.max(0, Math.min(lanes.length - 1, lane.applyAsInt(element)));
+        Entry<E> entry = new Entry<>(element, clock.getAsLong());
+        lock.lock();
+        try {
+            if (!lanes[index].offer(entry)) {
+                return false;
+            }
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the highest priority element of the lane whose turn it is.
+     *
+     * @return the element or {@code null} if the queue is empty
+     */
+    public E poll() {
+        lock.lock();
+        try {
+            return take();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes up to {@code maxElements} elements in {@link #poll()} order, waiting for the first one if the queue is
+     * empty.
+     *
+     * @param target collection the removed elements are added to
+     * @param maxElements maximum number of elements to remove
+     * @param timeout how long to wait for the first element
+     * @param unit unit of {@code timeout}
+     * @return the number of removed elements, 0 if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public int drainTo(Collection<? super E> target, int maxElements, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size() == 0) {
+                if (nanos <= 0) {
+                    return 0;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            int drained = 0;
+            E element;
+            while (drained < maxElements && (element = take()) != null) {
+                target.add(element);
+                drained++;
+            }
+            if (size() > 0) {
+                // let another consumer pick up the rest
+                notEmpty.signal();
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private E take() {
+        int next = -1;
+        int total = 0;
+        for (int i = 0; i < lanes.length; i++) {
+            if (lanes[i].size() == 0) {
+                credits[i] = 0;
+                continue;
+            }
+            credits[i] += weights[i];
+            total += weights[i];
+            if (next < 0 || credits[i] > credits[next]) {
+                next = i;
+            }
+        }
+        if (next < 0) {
+            return null;
+        }
+        credits[next] -= total;
+        Entry<E> entry = lanes[next].poll();
+        waits[next].record(clock.getAsLong() - entry.enqueuedAt);
+        served[next].increment();
+        return entry.element;
+    }
+
+    /**
+     * @return the number of queued elements
+     */
+    public int size() {
+        int size = 0;
+        for (BoundedPriorityQueue<Entry<E>> queue : lanes) {
+            size += queue.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return the maximum number of queued elements of all lanes
+     */
+    public int getCapacity() {
+        int capacity = 0;
+        for (BoundedPriorityQueue<Entry<E>> queue : lanes) {
+            capacity += queue.getCapacity();
+        }
+        return capacity;
+    }
+
+    /**
+     * @return the number of elements that were dropped because their lane was full
+     */
+    public long getEvictedCount() {
+        long evicted = 0;
+        for (BoundedPriorityQueue<Entry<E>> queue : lanes) {
+            evicted += queue.getEvictedCount();
+        }
+        return evicted;
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    /**
+     * @param lane index of the lane
+     * @return the number of elements queued in the lane
+     */
+    public int size(int lane) {
+        return lanes[lane].size();
+    }
+
+    /**
+     * @param lane index of the lane
+     * @return the number of elements that were dropped because the lane was full
+     */
+    public long getEvictedCount(int lane) {
+        return lanes[lane].getEvictedCount();
+    }
+
+    /**
+     * @param lane index of the lane
+     * @return the number of elements removed from the lane
+     */
+    public long getServedCount(int lane) {
+        return served[lane].sum();
+    }
+
+    /**
+     * @param lane index of the lane
+     * @return how long the elements removed from the lane were queued, until the histogram is reset
+     */
+    public LatencyHistogram getWait(int lane) {
+        return waits[lane];
+    }
+
+    private static class Entry<E> {
+        private final E element;
+        private final long enqueuedAt;
+
+        Entry(E element, long enqueuedAt) {
+            this.element = element;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -1,8 +1,23 @@
 package com.iota.iri.benchmarks;
 
+import com.iota.iri.benchmarks.dbbenchmark.ExistenceBenchmark;
+import com.iota.iri.benchmarks.dbbenchmark.GroupCommitBenchmark;
+import com.iota.iri.benchmarks.dbbenchmark.IndexLayoutBenchmark;
+import com.iota.iri.benchmarks.dbbenchmark.MetadataUpdateBenchmark;
 import com.iota.iri.benchmarks.dbbenchmark.RocksDbBenchmark;
+import com.iota.iri.benchmarks.network.CatchUpSyncBenchmark;
+import com.iota.iri.benchmarks.network.MultiSocketUDPReceiverBenchmark;
+import com.iota.iri.benchmarks.network.NodeQueueBenchmark;
+import com.iota.iri.benchmarks.network.PacketCompressionBenchmark;
+import com.iota.iri.benchmarks.network.PreProcessBenchmark;
+import com.iota.iri.benchmarks.network.RecentSeenBytesCacheBenchmark;
+import com.iota.iri.benchmarks.network.TCPReplicatorBenchmark;
+import com.iota.iri.benchmarks.network.TcpFramingBenchmark;
+import com.iota.iri.benchmarks.network.TransactionHashingBenchmark;
+import com.iota.iri.benchmarks.network.UDPReceiverBenchmark;
 import org.junit.Test;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
 import org.openjdk.jmh.runner.Runner;
 import org.openjdk.jmh.runner.RunnerException;
 import org.openjdk.jmh.runner.options.Options;
@@ -28,4 +43,66 @@ public class BenchmarkRunner {
         //possible to do assertions over run results
         new Runner(opts).run();
     }
+
+    @Test
+    public void launchDbFetchBenchmarks() throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(RocksDbBenchmark.class.getName() + ".fetch.*")
+                .param("numTxsToTest", "100", "1000", "10000")
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupIterations(5)
+                .forks(1)
+                .measurementIterations(10)
+                .shouldFailOnError(true)
+                .shouldDoGC(false)
+                .build();
+
+        new Runner(opts).run();
+    }
+
+    @Test
+    public void launchDbStorageBenchmarks() throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(GroupCommitBenchmark.class.getName() + ".*")
+                .include(ExistenceBenchmark.class.getName() + ".*")
+                .include(MetadataUpdateBenchmark.class.getName() + ".*")
+                .include(IndexLayoutBenchmark.class.getName() + ".*")
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .warmupIterations(5)
+                .forks(1)
+                .measurementIterations(10)
+                .shouldFailOnError(true)
+                .shouldDoGC(false)
+                .build();
+
+        new Runner(opts).run();
+    }
+
+    @Test
+    public void launchNetworkBenchmarks() throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(UDPReceiverBenchmark.class.getName() + ".*")
+                .include(MultiSocketUDPReceiverBenchmark.class.getName() + ".*")
+                .include(PreProcessBenchmark.class.getName() + ".*")
+                .include(RecentSeenBytesCacheBenchmark.class.getName() + ".*")
+                .include(NodeQueueBenchmark.class.getName() + ".*")
+                .include(TCPReplicatorBenchmark.class.getName() + ".*")
+                .include(TcpFramingBenchmark.class.getName() + ".*")
+                .include(PacketCompressionBenchmark.class.getName() + ".*")
+                .include(TransactionHashingBenchmark.class.getName() + ".*")
+                .include(CatchUpSyncBenchmark.class.getName() + ".*")
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .warmupIterations(5)
+                .forks(1)
+                .measurementIterations(10)
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true)
+                .shouldDoGC(false)
+                .build();
+
+        new Runner(opts).run();
+    }
 }
@@ -0,0 +1,101 @@
+package com.iota.iri.benchmarks.dbbenchmark;
+
+import com.iota.iri.conf.BaseIotaConfig;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.persistables.Transaction;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
+import com.iota.iri.utils.collections.impl.BlockedBloomFilter;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures transaction existence checks of the {@link RocksDBPersistenceProvider} with and without the
+ * {@link BlockedBloomFilter}, for stored and for missing transactions.
+ * <p>
+ * Reading a transaction with its value copied is measured for comparison, that is what an existence check used to
+ * cost. The transactions are stored before the provider is opened again, so the filter is built from the database
+ * like after a restart.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class ExistenceBenchmark {
+
+    private static final int TRANSACTIONS = 50_000;
+
+    @Param({"false", "true"})
+    private boolean filter;
+
+    private final Hash[] stored = new Hash[TRANSACTIONS];
+    private final Hash[] missing = new Hash[TRANSACTIONS];
+    private File dbFolder;
+    private File logFolder;
+    private RocksDBPersistenceProvider provider;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dbFolder = Files.createTempDirectory("exists-db").toFile();
+        logFolder = Files.createTempDirectory("exists-log").toFile();
+        Tangle tangle = new Tangle();
+        tangle.addPersistenceProvider(new RocksDBPersistenceProvider(dbFolder.getPath(), logFolder.getPath(),
+                BaseIotaConfig.Defaults.DB_CACHE_SIZE));
+        tangle.init();
+        // the transactions share their trits, only the keys matter to the lookups
+        byte[] trits = TransactionViewModelTest.getRandomTransactionTrits();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            TransactionViewModel transaction = new TransactionViewModel(trits,
+                    TransactionViewModelTest.getRandomTransactionHash());
+            transaction.store(tangle);
+            stored[i] = transaction.getHash();
+            missing[i] = TransactionViewModelTest.getRandomTransactionHash();
+        }
+        tangle.shutdown();
+
+        provider = new RocksDBPersistenceProvider(dbFolder.getPath(), logFolder.getPath(),
+                BaseIotaConfig.Defaults.DB_CACHE_SIZE, filter);
+        provider.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        provider.shutdown();
+        FileUtils.deleteQuietly(dbFolder);
+        FileUtils.deleteQuietly(logFolder);
+    }
+
+    private static Hash any(Hash[] hashes) {
+        return hashes[ThreadLocalRandom.current().nextInt(hashes.length)];
+    }
+
+    @Benchmark
+    public boolean existsStored() throws Exception {
+        return provider.exists(Transaction.class, any(stored));
+    }
+
+    @Benchmark
+    public boolean existsMissing() throws Exception {
+        return provider.exists(Transaction.class, any(missing));
+    }
+
+    @Benchmark
+    public boolean readStored() throws Exception {
+        return provider.get(Transaction.class, any(stored)).bytes() != null;
+    }
+
+    @Benchmark
+    public boolean readMissing() throws Exception {
+        return provider.get(Transaction.class, any(missing)).bytes() != null;
+    }
+}
@@ -0,0 +1,120 @@
+package com.iota.iri.benchmarks.dbbenchmark;
+
+import com.iota.iri.conf.BaseIotaConfig;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.storage.GroupCommitWriter;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many transactions per second a number of producer threads store, each one on its own with
+ * {@link TransactionViewModel#store(Tangle)} or merged by a {@link GroupCommitWriter}.
+ * <p>
+ * Every invocation stores a new transaction. Its trits are taken from a few random ones prepared by the producer
+ * thread, only the hash is drawn for every transaction, so the throughput is that of the writes.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class GroupCommitBenchmark {
+
+    private static final int MAX_ENTRIES = 64 * 7;
+
+    @Param({"false", "true"})
+    private boolean groupCommit;
+
+    private File dbFolder;
+    private File logFolder;
+    private Tangle tangle;
+    private GroupCommitWriter writer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dbFolder = Files.createTempDirectory("group-commit-db").toFile();
+        logFolder = Files.createTempDirectory("group-commit-log").toFile();
+        tangle = new Tangle();
+        tangle.addPersistenceProvider(new RocksDBPersistenceProvider(dbFolder.getPath(), logFolder.getPath(),
+                BaseIotaConfig.Defaults.DB_CACHE_SIZE));
+        tangle.init();
+        if (groupCommit) {
+            writer = new GroupCommitWriter(tangle, MAX_ENTRIES,
+                    TimeUnit.MICROSECONDS.toNanos(BaseIotaConfig.Defaults.GROUP_COMMIT_WINDOW));
+            writer.init();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        if (writer != null) {
+            writer.shutdown();
+        }
+        tangle.shutdown();
+        FileUtils.deleteQuietly(dbFolder);
+        FileUtils.deleteQuietly(logFolder);
+    }
+
+    /**
+     * The transactions of one producer thread.
+     */
+    @State(Scope.Thread)
+    public static class Producer {
+        private final byte[][] trits = new byte[16][];
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            for (int i = 0; i < trits.length; i++) {
+                trits[i] = TransactionViewModelTest.getRandomTransactionTrits();
+            }
+        }
+
+        TransactionViewModel nextTransaction() {
+            byte[] hash = new byte[Hash.SIZE_IN_TRITS];
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < hash.length; i++) {
+                hash[i] = (byte) (random.nextInt(3) - 1);
+            }
+            next = (next + 1) % trits.length;
+            return new TransactionViewModel(trits[next], HashFactory.TRANSACTION.create(hash));
+        }
+    }
+
+    private boolean store(Producer producer) throws Exception {
+        TransactionViewModel transaction = producer.nextTransaction();
+        return writer != null ? transaction.store(tangle, writer) : transaction.store(tangle);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean store01(Producer producer) throws Exception {
+        return store(producer);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean store04(Producer producer) throws Exception {
+        return store(producer);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean store16(Producer producer) throws Exception {
+        return store(producer);
+    }
+}
@@ -0,0 +1,85 @@
+package com.iota.iri.benchmarks.dbbenchmark;
+
+import com.iota.iri.conf.BaseIotaConfig;
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.persistables.Address;
+import com.iota.iri.model.persistables.Hashes;
+import com.iota.iri.storage.Indexable;
+import com.iota.iri.storage.Persistable;
+import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
+import com.iota.iri.utils.Pair;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares the hash list and the composite index layout of the {@link Address} index for a single address with many
+ * transactions, like a hot address of an exchange or a faucet.
+ * <p>
+ * Every trial gets a new database, to which the transactions are added one write at a time, like received
+ * transactions are. Measured are adding one more transaction, reading the address as a whole and reading its first
+ * page.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class IndexLayoutBenchmark {
+
+    private static final int PAGE_SIZE = 1_000;
+
+    @Param({"false", "true"})
+    private boolean composite;
+
+    @Param({"10000", "100000"})
+    private int transactions;
+
+    private final Hash address = TransactionViewModelTest.getRandomTransactionHash();
+    private File dbFolder;
+    private File logFolder;
+    private RocksDBPersistenceProvider provider;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dbFolder = Files.createTempDirectory("index-layout-db").toFile();
+        logFolder = Files.createTempDirectory("index-layout-log").toFile();
+        provider = new RocksDBPersistenceProvider(dbFolder.getPath(), logFolder.getPath(),
+                BaseIotaConfig.Defaults.DB_CACHE_SIZE, false, composite);
+        provider.init();
+        for (int i = 0; i < transactions; i++) {
+            add();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        provider.shutdown();
+        FileUtils.deleteQuietly(dbFolder);
+        FileUtils.deleteQuietly(logFolder);
+    }
+
+    @Benchmark
+    public boolean add() throws Exception {
+        return provider.saveBatch(Collections.singletonList(new Pair<Indexable, Persistable>(address,
+                new Address(TransactionViewModelTest.getRandomTransactionHash()))));
+    }
+
+    @Benchmark
+    public int loadAll() throws Exception {
+        return ((Hashes) provider.get(Address.class, address)).getSet().size();
+    }
+
+    @Benchmark
+    public List<Hash> firstPage() throws Exception {
+        return provider.loadHashesPage(Address.class, address, null, PAGE_SIZE);
+    }
+}
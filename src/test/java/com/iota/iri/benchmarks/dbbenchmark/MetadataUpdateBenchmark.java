@@ -0,0 +1,102 @@
+package com.iota.iri.benchmarks.dbbenchmark;
+
+import com.iota.iri.conf.BaseIotaConfig;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.persistables.Transaction;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+
+/**
+ * Measures metadata updates of stored transactions, written as the whole metadata and as patches merged into it.
+ * <p>
+ * The invocations go round the stored transactions and update their solid flag and height, their snapshot index and
+ * their validity in turn. Next to the updates per second the {@link Written#valueBytes} counter reports the bytes of
+ * the values written per second, divided by the updates per second that is the write amplification of an update.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class MetadataUpdateBenchmark {
+
+    private static final int TRANSACTIONS = 10_000;
+    private static final String[] ITEMS = {"solid|height", "snapshot", "validity"};
+
+    @Param({"false", "true"})
+    private boolean patch;
+
+    private final Hash[] hashes = new Hash[TRANSACTIONS];
+    private final Transaction[] stored = new Transaction[TRANSACTIONS];
+    private File dbFolder;
+    private File logFolder;
+    private Tangle tangle;
+    private RocksDBPersistenceProvider provider;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        dbFolder = Files.createTempDirectory("metadata-update-db").toFile();
+        logFolder = Files.createTempDirectory("metadata-update-log").toFile();
+        provider = new RocksDBPersistenceProvider(dbFolder.getPath(), logFolder.getPath(),
+                BaseIotaConfig.Defaults.DB_CACHE_SIZE);
+        tangle = new Tangle();
+        tangle.addPersistenceProvider(provider);
+        tangle.init();
+        byte[] trits = TransactionViewModelTest.getRandomTransactionTrits();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            TransactionViewModel transaction = new TransactionViewModel(trits,
+                    TransactionViewModelTest.getRandomTransactionHash());
+            transaction.store(tangle);
+            hashes[i] = transaction.getHash();
+            stored[i] = (Transaction) provider.get(Transaction.class, hashes[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        tangle.shutdown();
+        FileUtils.deleteQuietly(dbFolder);
+        FileUtils.deleteQuietly(logFolder);
+    }
+
+    /**
+     * The bytes of the values written by the updates.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Written {
+        public long valueBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            valueBytes = 0;
+        }
+    }
+
+    @Benchmark
+    public boolean update(Written written) throws Exception {
+        int transaction = next / ITEMS.length % TRANSACTIONS;
+        String item = ITEMS[next % ITEMS.length];
+        next++;
+        Transaction metadata = stored[transaction];
+        metadata.setSolid(true);
+        metadata.setHeight(transaction + 1);
+        metadata.setSnapshot(transaction / 100 + 1);
+        metadata.setValidity(1);
+        written.valueBytes += patch ? metadata.metadataPatch(item).length : metadata.metadata().length;
+        // a null item writes the whole metadata, like every update did before patches
+        return provider.update(metadata, hashes[transaction], patch ? item : null);
+    }
+}
@@ -44,6 +44,11 @@ public class RocksDbBenchmark {
         }
     }
 
+    @Benchmark
+    public void fetchBatch(FullState state) throws Exception {
+        state.getTangle().loadBatch(Transaction.class, state.getHashes());
+    }
+
 
 
 }
@@ -15,6 +15,7 @@ import java.util.stream.Collectors;
 public class FullState extends DbState {
 
     private List<Pair<Indexable, ? extends Class<? extends Persistable>>> pairs;
+    private List<Indexable> hashes;
 
     @Override
     @Setup(Level.Trial)
@@ -23,7 +24,9 @@ public class FullState extends DbState {
         pairs = getTransactions().stream()
                 .map(tvm -> new Pair<>((Indexable) tvm.getHash(), Transaction.class))
                 .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
-
+        hashes = pairs.stream()
+                .map(pair -> pair.low)
+                .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
     }
 
     @Override
@@ -49,4 +52,8 @@ public class FullState extends DbState {
     public List<Pair<Indexable, ? extends Class<? extends Persistable>>> getPairs() {
         return pairs;
     }
+
+    public List<Indexable> getHashes() {
+        return hashes;
+    }
 }
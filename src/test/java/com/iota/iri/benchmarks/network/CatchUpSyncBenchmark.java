@@ -0,0 +1,240 @@
+package com.iota.iri.benchmarks.network;
+
+import com.iota.iri.conf.IotaConfig;
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.controllers.MilestoneViewModel;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.model.TransactionHash;
+import com.iota.iri.network.Node;
+import com.iota.iri.network.TCPNeighbor;
+import com.iota.iri.network.replicator.CatchUpSyncClient;
+import com.iota.iri.network.replicator.CatchUpSyncServer;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares how many milestones per second a lagging node gets from a neighbor over loopback with the catch-up sync
+ * and with one request per transaction.
+ * <p>
+ * The serving node has a database of milestones which confirm a fixed number of transactions each, every invocation
+ * fetches all of them into an empty database. The request path is modelled generously: the requester knows every
+ * milestone hash up front, walks down from it and asks for one missing transaction at a time like
+ * {@code Node.replyToRequest} answers it, without the packet rate limits and the random tip replies of the gossip.
+ * Both requesters hash the transactions and store them, neither validates them.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class CatchUpSyncBenchmark {
+
+    private static final int SYNC_PORT = 15_720;
+    private static final int REQUEST_PORT = 15_721;
+    private static final int MILESTONES = 20;
+    private static final int TRANSACTIONS_PER_MILESTONE = 100;
+
+    private File folder;
+    private Tangle server;
+    private List<Hash> milestoneHashes;
+    private CatchUpSyncServer syncServer;
+    private RequestResponder responder;
+    private CatchUpSyncClient client;
+    private Tangle receiver;
+    private int receivers;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        MilestoneViewModel.clear();
+        folder = Files.createTempDirectory("catch-up-sync").toFile();
+        server = open(new File(folder, "server"));
+        milestoneHashes = fill(server);
+
+        IotaConfig config = new MainnetConfig();
+        config.parseConfigFromArgs(new String[]{"--catch-up-sync-port", String.valueOf(SYNC_PORT)});
+        Node node = new Node(null, null, null, null, null, null, config);
+        node.addNeighbor(new TCPNeighbor(new InetSocketAddress("127.0.0.1", 15600), true));
+        syncServer = new CatchUpSyncServer(node, server, config);
+        syncServer.init();
+        responder = new RequestResponder(server);
+        responder.start();
+        client = new CatchUpSyncClient(node, config, (transaction, sender) -> transaction.store(receiver));
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        responder.close();
+        syncServer.shutdown();
+        server.shutdown();
+        MilestoneViewModel.clear();
+        FileUtils.deleteQuietly(folder);
+    }
+
+    @Setup(Level.Invocation)
+    public void openReceiver() throws Exception {
+        receiver = open(new File(folder, "receiver" + receivers++));
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeReceiver() {
+        receiver.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MILESTONES)
+    public int catchUpSync() throws Exception {
+        int last = 0;
+        for (int from = 1; from <= MILESTONES; from += 10) {
+            last = client.sync(new InetSocketAddress("127.0.0.1", SYNC_PORT), from, Math.min(MILESTONES, from + 9));
+        }
+        return last;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MILESTONES)
+    public long requestOneByOne() throws Exception {
+        return requestOneByOne(receiver, milestoneHashes);
+    }
+
+    private static Tangle open(File folder) throws Exception {
+        File db = new File(folder, "db");
+        File log = new File(folder, "log");
+        if (!db.mkdirs() || !log.mkdirs()) {
+            throw new IOException("cannot create " + folder);
+        }
+        Tangle tangle = new Tangle();
+        tangle.addPersistenceProvider(new RocksDBPersistenceProvider(db.getAbsolutePath(), log.getAbsolutePath(),
+                1000));
+        tangle.init();
+        return tangle;
+    }
+
+    /**
+     * Stores milestones which confirm transactions that reference each other and the previous milestone.
+     *
+     * @return the hashes of the milestones
+     */
+    private static List<Hash> fill(Tangle tangle) throws Exception {
+        Random random = new Random(1);
+        List<Hash> milestoneHashes = new ArrayList<>();
+        Hash previous = Hash.NULL_HASH;
+        for (int index = 1; index <= MILESTONES; index++) {
+            List<Hash> hashes = new ArrayList<>();
+            Hash trunk = previous;
+            for (int i = 0; i < TRANSACTIONS_PER_MILESTONE; i++) {
+                Hash branch = hashes.isEmpty() ? previous : hashes.get(random.nextInt(hashes.size()));
+                trunk = store(tangle, trunk, branch, index);
+                hashes.add(trunk);
+            }
+            previous = store(tangle, trunk, previous, index);
+            new MilestoneViewModel(index, previous).store(tangle);
+            milestoneHashes.add(previous);
+        }
+        return milestoneHashes;
+    }
+
+    private static Hash store(Tangle tangle, Hash trunk, Hash branch, int index) throws Exception {
+        byte[] trits = TransactionViewModelTest.getRandomTransactionWithTrunkAndBranch(trunk, branch);
+        TransactionViewModel transaction = new TransactionViewModel(trits,
+                TransactionHash.calculate(SpongeFactory.Mode.CURLP81, trits));
+        transaction.store(tangle);
+        transaction.setSnapshot(tangle, index);
+        return transaction.getHash();
+    }
+
+    /**
+     * Walks down from every milestone and requests the transactions that are missing one at a time.
+     *
+     * @return the number of requests
+     */
+    private static long requestOneByOne(Tangle tangle, List<Hash> milestoneHashes) throws Exception {
+        long requests = 0;
+        try (Socket socket = new Socket("127.0.0.1", REQUEST_PORT)) {
+            socket.setTcpNoDelay(true);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] bytes = new byte[TransactionViewModel.SIZE];
+            for (Hash milestone : milestoneHashes) {
+                Deque<Hash> missing = new ArrayDeque<>();
+                missing.add(milestone);
+                Hash hash;
+                while ((hash = missing.poll()) != null) {
+                    if (hash.equals(Hash.NULL_HASH) || TransactionViewModel.exists(tangle, hash)) {
+                        continue;
+                    }
+                    out.write(hash.bytes());
+                    out.flush();
+                    in.readFully(bytes);
+                    requests++;
+                    TransactionViewModel transaction = new TransactionViewModel(bytes, TransactionHash.calculate(
+                            bytes, TransactionViewModel.TRINARY_SIZE, SpongeFactory.create(SpongeFactory.Mode.CURLP81)));
+                    transaction.store(tangle);
+                    missing.add(transaction.getTrunkTransactionHash());
+                    missing.add(transaction.getBranchTransactionHash());
+                }
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * Answers every requested hash with the bytes of the transaction.
+     */
+    private static class RequestResponder extends Thread {
+        private final Tangle tangle;
+        private final ServerSocket server;
+
+        RequestResponder(Tangle tangle) throws IOException {
+            super("Request responder");
+            this.tangle = tangle;
+            this.server = new ServerSocket(REQUEST_PORT);
+        }
+
+        @Override
+        public void run() {
+            byte[] request = new byte[Hash.SIZE_IN_BYTES];
+            while (!server.isClosed()) {
+                try (Socket socket = server.accept()) {
+                    socket.setTcpNoDelay(true);
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                    while (true) {
+                        in.readFully(request);
+                        Hash hash = HashFactory.TRANSACTION.create(request);
+                        out.write(TransactionViewModel.fromHash(tangle, hash).getBytes());
+                        out.flush();
+                    }
+                } catch (Exception e) {
+                    // the requester is done
+                }
+            }
+        }
+
+        void close() throws IOException {
+            server.close();
+        }
+    }
+}
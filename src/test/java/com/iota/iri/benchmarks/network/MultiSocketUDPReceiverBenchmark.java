@@ -0,0 +1,130 @@
+package com.iota.iri.benchmarks.network;
+
+import com.iota.iri.conf.IotaConfig;
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.network.BatchedUDPReceiver;
+import com.iota.iri.network.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loopback load test of the {@link BatchedUDPReceiver} with one or more channels bound with {@code SO_REUSEPORT}.
+ * <p>
+ * Every invocation sends a burst of {@link #BURST} packets from {@link #SENDERS} source ports, spread over
+ * {@link #SENDER_THREADS} threads, and waits until they were handed to the node (or a timeout elapsed, in which case
+ * the remaining packets were lost). The kernel assigns every source port to one of the channels, so with enough cores
+ * the receive loops of the channels run in parallel. The packets read per channel are printed at the end of a trial.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class MultiSocketUDPReceiverBenchmark {
+
+    private static final int BURST = 4_000;
+    private static final int SENDERS = 16;
+    private static final int SENDER_THREADS = 4;
+    private static final int PORT = 14_778;
+    private static final long BURST_TIMEOUT_MS = 2_000L;
+
+    @Param({"1", "2", "4"})
+    private int receiveSockets;
+
+    private BatchedUDPReceiver receiver;
+    private CountingNode node;
+    private ExecutorService executor;
+    private final List<DatagramChannel> senders = new ArrayList<>();
+    private SocketAddress target;
+    private int packetSize;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        IotaConfig config = new MainnetConfig();
+        config.parseConfigFromArgs(new String[]{"-u", String.valueOf(PORT),
+                "--udp-receive-sockets", String.valueOf(receiveSockets)});
+        node = new CountingNode(config);
+        receiver = new BatchedUDPReceiver(node, config);
+        receiver.init();
+
+        for (int i = 0; i < SENDERS; i++) {
+            senders.add(DatagramChannel.open());
+        }
+        executor = Executors.newFixedThreadPool(SENDER_THREADS);
+        target = new InetSocketAddress("127.0.0.1", PORT);
+        packetSize = config.getTransactionPacketSize();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        System.out.println("\npackets per channel: " + Arrays.toString(receiver.getReceivedCounts()));
+        executor.shutdownNow();
+        receiver.shutdown();
+        for (DatagramChannel sender : senders) {
+            sender.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public long receiveBurst() throws Exception {
+        long expected = node.received.get() + BURST;
+        List<Future<?>> sending = new ArrayList<>();
+        for (int t = 0; t < SENDER_THREADS; t++) {
+            int thread = t;
+            sending.add(executor.submit(() -> send(thread)));
+        }
+        for (Future<?> future : sending) {
+            future.get();
+        }
+        long deadline = System.currentTimeMillis() + BURST_TIMEOUT_MS;
+        while (node.received.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        return node.received.get();
+    }
+
+    /**
+     * Sends the share of a sender thread round robin from its source ports.
+     */
+    private Void send(int thread) throws Exception {
+        ByteBuffer payload = ByteBuffer.allocateDirect(packetSize);
+        int ports = SENDERS / SENDER_THREADS;
+        for (int i = 0; i < BURST / SENDER_THREADS; i++) {
+            payload.clear();
+            senders.get(thread * ports + i % ports).send(payload, target);
+        }
+        return null;
+    }
+
+    /**
+     * A node that only counts the packets it was handed.
+     */
+    private static class CountingNode extends Node {
+        private final AtomicLong received = new AtomicLong();
+
+        CountingNode(IotaConfig config) {
+            super(null, null, null, null, null, null, config);
+        }
+
+        @Override
+        public void preProcessReceivedData(byte[] receivedData, SocketAddress senderAddress, String uriScheme) {
+            received.incrementAndGet();
+        }
+    }
+}
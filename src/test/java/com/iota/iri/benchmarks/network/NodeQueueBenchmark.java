@@ -0,0 +1,117 @@
+package com.iota.iri.benchmarks.network;
+
+import com.iota.iri.crypto.Sponge;
+import com.iota.iri.utils.collections.impl.BoundedPriorityQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the {@link BoundedPriorityQueue} used by the node queues with the {@link ConcurrentSkipListSet} it
+ * replaced, which was trimmed with an O(n) {@code size()} and {@code pollLast()} after every insert.
+ * <p>
+ * The queues are filled up to their capacity before every iteration, so inserts run in the steady state of a loaded
+ * node where each of them evicts an element. Every fourth operation also polls the head, like the worker threads do.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class NodeQueueBenchmark {
+
+    private static final int HASH_BYTES = 49;
+
+    @Param({"1000", "10000"})
+    private int capacity;
+
+    private BoundedPriorityQueue<Item> bounded;
+    private ConcurrentSkipListSet<Item> skipList;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        bounded = new BoundedPriorityQueue<>(capacity, Sponge.HASH_LENGTH, item -> item.weight, item -> item);
+        skipList = new ConcurrentSkipListSet<>(NodeQueueBenchmark::compare);
+        for (int i = 0; i < capacity; i++) {
+            bounded.offer(Item.random());
+            skipList.add(Item.random());
+        }
+    }
+
+    private Item bounded() {
+        Item item = Item.random();
+        bounded.offer(item);
+        return (item.weight & 3) == 0 ? bounded.poll() : item;
+    }
+
+    private Item skipList() {
+        Item item = Item.random();
+        skipList.add(item);
+        if (skipList.size() > capacity) {
+            skipList.pollLast();
+        }
+        return (item.weight & 3) == 0 ? skipList.pollFirst() : item;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Item bounded04() {
+        return bounded();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Item bounded16() {
+        return bounded();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Item skipList04() {
+        return skipList();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Item skipList16() {
+        return skipList();
+    }
+
+    /**
+     * The comparator of the former {@code Node.weightQueue()}.
+     */
+    private static int compare(Item item1, Item item2) {
+        if (item1.weight == item2.weight) {
+            for (int i = HASH_BYTES; i-- > 0; ) {
+                if (item1.hash[i] != item2.hash[i]) {
+                    return item2.hash[i] - item1.hash[i];
+                }
+            }
+            return 0;
+        }
+        return item2.weight - item1.weight;
+    }
+
+    /**
+     * Stand-in for a transaction: a random hash and a weight magnitude in the range seen on mainnet.
+     */
+    private static class Item {
+        private final int weight;
+        private final byte[] hash = new byte[HASH_BYTES];
+
+        private Item(int weight) {
+            this.weight = weight;
+        }
+
+        static Item random() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Item item = new Item(9 + random.nextInt(12));
+            random.nextBytes(item.hash);
+            return item;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.iota.iri.benchmarks.network;
+
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.network.PacketCompression;
+import com.iota.iri.utils.Converter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * CPU cost and wire size of {@link PacketCompression}.
+ * <p>
+ * The corpus is made of packets built from random trits the way a node serializes them: {@code signed} transactions
+ * spend from an address and fill the whole fragment with a signature, {@code message} transactions carry a message of
+ * a few hundred trits and {@code empty} transactions are zero value transactions without a message, like most tips and
+ * milestone siblings. Every invocation compresses and restores all {@link #PACKETS} packets of a kind, so the
+ * throughput is in packets per second. The average size on the wire is printed when the trial starts.
+ * </p>
+ */
+@State(Scope.Thread)
+public class PacketCompressionBenchmark {
+
+    private static final int PACKETS = 64;
+    private static final int MESSAGE_TRITS = 486;
+
+    @Param({"signed", "message", "empty"})
+    private String kind;
+
+    private final int packetSize = MainnetConfig.Defaults.PACKET_SIZE;
+    private final byte[][] packets = new byte[PACKETS][];
+    private final byte[] scratch = new byte[packetSize];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(11);
+        long compressed = 0;
+        for (int i = 0; i < PACKETS; i++) {
+            byte[] trits = new byte[TransactionViewModel.TRINARY_SIZE];
+            int fragment = "signed".equals(kind) ? TransactionViewModel.SIGNATURE_MESSAGE_FRAGMENT_TRINARY_SIZE
+                    : "message".equals(kind) ? MESSAGE_TRITS : 0;
+            randomTrits(random, trits, 0, fragment);
+            randomTrits(random, trits, TransactionViewModel.ADDRESS_TRINARY_OFFSET,
+                    TransactionViewModel.TRINARY_SIZE - TransactionViewModel.ADDRESS_TRINARY_OFFSET);
+            packets[i] = new byte[packetSize];
+            Converter.bytes(trits, packets[i]);
+            for (int j = TransactionViewModel.SIZE; j < packetSize; j++) {
+                packets[i][j] = (byte) random.nextInt();
+            }
+            System.arraycopy(packets[i], 0, scratch, 0, packetSize);
+            compressed += PacketCompression.compress(scratch, packetSize);
+        }
+        System.out.printf("%n%s packets: %d bytes on the wire instead of %d (%.1f%%)%n", kind, compressed / PACKETS,
+                packetSize, 100d * compressed / PACKETS / packetSize);
+    }
+
+    private static void randomTrits(Random random, byte[] trits, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            trits[i] = (byte) (random.nextInt(3) - 1);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public byte[] roundTrip() {
+        byte[] last = null;
+        for (byte[] packet : packets) {
+            System.arraycopy(packet, 0, scratch, 0, packetSize);
+            int length = PacketCompression.compress(scratch, packetSize);
+            last = PacketCompression.decompress(scratch, 0, length, packetSize);
+        }
+        return last;
+    }
+}
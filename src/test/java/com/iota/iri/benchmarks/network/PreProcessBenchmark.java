@@ -0,0 +1,58 @@
+package com.iota.iri.benchmarks.network;
+
+import com.iota.iri.TransactionValidator;
+import com.iota.iri.conf.IotaConfig;
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.network.Node;
+import com.iota.iri.network.TransactionRequester;
+import com.iota.iri.zmq.MessageQ;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+/**
+ * Measures {@link Node#preProcessReceivedData} for an already seen packet while the node has a varying number of
+ * neighbors. The packet is sent by the last configured neighbor, which is the worst case for a linear neighbor scan.
+ */
+@State(Scope.Benchmark)
+public class PreProcessBenchmark {
+
+    @Param({"8", "32", "128"})
+    private int neighborCount;
+
+    private Node node;
+    private byte[] packet;
+    private InetSocketAddress sender;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        IotaConfig config = new MainnetConfig();
+        config.parseConfigFromArgs(new String[]{"--p-drop-cache", "0"});
+        TransactionValidator transactionValidator = Mockito.mock(TransactionValidator.class);
+        TransactionRequester transactionRequester = Mockito.mock(TransactionRequester.class);
+        node = new Node(null, transactionValidator, transactionRequester, null, null, MessageQ.createWith(config),
+                config);
+        node.init();
+        for (int i = 0; i < neighborCount; i++) {
+            node.addNeighbor(node.newNeighbor(new URI("udp://10.0." + (i / 250) + "." + (i % 250 + 1) + ":14600"),
+                    true));
+        }
+        int last = neighborCount - 1;
+        sender = new InetSocketAddress("10.0." + (last / 250) + "." + (last % 250 + 1), 14600);
+        packet = new byte[config.getTransactionPacketSize()];
+        // the first call validates the packet, every following call is a cache hit
+        node.preProcessReceivedData(packet, sender, "udp");
+    }
+
+    @Benchmark
+    public void preProcessSeenPacket() {
+        node.preProcessReceivedData(packet, sender, "udp");
+    }
+}
@@ -0,0 +1,131 @@
+package com.iota.iri.benchmarks.network;
+
+import com.iota.iri.network.RecentSeenBytesCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Contention benchmark of the {@link RecentSeenBytesCache} against the synchronized {@code LinkedHashMap} based FIFO
+ * cache it replaced. Every operation is a lookup followed by an insert on a miss, with a key space twice the size of
+ * the cache so that both hits and evictions happen.
+ */
+@State(Scope.Benchmark)
+public class RecentSeenBytesCacheBenchmark {
+
+    private static final int CAPACITY = 150_000;
+    private static final double DROP_RATE = 0.02d;
+
+    private RecentSeenBytesCache<Object> cache;
+    private LegacyFifoCache legacy;
+    private final Object value = new Object();
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        cache = new RecentSeenBytesCache<>(CAPACITY, DROP_RATE);
+        legacy = new LegacyFifoCache(CAPACITY, DROP_RATE);
+    }
+
+    private static long nextKey() {
+        return ThreadLocalRandom.current().nextLong(CAPACITY * 2L);
+    }
+
+    private Object striped() {
+        long key = nextKey();
+        Object hit = cache.get(key);
+        if (hit == null) {
+            cache.put(key, value);
+        }
+        return hit;
+    }
+
+    private Object synchronizedFifo() {
+        ByteBuffer key = ByteBuffer.allocate(Long.BYTES).putLong(0, nextKey());
+        synchronized (legacy) {
+            Object hit = legacy.get(key);
+            if (hit == null) {
+                legacy.put(key, value);
+            }
+            return hit;
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object striped04() {
+        return striped();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object striped16() {
+        return striped();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Object striped32() {
+        return striped();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object synchronizedFifo04() {
+        return synchronizedFifo();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object synchronizedFifo16() {
+        return synchronizedFifo();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Object synchronizedFifo32() {
+        return synchronizedFifo();
+    }
+
+    /**
+     * The cache previously used by {@code Node}, kept here as a baseline.
+     */
+    private static class LegacyFifoCache {
+        private final int capacity;
+        private final double dropRate;
+        private final LinkedHashMap<ByteBuffer, Object> map = new LinkedHashMap<>();
+
+        LegacyFifoCache(int capacity, double dropRate) {
+            this.capacity = capacity;
+            this.dropRate = dropRate;
+        }
+
+        Object get(ByteBuffer key) {
+            Object value = map.get(key);
+            if (value != null && ThreadLocalRandom.current().nextDouble() < dropRate) {
+                map.remove(key);
+                return null;
+            }
+            return value;
+        }
+
+        void put(ByteBuffer key, Object value) {
+            if (map.containsKey(key)) {
+                return;
+            }
+            if (map.size() >= capacity) {
+                Iterator<ByteBuffer> it = map.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+            map.put(key, value);
+        }
+    }
+}
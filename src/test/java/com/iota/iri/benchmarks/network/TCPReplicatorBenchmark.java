@@ -0,0 +1,183 @@
+package com.iota.iri.benchmarks.network;
+
+import com.iota.iri.conf.IotaConfig;
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.network.Node;
+import com.iota.iri.network.TCPNeighbor;
+import com.iota.iri.network.replicator.Replicator;
+import com.iota.iri.network.replicator.SelectorReplicator;
+import com.iota.iri.utils.LatencyHistogram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Loopback comparison of the classic thread per connection {@link Replicator} and the {@link SelectorReplicator}.
+ * <p>
+ * Every peer connects from its own loopback address (127.0.0.2 and up, which Linux routes to the loopback interface)
+ * and every invocation sends one packet from each peer, then waits until the node was handed all of them or a timeout
+ * elapsed. The classic replicator serves at most {@link Replicator#NUM_THREADS} sources, so beyond that the
+ * remaining packets are only counted as lost, as are the packets of peers whose connection the replicator closed.
+ * Each packet carries its send time, so the time until it reached the node is recorded as well; the latency
+ * percentiles and the number of threads the replicator started are printed at the end of the trial.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class TCPReplicatorBenchmark {
+
+    private static final int PORT = 15_777;
+    private static final long BURST_TIMEOUT_MS = 2_000L;
+    private static final int CRC32_BYTES = 16;
+
+    @Param({"classic", "selector"})
+    private String engine;
+
+    @Param({"8", "32", "128"})
+    private int peers;
+
+    private Replicator replicator;
+    private CountingNode node;
+    private int packetSize;
+    private ServerSocket sinkListener;
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<OutputStream> sources = new ArrayList<>();
+    private int threadsBefore;
+    private byte[] packet;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        IotaConfig config = new MainnetConfig();
+        config.parseConfigFromArgs(new String[]{"-t", String.valueOf(PORT), "--tcp-io-threads", "2"});
+        packetSize = config.getTransactionPacketSize();
+        packet = new byte[packetSize];
+        node = new CountingNode(config);
+
+        // the replicator connects a sink to every peer, accept them and keep them open
+        sinkListener = new ServerSocket(0);
+        Thread acceptor = new Thread(this::acceptSinks, "benchmark sink acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        for (int i = 0; i < peers; i++) {
+            node.addNeighbor(new TCPNeighbor(new InetSocketAddress(peerHost(i), sinkListener.getLocalPort()), false));
+        }
+        threadsBefore = Thread.activeCount();
+        replicator = "selector".equals(engine) ? new SelectorReplicator(node, config) : new Replicator(node, config);
+        replicator.init();
+        Thread.sleep(200);
+
+        byte[] header = String.format("%010d", sinkListener.getLocalPort()).getBytes();
+        for (int i = 0; i < peers; i++) {
+            Socket socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.bind(new InetSocketAddress(peerHost(i), 0));
+            socket.connect(new InetSocketAddress("127.0.0.1", PORT), 5_000);
+            socket.getOutputStream().write(header);
+            sockets.add(socket);
+            sources.add(socket.getOutputStream());
+        }
+        Thread.sleep(1_000);
+    }
+
+    private static String peerHost(int peer) {
+        return "127.0.0." + (peer + 2);
+    }
+
+    private void acceptSinks() {
+        while (!sinkListener.isClosed()) {
+            try {
+                Socket sink = sinkListener.accept();
+                synchronized (sockets) {
+                    sockets.add(sink);
+                }
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        System.out.printf("%n%s replicator with %d peers: %d threads, latency p50 = %dus, p99 = %dus, lost = %d%n",
+                engine, peers, Thread.activeCount() - threadsBefore, node.latency.getPercentileMicros(0.5),
+                node.latency.getPercentileMicros(0.99), node.lost.get());
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+        sinkListener.close();
+        replicator.shutdown();
+    }
+
+    @Benchmark
+    public long burst() throws Exception {
+        long expected = node.received.get();
+        for (int i = 0; i < sources.size(); i++) {
+            OutputStream source = sources.get(i);
+            if (source == null) {
+                node.lost.incrementAndGet();
+                continue;
+            }
+            ByteBuffer.wrap(packet).putLong(System.nanoTime());
+            CRC32 crc32 = new CRC32();
+            crc32.update(packet);
+            byte[] checksum = String.format("%" + CRC32_BYTES + "s", Long.toHexString(crc32.getValue()))
+                    .replace(' ', '0').getBytes();
+            try {
+                source.write(packet);
+                source.write(checksum);
+                expected++;
+            } catch (IOException e) {
+                // the replicator dropped this peer, its packets are lost from now on
+                sources.set(i, null);
+                node.lost.incrementAndGet();
+            }
+        }
+        long deadline = System.currentTimeMillis() + BURST_TIMEOUT_MS;
+        while (node.received.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        long received = node.received.get();
+        if (received < expected) {
+            node.lost.addAndGet(expected - received);
+            node.received.set(expected);
+        }
+        return received;
+    }
+
+    /**
+     * A node that only counts the packets it was handed and how long they took.
+     */
+    private static class CountingNode extends Node {
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong lost = new AtomicLong();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        CountingNode(IotaConfig config) {
+            super(null, null, null, null, null, null, config);
+        }
+
+        @Override
+        public void preProcessReceivedData(byte[] receivedData, SocketAddress senderAddress, String uriScheme) {
+            latency.record(System.nanoTime() - ByteBuffer.wrap(receivedData).getLong());
+            received.incrementAndGet();
+        }
+    }
+}
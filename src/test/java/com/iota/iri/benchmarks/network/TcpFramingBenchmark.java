@@ -0,0 +1,123 @@
+package com.iota.iri.benchmarks.network;
+
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.utils.Crc32c;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * CPU cost of framing and checking TCP packets, without any I/O.
+ * <p>
+ * Every invocation encodes {@link #PACKETS} packets into a buffer the way a sink does and decodes them again the way a
+ * source does, so the throughput is in packets per second and its inverse is the CPU time per packet on both ends.
+ * {@code text} is the classic framing with the CRC32 in hex digits, updated byte by byte on the receiving side like the
+ * classic source does. {@code binary} is the length prefixed framing with a CRC-32C over {@code framePackets} packets,
+ * computed by the JDK when it has {@code java.util.zip.CRC32C} and by {@link Crc32c} otherwise.
+ * </p>
+ */
+@State(Scope.Thread)
+public class TcpFramingBenchmark {
+
+    private static final int PACKETS = 16;
+    private static final int TEXT_CHECKSUM_BYTES = 16;
+
+    @Param({"1", "16"})
+    private int framePackets;
+
+    private final int packetSize = MainnetConfig.Defaults.PACKET_SIZE;
+    private final byte[][] packets = new byte[PACKETS][];
+    private final byte[][] received = new byte[PACKETS][];
+    private ByteBuffer wire;
+    private Checksum crc32c;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1);
+        for (int i = 0; i < PACKETS; i++) {
+            packets[i] = new byte[packetSize];
+            random.nextBytes(packets[i]);
+        }
+        wire = ByteBuffer.allocate(PACKETS * (packetSize + TEXT_CHECKSUM_BYTES + 2 * Integer.BYTES));
+        crc32c = Crc32c.create();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public byte[][] text() {
+        wire.clear();
+        for (byte[] packet : packets) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(packet);
+            String hex = Long.toHexString(crc32.getValue());
+            while (hex.length() < TEXT_CHECKSUM_BYTES) {
+                hex = "0" + hex;
+            }
+            wire.put(packet).put(hex.getBytes());
+        }
+        wire.flip();
+        byte[] expected = new byte[TEXT_CHECKSUM_BYTES];
+        for (int p = 0; p < PACKETS; p++) {
+            byte[] data = new byte[packetSize];
+            wire.get(data).get(expected);
+            CRC32 crc32 = new CRC32();
+            for (int i = 0; i < packetSize; i++) {
+                crc32.update(data[i]);
+            }
+            String hex = Long.toHexString(crc32.getValue());
+            while (hex.length() < TEXT_CHECKSUM_BYTES) {
+                hex = "0" + hex;
+            }
+            byte[] actual = hex.getBytes();
+            boolean valid = true;
+            for (int i = 0; i < TEXT_CHECKSUM_BYTES; i++) {
+                if (actual[i] != expected[i]) {
+                    valid = false;
+                    break;
+                }
+            }
+            received[p] = valid ? data : null;
+        }
+        return received;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public byte[][] binary() {
+        wire.clear();
+        for (int first = 0; first < PACKETS; first += framePackets) {
+            wire.putInt(framePackets * packetSize);
+            crc32c.reset();
+            for (int i = first; i < first + framePackets; i++) {
+                crc32c.update(packets[i], 0, packetSize);
+                wire.put(packets[i]);
+            }
+            wire.putInt((int) crc32c.getValue());
+        }
+        wire.flip();
+        int p = 0;
+        while (wire.hasRemaining()) {
+            int length = wire.getInt();
+            int payload = wire.position();
+            crc32c.reset();
+            crc32c.update(wire.array(), payload, length);
+            boolean valid = (int) crc32c.getValue() == wire.getInt(payload + length);
+            for (int offset = 0; offset < length; offset += packetSize, p++) {
+                byte[] data = new byte[packetSize];
+                System.arraycopy(wire.array(), payload + offset, data, 0, packetSize);
+                received[p] = valid ? data : null;
+            }
+            wire.position(payload + length + Integer.BYTES);
+        }
+        return received;
+    }
+}
@@ -0,0 +1,65 @@
+package com.iota.iri.benchmarks.network;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.crypto.BatchCurl;
+import com.iota.iri.crypto.Sponge;
+import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.model.TransactionHash;
+import com.iota.iri.utils.Converter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Hashes per second of received transactions, from the packet bytes to the hash.
+ * <p>
+ * {@code scalar} is what the receiving threads do per packet without batch hashing: a new {@code Curl} absorbs the
+ * trits of one transaction. {@code batch} is what a worker of the hashing stage does with a full batch: the trits of
+ * {@link BatchCurl#MAX_BATCH_SIZE} transactions are hashed in one pass. Both include the conversion of the bytes to
+ * trits.
+ * </p>
+ */
+@State(Scope.Thread)
+public class TransactionHashingBenchmark {
+
+    private static final int PACKETS = BatchCurl.MAX_BATCH_SIZE;
+
+    private final byte[][] packets = new byte[PACKETS][TransactionViewModel.SIZE];
+    private final byte[][] trits = new byte[PACKETS][TransactionViewModel.TRINARY_SIZE];
+    private final byte[][] hashes = new byte[PACKETS][Sponge.HASH_LENGTH];
+    private final BatchCurl batchCurl = new BatchCurl(SpongeFactory.Mode.CURLP81);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(13);
+        for (byte[] packet : packets) {
+            random.nextBytes(packet);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public TransactionHash scalar() {
+        TransactionHash last = null;
+        for (byte[] packet : packets) {
+            last = TransactionHash.calculate(packet, TransactionViewModel.TRINARY_SIZE,
+                    SpongeFactory.create(SpongeFactory.Mode.CURLP81));
+        }
+        return last;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    public byte[][] batch() {
+        for (int i = 0; i < PACKETS; i++) {
+            Converter.getTrits(packets[i], trits[i]);
+        }
+        batchCurl.hash(trits, PACKETS, TransactionViewModel.TRINARY_SIZE, hashes);
+        return hashes;
+    }
+}
@@ -0,0 +1,100 @@
+package com.iota.iri.benchmarks.network;
+
+import com.iota.iri.conf.IotaConfig;
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.network.BatchedUDPReceiver;
+import com.iota.iri.network.Node;
+import com.iota.iri.network.UDPReceiver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loopback comparison of the classic {@link UDPReceiver} and the {@link BatchedUDPReceiver}.
+ * <p>
+ * Every invocation sends a burst of {@link #BURST} packets to the receiver and waits until they were handed to the
+ * node (or a timeout elapsed, in which case the remaining packets were lost). Run it with the GC profiler (see
+ * {@link com.iota.iri.benchmarks.BenchmarkRunner#launchNetworkBenchmarks()}) to compare the allocation rate.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class UDPReceiverBenchmark {
+
+    private static final int BURST = 1_000;
+    private static final int PORT = 14_777;
+    private static final long BURST_TIMEOUT_MS = 2_000L;
+
+    @Param({"classic", "batched"})
+    private String engine;
+
+    @Param({"1", "4"})
+    private int receiveLoops;
+
+    private UDPReceiver receiver;
+    private CountingNode node;
+    private DatagramChannel sender;
+    private ByteBuffer payload;
+    private SocketAddress target;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        IotaConfig config = new MainnetConfig();
+        config.parseConfigFromArgs(new String[]{"-u", String.valueOf(PORT),
+                "--udp-receive-loops", String.valueOf(receiveLoops)});
+        node = new CountingNode(config);
+        receiver = "batched".equals(engine) ? new BatchedUDPReceiver(node, config) : new UDPReceiver(node, config);
+        receiver.init();
+
+        sender = DatagramChannel.open();
+        payload = ByteBuffer.allocateDirect(config.getTransactionPacketSize());
+        target = new InetSocketAddress("127.0.0.1", PORT);
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        receiver.shutdown();
+        sender.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public long receiveBurst() throws Exception {
+        long expected = node.received.get() + BURST;
+        for (int i = 0; i < BURST; i++) {
+            payload.clear();
+            sender.send(payload, target);
+        }
+        long deadline = System.currentTimeMillis() + BURST_TIMEOUT_MS;
+        while (node.received.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        return node.received.get();
+    }
+
+    /**
+     * A node that only counts the packets it was handed.
+     */
+    private static class CountingNode extends Node {
+        private final AtomicLong received = new AtomicLong();
+
+        CountingNode(IotaConfig config) {
+            super(null, null, null, null, null, null, config);
+        }
+
+        @Override
+        public void preProcessReceivedData(byte[] receivedData, SocketAddress senderAddress, String uriScheme) {
+            received.incrementAndGet();
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.*;
 
 /**
@@ -16,6 +18,7 @@ import static org.junit.Assert.*;
 public class TransactionRequesterTest {
     private static Tangle tangle = new Tangle();
     private MessageQ mq;
+    private long now;
 
     @Before
     public void setUp() throws Exception {
@@ -49,7 +52,14 @@ public class TransactionRequesterTest {
 
     @Test
     public void clearTransactionRequest() throws Exception {
-
+        TransactionRequester txReq = new TransactionRequester(tangle, mq);
+        Hash hash = TransactionViewModelTest.getRandomTransactionHash();
+        txReq.requestTransaction(hash, false);
+        //an unknown hash, like the one of an uncached stale transaction, clears nothing
+        assertFalse(txReq.clearTransactionRequest(null));
+        assertTrue(txReq.clearTransactionRequest(hash));
+        assertFalse(txReq.clearTransactionRequest(hash));
+        assertEquals(0, txReq.numberOfTransactionsToRequest());
     }
 
     @Test
@@ -112,4 +122,96 @@ public class TransactionRequesterTest {
         assertEquals(capacity + capacity * 2, txReq.numberOfTransactionsToRequest());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void retriesBackOff() throws Exception {
+        TransactionRequester txReq = new TransactionRequester(tangle, mq, () -> now);
+        txReq.init(0, 100);
+        Hash hash = TransactionViewModelTest.getRandomTransactionHash();
+        txReq.requestTransaction(hash, false);
+
+        assertEquals(hash, txReq.transactionToRequest(false));
+        assertNull("request should wait for the retry interval", txReq.transactionToRequest(false));
+        advance(90);
+        assertNull(txReq.transactionToRequest(false));
+        advance(20);
+        assertEquals(hash, txReq.transactionToRequest(false));
+        advance(110);
+        assertNull("retry interval should double", txReq.transactionToRequest(false));
+        advance(100);
+        assertEquals(hash, txReq.transactionToRequest(false));
+        assertEquals(2, txReq.getRetryCount());
+
+        // the delay stops growing, even after many turns of the wheel
+        for (int attempt = 0; attempt < 10; attempt++) {
+            advance(100 * 32 + 10);
+            assertEquals(hash, txReq.transactionToRequest(false));
+        }
+    }
+
+    @Test
+    public void milestoneLaneIsPreferred() throws Exception {
+        TransactionRequester txReq = new TransactionRequester(tangle, mq, () -> now);
+        txReq.init(0, 100);
+        Hash normal = TransactionViewModelTest.getRandomTransactionHash();
+        Hash milestone = TransactionViewModelTest.getRandomTransactionHash();
+        Hash upgraded = TransactionViewModelTest.getRandomTransactionHash();
+        txReq.requestTransaction(normal, false);
+        txReq.requestTransaction(upgraded, false);
+        txReq.requestTransaction(milestone, true);
+        txReq.requestTransaction(upgraded, true);
+
+        assertTrue(txReq.isTransactionRequested(upgraded, true));
+        assertFalse(txReq.isTransactionRequested(normal, true));
+        assertEquals(milestone, txReq.transactionToRequest(true));
+        assertEquals(upgraded, txReq.transactionToRequest(true));
+        assertEquals("other lane should be used when the preferred one is empty", normal,
+                txReq.transactionToRequest(true));
+        assertNull(txReq.transactionToRequest(false));
+        assertEquals(3, txReq.numberOfTransactionsToRequest());
+    }
+
+    @Test
+    public void normalRequestsExpire() throws Exception {
+        TransactionRequester txReq = new TransactionRequester(tangle, mq, () -> now);
+        txReq.init(0.25, 100);
+        Hash normal = TransactionViewModelTest.getRandomTransactionHash();
+        Hash milestone = TransactionViewModelTest.getRandomTransactionHash();
+        txReq.requestTransaction(normal, false);
+        txReq.requestTransaction(milestone, true);
+        for (int attempt = 0; attempt < 4; attempt++) {
+            assertEquals(milestone, txReq.transactionToRequest(true));
+            assertEquals(normal, txReq.transactionToRequest(false));
+            advance(100 * 32 + 10);
+        }
+        assertFalse("request should expire after 1 / pRemoveRequest attempts",
+                txReq.isTransactionRequested(normal, false));
+        assertEquals(1, txReq.getExpiredCount());
+        assertEquals(milestone, txReq.transactionToRequest(false));
+        assertTrue("milestone requests should not expire", txReq.isTransactionRequested(milestone, true));
+    }
+
+    @Test
+    public void clearedRequestIsNotRequestedAgain() throws Exception {
+        TransactionRequester txReq = new TransactionRequester(tangle, mq, () -> now);
+        txReq.init(0, 100);
+        Hash first = TransactionViewModelTest.getRandomTransactionHash();
+        Hash second = TransactionViewModelTest.getRandomTransactionHash();
+        txReq.requestTransaction(first, false);
+        txReq.requestTransaction(second, false);
+        assertEquals(first, txReq.transactionToRequest(false));
+        advance(50);
+        assertTrue(txReq.clearTransactionRequest(first));
+        assertTrue(txReq.clearTransactionRequest(second));
+        assertFalse(txReq.clearTransactionRequest(second));
+
+        advance(1000);
+        assertNull(txReq.transactionToRequest(false));
+        assertEquals(0, txReq.numberOfTransactionsToRequest());
+        assertEquals(2, txReq.getFulfilledCount());
+        assertEquals(65_536, txReq.getTimeToFulfil().getPercentileMicros(1));
+    }
+
+    private void advance(long millis) {
+        now += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -17,8 +17,10 @@ import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
 
@@ -104,7 +106,32 @@ public class TransactionViewModelTest {
 
     @Test
     public void update() throws Exception {
-
+        TransactionViewModel transactionViewModel = new TransactionViewModel(getRandomTransactionTrits(),
+                getRandomTransactionHash());
+        transactionViewModel.store(tangle);
+        transactionViewModel.updateSolid(true);
+        transactionViewModel.update(tangle, "solid|height");
+        transactionViewModel.setSnapshot(tangle, 255);
+        transactionViewModel.isMilestone(tangle, true);
+        transactionViewModel.setValidity(tangle, -1);
+        transactionViewModel.setArrivalTime(42L);
+        transactionViewModel.updateSender("/127.0.0.1:14600");
+        transactionViewModel.update(tangle, "arrivalTime|sender");
+
+        TransactionViewModel stored = TransactionViewModel.fromHash(tangle, transactionViewModel.getHash());
+        assertTrue(stored.isSolid());
+        assertEquals(255, stored.snapshotIndex());
+        assertTrue(stored.isMilestone());
+        assertEquals(-1, stored.getValidity());
+        assertEquals(42L, stored.getArrivalTime());
+        assertEquals("/127.0.0.1:14600", stored.getSender());
+        assertEquals(transactionViewModel.getAddressHash(), stored.getAddressHash());
+        assertEquals(transactionViewModel.getTrunkTransactionHash(), stored.getTrunkTransactionHash());
+        assertEquals(transactionViewModel.value(), stored.value());
+
+        stored.updateSolid(false);
+        stored.update(tangle, "solid");
+        assertFalse(TransactionViewModel.fromHash(tangle, transactionViewModel.getHash()).isSolid());
     }
 
     @Test
@@ -124,6 +151,28 @@ public class TransactionViewModelTest {
         }
     }
 
+    @Test
+    public void fromHashes() throws Exception {
+        List<Hash> hashes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            TransactionViewModel transactionViewModel = new TransactionViewModel(getRandomTransactionTrits(),
+                    getRandomTransactionHash());
+            transactionViewModel.store(tangle);
+            hashes.add(transactionViewModel.getHash());
+        }
+        hashes.add(50, getRandomTransactionHash());
+        List<TransactionViewModel> transactionViewModels = TransactionViewModel.fromHashes(tangle, hashes);
+        assertEquals(hashes.size(), transactionViewModels.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            TransactionViewModel expected = TransactionViewModel.fromHash(tangle, hashes.get(i));
+            assertEquals(hashes.get(i), transactionViewModels.get(i).getHash());
+            assertEquals(expected.getType(), transactionViewModels.get(i).getType());
+            assertArrayEquals(expected.getBytes(), transactionViewModels.get(i).getBytes());
+            assertEquals(expected.getTrunkTransactionHash(), transactionViewModels.get(i).getTrunkTransactionHash());
+        }
+        assertEquals(TransactionViewModel.PREFILLED_SLOT, transactionViewModels.get(50).getType());
+    }
+
     @Test
     public void getBytes() throws Exception {
         for(int i=0; i++ < 1000;) {
@@ -0,0 +1,54 @@
+package com.iota.iri.crypto;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class BatchCurlTest {
+
+    private final Random random = new Random(5);
+
+    @Test
+    public void hashesMatchCurl() {
+        for (SpongeFactory.Mode mode : new SpongeFactory.Mode[]{SpongeFactory.Mode.CURLP81,
+                SpongeFactory.Mode.CURLP27}) {
+            for (int count : new int[]{1, 2, 63, 64}) {
+                assertBatch(mode, count, TransactionViewModel.TRINARY_SIZE);
+            }
+        }
+    }
+
+    @Test
+    public void partialBlocksMatchCurl() {
+        for (int length : new int[]{0, 1, Sponge.HASH_LENGTH - 1, Sponge.HASH_LENGTH, Sponge.HASH_LENGTH + 1, 1000}) {
+            assertBatch(SpongeFactory.Mode.CURLP81, 5, length);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOversizedBatch() {
+        int count = BatchCurl.MAX_BATCH_SIZE + 1;
+        new BatchCurl(SpongeFactory.Mode.CURLP81).hash(new byte[count][1], count, 1, new byte[count][]);
+    }
+
+    private void assertBatch(SpongeFactory.Mode mode, int count, int length) {
+        byte[][] inputs = new byte[count][length];
+        byte[][] hashes = new byte[count][Sponge.HASH_LENGTH];
+        for (byte[] input : inputs) {
+            for (int i = 0; i < length; i++) {
+                input[i] = (byte) (random.nextInt(3) - 1);
+            }
+        }
+        new BatchCurl(mode).hash(inputs, count, length, hashes);
+        for (int lane = 0; lane < count; lane++) {
+            Sponge curl = SpongeFactory.create(mode);
+            byte[] expected = new byte[Sponge.HASH_LENGTH];
+            curl.absorb(inputs[lane], 0, length);
+            curl.squeeze(expected, 0, Sponge.HASH_LENGTH);
+            Assert.assertArrayEquals(mode + ", " + count + " inputs of " + length + " trits, input " + lane,
+                    expected, hashes[lane]);
+        }
+    }
+}
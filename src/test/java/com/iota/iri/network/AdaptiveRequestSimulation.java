@@ -0,0 +1,172 @@
+package com.iota.iri.network;
+
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.model.Hash;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process simulation of a node that solidifies a subtangle by requesting the missing transactions from neighbors
+ * with different latencies, comparing requests attached to every packet with requests routed by a
+ * {@link RequestRouter}.
+ * <p>
+ * The node knows the newest transaction of the subtangle and learns about the trunk and branch of every transaction
+ * when it arrives, like the solidification walk does. Every {@link #PACKET_INTERVAL_MS} one packet goes to each
+ * neighbor, starting with a random one, and carries the next due request, if any. A request that is not answered is
+ * retried with a backoff like the {@code TransactionRequester} does. Each neighbor answers after its latency, with a
+ * random jitter of up to half of it, or drops the request. The simulation uses the {@link NeighborMetrics} of the
+ * neighbors and the {@link RequestRouter} on simulated time.
+ * </p>
+ */
+class AdaptiveRequestSimulation {
+
+    private static final long[] LATENCIES_MS = {15, 30, 60, 120, 250, 500, 1000, 2000};
+    private static final double[] DROP_RATES = {0.02, 0.3, 0.02, 0.02, 0.1, 0.02, 0.2, 0.02};
+    private static final int PACKET_INTERVAL_MS = 5;
+    private static final int RETRY_INTERVAL_MS = 250;
+    private static final int MAX_BACKOFF_FACTOR = 8;
+    private static final double EXPLORATION = 0.1;
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int transactions;
+
+    AdaptiveRequestSimulation(int transactions) {
+        this.transactions = transactions;
+    }
+
+    /**
+     * @param adaptive true to route the requests with a {@link RequestRouter}
+     * @param seed seed of the subtangle, latencies and drops
+     * @return the time until the subtangle is solid and the requests sent
+     */
+    Result run(boolean adaptive, long seed) {
+        Random random = new Random(seed);
+        int[][] approvees = subtangle(random);
+        List<Neighbor> neighbors = new ArrayList<>();
+        for (int i = 0; i < LATENCIES_MS.length; i++) {
+            neighbors.add(new TCPNeighbor(new InetSocketAddress("10.0.0." + (i + 1), 15600), true));
+        }
+        RequestRouter router = new RequestRouter(EXPLORATION, new Random(seed));
+        Hash[] hashes = new Hash[transactions];
+        for (int i = 0; i < transactions; i++) {
+            hashes[i] = TransactionViewModelTest.getRandomTransactionHash();
+        }
+
+        boolean[] known = new boolean[transactions];
+        boolean[] stored = new boolean[transactions];
+        int[] attempts = new int[transactions];
+        PriorityQueue<long[]> due = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        PriorityQueue<long[]> arrivals = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        // known but not stored
+        int missing = 1;
+        long requests = 0;
+        known[transactions - 1] = true;
+        due.add(new long[]{0, transactions - 1});
+
+        long now = 0;
+        while (missing > 0) {
+            long[] arrival;
+            while ((arrival = arrivals.peek()) != null && arrival[0] <= now) {
+                arrivals.poll();
+                int index = (int) arrival[1];
+                neighbors.get((int) arrival[2]).getMetrics().transactionReceived(hashes[index], arrival[0]);
+                if (stored[index]) {
+                    continue;
+                }
+                stored[index] = true;
+                missing--;
+                for (int approvee : approvees[index]) {
+                    if (approvee >= 0 && !known[approvee]) {
+                        known[approvee] = true;
+                        missing++;
+                        due.add(new long[]{arrival[0], approvee});
+                    }
+                }
+            }
+            // the neighbors take turns at the first due request
+            int first = random.nextInt(neighbors.size());
+            for (int k = 0; k < neighbors.size(); k++) {
+                int n = (first + k) % neighbors.size();
+                Neighbor neighbor = neighbors.get(n);
+                if (adaptive && !router.shouldRequest(neighbor, neighbors, now)) {
+                    continue;
+                }
+                int index = nextRequest(due, stored, attempts, now);
+                if (index < 0) {
+                    break;
+                }
+                requests++;
+                neighbor.getMetrics().requestSent(hashes[index], now);
+                if (random.nextDouble() >= DROP_RATES[n]) {
+                    long latency = LATENCIES_MS[n] * MS;
+                    arrivals.add(new long[]{now + latency + (long) (random.nextDouble() * latency / 2), index, n});
+                }
+            }
+            now += PACKET_INTERVAL_MS * MS;
+        }
+        return new Result(now, requests);
+    }
+
+    /**
+     * @return the next due request that is not answered yet, or -1
+     */
+    private static int nextRequest(PriorityQueue<long[]> due, boolean[] stored, int[] attempts, long now) {
+        long[] request;
+        while ((request = due.peek()) != null && request[0] <= now) {
+            due.poll();
+            int index = (int) request[1];
+            if (stored[index]) {
+                continue;
+            }
+            int backoff = Math.min(MAX_BACKOFF_FACTOR, 1 << Math.min(attempts[index]++, 3));
+            due.add(new long[]{now + backoff * RETRY_INTERVAL_MS * MS, index});
+            return index;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the trunk and branch of every transaction, -1 for transactions that are already solid
+     */
+    private int[][] subtangle(Random random) {
+        int[][] approvees = new int[transactions][];
+        for (int i = 0; i < transactions; i++) {
+            approvees[i] = new int[]{i - 1 - random.nextInt(3), i - 1 - random.nextInt(20)};
+            for (int j = 0; j < 2; j++) {
+                approvees[i][j] = Math.max(-1, approvees[i][j]);
+            }
+        }
+        return approvees;
+    }
+
+    static class Result {
+        private final long nanos;
+        private final long requests;
+
+        Result(long nanos, long requests) {
+            this.nanos = nanos;
+            this.requests = requests;
+        }
+
+        /**
+         * @return the simulated time until the subtangle was solid
+         */
+        long getNanos() {
+            return nanos;
+        }
+
+        long getRequests() {
+            return requests;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f s until solid, %d requests", nanos / 1e9, requests);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.iota.iri.network;
+
+import com.iota.iri.utils.collections.impl.BoundedPriorityQueue;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdmissionControllerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Random random = new Random(1);
+    private final Neighbor honest = new TCPNeighbor(new InetSocketAddress("10.0.0.1", 15600), true);
+    private final Neighbor spammer = new TCPNeighbor(new InetSocketAddress("10.0.0.2", 15600), true);
+
+    private AdmissionController controller(double... pressures) {
+        AdmissionController controller = new AdmissionController(clock::get, random::nextDouble);
+        for (int i = 0; i < pressures.length; i++) {
+            double pressure = pressures[i];
+            controller.addSignal("signal" + i, () -> pressure);
+        }
+        return controller;
+    }
+
+    @Test
+    public void nothingIsShedWithoutPressure() {
+        AdmissionController controller = controller(0.2, AdmissionController.LOW_WEIGHT_START);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(controller.admitPacket(spammer, false));
+            assertTrue(controller.admitTransaction(spammer, false, true));
+        }
+        assertEquals(0, controller.getShedPackets() + controller.getShedTransactions());
+        assertEquals(1000, controller.getAdmittedPackets());
+    }
+
+    @Test
+    public void unsolicitedTransactionsAreShedProgressively() {
+        AdmissionController controller = controller(0.65);
+        int lowWeight = 0;
+        int unsolicited = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (!controller.admitTransaction(spammer, false, true)) {
+                lowWeight++;
+            }
+            if (!controller.admitTransaction(spammer, false, false)) {
+                unsolicited++;
+            }
+            assertTrue("requested transactions are never shed", controller.admitTransaction(honest, true, true));
+            assertTrue("packets are shed at a higher pressure", controller.admitPacket(spammer, false));
+        }
+        assertEquals(5_000, lowWeight, 200);
+        assertEquals(1_667, unsolicited, 150);
+        assertEquals(lowWeight + unsolicited, controller.getShedTransactions());
+    }
+
+    @Test
+    public void packetsAreShedByTheUnsolicitedShareOfTheSender() {
+        AdmissionController controller = controller(1.0);
+        for (int i = 0; i < 1000; i++) {
+            controller.admitTransaction(spammer, false, false);
+            controller.admitTransaction(honest, true, false);
+        }
+        assertEquals(0.25, controller.getBlindShed(), 1e-9);
+        for (int i = 0; i < 3; i++) {
+            clock.addAndGet(AdmissionController.SAMPLE_INTERVAL_NS);
+            controller.admitPacket(honest, false);
+        }
+        assertEquals("the shedding grows while the pressure stays high", AdmissionController.MAX_BLIND_SHED,
+                controller.getBlindShed(), 1e-9);
+        int spam = 0;
+        int replies = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (controller.admitPacket(spammer, false)) {
+                spam++;
+            }
+            if (controller.admitPacket(honest, false)) {
+                replies++;
+            }
+            assertTrue("coordinator packets are never shed", controller.admitPacket(spammer, true));
+        }
+        assertEquals(10_000 * (1 - AdmissionController.MAX_BLIND_SHED), spam, 100);
+        assertEquals(10_000, replies, 10);
+    }
+
+    @Test
+    public void pressureIsTheSmoothedHighestSignal() {
+        double[] signal = {0.8};
+        AdmissionController controller = new AdmissionController(clock::get, random::nextDouble)
+                .addSignal("low", () -> 0.2)
+                .addSignal("high", () -> signal[0])
+                .addWriteLatencySignal(20 * MS);
+        controller.admitPacket(honest, false);
+        assertEquals(0.8, controller.getPressure(), 1e-9);
+
+        signal[0] = 0d;
+        clock.addAndGet(AdmissionController.SAMPLE_INTERVAL_NS - 1);
+        controller.admitPacket(honest, false);
+        assertEquals("the pressure is sampled once per interval", 0.8, controller.getPressure(), 1e-9);
+        clock.addAndGet(1);
+        controller.admitPacket(honest, false);
+        assertEquals(0.5, controller.getPressure(), 1e-9);
+
+        for (int i = 0; i < 1000; i++) {
+            controller.recordWriteLatency(40 * MS);
+        }
+        clock.addAndGet(AdmissionController.SAMPLE_INTERVAL_NS);
+        controller.admitPacket(honest, false);
+        assertEquals(1.25, controller.getPressure(), 1e-6);
+        assertTrue(controller.report().contains("write = 2.00"));
+    }
+
+    /**
+     * A neighbor answers requests at a fixed rate while another one floods the node with unsolicited transactions. The
+     * requested transactions stored per millisecond stay flat with admission control and collapse without it.
+     */
+    @Test
+    public void goodputStaysFlatUnderOverload() {
+        for (int spam : new int[]{2, 8, 32, 128}) {
+            double goodput = new Overload(spam, true).run();
+            assertTrue("goodput with " + spam + " spam transactions per ms should stay near "
+                    + Overload.REQUESTED + ", not " + goodput, goodput >= 0.9 * Overload.REQUESTED);
+        }
+        assertTrue(new Overload(2, false).run() >= 0.9 * Overload.REQUESTED);
+        double collapsed = new Overload(128, false).run();
+        assertTrue("goodput without admission control should collapse, not " + collapsed,
+                collapsed < 0.25 * Overload.REQUESTED);
+    }
+
+    /**
+     * Simulates a node in steps of a millisecond. Packets that are admitted wait in a bounded hashing queue, which drops
+     * packets when it is full. Hashed transactions that are admitted wait in a bounded receive queue, which evicts the
+     * lowest weight, and are then stored. The hashing threads get most of the CPU while they have work, like the many
+     * receiver threads of the node do, and storing gets the rest.
+     */
+    private class Overload {
+        static final int REQUESTED = 2;
+        static final int TICKS = 20_000;
+        static final int CPU = 100;
+        static final int HASH_COST = 4;
+        static final int STORE_COST = 8;
+        static final double HASHING_SHARE = 0.8;
+        static final int HASHING_QUEUE = 1024;
+        static final int RECEIVE_QUEUE = 1000;
+
+        private final int spam;
+        private final ArrayDeque<Packet> hashingQueue = new ArrayDeque<>();
+        private final BoundedPriorityQueue<Packet> receiveQueue = new BoundedPriorityQueue<>(RECEIVE_QUEUE, 3,
+                packet -> packet.weight, null);
+        private final AdmissionController controller;
+
+        Overload(int spam, boolean admission) {
+            this.spam = spam;
+            this.controller = admission ? new AdmissionController(clock::get, random::nextDouble)
+                    .addSignal("hash", () -> (double) hashingQueue.size() / HASHING_QUEUE)
+                    .addSignal("receive", () -> (double) receiveQueue.size() / RECEIVE_QUEUE) : null;
+        }
+
+        /**
+         * @return requested transactions stored per millisecond in the second half of the run
+         */
+        double run() {
+            long stored = 0;
+            List<Packet> arrivals = new ArrayList<>();
+            for (int tick = 0; tick < TICKS; tick++) {
+                clock.addAndGet(MS);
+                for (int i = 0; i < REQUESTED + spam; i++) {
+                    arrivals.add(new Packet(i < REQUESTED ? honest : spammer, i < REQUESTED, random.nextInt(4)));
+                }
+                Collections.shuffle(arrivals, random);
+                for (Packet packet : arrivals) {
+                    if ((controller == null || controller.admitPacket(packet.neighbor, false))
+                            && hashingQueue.size() < HASHING_QUEUE) {
+                        hashingQueue.add(packet);
+                    }
+                }
+                arrivals.clear();
+
+                double hashingBudget = CPU * HASHING_SHARE;
+                double storingBudget = CPU - hashingBudget;
+                if (hashingQueue.size() * HASH_COST < hashingBudget) {
+                    storingBudget = CPU - hashingQueue.size() * HASH_COST;
+                } else if (receiveQueue.size() * STORE_COST < storingBudget) {
+                    hashingBudget = CPU - receiveQueue.size() * STORE_COST;
+                }
+                for (; hashingBudget >= HASH_COST && !hashingQueue.isEmpty(); hashingBudget -= HASH_COST) {
+                    Packet packet = hashingQueue.poll();
+                    if (controller == null || controller.admitTransaction(packet.neighbor, packet.requested,
+                            packet.weight < 2)) {
+                        receiveQueue.offer(packet);
+                    }
+                }
+                Packet packet;
+                for (; storingBudget >= STORE_COST && (packet = receiveQueue.poll()) != null;
+                     storingBudget -= STORE_COST) {
+                    if (packet.requested && tick >= TICKS / 2) {
+                        stored++;
+                    }
+                }
+            }
+            return (double) stored / (TICKS / 2);
+        }
+    }
+
+    private static class Packet {
+        private final Neighbor neighbor;
+        private final boolean requested;
+        private final int weight;
+
+        Packet(Neighbor neighbor, boolean requested, int weight) {
+            this.neighbor = neighbor;
+            this.requested = requested;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.iota.iri.network;
+
+import com.iota.iri.conf.IotaConfig;
+import com.iota.iri.conf.MainnetConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchedUDPReceiverTest {
+
+    private static final int PORT = 14_790;
+    private static final int SENDERS = 16;
+    private static final int PACKETS_PER_SENDER = 20;
+
+    private BatchedUDPReceiver receiver;
+    private final List<DatagramChannel> senders = new ArrayList<>();
+
+    @After
+    public void tearDown() throws Exception {
+        if (receiver != null) {
+            receiver.shutdown();
+        }
+        for (DatagramChannel sender : senders) {
+            sender.close();
+        }
+    }
+
+    @Test
+    public void singleSocketByDefault() throws Exception {
+        CountingNode node = start(PACKETS_PER_SENDER);
+        send(1, PACKETS_PER_SENDER);
+        assertTrue("all packets should be processed", node.await());
+        assertEquals(1, receiver.getSocketCount());
+        assertEquals(PACKETS_PER_SENDER, receiver.getReceivedCounts()[0]);
+    }
+
+    @Test
+    public void packetsFromManySendersAreReceivedOnAllSockets() throws Exception {
+        CountingNode node = start(SENDERS * PACKETS_PER_SENDER, "--udp-receive-sockets", "4");
+        send(SENDERS, PACKETS_PER_SENDER);
+        assertTrue("all packets should be processed", node.await());
+
+        int expectedSockets = BatchedUDPReceiver.reusePortOption() == null ? 1 : 4;
+        assertEquals(expectedSockets, receiver.getSocketCount());
+        long[] counts = receiver.getReceivedCounts();
+        assertEquals(expectedSockets, counts.length);
+        long total = 0;
+        for (long count : counts) {
+            // the kernel assigns every sender to one socket
+            assertEquals("a socket should get whole senders", 0, count % PACKETS_PER_SENDER);
+            total += count;
+        }
+        assertEquals(SENDERS * PACKETS_PER_SENDER, total);
+        assertEquals(total, receiver.getReceivedCount());
+    }
+
+    private CountingNode start(int expected, String... args) throws Exception {
+        List<String> arguments = new ArrayList<>();
+        arguments.add("-u");
+        arguments.add(String.valueOf(PORT));
+        for (String arg : args) {
+            arguments.add(arg);
+        }
+        IotaConfig config = new MainnetConfig();
+        config.parseConfigFromArgs(arguments.toArray(new String[0]));
+        CountingNode node = new CountingNode(config, expected);
+        receiver = new BatchedUDPReceiver(node, config);
+        receiver.init();
+        return node;
+    }
+
+    private void send(int senderCount, int packets) throws Exception {
+        SocketAddress target = new InetSocketAddress("127.0.0.1", PORT);
+        ByteBuffer payload = ByteBuffer.allocate(new MainnetConfig().getTransactionPacketSize());
+        for (int s = 0; s < senderCount; s++) {
+            DatagramChannel sender = DatagramChannel.open();
+            senders.add(sender);
+            for (int i = 0; i < packets; i++) {
+                payload.clear();
+                sender.send(payload, target);
+            }
+        }
+    }
+
+    private static class CountingNode extends Node {
+        private final CountDownLatch received;
+
+        CountingNode(IotaConfig config, int expected) {
+            super(null, null, null, null, null, null, config);
+            this.received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void preProcessReceivedData(byte[] receivedData, SocketAddress senderAddress, String uriScheme) {
+            received.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return received.await(10, TimeUnit.SECONDS);
+        }
+    }
+}
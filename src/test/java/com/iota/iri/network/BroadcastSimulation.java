@@ -0,0 +1,177 @@
+package com.iota.iri.network;
+
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * In-process simulation of gossip between many nodes, counting the packets sent to spread transactions with and
+ * without a {@link NeighborSeenSet}.
+ * <p>
+ * Nodes are connected to random peers. Transactions are issued by random nodes at a fixed rate. A node that receives
+ * a transaction for the first time broadcasts it after a random processing delay, and every packet takes a random
+ * link latency. Every received packet marks its sender in the seen set of the receiver, like
+ * {@code Node.preProcessReceivedData} does, so copies that arrive while the node is still processing the transaction
+ * also suppress the broadcast to their senders. Request hashes and replies are not modelled.
+ * </p>
+ */
+class BroadcastSimulation {
+
+    private static final int MIN_LATENCY_MS = 5;
+    private static final int MAX_LATENCY_MS = 50;
+    private static final int MIN_PROCESSING_MS = 1;
+    private static final int MAX_PROCESSING_MS = 20;
+    private static final int ISSUE_INTERVAL_MS = 5;
+
+    private final int nodes;
+    private final int degree;
+    private final int transactions;
+
+    BroadcastSimulation(int nodes, int degree, int transactions) {
+        this.nodes = nodes;
+        this.degree = degree;
+        this.transactions = transactions;
+    }
+
+    /**
+     * @param seenSet true to skip neighbors that are known to have a transaction
+     * @param seed seed of the topology, delays and issuers
+     * @return the packets sent and the spread of the transactions
+     */
+    Result run(boolean seenSet, long seed) {
+        Random random = new Random(seed);
+        List<List<Integer>> peers = topology(random);
+        Neighbor[] addresses = new Neighbor[nodes];
+        for (int i = 0; i < nodes; i++) {
+            addresses[i] = new TCPNeighbor(new InetSocketAddress("10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "."
+                    + (i & 0xff), 15600), true);
+        }
+        NeighborSeenSet[] seenSets = new NeighborSeenSet[nodes];
+        List<Set<Integer>> stored = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            seenSets[i] = new NeighborSeenSet(transactions, Long.MAX_VALUE / 4, () -> 0L);
+            for (int peer : peers.get(i)) {
+                seenSets[i].register(addresses[peer]);
+            }
+            stored.add(new HashSet<>());
+        }
+        Hash[] hashes = new Hash[transactions];
+        byte[] bytes = new byte[Hash.SIZE_IN_BYTES];
+        for (int t = 0; t < transactions; t++) {
+            random.nextBytes(bytes);
+            hashes[t] = HashFactory.TRANSACTION.create(bytes.clone());
+        }
+
+        PriorityQueue<Event> events = new PriorityQueue<>();
+        for (int t = 0; t < transactions; t++) {
+            int issuer = random.nextInt(nodes);
+            stored.get(issuer).add(t);
+            events.add(new Event((long) t * ISSUE_INTERVAL_MS, issuer, -1, t));
+        }
+        Result result = new Result();
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            if (event.from >= 0) {
+                // a packet arrives
+                seenSets[event.node].markSeen(hashes[event.transaction], addresses[event.from]);
+                if (stored.get(event.node).add(event.transaction)) {
+                    events.add(new Event(event.time + between(random, MIN_PROCESSING_MS, MAX_PROCESSING_MS),
+                            event.node, -1, event.transaction));
+                }
+                continue;
+            }
+            // a node broadcasts a stored transaction
+            long seenBy = seenSet ? seenSets[event.node].seenBy(hashes[event.transaction]) : 0L;
+            for (int peer : peers.get(event.node)) {
+                if (seenBy != 0 && seenSets[event.node].isSeenBy(seenBy, addresses[peer])) {
+                    continue;
+                }
+                result.packets++;
+                events.add(new Event(event.time + between(random, MIN_LATENCY_MS, MAX_LATENCY_MS), peer, event.node,
+                        event.transaction));
+            }
+        }
+        for (Set<Integer> transactionsOfNode : stored) {
+            result.copies += transactionsOfNode.size();
+        }
+        result.expectedCopies = (long) nodes * transactions;
+        return result;
+    }
+
+    /**
+     * Connects every node to random peers until it has at least {@code degree} of them.
+     */
+    private List<List<Integer>> topology(Random random) {
+        List<Set<Integer>> links = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            links.add(new HashSet<>());
+        }
+        for (int i = 0; i < nodes; i++) {
+            while (links.get(i).size() < Math.min(degree, nodes - 1)) {
+                int peer = random.nextInt(nodes);
+                if (peer != i) {
+                    links.get(i).add(peer);
+                    links.get(peer).add(i);
+                }
+            }
+        }
+        List<List<Integer>> peers = new ArrayList<>();
+        for (Set<Integer> link : links) {
+            peers.add(new ArrayList<>(link));
+        }
+        return peers;
+    }
+
+    private static long between(Random random, int min, int max) {
+        return min + random.nextInt(max - min + 1);
+    }
+
+    static class Result {
+        private long packets;
+        private long copies;
+        private long expectedCopies;
+
+        public long getPackets() {
+            return packets;
+        }
+
+        /**
+         * @return true if every node got every transaction
+         */
+        public boolean isComplete() {
+            return copies == expectedCopies;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d packets, %.2f per transaction and node, %d of %d copies stored", packets,
+                    (double) packets / expectedCopies, copies, expectedCopies);
+        }
+    }
+
+    private static class Event implements Comparable<Event> {
+        private final long time;
+        private final int node;
+        private final int from;
+        private final int transaction;
+
+        private Event(long time, int node, int from, int transaction) {
+            this.time = time;
+            this.node = node;
+            this.from = from;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            return Long.compare(time, other.time);
+        }
+    }
+}
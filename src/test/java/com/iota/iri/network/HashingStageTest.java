@@ -0,0 +1,72 @@
+package com.iota.iri.network;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.TransactionHash;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HashingStageTest {
+
+    private static final int PACKET_SIZE = TransactionViewModel.SIZE + 46;
+
+    private final Neighbor neighbor = new UDPNeighbor(new InetSocketAddress("127.0.0.1", 14600), null, null, 1, false);
+    private final Map<Long, Hash> hashes = new ConcurrentHashMap<>();
+    private HashingStage stage;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        stage.shutdown();
+    }
+
+    @Test
+    public void hashesMatchScalarHashes() throws InterruptedException {
+        stage = new HashingStage(2, TimeUnit.MILLISECONDS.toNanos(5), (packet, n, digest, hash) -> hashes.put(digest,
+                hash));
+        stage.init();
+        Random random = new Random(9);
+        byte[][] packets = new byte[150][PACKET_SIZE];
+        for (int i = 0; i < packets.length; i++) {
+            random.nextBytes(packets[i]);
+            assertTrue(stage.submit(packets[i], neighbor, i));
+        }
+        awaitHashes(packets.length);
+        for (int i = 0; i < packets.length; i++) {
+            Hash expected = TransactionHash.calculate(packets[i], TransactionViewModel.TRINARY_SIZE,
+                    SpongeFactory.create(SpongeFactory.Mode.CURLP81));
+            assertEquals("packet " + i, expected, hashes.get((long) i));
+        }
+        assertTrue("packets should be hashed in batches", stage.getMetrics().getBatchCount() < packets.length);
+    }
+
+    @Test
+    public void singlePacketIsNotHeldBackLongerThanTheLatencyBound() throws InterruptedException {
+        stage = new HashingStage(1, TimeUnit.MILLISECONDS.toNanos(20), (packet, n, digest, hash) -> hashes.put(digest,
+                hash));
+        stage.init();
+        long start = System.nanoTime();
+        stage.submit(new byte[PACKET_SIZE], neighbor, 1);
+        awaitHashes(1);
+        long elapsed = System.nanoTime() - start;
+        assertTrue("took " + elapsed + "ns", elapsed >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue("took " + elapsed + "ns", elapsed < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void awaitHashes(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hashes.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, hashes.size());
+    }
+}
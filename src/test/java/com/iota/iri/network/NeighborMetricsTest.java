@@ -0,0 +1,99 @@
+package com.iota.iri.network;
+
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.model.Hash;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NeighborMetricsTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void concurrentUpdatesAreNotLost() throws InterruptedException {
+        NeighborMetrics metrics = new NeighborMetrics(0);
+        int threads = 8;
+        int updates = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < updates; i++) {
+                    metrics.received(1650);
+                    metrics.sent(1650);
+                    metrics.incNewTransactions();
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(threads * updates, metrics.getAllTransactions());
+        assertEquals(threads * updates, metrics.getSentTransactions());
+        assertEquals(threads * updates, metrics.getNewTransactions());
+        assertEquals(1650L * threads * updates, metrics.getBytesReceived());
+    }
+
+    @Test
+    public void ratesCoverTheLastWindow() {
+        NeighborMetrics metrics = new NeighborMetrics(0);
+        for (int i = 0; i < 100; i++) {
+            metrics.received(1000);
+        }
+        metrics.sample(10 * SECOND);
+        assertEquals(10d, metrics.getReceivedPerSecond(), 1e-9);
+        assertEquals(10_000d, metrics.getBytesReceivedPerSecond(), 1e-9);
+
+        for (int i = 0; i < 40; i++) {
+            metrics.sent(500);
+        }
+        metrics.sample(12 * SECOND);
+        assertEquals(0d, metrics.getReceivedPerSecond(), 1e-9);
+        assertEquals(20d, metrics.getSentPerSecond(), 1e-9);
+        assertEquals(10_000d, metrics.getBytesSentPerSecond(), 1e-9);
+    }
+
+    @Test
+    public void replyLatencyIsMeasuredForRequestedTransactions() {
+        NeighborMetrics metrics = new NeighborMetrics(0);
+        Hash requested = TransactionViewModelTest.getRandomTransactionHash();
+        Hash unrequested = TransactionViewModelTest.getRandomTransactionHash();
+        metrics.requestSent(requested, 0);
+        metrics.transactionReceived(unrequested, SECOND);
+        metrics.transactionReceived(requested, TimeUnit.MILLISECONDS.toNanos(3));
+        // a second copy of the transaction is not an answer
+        metrics.transactionReceived(requested, SECOND);
+        metrics.sample(SECOND);
+        assertEquals(4096, metrics.getReplyLatencyP50Micros());
+        assertEquals(4096, metrics.getReplyLatencyP99Micros());
+
+        metrics.sample(2 * SECOND);
+        assertEquals("latencies should be reset with every window", 0, metrics.getReplyLatencyP99Micros());
+    }
+
+    @Test
+    public void requestScoreFollowsFulfilmentAndLatency() {
+        NeighborMetrics metrics = new NeighborMetrics(0);
+        double initial = metrics.updateRequestScore(0);
+        for (int i = 0; i < 10; i++) {
+            Hash hash = TransactionViewModelTest.getRandomTransactionHash();
+            metrics.requestSent(hash, 0);
+            if (i < 5) {
+                metrics.transactionReceived(hash, TimeUnit.MILLISECONDS.toNanos(250));
+            }
+        }
+        double score = metrics.updateRequestScore(SECOND);
+
+        assertEquals(10, metrics.getRequestsSent());
+        assertEquals(5, metrics.getRequestsAnswered());
+        assertEquals(1 - NeighborMetrics.SCORE_WEIGHT / 2, metrics.getRequestFulfilment(), 1e-9);
+        assertEquals(50_000 + NeighborMetrics.SCORE_WEIGHT * 200_000, metrics.getRequestLatencyMicros(), 1);
+        assertTrue("unanswered and slow requests should lower the score", score < initial);
+        assertEquals("a window without requests should not change the score", score,
+                metrics.updateRequestScore(2 * SECOND), 1e-9);
+    }
+}
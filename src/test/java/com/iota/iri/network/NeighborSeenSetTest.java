@@ -0,0 +1,138 @@
+package com.iota.iri.network;
+
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NeighborSeenSetTest {
+
+    private static final long WINDOW_MS = 1_000L;
+
+    private final AtomicLong now = new AtomicLong();
+    private final Random random = new Random(19);
+    private NeighborSeenSet seenSet;
+
+    @Before
+    public void setUp() {
+        seenSet = new NeighborSeenSet(1_000, WINDOW_MS, now::get);
+    }
+
+    @Test
+    public void remembersNeighborsThatSentTheTransaction() {
+        Neighbor first = neighbor(1);
+        Neighbor second = neighbor(2);
+        Neighbor third = neighbor(3);
+        seenSet.register(first);
+        seenSet.register(second);
+        seenSet.register(third);
+        Hash hash = randomHash();
+        seenSet.markSeen(hash, first);
+        seenSet.markSeen(hash, third);
+
+        long seenBy = seenSet.seenBy(hash);
+        assertTrue(seenSet.isSeenBy(seenBy, first));
+        assertFalse(seenSet.isSeenBy(seenBy, second));
+        assertTrue(seenSet.isSeenBy(seenBy, third));
+        assertEquals(2, seenSet.getSuppressedCount());
+        assertEquals(0, seenSet.seenBy(randomHash()));
+    }
+
+    @Test
+    public void entriesExpireAfterTwoWindows() {
+        Neighbor neighbor = neighbor(1);
+        seenSet.register(neighbor);
+        Hash hash = randomHash();
+        seenSet.markSeen(hash, neighbor);
+
+        now.set(WINDOW_MS);
+        seenSet.markSeen(randomHash(), neighbor);
+        assertTrue("the previous generation is still checked", seenSet.isSeenBy(seenSet.seenBy(hash), neighbor));
+
+        now.set(2 * WINDOW_MS);
+        seenSet.markSeen(randomHash(), neighbor);
+        assertEquals(0, seenSet.seenBy(hash));
+    }
+
+    @Test
+    public void slotOfRemovedNeighborIsReusedOnlyAfterItsBitsExpired() {
+        Neighbor removed = neighbor(1);
+        seenSet.register(removed);
+        Hash hash = randomHash();
+        seenSet.markSeen(hash, removed);
+        seenSet.unregister(removed);
+
+        Neighbor added = neighbor(2);
+        seenSet.register(added);
+        assertFalse(seenSet.isSeenBy(seenSet.seenBy(hash), added));
+
+        now.set(2 * WINDOW_MS);
+        Neighbor later = neighbor(3);
+        seenSet.register(later);
+        seenSet.markSeen(randomHash(), later);
+        assertEquals("the slot is free again and the old bits are gone", 0, seenSet.seenBy(hash));
+    }
+
+    @Test
+    public void neighborsWithoutSlotAreNeverSkipped() {
+        Neighbor[] neighbors = new Neighbor[NeighborSeenSet.SLOTS + 1];
+        for (int i = 0; i < neighbors.length; i++) {
+            neighbors[i] = neighbor(i + 1);
+            seenSet.register(neighbors[i]);
+        }
+        Hash hash = randomHash();
+        for (Neighbor neighbor : neighbors) {
+            seenSet.markSeen(hash, neighbor);
+        }
+        long seenBy = seenSet.seenBy(hash);
+        assertEquals(-1L, seenBy);
+        assertTrue(seenSet.isSeenBy(seenBy, neighbors[NeighborSeenSet.SLOTS - 1]));
+        assertFalse(seenSet.isSeenBy(seenBy, neighbors[NeighborSeenSet.SLOTS]));
+    }
+
+    @Test
+    public void capacityIsBounded() {
+        Neighbor neighbor = neighbor(1);
+        seenSet.register(neighbor);
+        Hash first = randomHash();
+        seenSet.markSeen(first, neighbor);
+        int seen = 0;
+        for (int i = 0; i < 100_000; i++) {
+            Hash hash = randomHash();
+            seenSet.markSeen(hash, neighbor);
+            if (seenSet.seenBy(hash) != 0) {
+                seen++;
+            }
+        }
+        assertEquals("a fresh entry is always found", 100_000, seen);
+        assertEquals("old entries are replaced", 0, seenSet.seenBy(first));
+    }
+
+    @Test
+    public void simulationSendsFewerPackets() {
+        BroadcastSimulation simulation = new BroadcastSimulation(50, 6, 200);
+        BroadcastSimulation.Result flooding = simulation.run(false, 3);
+        BroadcastSimulation.Result suppressed = simulation.run(true, 3);
+        assertTrue(flooding.isComplete());
+        assertTrue("every node should still get every transaction", suppressed.isComplete());
+        assertTrue(suppressed + " vs " + flooding, suppressed.getPackets() < flooding.getPackets());
+    }
+
+    private Hash randomHash() {
+        byte[] bytes = new byte[Hash.SIZE_IN_BYTES];
+        random.nextBytes(bytes);
+        return HashFactory.TRANSACTION.create(bytes);
+    }
+
+    private static Neighbor neighbor(int id) {
+        return new TCPNeighbor(new InetSocketAddress("10.0." + (id >> 8) + "." + (id & 0xff), 15600), true);
+    }
+}
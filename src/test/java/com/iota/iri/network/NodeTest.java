@@ -0,0 +1,114 @@
+package com.iota.iri.network;
+
+import com.iota.iri.conf.IotaConfig;
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import com.iota.iri.utils.Converter;
+import com.iota.iri.zmq.MessageQ;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NodeTest {
+
+    private Node node;
+
+    @Before
+    public void setUp() {
+        node = new Node(null, null, null, null, null, null, new MainnetConfig());
+    }
+
+    @Test
+    public void findNeighborMatchesProtocolAndIpButNotPort() throws Exception {
+        Neighbor udp = node.newNeighbor(new URI("udp://127.0.0.1:14600"), true);
+        Neighbor tcp = node.newNeighbor(new URI("tcp://127.0.0.2:15600"), true);
+        assertTrue(node.addNeighbor(udp));
+        assertTrue(node.addNeighbor(tcp));
+
+        assertEquals(udp, node.findNeighbor(new InetSocketAddress("127.0.0.1", 4242), "udp"));
+        assertEquals(tcp, node.findNeighbor(new InetSocketAddress("127.0.0.2", 4242), "tcp"));
+        assertNull(node.findNeighbor(new InetSocketAddress("127.0.0.1", 14600), "tcp"));
+        assertNull(node.findNeighbor(new InetSocketAddress("127.0.0.3", 14600), "udp"));
+    }
+
+    @Test
+    public void addingTheSameNeighborTwiceIsRejected() throws Exception {
+        assertTrue(node.addNeighbor(node.newNeighbor(new URI("udp://127.0.0.1:14600"), true)));
+        assertFalse(node.addNeighbor(node.newNeighbor(new URI("udp://127.0.0.1:14600"), false)));
+        assertEquals(1, node.howManyNeighbors());
+    }
+
+    @Test
+    public void removingNeighborHandsLookupToNeighborOnSameHost() throws Exception {
+        Neighbor first = node.newNeighbor(new URI("udp://127.0.0.1:14600"), true);
+        Neighbor second = node.newNeighbor(new URI("udp://127.0.0.1:14601"), true);
+        node.addNeighbor(first);
+        node.addNeighbor(second);
+        InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 14600);
+        assertEquals(first, node.findNeighbor(sender, "udp"));
+
+        assertTrue(node.removeNeighbor(new URI("udp://127.0.0.1:14600"), true));
+        assertEquals(second, node.findNeighbor(sender, "udp"));
+
+        assertTrue(node.removeNeighbor(new URI("udp://127.0.0.1:14601"), true));
+        assertNull(node.findNeighbor(sender, "udp"));
+    }
+
+    @Test
+    public void addressIsFoundInThePacketWithoutHashing() {
+        byte[] trits = TransactionViewModelTest.getRandomTransactionTrits();
+        Hash address = HashFactory.ADDRESS.create(trits, TransactionViewModel.ADDRESS_TRINARY_OFFSET);
+        byte[] packet = new byte[TransactionViewModel.SIZE];
+        Converter.bytes(trits, 0, packet, 0, trits.length);
+
+        assertTrue(Node.hasAddress(packet, address));
+        int last = TransactionViewModel.ADDRESS_TRINARY_OFFSET + TransactionViewModel.ADDRESS_TRINARY_SIZE - 1;
+        trits[last] = (byte) (trits[last] == 1 ? 0 : 1);
+        Converter.bytes(trits, 0, packet, 0, trits.length);
+        assertFalse(Node.hasAddress(packet, address));
+    }
+
+    @Test
+    public void batchHashedPacketsArePreProcessed() throws Exception {
+        IotaConfig config = new MainnetConfig();
+        config.parseConfigFromArgs(new String[]{"--batch-hashing", "true", "--hash-batch-latency", "1000"});
+        // without a validator every hashed transaction fails its validation and is counted as invalid
+        node = new Node(null, null, null, null, null, MessageQ.createWith(config), config);
+        node.init();
+        try {
+            Neighbor neighbor = node.newNeighbor(new URI("udp://127.0.0.1:14600"), true);
+            node.addNeighbor(neighbor);
+            InetSocketAddress sender = new InetSocketAddress("127.0.0.1", 14600);
+            Random random = new Random(17);
+            int packets = 10;
+            for (int i = 0; i < packets; i++) {
+                byte[] packet = new byte[config.getTransactionPacketSize()];
+                random.nextBytes(packet);
+                node.preProcessReceivedData(packet, sender, "udp");
+            }
+            StageMetrics hashing = node.getStageMetrics().get(0);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (neighbor.getNumberOfInvalidTransactions() < packets && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals("hash", hashing.getName());
+            assertEquals(packets, hashing.getProcessedCount());
+            assertEquals(0, hashing.getFailedCount());
+            assertEquals(packets, neighbor.getNumberOfInvalidTransactions());
+        } finally {
+            node.shutdown();
+        }
+    }
+}
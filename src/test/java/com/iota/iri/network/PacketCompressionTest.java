@@ -0,0 +1,74 @@
+package com.iota.iri.network;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PacketCompressionTest {
+
+    private static final int PACKET_SIZE = TransactionViewModel.SIZE + 46;
+
+    @Test
+    public void compressedPacketsRoundTrip() {
+        Random random = new Random(3);
+        for (int kept : new int[]{0, 1, 2, 100, PacketCompression.SIGNATURE_BYTES - 1,
+                PacketCompression.SIGNATURE_BYTES}) {
+            byte[] packet = new byte[PACKET_SIZE];
+            random.nextBytes(packet);
+            Arrays.fill(packet, kept, PacketCompression.SIGNATURE_BYTES, (byte) 0);
+            if (kept > 0) {
+                packet[kept - 1] = 1;
+            }
+            byte[] data = packet.clone();
+            int length = PacketCompression.compress(data, PACKET_SIZE);
+            assertEquals("kept " + kept, kept + PACKET_SIZE - PacketCompression.SIGNATURE_BYTES, length);
+            assertTrue(PacketCompression.isCompressedLength(length, PACKET_SIZE));
+            assertArrayEquals("kept " + kept, packet, PacketCompression.decompress(data, 0, length, PACKET_SIZE));
+        }
+    }
+
+    @Test
+    public void fullFragmentIsLeftAsIs() {
+        byte[] packet = new byte[PACKET_SIZE];
+        packet[PacketCompression.SIGNATURE_BYTES - 1] = -1;
+        byte[] data = packet.clone();
+        assertEquals(PACKET_SIZE, PacketCompression.compress(data, PACKET_SIZE));
+        assertArrayEquals(packet, data);
+    }
+
+    @Test
+    public void decompressesAtOffset() {
+        byte[] packet = new byte[PACKET_SIZE];
+        packet[0] = 4;
+        packet[PACKET_SIZE - 1] = 8;
+        byte[] data = packet.clone();
+        int length = PacketCompression.compress(data, PACKET_SIZE);
+        byte[] framed = new byte[length + 3];
+        System.arraycopy(data, 0, framed, 3, length);
+        assertArrayEquals(packet, PacketCompression.decompress(framed, 3, length, PACKET_SIZE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooShortPackets() {
+        int length = PACKET_SIZE - PacketCompression.SIGNATURE_BYTES - 1;
+        assertFalse(PacketCompression.isCompressedLength(length, PACKET_SIZE));
+        PacketCompression.decompress(new byte[PACKET_SIZE], 0, length, PACKET_SIZE);
+    }
+
+    @Test
+    public void recognizesHello() {
+        byte[] data = Arrays.copyOf(PacketCompression.HELLO, PACKET_SIZE);
+        assertTrue(PacketCompression.isHello(data, PacketCompression.HELLO.length));
+        assertFalse(PacketCompression.isHello(data, PACKET_SIZE));
+        data[0] = 'x';
+        assertFalse(PacketCompression.isHello(data, PacketCompression.HELLO.length));
+        assertFalse(PacketCompression.isCompressedLength(PacketCompression.HELLO.length, PACKET_SIZE));
+    }
+}
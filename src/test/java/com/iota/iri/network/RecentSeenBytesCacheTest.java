@@ -0,0 +1,69 @@
+package com.iota.iri.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RecentSeenBytesCacheTest {
+
+    @Test
+    public void putThenGetReturnsValue() {
+        RecentSeenBytesCache<String> cache = new RecentSeenBytesCache<>(16, 0d);
+        cache.put(42L, "a");
+        cache.put(0L, "zero");
+
+        assertEquals("a", cache.get(42L));
+        assertEquals("zero", cache.get(0L));
+        assertNull(cache.get(43L));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void existingEntryIsNotOverwritten() {
+        RecentSeenBytesCache<String> cache = new RecentSeenBytesCache<>(16, 0d);
+        cache.put(42L, "a");
+        cache.put(42L, "b");
+
+        assertEquals("a", cache.get(42L));
+    }
+
+    @Test
+    public void dropRateOfOneRemovesEveryHit() {
+        RecentSeenBytesCache<String> cache = new RecentSeenBytesCache<>(16, 1d);
+        cache.put(42L, "a");
+
+        assertNull(cache.get(42L));
+        cache.put(42L, "b");
+        assertNull(cache.get(42L));
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void fullBucketEvictsUnreferencedEntryFirst() {
+        // a single bucket, every key competes for the same slots
+        RecentSeenBytesCache<Long> cache = new RecentSeenBytesCache<>(RecentSeenBytesCache.WAYS, 0d);
+        for (long i = 1; i <= RecentSeenBytesCache.WAYS; i++) {
+            cache.put(i, i);
+        }
+        // reference everything but the second entry
+        for (long i = 1; i <= RecentSeenBytesCache.WAYS; i++) {
+            if (i != 2) {
+                cache.get(i);
+            }
+        }
+        cache.put(100L, 100L);
+
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(2L));
+        assertEquals(Long.valueOf(1L), cache.get(1L));
+        assertEquals(Long.valueOf(100L), cache.get(100L));
+    }
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwoBuckets() {
+        assertEquals(256, new RecentSeenBytesCache<>(150, 0d).capacity());
+        assertEquals(128, new RecentSeenBytesCache<>(128, 0d).capacity());
+    }
+}
@@ -0,0 +1,107 @@
+package com.iota.iri.network;
+
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.model.Hash;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestRouterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final List<Neighbor> neighbors = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        for (int i = 1; i <= 4; i++) {
+            neighbors.add(new TCPNeighbor(new InetSocketAddress("10.0.0." + i, 15600), true));
+        }
+    }
+
+    @Test
+    public void prefersNeighborsThatAnswerQuickly() {
+        RequestRouter router = new RequestRouter(0d, new Random(1));
+        long now = 0;
+        long[] latencies = {400 * MS, 20 * MS, 900 * MS, 60 * MS};
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < neighbors.size(); i++) {
+                request(neighbors.get(i), now, latencies[i]);
+            }
+            now += RequestRouter.RANK_INTERVAL_NS;
+            router.shouldRequest(neighbors.get(0), neighbors, now);
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(neighbors.get(1), neighbors.get(3))), router.getPreferred());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(router.shouldRequest(neighbors.get(1), neighbors, now));
+            assertFalse("without exploration the others get no requests",
+                    router.shouldRequest(neighbors.get(2), neighbors, now));
+        }
+    }
+
+    @Test
+    public void neighborsThatDoNotAnswerLosePreference() {
+        RequestRouter router = new RequestRouter(0d, new Random(1));
+        long now = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < neighbors.size(); i++) {
+                // the fastest neighbor drops its requests
+                if (i == 0) {
+                    neighbors.get(i).getMetrics().requestSent(TransactionViewModelTest.getRandomTransactionHash(), now);
+                } else {
+                    request(neighbors.get(i), now, (100 + 100 * i) * MS);
+                }
+            }
+            now += RequestRouter.RANK_INTERVAL_NS;
+            router.shouldRequest(neighbors.get(0), neighbors, now);
+        }
+
+        assertFalse(router.getPreferred().contains(neighbors.get(0)));
+        assertEquals(new HashSet<>(Arrays.asList(neighbors.get(1), neighbors.get(2))), router.getPreferred());
+    }
+
+    @Test
+    public void explorationRequestsFromTheOtherNeighbors() {
+        RequestRouter router = new RequestRouter(0.25, new Random(1));
+        router.shouldRequest(neighbors.get(0), neighbors, 0);
+        Neighbor other = neighbors.stream().filter(n -> !router.getPreferred().contains(n)).findFirst().get();
+        int requests = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (router.shouldRequest(other, neighbors, 0)) {
+                requests++;
+            }
+        }
+        assertEquals(2_500, requests, 200);
+    }
+
+    private static void request(Neighbor neighbor, long now, long latency) {
+        for (int i = 0; i < 10; i++) {
+            Hash hash = TransactionViewModelTest.getRandomTransactionHash();
+            neighbor.getMetrics().requestSent(hash, now);
+            neighbor.getMetrics().transactionReceived(hash, now + latency);
+        }
+    }
+
+    @Test
+    public void simulationSolidifiesFaster() {
+        AdaptiveRequestSimulation simulation = new AdaptiveRequestSimulation(500);
+        for (long seed = 1; seed <= 3; seed++) {
+            AdaptiveRequestSimulation.Result every = simulation.run(false, seed);
+            AdaptiveRequestSimulation.Result adaptive = simulation.run(true, seed);
+            assertTrue(adaptive + " vs " + every, adaptive.getNanos() < every.getNanos());
+            assertTrue(adaptive + " vs " + every, adaptive.getRequests() < every.getRequests());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.iota.iri.network;
+
+import com.iota.iri.network.SendScheduler.TrafficClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Simulates saturated senders against a {@link SendScheduler} driven by a fake clock, so the results are
+ * deterministic.
+ */
+public class SendSchedulerTest {
+
+    private static final double RATE = 1_000d;
+    private static final int BURST = 50;
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private long now;
+
+    private SendScheduler scheduler(double rate) {
+        return new SendScheduler(rate, BURST, 0.1d, 0.2d, () -> now);
+    }
+
+    private static Neighbor neighbor(int port) {
+        return new UDPNeighbor(new InetSocketAddress("127.0.0.1", port), null, false);
+    }
+
+    @Test
+    public void outputIsSmoothUnderSaturation() {
+        SendScheduler scheduler = scheduler(RATE);
+        Neighbor[] neighbors = {neighbor(1), neighbor(2), neighbor(3), neighbor(4)};
+        long[] sentPerNeighbor = new long[neighbors.length];
+        for (Neighbor neighbor : neighbors) {
+            scheduler.setWeight(neighbor, 1);
+        }
+
+        // the first window may use the initial burst
+        long sentInWindow = 0;
+        for (int ms = 1; ms <= 10_000; ms++) {
+            now += TICK;
+            for (int i = 0; i < neighbors.length; i++) {
+                for (int offered = 0; offered < 5; offered++) {
+                    if (scheduler.tryAcquire(neighbors[i], TrafficClass.BROADCAST)) {
+                        sentPerNeighbor[i]++;
+                        sentInWindow++;
+                    }
+                }
+            }
+            if (ms % 100 == 0) {
+                if (ms > 100) {
+                    assertTrue("window ending at " + ms + "ms sent " + sentInWindow,
+                            sentInWindow >= 98 && sentInWindow <= 102);
+                }
+                sentInWindow = 0;
+            }
+        }
+        for (long sent : sentPerNeighbor) {
+            assertEquals("neighbors should get equal shares", 2_500d, sent, 25d);
+        }
+        assertEquals(10_000d, scheduler.getSentCount(TrafficClass.BROADCAST), 50d);
+    }
+
+    @Test
+    public void sharesFollowWeights() {
+        SendScheduler scheduler = scheduler(RATE);
+        Neighbor light = neighbor(1);
+        Neighbor heavy = neighbor(2);
+        scheduler.setWeight(light, 1);
+        scheduler.setWeight(heavy, 3);
+        long lightSent = 0;
+        long heavySent = 0;
+        for (int ms = 0; ms < 10_000; ms++) {
+            now += TICK;
+            for (int offered = 0; offered < 5; offered++) {
+                lightSent += scheduler.tryAcquire(light, TrafficClass.BROADCAST) ? 1 : 0;
+                heavySent += scheduler.tryAcquire(heavy, TrafficClass.BROADCAST) ? 1 : 0;
+            }
+        }
+        assertEquals("light neighbor should get a quarter", 2_500d, lightSent, 25d);
+        assertEquals("heavy neighbor should get three quarters", 7_500d, heavySent, 25d);
+
+        scheduler.removeNeighbor(heavy);
+        lightSent = 0;
+        for (int ms = 0; ms < 1_000; ms++) {
+            now += TICK;
+            for (int offered = 0; offered < 5; offered++) {
+                lightSent += scheduler.tryAcquire(light, TrafficClass.BROADCAST) ? 1 : 0;
+            }
+        }
+        assertEquals("remaining neighbor should get the whole budget", 1_000d, lightSent, 20d);
+    }
+
+    @Test
+    public void milestonesAndRepliesArePrioritizedUnderSaturation() {
+        SendScheduler scheduler = scheduler(RATE);
+        Neighbor[] neighbors = {neighbor(1), neighbor(2), neighbor(3), neighbor(4)};
+        for (Neighbor neighbor : neighbors) {
+            scheduler.setWeight(neighbor, 1);
+        }
+        for (int ms = 0; ms < 10_000; ms++) {
+            now += TICK;
+            // lower classes ask first, so the order of the requests does not explain the result
+            for (Neighbor neighbor : neighbors) {
+                for (int offered = 0; offered < 5; offered++) {
+                    scheduler.tryAcquire(neighbor, TrafficClass.BROADCAST);
+                }
+            }
+            scheduler.tryAcquire(neighbors[ms % neighbors.length], TrafficClass.REPLY);
+            if (ms % 5 == 0) {
+                scheduler.tryAcquire(neighbors[ms / 5 % neighbors.length], TrafficClass.MILESTONE);
+            }
+        }
+        assertEquals("no milestone should be throttled", 0, scheduler.getThrottledCount(TrafficClass.MILESTONE));
+        assertEquals(2_000, scheduler.getSentCount(TrafficClass.MILESTONE));
+        assertTrue("replies should get the rest of the budget",
+                scheduler.getSentCount(TrafficClass.REPLY) >= 7_800);
+        assertTrue("broadcasts should be throttled",
+                scheduler.getSentCount(TrafficClass.BROADCAST) <= 200);
+        long total = scheduler.getSentCount(TrafficClass.MILESTONE) + scheduler.getSentCount(TrafficClass.REPLY)
+                + scheduler.getSentCount(TrafficClass.BROADCAST);
+        assertTrue("total output should stay within the budget", total <= 10_000 + BURST);
+    }
+
+    @Test
+    public void removedNeighborIsNotSentTo() {
+        SendScheduler scheduler = scheduler(RATE);
+        Neighbor kept = neighbor(1);
+        Neighbor removed = neighbor(2);
+        scheduler.setWeight(kept, 1);
+        scheduler.setWeight(removed, 1);
+        scheduler.removeNeighbor(removed);
+        long keptSent = 0;
+        for (int ms = 0; ms < 1_000; ms++) {
+            now += TICK;
+            for (int offered = 0; offered < 5; offered++) {
+                // packets queued for the removed neighbor do not register it again
+                for (TrafficClass trafficClass : TrafficClass.values()) {
+                    assertFalse(scheduler.tryAcquire(removed, trafficClass));
+                }
+                keptSent += scheduler.tryAcquire(kept, TrafficClass.BROADCAST) ? 1 : 0;
+            }
+        }
+        assertEquals("remaining neighbor should get the whole budget", 1_000d, keptSent, 20d);
+    }
+
+    @Test
+    public void concurrentSendersShareTheGlobalBucket() throws Exception {
+        SendScheduler scheduler = scheduler(RATE);
+        Neighbor[] neighbors = {neighbor(1), neighbor(2), neighbor(3), neighbor(4)};
+        for (Neighbor neighbor : neighbors) {
+            scheduler.setWeight(neighbor, 1);
+        }
+        // the clock stands still, so only the initial burst can be taken
+        Thread[] senders = new Thread[8];
+        for (int i = 0; i < senders.length; i++) {
+            Neighbor neighbor = neighbors[i % neighbors.length];
+            senders[i] = new Thread(() -> {
+                for (int offered = 0; offered < 1_000; offered++) {
+                    scheduler.tryAcquire(neighbor, TrafficClass.MILESTONE);
+                }
+            });
+            senders[i].start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        assertEquals(BURST, scheduler.getSentCount(TrafficClass.MILESTONE));
+        assertEquals(8_000 - BURST, scheduler.getThrottledCount(TrafficClass.MILESTONE));
+    }
+
+    @Test
+    public void negativeRateDisablesLimit() {
+        SendScheduler scheduler = scheduler(-1d);
+        Neighbor neighbor = neighbor(1);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(scheduler.tryAcquire(neighbor, TrafficClass.BROADCAST));
+        }
+        assertEquals(0, scheduler.getThrottledCount(TrafficClass.BROADCAST));
+    }
+}
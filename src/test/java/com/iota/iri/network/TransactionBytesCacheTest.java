@@ -0,0 +1,70 @@
+package com.iota.iri.network;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.HashFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TransactionBytesCacheTest {
+
+    private static final long ENTRY_COST = TransactionViewModel.SIZE + TransactionBytesCache.ENTRY_OVERHEAD_BYTES;
+
+    private static Hash hash(int i) {
+        byte[] bytes = new byte[Hash.SIZE_IN_BYTES];
+        bytes[0] = (byte) i;
+        return HashFactory.TRANSACTION.create(bytes);
+    }
+
+    @Test
+    public void hitReturnsCachedBytes() {
+        TransactionBytesCache cache = new TransactionBytesCache(10 * ENTRY_COST);
+        byte[] bytes = new byte[TransactionViewModel.SIZE];
+        cache.put(hash(1), hash(2), bytes);
+
+        TransactionBytesCache.Entry entry = cache.get(hash(1));
+        assertSame(bytes, entry.getBytes());
+        assertEquals(hash(2), entry.getHash());
+        assertNull(cache.get(hash(3)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void sizeIsBoundedAndLeastRecentlyUsedIsEvicted() {
+        TransactionBytesCache cache = new TransactionBytesCache(3 * ENTRY_COST);
+        for (int i = 0; i < 3; i++) {
+            cache.put(hash(i), hash(i), new byte[TransactionViewModel.SIZE]);
+        }
+        cache.get(hash(0));
+        cache.put(hash(3), hash(3), new byte[TransactionViewModel.SIZE]);
+
+        assertEquals(3 * ENTRY_COST, cache.getSizeInBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull("least recently used entry should be evicted", cache.get(hash(1)));
+        assertEquals(hash(0), cache.get(hash(0)).getHash());
+    }
+
+    @Test
+    public void existingEntryIsKept() {
+        TransactionBytesCache cache = new TransactionBytesCache(3 * ENTRY_COST);
+        byte[] first = new byte[TransactionViewModel.SIZE];
+        cache.put(hash(1), hash(1), first);
+        cache.put(hash(1), hash(1), new byte[TransactionViewModel.SIZE]);
+        assertSame(first, cache.get(hash(1)).getBytes());
+        assertEquals(ENTRY_COST, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void zeroSizeDisablesCache() {
+        TransactionBytesCache cache = new TransactionBytesCache(0);
+        assertFalse(cache.isEnabled());
+        cache.put(hash(1), hash(1), new byte[TransactionViewModel.SIZE]);
+        assertNull(cache.get(hash(1)));
+        assertEquals(0, cache.getSizeInBytes());
+    }
+}
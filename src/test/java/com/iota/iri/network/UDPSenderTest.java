@@ -0,0 +1,129 @@
+package com.iota.iri.network;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UDPSenderTest {
+
+    private static final int REQ_HASH_SIZE = 46;
+    private static final int PACKET_SIZE = TransactionViewModel.SIZE + REQ_HASH_SIZE;
+
+    private final byte[] transaction = new byte[TransactionViewModel.SIZE];
+    private final byte[] requestHash = new byte[REQ_HASH_SIZE];
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    private UDPSender sender;
+
+    @Before
+    public void setUp() {
+        sender = new UDPSender(2, PACKET_SIZE, REQ_HASH_SIZE);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        unblock.countDown();
+        sender.shutdown();
+    }
+
+    @Test
+    public void blockedNeighborDoesNotStallOthers() throws InterruptedException {
+        CountingNeighbor blocked = new CountingNeighbor(14600, 100, true);
+        CountingNeighbor healthy = new CountingNeighbor(14601, 100, false);
+        for (int i = 0; i < 50; i++) {
+            sender.send(blocked, transaction, requestHash);
+            sender.send(healthy, transaction, requestHash);
+        }
+        assertTrue("healthy neighbor should get all packets", healthy.await(50));
+        assertEquals("blocked neighbor should hang on its first packet", 1, blocked.sent.get());
+        assertTrue("packets should wait in the queue of the blocked neighbor", blocked.getSendQueueSize() > 0);
+    }
+
+    @Test
+    public void packetIsComposedFromTransactionAndRequestHash() throws InterruptedException {
+        CountingNeighbor neighbor = new CountingNeighbor(14600, 10, false);
+        transaction[0] = 7;
+        requestHash[REQ_HASH_SIZE - 1] = 9;
+        sender.send(neighbor, transaction, requestHash);
+        assertTrue(neighbor.await(1));
+        assertEquals(PACKET_SIZE, neighbor.lastPacket.length);
+        assertEquals(7, neighbor.lastPacket[0]);
+        assertEquals(9, neighbor.lastPacket[PACKET_SIZE - 1]);
+    }
+
+    @Test
+    public void compressesOnlyForNeighborsThatSentHello() throws InterruptedException {
+        sender.shutdown();
+        sender = new UDPSender(2, PACKET_SIZE, REQ_HASH_SIZE, true);
+        CountingNeighbor neighbor = new CountingNeighbor(14600, 10, false);
+        transaction[0] = 7;
+        sender.send(neighbor, transaction, requestHash);
+        assertTrue(neighbor.await(1));
+        assertEquals(PACKET_SIZE, neighbor.lastLength);
+
+        neighbor.compressionHelloReceived(System.currentTimeMillis());
+        sender.send(neighbor, transaction, requestHash);
+        assertTrue(neighbor.await(2));
+        assertEquals(1 + PACKET_SIZE - PacketCompression.SIGNATURE_BYTES, neighbor.lastLength);
+        assertEquals(7, neighbor.lastPacket[0]);
+    }
+
+    @Test
+    public void fullQueueDropsOldestPacket() {
+        CountingNeighbor neighbor = new CountingNeighbor(14600, 2, false);
+        UDPNeighbor.Outbound first = new UDPNeighbor.Outbound(transaction, requestHash);
+        UDPNeighbor.Outbound second = new UDPNeighbor.Outbound(transaction, requestHash);
+        UDPNeighbor.Outbound third = new UDPNeighbor.Outbound(transaction, requestHash);
+        neighbor.queue(first);
+        neighbor.queue(second);
+        neighbor.queue(third);
+        assertEquals(2, neighbor.getSendQueueSize());
+        assertEquals(1, neighbor.getNumberOfDroppedSends());
+        assertEquals(second, neighbor.nextQueued());
+        assertEquals(third, neighbor.nextQueued());
+    }
+
+    private class CountingNeighbor extends UDPNeighbor {
+        private final AtomicInteger sent = new AtomicInteger();
+        private final boolean blocking;
+        private volatile byte[] lastPacket;
+        private volatile int lastLength;
+
+        CountingNeighbor(int port, int sendQueueSize, boolean blocking) {
+            super(new InetSocketAddress("127.0.0.1", port), null, null, sendQueueSize, false);
+            this.blocking = blocking;
+        }
+
+        @Override
+        public void send(DatagramPacket packet) {
+            lastPacket = packet.getData().clone();
+            lastLength = packet.getLength();
+            sent.incrementAndGet();
+            if (blocking) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        boolean await(int packets) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sent.get() < packets && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return sent.get() == packets;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.iota.iri.network.replicator;
+
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.controllers.MilestoneViewModel;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.TransactionHash;
+import com.iota.iri.network.Node;
+import com.iota.iri.network.TCPNeighbor;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Syncs the transactions of a range of milestones between two nodes with their own databases over loopback.
+ */
+public class CatchUpSyncTest {
+
+    private static final int PORT = 15_711;
+    private static final int MILESTONES = 3;
+    /**
+     * More than a frame holds, so every milestone spans two frames.
+     */
+    private static final int TRANSACTIONS_PER_MILESTONE = 70;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(7);
+    private Tangle serverTangle;
+    private Tangle clientTangle;
+    private Node serverNode;
+    private CatchUpSyncServer server;
+    private final List<List<Hash>> confirmed = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        MilestoneViewModel.clear();
+        serverTangle = open("server");
+        clientTangle = open("client");
+        serverNode = new Node(null, null, null, null, null, null, new MainnetConfig());
+        server = new CatchUpSyncServer(serverNode, serverTangle, PORT);
+        server.init();
+
+        Hash previous = Hash.NULL_HASH;
+        for (int index = 1; index <= MILESTONES; index++) {
+            List<Hash> hashes = storeMilestone(index, previous);
+            confirmed.add(hashes);
+            previous = hashes.get(hashes.size() - 1);
+        }
+        // a milestone the server knows but has not confirmed yet
+        storeMilestone(MILESTONES + 1, previous);
+        TransactionViewModel.fromHash(serverTangle, MilestoneViewModel.get(serverTangle, MILESTONES + 1).getHash())
+                .setSnapshot(serverTangle, 0);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        serverTangle.shutdown();
+        clientTangle.shutdown();
+        MilestoneViewModel.clear();
+    }
+
+    @Test
+    public void syncsConfirmedTransactionsInTopologicalOrder() throws Exception {
+        serverNode.addNeighbor(new TCPNeighbor(new InetSocketAddress("127.0.0.1", 15600), true));
+        List<TransactionViewModel> received = new ArrayList<>();
+        CatchUpSyncClient client = new CatchUpSyncClient(null, PORT, (transaction, sender) -> {
+            received.add(transaction);
+            return transaction.store(clientTangle);
+        });
+
+        int last = client.sync(new InetSocketAddress("127.0.0.1", PORT), 1, MILESTONES + 2);
+
+        assertEquals("the unconfirmed milestone should end the sync", MILESTONES, last);
+        assertEquals(MILESTONES * (TRANSACTIONS_PER_MILESTONE + 1), received.size());
+        assertEquals(received.size(), client.getNewTransactions());
+        assertEquals(MILESTONES, client.getSyncedMilestones());
+        assertEquals(MILESTONES, server.getServedMilestones());
+        for (List<Hash> hashes : confirmed) {
+            for (Hash hash : hashes) {
+                assertTrue("confirmed transactions should be stored",
+                        TransactionViewModel.exists(clientTangle, hash));
+            }
+        }
+        Set<Hash> seen = new HashSet<>();
+        for (TransactionViewModel transaction : received) {
+            Hash trunk = transaction.getTrunkTransactionHash();
+            Hash branch = transaction.getBranchTransactionHash();
+            assertTrue("approvees should come first", seen.contains(trunk) || !isConfirmed(trunk));
+            assertTrue("approvees should come first", seen.contains(branch) || !isConfirmed(branch));
+            seen.add(transaction.getHash());
+        }
+    }
+
+    @Test
+    public void resumesAfterTheLastSyncedMilestone() throws Exception {
+        serverNode.addNeighbor(new TCPNeighbor(new InetSocketAddress("127.0.0.1", 15600), true));
+        List<Hash> received = new ArrayList<>();
+        CatchUpSyncClient client = new CatchUpSyncClient(null, PORT, (transaction, sender) -> {
+            received.add(transaction.getHash());
+            return transaction.store(clientTangle);
+        });
+
+        assertEquals(2, client.sync(new InetSocketAddress("127.0.0.1", PORT), 2, 2));
+        assertEquals(TRANSACTIONS_PER_MILESTONE + 1, received.size());
+        assertTrue(confirmed.get(1).containsAll(received));
+        assertEquals("nothing beyond the confirmed milestones", MILESTONES,
+                client.sync(new InetSocketAddress("127.0.0.1", PORT), MILESTONES + 1, MILESTONES + 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void refusesPeersThatAreNotNeighbors() throws Exception {
+        serverNode.addNeighbor(new TCPNeighbor(new InetSocketAddress("127.0.0.2", 15600), true));
+        CatchUpSyncClient client = new CatchUpSyncClient(null, PORT, (transaction, sender) -> true);
+        client.sync(new InetSocketAddress("127.0.0.1", PORT), 1, MILESTONES);
+    }
+
+    @Test
+    public void topologicalOrderPutsApproveesFirst() throws Exception {
+        List<TransactionViewModel> transactions = new ArrayList<>();
+        TransactionViewModel root = transaction(Hash.NULL_HASH, Hash.NULL_HASH);
+        TransactionViewModel left = transaction(root.getHash(), root.getHash());
+        TransactionViewModel right = transaction(root.getHash(), Hash.NULL_HASH);
+        TransactionViewModel top = transaction(left.getHash(), right.getHash());
+        transactions.add(top);
+        transactions.add(right);
+        transactions.add(left);
+        transactions.add(root);
+
+        List<TransactionViewModel> ordered = CatchUpSyncProtocol.topologicalOrder(transactions);
+
+        assertEquals(4, ordered.size());
+        assertEquals(root.getHash(), ordered.get(0).getHash());
+        assertEquals(top.getHash(), ordered.get(3).getHash());
+        assertFalse(ordered.subList(1, 3).contains(top));
+    }
+
+    private boolean isConfirmed(Hash hash) {
+        for (List<Hash> hashes : confirmed) {
+            if (hashes.contains(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Tangle open(String name) throws Exception {
+        Tangle tangle = new Tangle();
+        tangle.addPersistenceProvider(new RocksDBPersistenceProvider(folder.newFolder(name).getAbsolutePath(),
+                folder.newFolder(name + "-log").getAbsolutePath(), 1000));
+        tangle.init();
+        return tangle;
+    }
+
+    /**
+     * Stores transactions confirmed by a milestone that reference each other and the previous milestone, and the
+     * milestone itself, which is the last hash of the list.
+     */
+    private List<Hash> storeMilestone(int index, Hash previousMilestone) throws Exception {
+        List<Hash> hashes = new ArrayList<>();
+        Hash trunk = previousMilestone;
+        for (int i = 0; i < TRANSACTIONS_PER_MILESTONE; i++) {
+            Hash branch = hashes.isEmpty() || random.nextBoolean() ? previousMilestone
+                    : hashes.get(random.nextInt(hashes.size()));
+            trunk = store(transaction(trunk, branch), index);
+            hashes.add(trunk);
+        }
+        Hash milestone = store(transaction(trunk, previousMilestone), index);
+        hashes.add(milestone);
+        new MilestoneViewModel(index, milestone).store(serverTangle);
+        return hashes;
+    }
+
+    private Hash store(TransactionViewModel transaction, int index) throws Exception {
+        transaction.store(serverTangle);
+        transaction.setSnapshot(serverTangle, index);
+        return transaction.getHash();
+    }
+
+    private static TransactionViewModel transaction(Hash trunk, Hash branch) {
+        byte[] trits = TransactionViewModelTest.getRandomTransactionWithTrunkAndBranch(trunk, branch);
+        return new TransactionViewModel(trits, TransactionHash.calculate(SpongeFactory.Mode.CURLP81, trits));
+    }
+}
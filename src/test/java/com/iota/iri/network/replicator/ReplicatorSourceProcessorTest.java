@@ -0,0 +1,173 @@
+package com.iota.iri.network.replicator;
+
+import com.iota.iri.TransactionValidator;
+import com.iota.iri.conf.IotaConfig;
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.conf.SnapshotConfig;
+import com.iota.iri.controllers.TipsViewModel;
+import com.iota.iri.crypto.SpongeFactory;
+import com.iota.iri.model.Hash;
+import com.iota.iri.model.TransactionHash;
+import com.iota.iri.network.Neighbor;
+import com.iota.iri.network.Node;
+import com.iota.iri.network.TCPNeighbor;
+import com.iota.iri.network.TransactionRequester;
+import com.iota.iri.storage.Tangle;
+import com.iota.iri.utils.Converter;
+import com.iota.iri.zmq.MessageQ;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Feeds packets through the classic {@link ReplicatorSourceProcessor}, which reads every packet into the same buffer.
+ */
+public class ReplicatorSourceProcessorTest {
+
+    private RecordingNode node;
+    private ServerSocket listener;
+    private Socket peer;
+    private Thread processor;
+
+    @After
+    public void tearDown() throws Exception {
+        if (peer != null) {
+            peer.close();
+        }
+        if (processor != null) {
+            processor.join(5_000);
+        }
+        listener.close();
+        node.shutdown();
+    }
+
+    @Test
+    public void packetsReachTheReceiveQueue() throws Exception {
+        start();
+        assertPacketsReachTheReceiveQueue();
+    }
+
+    @Test
+    public void packetsReachTheReceiveQueueThroughTheHashingStage() throws Exception {
+        start("--batch-hashing", "true", "--hash-batch-latency", "100000");
+        assertPacketsReachTheReceiveQueue();
+    }
+
+    private void start(String... args) throws Exception {
+        IotaConfig config = new MainnetConfig();
+        config.parseConfigFromArgs(args);
+        // the validator is built like in its own package, with a minimum weight magnitude of 0 instead of a PoW
+        Constructor<TransactionValidator> constructor = TransactionValidator.class.getDeclaredConstructor(
+                Tangle.class, TipsViewModel.class, TransactionRequester.class, SnapshotConfig.class);
+        constructor.setAccessible(true);
+        TransactionValidator validator = constructor.newInstance(null, null, null, config);
+        Method setMwm = TransactionValidator.class.getDeclaredMethod("setMwm", boolean.class, int.class);
+        setMwm.setAccessible(true);
+        setMwm.invoke(validator, true, 0);
+        node = new RecordingNode(validator, config);
+        node.init();
+        node.addNeighbor(new TCPNeighbor(new InetSocketAddress("127.0.0.1", 15600), true));
+
+        listener = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        peer = new Socket("127.0.0.1", listener.getLocalPort());
+        Socket source = listener.accept();
+        processor = new Thread(new ReplicatorSourceProcessor(new NoSinkPool(node), source, node,
+                config.getMaxPeers(), false), "source processor");
+        processor.start();
+    }
+
+    private void assertPacketsReachTheReceiveQueue() throws Exception {
+        int packetSize = packetSize();
+        Random random = new Random(7);
+        OutputStream out = peer.getOutputStream();
+        out.write(String.format("%010d", 15600).getBytes());
+        List<Hash> expected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            byte[] packet = new byte[packetSize];
+            // a valid transaction without value, with a random message and a current timestamp
+            byte[] trits = new byte[TransactionViewModel.TRINARY_SIZE];
+            for (int j = 0; j < TransactionViewModel.SIGNATURE_MESSAGE_FRAGMENT_TRINARY_SIZE; j++) {
+                trits[j] = (byte) (random.nextInt(3) - 1);
+            }
+            Converter.copyTrits(System.currentTimeMillis() / 1000, trits, TransactionViewModel.TIMESTAMP_TRINARY_OFFSET,
+                    TransactionViewModel.TIMESTAMP_TRINARY_SIZE);
+            Converter.bytes(trits, 0, packet, 0, trits.length);
+            expected.add(TransactionHash.calculate(packet, TransactionViewModel.TRINARY_SIZE,
+                    SpongeFactory.create(SpongeFactory.Mode.CURLP81)));
+            out.write(packet);
+            out.write(SelectorReplicator.checksum(packet, packetSize));
+        }
+        out.flush();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (node.received.size() < expected.size() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        // the buffer of the processor is reused, every transaction must still have the bytes it was sent with
+        assertEquals(expected.size(), node.received.size());
+        for (TransactionViewModel transaction : node.received) {
+            assertTrue(expected.contains(transaction.getHash()));
+            assertEquals(transaction.getHash(), TransactionHash.calculate(transaction.getBytes(),
+                    TransactionViewModel.TRINARY_SIZE, SpongeFactory.create(SpongeFactory.Mode.CURLP81)));
+        }
+    }
+
+    private static int packetSize() {
+        return MainnetConfig.Defaults.PACKET_SIZE;
+    }
+
+    /**
+     * Records the transactions added to the receive queue instead of storing them.
+     */
+    private static class RecordingNode extends Node {
+        private final List<TransactionViewModel> received = new CopyOnWriteArrayList<>();
+
+        RecordingNode(TransactionValidator validator, IotaConfig config) {
+            super(null, validator, null, null, null, MessageQ.createWith(config), config);
+        }
+
+        @Override
+        public void addReceivedDataToReceiveQueue(TransactionViewModel transaction, Neighbor neighbor) {
+            received.add(transaction);
+        }
+
+        @Override
+        public void addReceivedDataToReplyQueue(Hash requestedHash, Neighbor neighbor) {
+            // no tangle to answer from
+        }
+    }
+
+    /**
+     * The sinks are not under test.
+     */
+    private static class NoSinkPool extends ReplicatorSinkPool {
+
+        NoSinkPool(Node node) {
+            super(node, 0, packetSize());
+        }
+
+        @Override
+        public void createSink(TCPNeighbor neighbor) {
+        }
+
+        @Override
+        public void shutdownSink(TCPNeighbor neighbor) {
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.iota.iri.network.replicator;
+
+import com.iota.iri.conf.IotaConfig;
+import com.iota.iri.conf.MainnetConfig;
+import com.iota.iri.network.Node;
+import com.iota.iri.network.PacketCompression;
+import com.iota.iri.network.TCPNeighbor;
+import com.iota.iri.utils.Crc32c;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Connects a fake neighbor to a {@link SelectorReplicator} over loopback and exchanges packets in both directions.
+ */
+public class SelectorReplicatorTest {
+
+    private static final int PORT = 15_701;
+    private static final String PEER_HOST = "127.0.0.2";
+
+    private IotaConfig config;
+    private CountingNode node;
+    private SelectorReplicator replicator;
+    private TCPNeighbor neighbor;
+    private ServerSocket peerListener;
+    private Socket peerSource;
+
+    @Before
+    public void setUp() throws Exception {
+        start();
+    }
+
+    private void start(String... args) throws Exception {
+        config = new MainnetConfig();
+        config.parseConfigFromArgs(new String[]{"-t", String.valueOf(PORT), "--tcp-io-threads", "2"});
+        config.parseConfigFromArgs(args);
+        node = new CountingNode(config);
+        peerListener = new ServerSocket(0, 1, InetAddress.getByName(PEER_HOST));
+        neighbor = new TCPNeighbor(new InetSocketAddress(PEER_HOST, peerListener.getLocalPort()), false);
+        node.addNeighbor(neighbor);
+        replicator = new SelectorReplicator(node, config);
+        replicator.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (peerSource != null) {
+            peerSource.close();
+        }
+        peerListener.close();
+        replicator.shutdown();
+    }
+
+    @Test
+    public void receivesPacketsAndSendsThroughSink() throws Exception {
+        peerSource = new Socket();
+        peerSource.bind(new InetSocketAddress(PEER_HOST, 0));
+        peerSource.connect(new InetSocketAddress("127.0.0.1", PORT), 5_000);
+        OutputStream out = peerSource.getOutputStream();
+        out.write(String.format("%010d", peerListener.getLocalPort()).getBytes());
+
+        int packetSize = config.getTransactionPacketSize();
+        byte[] packet = new byte[packetSize];
+        for (int i = 0; i < 10; i++) {
+            packet[0] = (byte) i;
+            out.write(packet);
+            out.write(SelectorReplicator.checksum(packet, packetSize));
+        }
+        // a corrupted packet is dropped
+        out.write(packet);
+        out.write(new byte[ReplicatorSinkProcessor.CRC32_BYTES]);
+        // split a packet over several writes
+        out.write(packet, 0, 100);
+        out.flush();
+        Thread.sleep(50);
+        out.write(packet, 100, packetSize - 100);
+        out.write(SelectorReplicator.checksum(packet, packetSize));
+        out.flush();
+
+        assertTrue("all valid packets should be processed", node.await(11));
+
+        // the replicator opens the sink to the port announced by the neighbor
+        peerListener.setSoTimeout(5_000);
+        try (Socket sink = peerListener.accept()) {
+            DataInputStream in = new DataInputStream(sink.getInputStream());
+            byte[] header = new byte[ReplicatorSinkPool.PORT_BYTES];
+            in.readFully(header);
+            assertEquals("the header should be the port like in the classic replicator",
+                    String.format("%010d", PORT), new String(header, StandardCharsets.US_ASCII));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (neighbor.getSink() == null || !neighbor.getSink().isConnected()) {
+                assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(5);
+            }
+            byte[] outgoing = new byte[packetSize];
+            for (int i = 0; i < 3; i++) {
+                outgoing[0] = (byte) (42 + i);
+                neighbor.send(new DatagramPacket(outgoing, packetSize));
+            }
+            for (int i = 0; i < 3; i++) {
+                byte[] received = new byte[packetSize];
+                byte[] checksum = new byte[ReplicatorSinkProcessor.CRC32_BYTES];
+                in.readFully(received);
+                in.readFully(checksum);
+                assertEquals(42 + i, received[0]);
+                assertArrayEquals(SelectorReplicator.checksum(received, packetSize), checksum);
+            }
+            // the sink counts a packet after the write returned, which may be after it arrived
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (neighbor.getNumberOfSentTransactions() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(3, neighbor.getNumberOfSentTransactions());
+        }
+    }
+
+    @Test
+    public void negotiatesBinaryFraming() throws Exception {
+        peerSource = new Socket();
+        peerSource.bind(new InetSocketAddress(PEER_HOST, 0));
+        peerSource.connect(new InetSocketAddress("127.0.0.1", PORT), 5_000);
+        peerSource.setSoTimeout(5_000);
+        DataOutputStream out = new DataOutputStream(peerSource.getOutputStream());
+        out.write(TcpFraming.header(peerListener.getLocalPort()));
+        out.flush();
+        assertEquals("the source should advertise the binary framing", TcpFraming.advertisement(TcpFraming.BINARY),
+                peerSource.getInputStream().read());
+
+        int packetSize = config.getTransactionPacketSize();
+        byte[] packet = new byte[packetSize];
+        // a text frame may still arrive before the switch
+        out.write(packet);
+        out.write(SelectorReplicator.checksum(packet, packetSize));
+        out.write(new byte[packetSize]);
+        out.write(TcpFraming.switchMarker(TcpFraming.BINARY));
+        out.write(binaryFrame(packetSize, 3, true));
+        // a corrupted frame is dropped as a whole
+        out.write(binaryFrame(packetSize, 2, false));
+        out.write(binaryFrame(packetSize, 1, true));
+        out.flush();
+        assertTrue("text and binary packets should be processed", node.await(5));
+
+        peerListener.setSoTimeout(5_000);
+        try (Socket sink = peerListener.accept()) {
+            DataInputStream in = new DataInputStream(sink.getInputStream());
+            byte[] header = new byte[ReplicatorSinkPool.PORT_BYTES];
+            in.readFully(header);
+            assertEquals(PORT, TcpFraming.port(header));
+            // a peer advertising a higher version gets the highest one both support
+            sink.getOutputStream().write(TcpFraming.advertisement(TcpFraming.COMPRESSED));
+
+            byte[] received = new byte[packetSize];
+            byte[] checksum = new byte[ReplicatorSinkProcessor.CRC32_BYTES];
+            in.readFully(received);
+            in.readFully(checksum);
+            assertArrayEquals(TcpFraming.switchMarker(TcpFraming.BINARY), checksum);
+
+            byte[] outgoing = new byte[packetSize];
+            for (int i = 0; i < 3; i++) {
+                outgoing[0] = (byte) (42 + i);
+                neighbor.send(new DatagramPacket(outgoing.clone(), packetSize));
+            }
+            int frames = 0;
+            for (int packets = 0; packets < 3; frames++) {
+                int length = in.readInt();
+                int count = TcpFraming.packetsIn(length, packetSize);
+                assertTrue("valid frame length " + length, count > 0);
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                Crc32c crc32c = new Crc32c();
+                crc32c.update(payload);
+                assertEquals((int) crc32c.getValue(), in.readInt());
+                for (int i = 0; i < count; i++, packets++) {
+                    assertEquals(42 + packets, payload[i * packetSize]);
+                }
+            }
+            assertTrue(frames <= 3);
+        }
+    }
+
+    @Test
+    public void negotiatesCompressedFraming() throws Exception {
+        replicator.shutdown();
+        peerListener.close();
+        start("--compressed-gossip", "true");
+
+        peerSource = new Socket();
+        peerSource.bind(new InetSocketAddress(PEER_HOST, 0));
+        peerSource.connect(new InetSocketAddress("127.0.0.1", PORT), 5_000);
+        peerSource.setSoTimeout(5_000);
+        DataOutputStream out = new DataOutputStream(peerSource.getOutputStream());
+        out.write(TcpFraming.header(peerListener.getLocalPort()));
+        out.flush();
+        assertEquals(TcpFraming.advertisement(TcpFraming.COMPRESSED), peerSource.getInputStream().read());
+
+        int packetSize = config.getTransactionPacketSize();
+        byte[] packet = new byte[packetSize];
+        packet[0] = 5;
+        packet[packetSize - 1] = 9;
+        byte[] entry = TcpFraming.compressedEntry(packet.clone(), packetSize);
+        assertEquals(TcpFraming.PACKET_LENGTH_BYTES + 1 + packetSize - PacketCompression.SIGNATURE_BYTES,
+                entry.length);
+        Crc32c crc32c = new Crc32c();
+        crc32c.update(entry);
+        crc32c.update(entry);
+        out.write(new byte[packetSize]);
+        out.write(TcpFraming.switchMarker(TcpFraming.COMPRESSED));
+        out.writeInt(2 * entry.length);
+        out.write(entry);
+        out.write(entry);
+        out.writeInt((int) crc32c.getValue());
+        out.flush();
+        assertTrue(node.await(2));
+        assertArrayEquals("the node should get the canonical packet", packet, node.last);
+
+        peerListener.setSoTimeout(5_000);
+        try (Socket sink = peerListener.accept()) {
+            DataInputStream in = new DataInputStream(sink.getInputStream());
+            byte[] header = new byte[ReplicatorSinkPool.PORT_BYTES];
+            in.readFully(header);
+            sink.getOutputStream().write(TcpFraming.advertisement(TcpFraming.COMPRESSED));
+            in.readFully(new byte[packetSize]);
+            byte[] marker = new byte[ReplicatorSinkProcessor.CRC32_BYTES];
+            in.readFully(marker);
+            assertArrayEquals(TcpFraming.switchMarker(TcpFraming.COMPRESSED), marker);
+
+            neighbor.send(new DatagramPacket(packet.clone(), packetSize));
+            int length = in.readInt();
+            assertEquals(entry.length, length);
+            byte[] received = new byte[length];
+            in.readFully(received);
+            in.readInt();
+            assertArrayEquals(packet, PacketCompression.decompress(received, TcpFraming.PACKET_LENGTH_BYTES,
+                    length - TcpFraming.PACKET_LENGTH_BYTES, packetSize));
+        }
+    }
+
+    private static byte[] binaryFrame(int packetSize, int packets, boolean valid) {
+        ByteBuffer frame = ByteBuffer.allocate(
+                TcpFraming.LENGTH_BYTES + packets * packetSize + TcpFraming.CHECKSUM_BYTES);
+        frame.putInt(packets * packetSize);
+        for (int i = 0; i < packets; i++) {
+            byte[] packet = new byte[packetSize];
+            packet[0] = (byte) i;
+            frame.put(packet);
+        }
+        Crc32c crc32c = new Crc32c();
+        crc32c.update(frame.array(), TcpFraming.LENGTH_BYTES, packets * packetSize);
+        frame.putInt((int) crc32c.getValue() + (valid ? 0 : 1));
+        return frame.array();
+    }
+
+    @Test
+    public void checksumMatchesClassicFormat() {
+        byte[] data = new byte[100];
+        Arrays.fill(data, (byte) 7);
+        java.util.zip.CRC32 crc32 = new java.util.zip.CRC32();
+        crc32.update(data);
+        String expected = String.format("%16s", Long.toHexString(crc32.getValue())).replace(' ', '0');
+        assertEquals(expected, new String(SelectorReplicator.checksum(data, data.length)));
+    }
+
+    /**
+     * A node that only counts the packets it was handed.
+     */
+    private static class CountingNode extends Node {
+        private final AtomicInteger received = new AtomicInteger();
+        private volatile byte[] last;
+
+        CountingNode(IotaConfig config) {
+            super(null, null, null, null, null, null, config);
+        }
+
+        @Override
+        public void preProcessReceivedData(byte[] receivedData, SocketAddress senderAddress, String uriScheme) {
+            last = receivedData;
+            received.incrementAndGet();
+        }
+
+        boolean await(int packets) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (received.get() < packets && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return received.get() == packets;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.iota.iri.storage;
+
+import com.iota.iri.controllers.TransactionViewModel;
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.model.IntegerIndex;
+import com.iota.iri.model.persistables.Transaction;
+import com.iota.iri.storage.rocksDB.RocksDBPersistenceProvider;
+import com.iota.iri.utils.Pair;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class GroupCommitWriterTest {
+    private final TemporaryFolder dbFolder = new TemporaryFolder();
+    private final TemporaryFolder logFolder = new TemporaryFolder();
+    private final Tangle tangle = new Tangle();
+    private GroupCommitWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        dbFolder.create();
+        logFolder.create();
+        tangle.addPersistenceProvider(new RocksDBPersistenceProvider(dbFolder.getRoot().getAbsolutePath(),
+                logFolder.getRoot().getAbsolutePath(), 1000));
+        tangle.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (writer != null) {
+            writer.shutdown();
+        }
+        tangle.shutdown();
+        dbFolder.delete();
+        logFolder.delete();
+    }
+
+    @Test
+    public void queuedBatchesAreMergedIntoOneWrite() throws Exception {
+        writer = new GroupCommitWriter(tangle, 1_000, 0);
+        List<TransactionViewModel> transactionViewModels = new ArrayList<>();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            TransactionViewModel transactionViewModel = new TransactionViewModel(
+                    TransactionViewModelTest.getRandomTransactionTrits(),
+                    TransactionViewModelTest.getRandomTransactionHash());
+            transactionViewModels.add(transactionViewModel);
+            futures.add(writer.submit(transactionViewModel.getSaveBatch()));
+        }
+        writer.init();
+        for (CompletableFuture<Boolean> future : futures) {
+            Assert.assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, writer.getWriteCount());
+        Assert.assertEquals(20, writer.getBatchCount());
+        for (TransactionViewModel transactionViewModel : transactionViewModels) {
+            Assert.assertArrayEquals(transactionViewModel.getBytes(),
+                    TransactionViewModel.fromHash(tangle, transactionViewModel.getHash()).getBytes());
+        }
+    }
+
+    @Test
+    public void writesAreLimitedByTheNumberOfEntries() throws Exception {
+        writer = new GroupCommitWriter(tangle, 14, TimeUnit.SECONDS.toNanos(1));
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(writer.submit(new TransactionViewModel(TransactionViewModelTest.getRandomTransactionTrits(),
+                    TransactionViewModelTest.getRandomTransactionHash()).getSaveBatch()));
+        }
+        writer.init();
+        for (CompletableFuture<Boolean> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals("7 entries per transaction, 2 transactions per write", 5, writer.getWriteCount());
+    }
+
+    @Test
+    public void laterBatchesWin() throws Exception {
+        writer = new GroupCommitWriter(tangle, 1_000, 0);
+        IntegerIndex index = new IntegerIndex(7);
+        CompletableFuture<Boolean> first = writer.submit(Collections.singletonList(new Pair<>(index,
+                transaction((byte) 1))));
+        CompletableFuture<Boolean> second = writer.submit(Collections.singletonList(new Pair<>(index,
+                transaction((byte) 2))));
+        writer.init();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(1, writer.getWriteCount());
+        Assert.assertEquals(2, tangle.load(Transaction.class, index).bytes()[0]);
+    }
+
+    @Test
+    public void storeWaitsForTheWrite() throws Exception {
+        writer = new GroupCommitWriter(tangle, 1_000, TimeUnit.MILLISECONDS.toNanos(1));
+        writer.init();
+        TransactionViewModel transactionViewModel = new TransactionViewModel(
+                TransactionViewModelTest.getRandomTransactionTrits(),
+                TransactionViewModelTest.getRandomTransactionHash());
+        Assert.assertTrue(transactionViewModel.store(tangle, writer));
+        Assert.assertTrue(TransactionViewModel.exists(tangle, transactionViewModel.getHash()));
+        Assert.assertFalse("a stored transaction is not stored again", transactionViewModel.store(tangle, writer));
+    }
+
+    @Test
+    public void submissionsAfterShutdownFail() throws Exception {
+        writer = new GroupCommitWriter(tangle, 1_000, 0);
+        writer.init();
+        writer.shutdown();
+        try {
+            writer.submit(Collections.emptyList()).get(5, TimeUnit.SECONDS);
+            Assert.fail("a batch submitted after the shutdown should not be written");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private static Persistable transaction(byte fill) {
+        Transaction transaction = new Transaction();
+        byte[] bytes = new byte[Transaction.SIZE];
+        Arrays.fill(bytes, fill);
+        transaction.read(bytes);
+        transaction.readMetadata(bytes);
+        return transaction;
+    }
+}
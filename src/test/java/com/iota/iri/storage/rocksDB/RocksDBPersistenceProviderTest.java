@@ -1,6 +1,10 @@
 package com.iota.iri.storage.rocksDB;
 
+import com.iota.iri.controllers.TransactionViewModelTest;
+import com.iota.iri.model.Hash;
 import com.iota.iri.model.IntegerIndex;
+import com.iota.iri.model.persistables.Address;
+import com.iota.iri.model.persistables.Hashes;
 import com.iota.iri.model.persistables.Transaction;
 import com.iota.iri.storage.Indexable;
 import com.iota.iri.storage.Persistable;
@@ -8,10 +12,17 @@ import com.iota.iri.utils.Pair;
 import org.apache.commons.io.FileUtils;
 import org.junit.*;
 import org.junit.runners.MethodSorters;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -38,6 +49,7 @@ public class RocksDBPersistenceProviderTest {
     @Before
     public void setUp() throws Exception {
         rocksDBPersistenceProvider.clear(Transaction.class);
+        rocksDBPersistenceProvider.clearMetadata(Transaction.class);
     }
 
     @SuppressWarnings("unchecked")
@@ -75,4 +87,259 @@ public class RocksDBPersistenceProviderTest {
                     rocksDBPersistenceProvider.get(Transaction.class, index).bytes());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLoadBatch() throws Exception {
+        List<Pair<Indexable, Persistable>> models = IntStream.range(0, 100)
+                .mapToObj(i -> {
+                    Persistable tx = new Transaction();
+                    byte[] bytes = new byte[Transaction.SIZE];
+                    Arrays.fill(bytes, (byte) i);
+                    tx.read(bytes);
+                    tx.readMetadata(bytes);
+                    return new Pair<>((Indexable) new IntegerIndex(i), tx);
+                })
+                .collect(Collectors.toList());
+        rocksDBPersistenceProvider.saveBatch(models);
+
+        List<IntegerIndex> indexes = IntStream.of(5, 1000, 42, 5, 99)
+                .mapToObj(IntegerIndex::new)
+                .collect(Collectors.toList());
+        List<Persistable> loaded = rocksDBPersistenceProvider.loadBatch(Transaction.class, indexes);
+
+        Assert.assertEquals(indexes.size(), loaded.size());
+        for (int i = 0; i < indexes.size(); i++) {
+            Persistable expected = rocksDBPersistenceProvider.get(Transaction.class, indexes.get(i));
+            Assert.assertArrayEquals("bytes at index " + indexes.get(i).getValue(), expected.bytes(),
+                    loaded.get(i).bytes());
+            if (expected.bytes() != null) {
+                Assert.assertArrayEquals("metadata at index " + indexes.get(i).getValue(), expected.metadata(),
+                        loaded.get(i).metadata());
+            }
+        }
+        Assert.assertNull("a missing key should load an empty object", loaded.get(1).bytes());
+        Assert.assertEquals(42, loaded.get(2).bytes()[0]);
+        Assert.assertTrue(rocksDBPersistenceProvider.loadBatch(Transaction.class, Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testExistsWithFilter() throws Exception {
+        String filterDbPath = "tmpdb-filter";
+        String filterDbLogPath = "tmplogs-filter";
+        RocksDBPersistenceProvider provider = new RocksDBPersistenceProvider(filterDbPath, filterDbLogPath, 10000,
+                true);
+        try {
+            provider.init();
+            Persistable tx = new Transaction();
+            byte[] bytes = new byte[Transaction.SIZE];
+            Arrays.fill(bytes, (byte) 1);
+            tx.read(bytes);
+            tx.readMetadata(bytes);
+            List<Pair<Indexable, Persistable>> models = IntStream.range(0, 100)
+                    .mapToObj(i -> new Pair<>((Indexable) new IntegerIndex(i), tx))
+                    .collect(Collectors.toList());
+            provider.saveBatch(models);
+            provider.save(tx, new IntegerIndex(100));
+            for (int i = 0; i <= 100; i++) {
+                Assert.assertTrue("index " + i + " should exist", provider.exists(Transaction.class,
+                        new IntegerIndex(i)));
+            }
+            Assert.assertFalse(provider.exists(Transaction.class, new IntegerIndex(1000)));
+            Assert.assertEquals(101, provider.getTransactionFilter().size());
+
+            provider.delete(Transaction.class, new IntegerIndex(5));
+            Assert.assertFalse("a deleted key is still looked up in the database",
+                    provider.exists(Transaction.class, new IntegerIndex(5)));
+            Assert.assertEquals(1, provider.getTransactionFilter().getRemovals());
+
+            provider.shutdown();
+            provider = new RocksDBPersistenceProvider(filterDbPath, filterDbLogPath, 10000, true);
+            provider.init();
+            Assert.assertEquals("the filter is built from the stored keys", 100,
+                    provider.getTransactionFilter().size());
+            Assert.assertTrue(provider.exists(Transaction.class, new IntegerIndex(100)));
+        } finally {
+            provider.shutdown();
+            FileUtils.deleteQuietly(new File(filterDbPath));
+            FileUtils.deleteQuietly(new File(filterDbLogPath));
+        }
+    }
+
+    @Test
+    public void testExistsWithoutCopyingTheValue() throws Exception {
+        Persistable tx = new Transaction();
+        byte[] bytes = new byte[Transaction.SIZE];
+        Arrays.fill(bytes, (byte) 3);
+        tx.read(bytes);
+        tx.readMetadata(bytes);
+        rocksDBPersistenceProvider.save(tx, new IntegerIndex(1));
+        Assert.assertTrue(rocksDBPersistenceProvider.exists(Transaction.class, new IntegerIndex(1)));
+        Assert.assertFalse(rocksDBPersistenceProvider.exists(Transaction.class, new IntegerIndex(2)));
+        Assert.assertNull(rocksDBPersistenceProvider.getTransactionFilter());
+    }
+
+    @Test
+    public void testUpdateMergesPatches() throws Exception {
+        Transaction tx = new Transaction();
+        byte[] bytes = new byte[Transaction.SIZE];
+        Arrays.fill(bytes, (byte) 4);
+        tx.read(bytes);
+        tx.readMetadata(bytes);
+        // without a sender the metadata ends with the snapshot index
+        tx.setSender("");
+        tx.setSnapshot(255);
+        rocksDBPersistenceProvider.save(tx, new IntegerIndex(1));
+
+        tx.setSolid(true);
+        tx.setHeight(17);
+        rocksDBPersistenceProvider.update(tx, new IntegerIndex(1), "solid|height");
+        tx.setArrivalTime(42);
+        tx.setSender("/127.0.0.1:14600");
+        rocksDBPersistenceProvider.update(tx, new IntegerIndex(1), "arrivalTime|sender");
+        tx.setHeight(18);
+        rocksDBPersistenceProvider.update(tx, new IntegerIndex(1), "height");
+
+        Transaction stored = (Transaction) rocksDBPersistenceProvider.get(Transaction.class, new IntegerIndex(1));
+        Assert.assertTrue(stored.getSolid());
+        Assert.assertEquals(18, stored.getHeight());
+        Assert.assertEquals(255, stored.getSnapshot());
+        Assert.assertEquals(42, stored.getArrivalTime());
+        Assert.assertEquals("/127.0.0.1:14600", stored.getSender());
+        Assert.assertEquals(tx.getAddress(), stored.getAddress());
+        Assert.assertEquals(tx.getValue(), stored.getValue());
+        Assert.assertArrayEquals(tx.metadata(), stored.metadata());
+    }
+
+    @Test
+    public void testPatchWithoutMetadata() throws Exception {
+        Transaction tx = new Transaction();
+        tx.setSnapshot(3);
+        tx.setValidity(1);
+        rocksDBPersistenceProvider.update(tx, new IntegerIndex(2), "snapshot|validity");
+
+        Transaction stored = (Transaction) rocksDBPersistenceProvider.get(Transaction.class, new IntegerIndex(2));
+        Assert.assertNull(stored.bytes());
+        Assert.assertEquals(3, stored.getSnapshot());
+        Assert.assertEquals(1, stored.getValidity());
+        Assert.assertNull(stored.getAddress());
+        Assert.assertNull("only known fields are patched", tx.metadataPatch("solid|type"));
+    }
+
+    @Test
+    public void testCompositeIndex() throws Exception {
+        String indexDbPath = "tmpdb-index";
+        String indexDbLogPath = "tmplogs-index";
+        RocksDBPersistenceProvider provider = new RocksDBPersistenceProvider(indexDbPath, indexDbLogPath, 10000,
+                false, true);
+        try {
+            provider.init();
+            Hash first = TransactionViewModelTest.getRandomTransactionHash();
+            Hash second = TransactionViewModelTest.getRandomTransactionHash();
+            Set<Hash> hashes = new HashSet<>();
+            List<Pair<Indexable, Persistable>> models = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                Hash hash = TransactionViewModelTest.getRandomTransactionHash();
+                hashes.add(hash);
+                models.add(new Pair<>(first, new Address(hash)));
+            }
+            models.add(new Pair<>(second, new Address(first)));
+            provider.saveBatch(models);
+            Hash last = TransactionViewModelTest.getRandomTransactionHash();
+            provider.save(new Address(last), first);
+            hashes.add(last);
+
+            Assert.assertEquals(hashes, ((Hashes) provider.get(Address.class, first)).getSet());
+            Assert.assertEquals(Collections.singleton(first), ((Hashes) provider.get(Address.class, second)).getSet());
+            Assert.assertTrue(provider.exists(Address.class, first));
+            Assert.assertFalse(provider.exists(Address.class, last));
+
+            Set<Hash> paged = new HashSet<>();
+            Hash after = null;
+            List<Hash> page;
+            int pages = 0;
+            // only a full page can be followed by another one
+            do {
+                page = provider.loadHashesPage(Address.class, first, after, 5);
+                Assert.assertTrue(page.size() <= 5);
+                paged.addAll(page);
+                after = page.isEmpty() ? null : page.get(page.size() - 1);
+                pages++;
+            } while (page.size() == 5);
+            Assert.assertEquals(hashes, paged);
+            Assert.assertEquals(3, pages);
+
+            Pair<Indexable, Persistable> firstKey = provider.first(Address.class, Hash.class);
+            Pair<Indexable, Persistable> secondKey = provider.next(Address.class, firstKey.low);
+            Set<String> expectedKeys = new HashSet<>(Arrays.asList(Arrays.toString(first.bytes()),
+                    Arrays.toString(second.bytes())));
+            Set<String> iteratedKeys = new HashSet<>(Arrays.asList(Arrays.toString(firstKey.low.bytes()),
+                    Arrays.toString(secondKey.low.bytes())));
+            Assert.assertEquals(expectedKeys, iteratedKeys);
+            Assert.assertEquals(Arrays.equals(first.bytes(), firstKey.low.bytes()) ? 11 : 1,
+                    ((Hashes) firstKey.hi).getSet().size());
+            Assert.assertNull(provider.next(Address.class, secondKey.low).low);
+
+            provider.delete(Address.class, first);
+            Assert.assertFalse(provider.exists(Address.class, first));
+            Assert.assertTrue(((Hashes) provider.get(Address.class, first)).getSet().isEmpty());
+            Assert.assertTrue(provider.exists(Address.class, second));
+        } finally {
+            provider.shutdown();
+            FileUtils.deleteQuietly(new File(indexDbPath));
+            FileUtils.deleteQuietly(new File(indexDbLogPath));
+        }
+    }
+
+    @Test
+    public void testIndexMigration() throws Exception {
+        String indexDbPath = "tmpdb-migration";
+        String indexDbLogPath = "tmplogs-migration";
+        RocksDBPersistenceProvider provider = new RocksDBPersistenceProvider(indexDbPath, indexDbLogPath, 10000);
+        try {
+            provider.init();
+            List<Hash> keys = new ArrayList<>();
+            List<Set<Hash>> hashes = new ArrayList<>();
+            for (int k = 0; k < 3; k++) {
+                keys.add(TransactionViewModelTest.getRandomTransactionHash());
+                hashes.add(new HashSet<>());
+                for (int i = 0; i < 5 + k; i++) {
+                    Hash hash = TransactionViewModelTest.getRandomTransactionHash();
+                    hashes.get(k).add(hash);
+                    provider.saveBatch(Collections.singletonList(new Pair<>(keys.get(k), new Address(hash))));
+                }
+            }
+
+            for (boolean composite : new boolean[]{true, false}) {
+                provider.shutdown();
+                // releases without the composite layout cannot open a database with its column families
+                Assert.assertEquals(!composite, hasIndexColumnFamilies(indexDbPath));
+                provider = new RocksDBPersistenceProvider(indexDbPath, indexDbLogPath, 10000, false, composite);
+                provider.init();
+                for (int k = 0; k < keys.size(); k++) {
+                    Assert.assertEquals(hashes.get(k), ((Hashes) provider.get(Address.class, keys.get(k))).getSet());
+                    Assert.assertEquals(hashes.get(k),
+                            new HashSet<>(provider.loadHashesPage(Address.class, keys.get(k), null, 100)));
+                    if (!composite) {
+                        // a hash list is read as a whole, its only page is larger than the limit
+                        Assert.assertEquals(hashes.get(k),
+                                new HashSet<>(provider.loadHashesPage(Address.class, keys.get(k), null, 2)));
+                    }
+                }
+            }
+            provider.shutdown();
+            Assert.assertFalse("the column families should be dropped after migrating back",
+                    hasIndexColumnFamilies(indexDbPath));
+        } finally {
+            provider.shutdown();
+            FileUtils.deleteQuietly(new File(indexDbPath));
+            FileUtils.deleteQuietly(new File(indexDbLogPath));
+        }
+    }
+
+    private static boolean hasIndexColumnFamilies(String path) throws RocksDBException {
+        try (Options options = new Options()) {
+            return RocksDB.listColumnFamilies(options, path).stream()
+                    .anyMatch(name -> new String(name).endsWith("-index"));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.iota.iri.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Checksum;
+
+public class Crc32cTest {
+
+    @Test
+    public void testCheckValue() {
+        Crc32c crc32c = new Crc32c();
+        crc32c.update("123456789".getBytes(StandardCharsets.US_ASCII));
+        Assert.assertEquals("standard check value of CRC-32C", 0xE3069283L, crc32c.getValue());
+        crc32c.reset();
+        Assert.assertEquals("empty input", 0L, crc32c.getValue());
+    }
+
+    @Test
+    public void testSplitUpdatesMatchCreatedChecksum() {
+        Random random = new Random(7);
+        for (int length = 0; length < 100; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            Crc32c crc32c = new Crc32c();
+            int split = length == 0 ? 0 : random.nextInt(length);
+            crc32c.update(data, 0, split);
+            if (split < length) {
+                crc32c.update(data[split]);
+                crc32c.update(data, split + 1, length - split - 1);
+            }
+            Checksum created = Crc32c.create();
+            created.update(data, 0, length);
+            Assert.assertEquals("length " + length, created.getValue(), crc32c.getValue());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.iota.iri.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(10_000L);
+        }
+        histogram.record(5_000_000L);
+        Assert.assertEquals("wrong count", 100, histogram.getCount());
+        Assert.assertEquals("10us belongs to the bucket below 16us", 16, histogram.getPercentileMicros(0.5));
+        Assert.assertEquals(16, histogram.getPercentileMicros(0.99));
+        Assert.assertEquals("5ms belongs to the bucket below 8192us", 8192, histogram.getPercentileMicros(1.0));
+        Assert.assertEquals("wrong max", 5_000, histogram.getMaxMicros());
+        Assert.assertEquals("wrong mean", (99 * 10 + 5_000) / 100, histogram.getMeanMicros());
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1L);
+        histogram.record(1_000L);
+        Assert.assertEquals(2, histogram.getCount());
+        Assert.assertEquals("sub microsecond durations belong to the first bucket", 1,
+                histogram.getPercentileMicros(0.5));
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getPercentileMicros(0.99));
+        Assert.assertEquals(0, histogram.getMaxMicros());
+    }
+}
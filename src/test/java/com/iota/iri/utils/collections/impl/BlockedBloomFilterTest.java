@@ -0,0 +1,122 @@
+package com.iota.iri.utils.collections.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BlockedBloomFilterTest {
+
+    private final Random random = new Random(1);
+
+    private byte[] key() {
+        byte[] key = new byte[49];
+        random.nextBytes(key);
+        return key;
+    }
+
+    @Test
+    public void addedKeysAreAlwaysFound() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(10_000, 10);
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            byte[] key = key();
+            keys.add(key);
+            filter.put(key);
+        }
+        for (byte[] key : keys) {
+            Assert.assertTrue(filter.mightContain(key));
+        }
+        Assert.assertEquals(10_000, filter.size());
+    }
+
+    @Test
+    public void falsePositivesStayNearTheDesignRate() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(100_000, 10);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put(key());
+        }
+        Assert.assertEquals(1, filter.getSegmentCount());
+        double rate = falsePositiveRate(filter);
+        Assert.assertTrue("false positive rate " + rate, rate < 0.015);
+    }
+
+    @Test
+    public void theFilterGrowsWithSegments() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(1_024, 10);
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            byte[] key = key();
+            keys.add(key);
+            filter.put(key);
+        }
+        // 1024 + 2048 + 4096 + 8192 + 16384
+        Assert.assertEquals(5, filter.getSegmentCount());
+        for (byte[] key : keys) {
+            Assert.assertTrue(filter.mightContain(key));
+        }
+        double rate = falsePositiveRate(filter);
+        Assert.assertTrue("false positive rate " + rate, rate < 0.05);
+    }
+
+    @Test
+    public void keysWithACommonPrefixSpread() {
+        BlockedBloomFilter filter = new BlockedBloomFilter(10_000, 10);
+        for (int i = 0; i < 10_000; i++) {
+            byte[] key = new byte[49];
+            key[47] = (byte) i;
+            key[48] = (byte) (i >>> 8);
+            filter.put(key);
+        }
+        double rate = falsePositiveRate(filter);
+        Assert.assertTrue("false positive rate " + rate, rate < 0.015);
+    }
+
+    @Test
+    public void concurrentPutsAreNotLost() throws InterruptedException {
+        BlockedBloomFilter filter = new BlockedBloomFilter(1_024, 10);
+        byte[][][] keys = new byte[4][5_000][];
+        for (byte[][] threadKeys : keys) {
+            for (int i = 0; i < threadKeys.length; i++) {
+                threadKeys[i] = key();
+            }
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (byte[][] threadKeys : keys) {
+            Thread thread = new Thread(() -> {
+                for (byte[] key : threadKeys) {
+                    filter.put(key);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (byte[][] threadKeys : keys) {
+            for (byte[] key : threadKeys) {
+                Assert.assertTrue(filter.mightContain(key));
+            }
+        }
+        Assert.assertEquals(20_000, filter.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createFilterWithoutBitsWithException() {
+        new BlockedBloomFilter(100, 0);
+    }
+
+    private double falsePositiveRate(BlockedBloomFilter filter) {
+        int positives = 0;
+        int lookups = 100_000;
+        for (int i = 0; i < lookups; i++) {
+            if (filter.mightContain(key())) {
+                positives++;
+            }
+        }
+        return (double) positives / lookups;
+    }
+}
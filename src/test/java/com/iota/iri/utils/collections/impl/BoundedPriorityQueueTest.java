@@ -0,0 +1,123 @@
+package com.iota.iri.utils.collections.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+public class BoundedPriorityQueueTest {
+
+    private static BoundedPriorityQueue<Integer> queue(int capacity, Function<Integer, ?> identity) {
+        // priority is the tens digit, so 10 and 11 share a bucket
+        return new BoundedPriorityQueue<>(capacity, 9, i -> i / 10, identity);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createQueueWithException() {
+        queue(0, null);
+    }
+
+    @Test
+    public void testPollOrder() {
+        BoundedPriorityQueue<Integer> queue = queue(10, null);
+        for (int i : new int[]{10, 30, 11, 20, 31}) {
+            Assert.assertTrue("can't offer", queue.offer(i));
+        }
+        Assert.assertEquals("size is wrong", 5, queue.size());
+        for (int expected : new int[]{30, 31, 20, 10, 11}) {
+            Assert.assertEquals("wrong poll order", Integer.valueOf(expected), queue.poll());
+        }
+        Assert.assertNull("queue should be empty", queue.poll());
+        Assert.assertEquals("size is wrong", 0, queue.size());
+    }
+
+    @Test
+    public void testEvictLowestWhenFull() {
+        BoundedPriorityQueue<Integer> queue = queue(3, null);
+        queue.offer(10);
+        queue.offer(11);
+        queue.offer(20);
+        Assert.assertTrue("higher priority should replace lowest", queue.offer(30));
+        Assert.assertFalse("lowest priority should be rejected", queue.offer(5));
+        Assert.assertFalse("equal to lowest priority should be rejected", queue.offer(12));
+        Assert.assertEquals("size is wrong", 3, queue.size());
+        Assert.assertEquals("evictions are wrong", 3, queue.getEvictedCount());
+        Assert.assertEquals(Integer.valueOf(30), queue.poll());
+        Assert.assertEquals(Integer.valueOf(20), queue.poll());
+        Assert.assertEquals("newest of the lowest bucket should have been evicted", Integer.valueOf(10), queue.poll());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void testPrioritiesAreClamped() {
+        BoundedPriorityQueue<Integer> queue = queue(3, null);
+        queue.offer(-5);
+        queue.offer(500);
+        queue.offer(95);
+        Assert.assertEquals(Integer.valueOf(500), queue.poll());
+        Assert.assertEquals(Integer.valueOf(95), queue.poll());
+        Assert.assertEquals(Integer.valueOf(-5), queue.poll());
+    }
+
+    @Test
+    public void testDuplicatesAreRejectedWhileQueued() {
+        BoundedPriorityQueue<Integer> queue = queue(2, Function.identity());
+        Assert.assertTrue(queue.offer(10));
+        Assert.assertFalse("duplicate should be rejected", queue.offer(10));
+        Assert.assertEquals("size is wrong", 1, queue.size());
+        queue.poll();
+        Assert.assertTrue("polled element can be queued again", queue.offer(10));
+        queue.poll();
+
+        queue.offer(20);
+        queue.offer(30);
+        Assert.assertTrue(queue.offer(40));
+        Assert.assertEquals(Integer.valueOf(40), queue.poll());
+        Assert.assertTrue("evicted element can be queued again", queue.offer(20));
+        Assert.assertEquals(Integer.valueOf(30), queue.poll());
+        Assert.assertEquals(Integer.valueOf(20), queue.poll());
+    }
+
+    @Test
+    public void testDrainToBatch() throws InterruptedException {
+        BoundedPriorityQueue<Integer> queue = queue(10, null);
+        for (int i : new int[]{10, 30, 20}) {
+            queue.offer(i);
+        }
+        List<Integer> batch = new ArrayList<>();
+        Assert.assertEquals("wrong batch size", 2, queue.drainTo(batch, 2, 0, TimeUnit.MILLISECONDS));
+        Assert.assertEquals("wrong batch", Arrays.asList(30, 20), batch);
+        Assert.assertEquals("size is wrong", 1, queue.size());
+    }
+
+    @Test
+    public void testDrainToTimesOutWhenEmpty() throws InterruptedException {
+        BoundedPriorityQueue<Integer> queue = queue(10, null);
+        List<Integer> batch = new ArrayList<>();
+        Assert.assertEquals("nothing should be drained", 0, queue.drainTo(batch, 5, 10, TimeUnit.MILLISECONDS));
+        Assert.assertTrue("batch should be empty", batch.isEmpty());
+    }
+
+    @Test
+    public void testDrainToWakesUpOnOffer() throws Exception {
+        BoundedPriorityQueue<Integer> queue = queue(10, null);
+        List<Integer> batch = new ArrayList<>();
+        CompletableFuture<Integer> drained = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.drainTo(batch, 5, 10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        queue.offer(42);
+        Assert.assertEquals("waiting consumer should get the element", Integer.valueOf(1),
+                drained.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList(42), batch);
+    }
+}
@@ -0,0 +1,180 @@
+package com.iota.iri.utils.collections.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WeightedLaneQueueTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * The lane is the hundreds digit and the priority the tens digit, so 210 is in lane 2 with priority 1.
+     */
+    private WeightedLaneQueue<Integer> queue(int capacity, int... weights) {
+        return new WeightedLaneQueue<>(capacity, 9, i -> i / 10 % 10, i -> i, i -> i / 100 % 10, weights,
+                clock::get);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createQueueWithoutWeightWithException() {
+        queue(10, 2, 0);
+    }
+
+    @Test
+    public void lanesAreServedByWeight() {
+        WeightedLaneQueue<Integer> queue = queue(100, 3, 1);
+        for (int i = 0; i < 40; i++) {
+            queue.offer(i);
+            queue.offer(100 + i);
+        }
+        int first = 0;
+        for (int i = 0; i < 40; i++) {
+            if (queue.poll() < 100) {
+                first++;
+            }
+        }
+        Assert.assertEquals("lane 0 should get 3 of every 4 turns", 30, first);
+        Assert.assertEquals(30, queue.getServedCount(0));
+        Assert.assertEquals(10, queue.getServedCount(1));
+    }
+
+    @Test
+    public void turnsAreSpreadOut() {
+        WeightedLaneQueue<Integer> queue = queue(100, 2, 1);
+        for (int i = 0; i < 9; i++) {
+            queue.offer(i);
+            queue.offer(100 + i);
+        }
+        StringBuilder lanes = new StringBuilder();
+        for (int i = 0; i < 9; i++) {
+            lanes.append(queue.poll() / 100);
+        }
+        Assert.assertEquals("010010010", lanes.toString());
+    }
+
+    @Test
+    public void emptyLanesAreSkipped() {
+        WeightedLaneQueue<Integer> queue = queue(100, 8, 1);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(100 + i);
+        }
+        Assert.assertEquals(5, queue.size());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(Integer.valueOf(100 + i), queue.poll());
+        }
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void priorityOrderWithinALane() {
+        WeightedLaneQueue<Integer> queue = queue(100, 1);
+        for (int i : new int[]{10, 30, 11, 20}) {
+            Assert.assertTrue(queue.offer(i));
+        }
+        Assert.assertFalse("duplicates should be rejected", queue.offer(30));
+        for (int expected : new int[]{30, 20, 10, 11}) {
+            Assert.assertEquals(Integer.valueOf(expected), queue.poll());
+        }
+    }
+
+    @Test
+    public void aFullLaneEvictsOnlyItsOwnElements() {
+        WeightedLaneQueue<Integer> queue = queue(3, 1, 1);
+        queue.offer(5);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(100 + 10 * (i % 10));
+        }
+        Assert.assertEquals(4, queue.size());
+        Assert.assertEquals(6, queue.getCapacity());
+        Assert.assertEquals(0, queue.getEvictedCount(0));
+        Assert.assertEquals(7, queue.getEvictedCount(1));
+        Assert.assertEquals(7, queue.getEvictedCount());
+        Assert.assertEquals(Integer.valueOf(5), queue.poll());
+    }
+
+    @Test
+    public void waitIsRecordedPerLane() {
+        WeightedLaneQueue<Integer> queue = queue(10, 1, 1);
+        queue.offer(1);
+        queue.offer(101);
+        clock.set(3 * MS);
+        queue.poll();
+        clock.set(100 * MS);
+        queue.poll();
+        Assert.assertEquals(4096, queue.getWait(0).getPercentileMicros(0.99));
+        Assert.assertEquals(131_072, queue.getWait(1).getPercentileMicros(0.99));
+    }
+
+    @Test
+    public void drainToWaitsForTheFirstElement() throws InterruptedException {
+        WeightedLaneQueue<Integer> queue = queue(10, 1, 1);
+        List<Integer> batch = new ArrayList<>();
+        Assert.assertEquals(0, queue.drainTo(batch, 10, 1, TimeUnit.MILLISECONDS));
+        queue.offer(1);
+        queue.offer(2);
+        queue.offer(101);
+        Assert.assertEquals(2, queue.drainTo(batch, 2, 1, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, queue.size());
+    }
+
+    /**
+     * A burst of spam with a higher weight magnitude than the milestone transactions is queued at once, while
+     * milestone transactions keep arriving. The consumer processes one element per millisecond.
+     */
+    @Test
+    public void milestoneLagStaysBoundedDuringASpamBurst() {
+        int spam = 10_000;
+        // lanes 0 to 2: milestone, requested, unsolicited
+        WeightedLaneQueue<Integer> lanes = queue(spam, 16, 4, 1);
+        long lanesLag = spamBurst(lanes, spam, 2);
+        Assert.assertTrue("milestone transactions should wait a millisecond at most, not " + lanesLag + "ms",
+                lanesLag <= 1);
+        Assert.assertEquals(spam / 100, lanes.getServedCount(0));
+        Assert.assertTrue(lanes.getWait(0).getPercentileMicros(0.99) <= 2_048);
+
+        clock.set(0);
+        WeightedLaneQueue<Integer> single = queue(2 * spam, 1);
+        long singleLag = spamBurst(single, spam, 0);
+        Assert.assertTrue("in a single lane the spam should go first, but milestone transactions waited "
+                + singleLag + "ms", singleLag >= TimeUnit.SECONDS.toMillis(1));
+    }
+
+    /**
+     * @return the longest time a milestone transaction was queued in milliseconds
+     */
+    private long spamBurst(WeightedLaneQueue<Integer> queue, int spam, int spamLane) {
+        // spam has priority 9, milestone transactions in lane 0 priority 1, the thousands are unique ids
+        for (int i = 0; i < spam; i++) {
+            queue.offer(i * 1000 + spamLane * 100 + 90);
+        }
+        List<Long> queuedAt = new ArrayList<>();
+        long lag = 0;
+        for (int i = 0; i < spam; i++) {
+            if (i % 100 == 0) {
+                queue.offer(queuedAt.size() * 1000 + 10);
+                queuedAt.add(clock.get());
+            }
+            int element = queue.poll();
+            if (element % 1000 == 10) {
+                lag = Math.max(lag, clock.get() - queuedAt.get(element / 1000));
+            }
+            clock.addAndGet(MS);
+        }
+        Assert.assertEquals("the burst should leave milestone transactions behind in a single lane only",
+                spamLane == 0, queue.size(0) > 0);
+        for (Integer element; (element = queue.poll()) != null; clock.addAndGet(MS)) {
+            if (element % 1000 == 10) {
+                lag = Math.max(lag, clock.get() - queuedAt.get(element / 1000));
+            }
+        }
+        return lag / MS;
+    }
+}